@@ -111,6 +111,12 @@ public interface Event {
 		}
 	}
 
+	/** Event triggered after each tick when ticking and drawing run on separate threads, on the ticking thread; the
+	 * state needed to draw should be published here.
+	 * 
+	 * @see ak5.Loop.Pipelined */
+	public static final class Publish extends EventImpl implements Event {}
+
 	public static final class Create extends EventImpl implements Event {}
 
 	public static final class Dispose extends EventImpl implements Event {}
@@ -3,27 +3,29 @@
  */
 package ak5;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import ak5.ui.Widget;
+import ak5.util.Profiler;
 
 /** An aggregate of handlers, whose {@linkplain #handle(ak5.Event) handle} iterates downwards.
  * 
  * @author pwnedary */
 public class Group implements Handler {
-	/** Map of events to their subscribed handlers. */
-	public Map<Class<? extends Event>, List<Handler>> handlers = new HashMap<>();
+	/** Map of events to their subscribed handlers. Events may be published from both the simulation and the render
+	 * thread: each publication iterates a snapshot of its list, while changes to the lists are copies made under the
+	 * lock of this map. */
+	public Map<Class<? extends Event>, List<Handler>> handlers = new ConcurrentHashMap<>();
 	/** The ancestor of this group. */
 	protected Group parent;
 	/** Whether the handlers should receive events. */
 	private boolean active = true;
 
 	public Group(Group parent) {
-		handlers.put(Event.class, new ArrayList<Handler>());
+		handlers.put(Event.class, new CopyOnWriteArrayList<Handler>());
 		if ((this.parent = parent) != null) parent.register(this);
 	}
 
@@ -36,12 +38,19 @@ public class Group implements Handler {
 		if (!isActive()) return true;
 		boolean value = false;
 		Class<? extends Event> eventType = event.getClass();
-		List<Handler> handlers;
-		if (!this.handlers.containsKey(eventType)) this.handlers.put(eventType, handlers = new ArrayList<>(this.handlers.get(Event.class)));
-		else handlers = this.handlers.get(eventType);
-
-		for (int i = 0; i < handlers.size() && !event.cancelled(); i++)
-			if (!(value |= handlers.get(i).handle(event))) handlers.remove(i);
+		List<Handler> handlers = this.handlers.get(eventType);
+		if (handlers == null) synchronized (this.handlers) {
+			if ((handlers = this.handlers.get(eventType)) == null) this.handlers.put(eventType, handlers = new CopyOnWriteArrayList<>(this.handlers.get(Event.class)));
+		}
+
+		for (Handler handler : handlers) {
+			if (event.cancelled()) break;
+			long start = Profiler.enabled ? System.nanoTime() : 0;
+			if (!(value |= handler.handle(event))) synchronized (this.handlers) {
+				handlers.remove(handler);
+			}
+			if (start != 0) Profiler.scope(handler.getClass()).record(System.nanoTime() - start);
+		}
 		return value;
 	}
 
@@ -51,15 +60,19 @@ public class Group implements Handler {
 	public void register(Handler handler) {
 		if (handler == null) throw new IllegalArgumentException("handler cannot be null");
 		// handlers.get(Event.class).add(handler);
-		for (List<Handler> handlers : this.handlers.values())
-			handlers.add(handler);
+		synchronized (this.handlers) {
+			for (List<Handler> handlers : this.handlers.values())
+				handlers.add(handler);
+		}
 		if (handler instanceof Group) ((Group) handler).setParent(this);
 		else if (handler instanceof Widget) ((Widget) handler).setParent(this);
 	}
 
 	public void unregister(Handler handler) {
-		for (Iterator<Handler> iterator = handlers.get(Event.class).iterator(); iterator.hasNext();)
-			if (iterator.next().equals(handler)) iterator.remove();
+		synchronized (handlers) {
+			for (List<Handler> handlers : this.handlers.values())
+				handlers.remove(handler);
+		}
 	}
 
 	/** Returns this {@link Group}'s ancestor.
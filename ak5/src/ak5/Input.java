@@ -219,4 +219,99 @@ public interface Input {
 		public static final int KEY_CONTROL = 213;
 		public static final int KEY_MENU = 214;
 	}
+
+	/** A copy of the state of another {@link Input}, for reading it off the thread polling it. {@link #poll()} does
+	 * nothing; the rest is passed on to the source.
+	 * 
+	 * @see Loop.Pipelined */
+	public static class Snapshot implements Input {
+		/** The number of key codes kept. */
+		private static final int KEYS = 256;
+
+		public final Input source;
+		private final boolean[] keys = new boolean[KEYS];
+		private final boolean[] buttons = new boolean[BUTTON3 + 1];
+		private int mouseX, mouseY, deltaX, deltaY;
+
+		public Snapshot(Input source) {
+			this.source = source;
+		}
+
+		/** Copies the current state of the {@link #source}; should be called on the thread polling it. */
+		public void update() {
+			for (int i = 0; i < keys.length; i++)
+				keys[i] = source.keyPressed(i);
+			for (int i = 0; i < buttons.length; i++)
+				buttons[i] = source.mousePressed(i);
+			mouseX = source.getMouseX();
+			mouseY = source.getMouseY();
+			deltaX = source.getDeltaX();
+			deltaY = source.getDeltaY();
+		}
+
+		/** Copies the state of <code>snapshot</code>.
+		 * 
+		 * @param snapshot the snapshot to copy */
+		public void set(Snapshot snapshot) {
+			System.arraycopy(snapshot.keys, 0, keys, 0, keys.length);
+			System.arraycopy(snapshot.buttons, 0, buttons, 0, buttons.length);
+			mouseX = snapshot.mouseX;
+			mouseY = snapshot.mouseY;
+			deltaX = snapshot.deltaX;
+			deltaY = snapshot.deltaY;
+		}
+
+		@Override
+		public boolean keyPressed(int keycode) {
+			return keycode >= 0 && keycode < keys.length && keys[keycode];
+		}
+
+		@Override
+		public boolean mousePressed(int button) {
+			return button >= 0 && button < buttons.length && buttons[button];
+		}
+
+		@Override
+		public int getMouseX() {
+			return mouseX;
+		}
+
+		@Override
+		public int getMouseY() {
+			return mouseY;
+		}
+
+		@Override
+		public int getDeltaX() {
+			return deltaX;
+		}
+
+		@Override
+		public int getDeltaY() {
+			return deltaY;
+		}
+
+		@Override
+		public void poll() {}
+
+		@Override
+		public void mouseMove(int x, int y) {
+			source.mouseMove(x, y);
+		}
+
+		@Override
+		public void setGrabbed(boolean grabbed) {
+			source.setGrabbed(grabbed);
+		}
+
+		@Override
+		public void setCursor(Texture texture) {
+			source.setCursor(texture);
+		}
+
+		@Override
+		public int translateKeyCode(int keyCode) {
+			return source.translateKeyCode(keyCode);
+		}
+	}
 }
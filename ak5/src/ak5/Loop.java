@@ -3,6 +3,8 @@
  */
 package ak5;
 
+import ak5.util.Configuration;
+
 /** A {@link Runnable} that runs smoothly and takes care of drawing between updates.
  * 
  * @author pwnedary */
@@ -33,82 +35,217 @@ public interface Loop extends Runnable {
 		boolean keepRunning();
 	}
 
+	/** A {@link LoopListener} that can be driven by {@link Pipelined}, where {@link #tick(float)} runs on a simulation
+	 * thread concurrently with {@link #draw(float)} on the thread that called {@link Loop#run()}. Only state handed over
+	 * through {@link #publish()} and {@link #acquire()} should be shared between the two. */
+	interface Handoff extends LoopListener {
+		/** Called on the simulation thread after each tick; the state to be drawn should be published here. */
+		void publish();
+
+		/** Called on the render thread before each draw; the latest published state should be acquired here. Never runs
+		 * at the same time as {@link #publish()}, so that the tick time handed over with it matches, which is why both
+		 * should be quick. */
+		void acquire();
+	}
+
+	/** Configuration key for the number of ticks per second. */
+	String TICK_RATE = "tickRate";
+	/** Configuration key for the maximum number of frames drawn per second, or <code>0</code> for no cap. */
+	String FRAME_RATE = "frameRate";
+	/** Configuration key for the most ticks to catch up on before a frame is drawn. */
+	String MAX_UPDATES = "maxUpdates";
+	/** Configuration key for whether to tick and draw on separate threads, see {@link Pipelined}. */
+	String PIPELINED = "pipelined";
+
+	/** Timings of the last frame and a summary of the last second, all in nanoseconds. */
+	class FrameStats {
+		/** Time between the start of the last frame and the one before it. */
+		public long frameTime;
+		/** Time spent ticking during the last frame. */
+		public long tickTime;
+		/** Time spent drawing during the last frame. */
+		public long drawTime;
+		/** Time spent waiting for the next frame. */
+		public long idleTime;
+		/** Number of ticks run during the last frame. */
+		public int ticks;
+		/** Shortest, longest and mean frame time during the last whole second. */
+		public long minFrameTime, maxFrameTime, averageFrameTime;
+
+		private long sum, min = Long.MAX_VALUE, max;
+		private int count;
+
+		/** Records the timings of a frame. */
+		public void frame(long frameTime, long tickTime, long drawTime, long idleTime, int ticks) {
+			this.frameTime = frameTime;
+			this.tickTime = tickTime;
+			this.drawTime = drawTime;
+			this.idleTime = idleTime;
+			this.ticks = ticks;
+			sum += frameTime;
+			min = Math.min(min, frameTime);
+			max = Math.max(max, frameTime);
+			count++;
+		}
+
+		/** Summarizes the frames recorded since the last call. */
+		public void second() {
+			if (count == 0) return;
+			minFrameTime = min;
+			maxFrameTime = max;
+			averageFrameTime = sum / count;
+			sum = max = count = 0;
+			min = Long.MAX_VALUE;
+		}
+	}
+
+	/** Waits for deadlines by sleeping until close to them and spinning for the remainder, where the margin left for
+	 * spinning is calibrated against how much {@link Thread#sleep(long)} actually oversleeps. Without spinning it only
+	 * sleeps, trading some precision for an idle CPU. Not thread-safe; use one per thread. */
+	class Pacer {
+		/** Whether to spin the last stretch to a deadline. */
+		private final boolean spin;
+		/** How close to a deadline it is still safe to sleep; adjusted to the observed oversleep. */
+		private long sleepMargin = 2000000;
+
+		public Pacer() {
+			this(true);
+		}
+
+		/** @param spin whether to spin the last stretch to a deadline, rather than only sleeping */
+		public Pacer(boolean spin) {
+			this.spin = spin;
+		}
+
+		/** Waits until {@link System#nanoTime()} reaches <code>deadline</code>.
+		 * 
+		 * @return the time when done waiting */
+		public long sync(long deadline) {
+			long now = System.nanoTime();
+			if (!spin) {
+				long remaining = deadline - now;
+				if (remaining > 0) try {
+					Thread.sleep(remaining / 1000000, (int) (remaining % 1000000));
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return System.nanoTime();
+			}
+			while (deadline - now > sleepMargin) {
+				try {
+					Thread.sleep(1);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					break;
+				}
+				long slept = System.nanoTime() - now;
+				// Jump up to a longer oversleep immediately, but only creep back down.
+				sleepMargin = slept > sleepMargin ? slept : sleepMargin - ((sleepMargin - slept) >> 4);
+				now += slept;
+			}
+			while (deadline - now > 0) {
+				Thread.yield();
+				now = System.nanoTime();
+			}
+			return now;
+		}
+	}
+
+	/** A loop ticking at a fixed rate and drawing as often as allowed in between, interpolating with the remainder.
+	 * Frames are paced by a {@link Pacer}. */
 	class FixedTimestep implements Loop {
-		// This value would probably be stored elsewhere.
-		private final double GAME_HERTZ = 30.0; // 30.0
-		// Calculate how many ns each frame should take for our target game hertz.
-		private final double TIME_BETWEEN_UPDATES = 1000000000 / GAME_HERTZ;
-		// At the very most we will update the game this many times before a new render. If you're worried about visual hitches more than perfect timing, set this to 1.
-		private final int MAX_UPDATES_BEFORE_RENDER = 5;
+		private static final long NANOS_PER_SECOND = 1000000000;
 
-		// If we are able to get as high as this FPS, don't render again.
-		private final double TARGET_FPS = 60;
-		private final double TARGET_TIME_BETWEEN_RENDERS = 1000000000 / TARGET_FPS;
+		/** Nanoseconds between ticks. */
+		private final long timeBetweenUpdates;
+		/** Nanoseconds between frames, or <code>0</code> if uncapped. */
+		private final long timeBetweenRenders;
+		/** At the very most we will update the game this many times before a new render. If you're worried about visual
+		 * hitches more than perfect timing, set this to 1. */
+		private final int maxUpdatesBeforeRender;
+		private final Pacer pacer = new Pacer();
 
 		private LoopListener listener;
 		public int fps = 60;
 		private int frameCount = 0;
+		private final FrameStats stats = new FrameStats();
 
 		public FixedTimestep(LoopListener listener) {
+			this(listener, 30, 60, 5);
+		}
+
+		/** Reads {@link Loop#TICK_RATE}, {@link Loop#FRAME_RATE} and {@link Loop#MAX_UPDATES} from
+		 * <code>configuration</code>, defaulting to 30, 60 and 5. */
+		public FixedTimestep(LoopListener listener, Configuration configuration) {
+			this(listener, configuration.<Number> getProperty(TICK_RATE, 30).doubleValue(), configuration.<Number> getProperty(FRAME_RATE, 60).doubleValue(), configuration.<Number> getProperty(MAX_UPDATES, 5).intValue());
+		}
+
+		/** @param tickRate ticks per second
+		 * @param frameRate maximum frames per second, or <code>0</code> for no cap
+		 * @param maxUpdatesBeforeRender the most ticks to catch up on before a frame is drawn */
+		public FixedTimestep(LoopListener listener, double tickRate, double frameRate, int maxUpdatesBeforeRender) {
+			if (tickRate <= 0) throw new IllegalArgumentException("tickRate must be positive");
+			if (maxUpdatesBeforeRender < 1) throw new IllegalArgumentException("maxUpdatesBeforeRender must be at least 1");
 			this.listener = listener;
+			this.timeBetweenUpdates = (long) (NANOS_PER_SECOND / tickRate);
+			this.timeBetweenRenders = frameRate > 0 ? (long) (NANOS_PER_SECOND / frameRate) : 0;
+			this.maxUpdatesBeforeRender = maxUpdatesBeforeRender;
 		}
 
 		@Override
 		public void run() {
-			// We will need the last update time.
-			double lastUpdateTime = System.nanoTime();
-			// Store the last time we rendered.
-			double lastRenderTime = System.nanoTime();
-			// Simple way of finding FPS.
-			int lastSecondTime = (int) (lastUpdateTime / 1000000000);
 			listener.start();
+			// We will need the last update time.
+			long lastUpdateTime = System.nanoTime();
+			// When the next frame is due; advanced by a fixed step so that pacing doesn't drift.
+			long nextRenderTime = lastUpdateTime;
+			long lastFrameStart = lastUpdateTime;
+			long lastSecondTime = lastUpdateTime;
+			long idleTime = 0;
 
 			while (listener.keepRunning()) {
-				double now = System.nanoTime();
+				long now = System.nanoTime();
 				int updateCount = 0;
 
 				// Do as many game updates as we need to, potentially playing catchup.
-				while (now - lastUpdateTime > TIME_BETWEEN_UPDATES && updateCount < MAX_UPDATES_BEFORE_RENDER) {
-					// Update game
-					float delta = Math.min(1.0F, (float) ((now - lastUpdateTime) / TIME_BETWEEN_UPDATES));
+				while (now - lastUpdateTime >= timeBetweenUpdates && updateCount < maxUpdatesBeforeRender) {
+					float delta = Math.min(1.0F, (float) (now - lastUpdateTime) / timeBetweenUpdates);
 					listener.tick(delta);
-					lastUpdateTime += TIME_BETWEEN_UPDATES;
+					lastUpdateTime += timeBetweenUpdates;
 					updateCount++;
 				}
 
 				// If for some reason an update takes forever, we don't want to do an insane number of catchups.
 				// If you were doing some sort of game that needed to keep EXACT time, you would get rid of this.
-				if (now - lastUpdateTime > TIME_BETWEEN_UPDATES) {
-					lastUpdateTime = now - TIME_BETWEEN_UPDATES;
-				}
+				if (now - lastUpdateTime > timeBetweenUpdates) lastUpdateTime = now - timeBetweenUpdates;
+				long ticked = System.nanoTime();
 
 				// Render. To do so, we need to calculate interpolation for a smooth render.
-				float delta = Math.min(1.0f, (float) ((now - lastUpdateTime) / TIME_BETWEEN_UPDATES));
+				float delta = Math.min(1.0f, (float) (now - lastUpdateTime) / timeBetweenUpdates);
 				listener.draw(delta);
 				frameCount++;
-				lastRenderTime = now;
+				long drawn = System.nanoTime();
+
+				stats.frame(now - lastFrameStart, ticked - now, drawn - ticked, idleTime, updateCount);
+				lastFrameStart = now;
 
 				// Update the frames we got.
-				int thisSecond = (int) (lastUpdateTime / 1000000000);
-				if (thisSecond > lastSecondTime) {
-					// System.out.println("NEW SECOND " + thisSecond + " " + frameCount);
+				if (drawn - lastSecondTime >= NANOS_PER_SECOND) {
 					fps = frameCount;
 					frameCount = 0;
-					lastSecondTime = thisSecond;
+					stats.second();
+					lastSecondTime += NANOS_PER_SECOND * ((drawn - lastSecondTime) / NANOS_PER_SECOND);
 				}
 
-				// Yield until it has been at least the target time between renders. This saves the CPU from hogging.
-				while (now - lastRenderTime < TARGET_TIME_BETWEEN_RENDERS && now - lastUpdateTime < TIME_BETWEEN_UPDATES) {
+				// Wait until either the next frame or the next tick is due. Falling more than a frame behind resyncs
+				// instead of drawing a burst of frames to catch up. Uncapped, draw again right away.
+				if (timeBetweenRenders > 0) {
+					nextRenderTime += timeBetweenRenders;
+					if (drawn - nextRenderTime > timeBetweenRenders) nextRenderTime = drawn;
+					idleTime = pacer.sync(Math.min(lastUpdateTime + timeBetweenUpdates, nextRenderTime)) - drawn;
+				} else {
 					Thread.yield();
-
-					// This stops the app from consuming all your CPU. It makes this slightly less accurate, but is worth it.
-					// You can remove this line and it will still work (better), your CPU just climbs on certain OSes.
-					// FYI on some OS's this can cause pretty bad stuttering.
-					try {
-						Thread.sleep(1);
-					} catch (Exception e) {}
-
-					now = System.nanoTime();
+					idleTime = System.nanoTime() - drawn;
 				}
 			}
 			listener.stop();
@@ -119,6 +256,11 @@ public interface Loop extends Runnable {
 			return fps;
 		}
 
+		/** @return timings of the last frame and the last whole second */
+		public FrameStats getStats() {
+			return stats;
+		}
+
 		@Override
 		public void setLoopListener(LoopListener listener) {
 			this.listener = listener;
@@ -126,6 +268,162 @@ public interface Loop extends Runnable {
 
 	}
 	
+	/** A loop ticking at a fixed rate on its own simulation thread while the calling thread draws as often as allowed,
+	 * so that neither a slow tick nor a slow draw eats into the time of the other. State crosses over through the
+	 * {@link Handoff} contract if the listener implements it, e.g. by a {@link ak5.util.StateBuffer}; otherwise the
+	 * listener has to synchronize on its own. {@link LoopListener#start()}, {@link LoopListener#stop()} and
+	 * {@link LoopListener#keepRunning()} are called on the render thread. */
+	class Pipelined implements Loop {
+		private static final long NANOS_PER_SECOND = 1000000000;
+
+		/** Nanoseconds between ticks. */
+		private final long timeBetweenUpdates;
+		/** Nanoseconds between frames, or <code>0</code> if uncapped. */
+		private final long timeBetweenRenders;
+		/** The most ticks to catch up on before dropping time. */
+		private final int maxUpdates;
+
+		private LoopListener listener;
+		public int fps = 60;
+		private int frameCount = 0;
+		private final FrameStats stats = new FrameStats();
+		/** When the last published tick was due, written together with {@link Handoff#publish()}. */
+		private long lastUpdateTime;
+		/** Pairs {@link #lastUpdateTime} with the state it was published with. */
+		private final Object handoff = new Object();
+		/** The number of ticks run, written only by the simulation thread. */
+		private volatile int ticks;
+		private volatile boolean running;
+
+		public Pipelined(LoopListener listener) {
+			this(listener, 30, 60, 5);
+		}
+
+		/** Reads {@link Loop#TICK_RATE}, {@link Loop#FRAME_RATE} and {@link Loop#MAX_UPDATES} from
+		 * <code>configuration</code>, defaulting to 30, 60 and 5. */
+		public Pipelined(LoopListener listener, Configuration configuration) {
+			this(listener, configuration.<Number> getProperty(TICK_RATE, 30).doubleValue(), configuration.<Number> getProperty(FRAME_RATE, 60).doubleValue(), configuration.<Number> getProperty(MAX_UPDATES, 5).intValue());
+		}
+
+		/** @param tickRate ticks per second
+		 * @param frameRate maximum frames per second, or <code>0</code> for no cap
+		 * @param maxUpdates the most ticks to catch up on before dropping time */
+		public Pipelined(LoopListener listener, double tickRate, double frameRate, int maxUpdates) {
+			if (tickRate <= 0) throw new IllegalArgumentException("tickRate must be positive");
+			if (maxUpdates < 1) throw new IllegalArgumentException("maxUpdates must be at least 1");
+			this.listener = listener;
+			this.timeBetweenUpdates = (long) (NANOS_PER_SECOND / tickRate);
+			this.timeBetweenRenders = frameRate > 0 ? (long) (NANOS_PER_SECOND / frameRate) : 0;
+			this.maxUpdates = maxUpdates;
+		}
+
+		@Override
+		public void run() {
+			listener.start();
+			running = true;
+			lastUpdateTime = System.nanoTime();
+			Thread simulation = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					simulate();
+				}
+			}, Thread.currentThread().getName() + "-simulation");
+			simulation.setDaemon(true);
+			simulation.start();
+
+			Pacer pacer = new Pacer();
+			long nextRenderTime = System.nanoTime();
+			long lastFrameStart = nextRenderTime;
+			long lastSecondTime = nextRenderTime;
+			long idleTime = 0;
+			int lastTicks = 0;
+			try {
+				while (listener.keepRunning() && simulation.isAlive()) {
+					long now = System.nanoTime();
+					long updateTime;
+					synchronized (handoff) {
+						if (listener instanceof Handoff) ((Handoff) listener).acquire();
+						updateTime = lastUpdateTime;
+					}
+					long acquired = System.nanoTime();
+
+					float delta = Math.max(0, Math.min(1.0f, (float) (now - updateTime) / timeBetweenUpdates));
+					listener.draw(delta);
+					frameCount++;
+					long drawn = System.nanoTime();
+
+					int ticks = this.ticks;
+					stats.frame(now - lastFrameStart, acquired - now, drawn - acquired, idleTime, ticks - lastTicks);
+					lastTicks = ticks;
+					lastFrameStart = now;
+
+					if (drawn - lastSecondTime >= NANOS_PER_SECOND) {
+						fps = frameCount;
+						frameCount = 0;
+						stats.second();
+						lastSecondTime += NANOS_PER_SECOND * ((drawn - lastSecondTime) / NANOS_PER_SECOND);
+					}
+
+					if (timeBetweenRenders > 0) {
+						nextRenderTime += timeBetweenRenders;
+						if (drawn - nextRenderTime > timeBetweenRenders) nextRenderTime = drawn;
+						idleTime = pacer.sync(nextRenderTime) - drawn;
+					} else {
+						Thread.yield();
+						idleTime = System.nanoTime() - drawn;
+					}
+				}
+			} finally {
+				running = false;
+				try {
+					simulation.join();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			listener.stop();
+		}
+
+		/** Runs on the simulation thread until the render thread stops. */
+		private void simulate() {
+			Pacer pacer = new Pacer();
+			long nextUpdateTime = lastUpdateTime + timeBetweenUpdates;
+			while (running) {
+				long now = System.nanoTime();
+				int updateCount = 0;
+				while (now - nextUpdateTime >= 0 && updateCount < maxUpdates) {
+					listener.tick(1.0f);
+					synchronized (handoff) {
+						if (listener instanceof Handoff) ((Handoff) listener).publish();
+						lastUpdateTime = nextUpdateTime;
+					}
+					nextUpdateTime += timeBetweenUpdates;
+					ticks++;
+					updateCount++;
+				}
+				// Drop the time we couldn't catch up on rather than spiralling.
+				if (now - nextUpdateTime > timeBetweenUpdates) nextUpdateTime = now;
+				pacer.sync(nextUpdateTime);
+			}
+		}
+
+		@Override
+		public int getFPS() {
+			return fps;
+		}
+
+		/** @return timings of the last frame and the last whole second, as seen by the render thread; the tick time is
+		 *         the time spent acquiring state */
+		public FrameStats getStats() {
+			return stats;
+		}
+
+		@Override
+		public void setLoopListener(LoopListener listener) {
+			this.listener = listener;
+		}
+	}
+
 	class VariableTimestep implements Loop {
 		final int TARGET_FPS = 60;
 		final long OPTIMAL_TIME = 1000000000 / TARGET_FPS;
@@ -13,6 +13,7 @@ import ak5.graphics.Texture;
 import ak5.util.Configuration;
 import ak5.util.Disposable;
 import ak5.util.io.Asset;
+import ak5.util.io.AssetManager;
 
 /** The class responsible for the technical stuff, such as collecting input and processing it.
  * 
@@ -63,6 +64,10 @@ public interface Platform extends Disposable {
 
 //	public Texture getTexture(BufferedImage img);
 
+	/** @return the loader of textures registered by an {@link AssetManager}, decoding them on its workers if this
+	 *         platform can */
+	AssetManager.Loader<Texture, ?> getTextureLoader();
+
 	/** @return the sound from the file */
 	public Sound getSound(File file) throws IOException;
 
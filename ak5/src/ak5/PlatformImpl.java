@@ -4,28 +4,49 @@
 package ak5;
 
 import java.io.InputStream;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import ak5.Input.Key;
-import ak5.Loop.LoopListener;
 import ak5.graphics.GL10;
+import ak5.graphics.Texture;
 import ak5.util.Configuration;
+import ak5.util.Profiler;
+import ak5.util.io.AssetManager;
 
 /** @author pwnedary */
 public abstract class PlatformImpl implements Platform {
+	private static final Profiler.Scope INPUT = Profiler.scope(Profiler.INPUT), TICK = Profiler.scope(Profiler.TICK), DRAW = Profiler.scope(Profiler.DRAW);
+
 	protected Configuration configuration;
 
 	/* * The {@link Thread} running in the background * / private Thread thread; */
-	protected boolean running;
+	protected volatile boolean running;
 	protected Handler handler;
 	protected Loop loop;
+	/** The input as seen by the ticks when pipelined, which {@link #getInput()} should return if set. */
+	protected Input.Snapshot snapshot;
+	/** Input events polled on the render thread, held back for the next tick when pipelined. */
+	private final Queue<Event.Control> controls = new ConcurrentLinkedQueue<>();
 
 	@Override
-	public void start(Configuration configuration, Handler handler) {
+	public void start(Configuration configuration, final Handler handler) {
 		this.configuration = configuration;
 		this.handler = handler;
 
 		running = true;
-		new Thread(loop = configuration.getProperty("loop", new Loop.FixedTimestep(new DefaultLoopListener())), handler.toString()).start();
+		DefaultLoopListener listener = new DefaultLoopListener();
+		Loop loop = configuration.<Boolean> getProperty(Loop.PIPELINED, false) ? new Loop.Pipelined(listener, configuration) : new Loop.FixedTimestep(listener, configuration);
+		this.loop = configuration.getProperty("loop", loop);
+		if (this.loop instanceof Loop.Pipelined) this.handler = new Handler() {
+			@Override
+			public boolean handle(Event event) {
+				// Those pointing to the snapshot are the held back ones being delivered
+				if (event instanceof Event.Control && ((Event.Control) event).input != snapshot) return controls.add((Event.Control) event);
+				return handler.handle(event);
+			}
+		};
+		new Thread(this.loop, handler.toString()).start();
 		// (loop = configuration.getProperty("loop", new Loop.FixedTimestep(new DefaultLoopListener()))).run();;
 	}
 
@@ -51,10 +72,25 @@ public abstract class PlatformImpl implements Platform {
 		return Thread.currentThread().getContextClassLoader().getResourceAsStream(name.toString());
 	}
 
-	public class DefaultLoopListener implements LoopListener {
+	/** @return a loader of textures through {@link #getTexture(CharSequence)} while finishing */
+	@Override
+	public AssetManager.Loader<Texture, ?> getTextureLoader() {
+		return new AssetManager.TextureLoader(this);
+	}
+
+	/** Polls input with the ticks, or before each draw when pipelined, since input has to be polled on the thread
+	 * owning the display; the ticks then see a {@link Input.Snapshot} of it and the events polled since the last tick. */
+	public class DefaultLoopListener implements Loop.Handoff {
+		/** The latest input polled when pipelined, copied into {@link PlatformImpl#snapshot} before each tick. */
+		private Input.Snapshot polled;
+
 		@Override
 		public void start() {
 			PlatformImpl.this.start();
+			if (loop instanceof Loop.Pipelined && getInput() != null) {
+				polled = new Input.Snapshot(getInput());
+				snapshot = new Input.Snapshot(polled.source);
+			}
 			handler.handle(new Event.Create()); // Initialize game lastly
 		}
 
@@ -66,9 +102,45 @@ public abstract class PlatformImpl implements Platform {
 
 		@Override
 		public void tick(float delta) {
-			getInput().poll();
-			if (getInput().keyPressed(Key.KEY_ESCAPE)) PlatformImpl.this.stop();
+			if (!(loop instanceof Loop.Pipelined)) poll();
+			else if (polled != null) {
+				synchronized (polled) {
+					snapshot.set(polled);
+				}
+				for (Event.Control event; (event = controls.poll()) != null;)
+					handler.handle(copy(event));
+			}
+			long start = TICK.begin();
 			handler.handle(new Event.Tick(delta));
+			TICK.end(start);
+		}
+
+		@Override
+		public void publish() {
+			handler.handle(new Event.Publish());
+		}
+
+		@Override
+		public void acquire() {
+			poll();
+			if (polled != null) synchronized (polled) {
+				polled.update();
+			}
+		}
+
+		private void poll() {
+			long start = INPUT.begin();
+			Input input = snapshot != null ? snapshot.source : getInput();
+			input.poll();
+			if (input.keyPressed(Key.KEY_ESCAPE)) PlatformImpl.this.stop();
+			INPUT.end(start);
+		}
+
+		/** @return <code>event</code> pointing to the {@link PlatformImpl#snapshot} rather than the polled input */
+		private Event copy(Event.Control event) {
+			if (event instanceof Event.Key) return new Event.Key(snapshot, ((Event.Key) event).id, ((Event.Key) event).keyCode);
+			Event.Mouse mouse = (Event.Mouse) event;
+			return mouse.id == Input.MOUSE_SCROLLED ? new Event.Mouse(snapshot, mouse.deltaY) : new Event.Mouse(snapshot, mouse.id, mouse.button);
 		}
 
 		@Override
@@ -76,9 +148,12 @@ public abstract class PlatformImpl implements Platform {
 			PlatformImpl.this.draw(new Drawable() {
 				@Override
 				public void draw(GL10 gl, float delta) {
+					long start = DRAW.begin();
 					handler.handle(new Event.Draw(gl, delta));
+					DRAW.end(start);
 				}
 			}, delta);
+			Profiler.frame();
 		}
 
 		@Override
@@ -9,6 +9,12 @@ public interface Batch {
 
 	void end();
 
+	/** Sets the color subsequent draws are tinted with, {@link Color#WHITE} leaving textures unchanged. Changing it
+	 * does not break the batch. */
+	void setColor(Color tint);
+
+	Color getColor();
+
 	void draw(Texture texture, float x1, float y1, float x2, float y2);
 
 	void draw(Texture texture, float dx1, float dy1, float dx2, float dy2, float sx1, float sy1, float sx2, float sy2);
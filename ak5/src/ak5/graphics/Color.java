@@ -143,6 +143,26 @@ public final class Color implements Serializable {
 		return (value >> 24) & 0xff;
 	}
 
+	/**
+	 * Returns this color packed into the bits of a float, as used by {@link VertexAttribute.Type#COLOR_PACKED}.
+	 * 
+	 * @return the packed color
+	 * @see #toFloatBits(int, int, int, int)
+	 */
+	public float toFloatBits() {
+		return toFloatBits(getRed(), getGreen(), getBlue(), getAlpha());
+	}
+
+	/**
+	 * Packs the components, in the range 0-255, into the bits of a float in ABGR order; as bytes in little endian
+	 * order they read RGBA. The lowest alpha bit is dropped so that the result is never NaN.
+	 * 
+	 * @return the packed color
+	 */
+	public static float toFloatBits(int r, int g, int b, int a) {
+		return Float.intBitsToFloat(((a & 0xFE) << 24) | ((b & 0xFF) << 16) | ((g & 0xFF) << 8) | (r & 0xFF));
+	}
+
 	/**
 	 * Returns the AWT version of this color.
 	 * 
@@ -0,0 +1,1171 @@
+/**
+ * 
+ */
+package ak5.graphics;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+/** A {@link GL20} passing every call on to another one, for decorators to override only the calls they are
+ * interested in.
+ * 
+ * @author pwnedary */
+public class ForwardingGL20 implements GL20 {
+	protected final GL20 gl;
+
+	public ForwardingGL20(GL20 gl) {
+		this.gl = gl;
+	}
+
+	@Override
+	public void glActiveTexture(int texture) {
+		gl.glActiveTexture(texture);
+	}
+
+	@Override
+	public void glAlphaFunc(int func, float ref) {
+		gl.glAlphaFunc(func, ref);
+	}
+
+	@Override
+	public void glBindTexture(int target, int texture) {
+		gl.glBindTexture(target, texture);
+	}
+
+	@Override
+	public void glBlendFunc(int sfactor, int dfactor) {
+		gl.glBlendFunc(sfactor, dfactor);
+	}
+
+	@Override
+	public void glClear(int mask) {
+		gl.glClear(mask);
+	}
+
+	@Override
+	public void glClearColor(float red, float green, float blue, float alpha) {
+		gl.glClearColor(red, green, blue, alpha);
+	}
+
+	@Override
+	public void glClearDepthf(float depth) {
+		gl.glClearDepthf(depth);
+	}
+
+	@Override
+	public void glClearStencil(int s) {
+		gl.glClearStencil(s);
+	}
+
+	@Override
+	public void glClientActiveTexture(int texture) {
+		gl.glClientActiveTexture(texture);
+	}
+
+	@Override
+	public void glColor4f(float red, float green, float blue, float alpha) {
+		gl.glColor4f(red, green, blue, alpha);
+	}
+
+	@Override
+	public void glColorMask(boolean red, boolean green, boolean blue, boolean alpha) {
+		gl.glColorMask(red, green, blue, alpha);
+	}
+
+	@Override
+	public void glColorPointer(int size, int type, int stride, Buffer pointer) {
+		gl.glColorPointer(size, type, stride, pointer);
+	}
+
+	@Override
+	public void glCompressedTexImage2D(int target, int level, int internalformat, int width, int height, int border, int imageSize, Buffer data) {
+		gl.glCompressedTexImage2D(target, level, internalformat, width, height, border, imageSize, data);
+	}
+
+	@Override
+	public void glCompressedTexSubImage2D(int target, int level, int xoffset, int yoffset, int width, int height, int format, int imageSize, Buffer data) {
+		gl.glCompressedTexSubImage2D(target, level, xoffset, yoffset, width, height, format, imageSize, data);
+	}
+
+	@Override
+	public void glCopyTexImage2D(int target, int level, int internalformat, int x, int y, int width, int height, int border) {
+		gl.glCopyTexImage2D(target, level, internalformat, x, y, width, height, border);
+	}
+
+	@Override
+	public void glCopyTexSubImage2D(int target, int level, int xoffset, int yoffset, int x, int y, int width, int height) {
+		gl.glCopyTexSubImage2D(target, level, xoffset, yoffset, x, y, width, height);
+	}
+
+	@Override
+	public void glCullFace(int mode) {
+		gl.glCullFace(mode);
+	}
+
+	@Override
+	public void glDeleteTextures(int n, IntBuffer textures) {
+		gl.glDeleteTextures(n, textures);
+	}
+
+	@Override
+	public void glDepthFunc(int func) {
+		gl.glDepthFunc(func);
+	}
+
+	@Override
+	public void glDepthMask(boolean flag) {
+		gl.glDepthMask(flag);
+	}
+
+	@Override
+	public void glDepthRangef(float zNear, float zFar) {
+		gl.glDepthRangef(zNear, zFar);
+	}
+
+	@Override
+	public void glDisable(int cap) {
+		gl.glDisable(cap);
+	}
+
+	@Override
+	public void glDisableClientState(int array) {
+		gl.glDisableClientState(array);
+	}
+
+	@Override
+	public void glDrawArrays(int mode, int first, int count) {
+		gl.glDrawArrays(mode, first, count);
+	}
+
+	@Override
+	public void glDrawElements(int mode, int count, int type, Buffer indices) {
+		gl.glDrawElements(mode, count, type, indices);
+	}
+
+	@Override
+	public void glEnable(int cap) {
+		gl.glEnable(cap);
+	}
+
+	@Override
+	public void glEnableClientState(int array) {
+		gl.glEnableClientState(array);
+	}
+
+	@Override
+	public void glFinish() {
+		gl.glFinish();
+	}
+
+	@Override
+	public void glFlush() {
+		gl.glFlush();
+	}
+
+	@Override
+	public void glFogf(int pname, float param) {
+		gl.glFogf(pname, param);
+	}
+
+	@Override
+	public void glFogfv(int pname, FloatBuffer params) {
+		gl.glFogfv(pname, params);
+	}
+
+	@Override
+	public void glFrontFace(int mode) {
+		gl.glFrontFace(mode);
+	}
+
+	@Override
+	public void glFrustumf(float left, float right, float bottom, float top, float zNear, float zFar) {
+		gl.glFrustumf(left, right, bottom, top, zNear, zFar);
+	}
+
+	@Override
+	public void glGenTextures(int n, IntBuffer textures) {
+		gl.glGenTextures(n, textures);
+	}
+
+	@Override
+	public int glGetError() {
+		return gl.glGetError();
+	}
+
+	@Override
+	public void glGetIntegerv(int pname, IntBuffer params) {
+		gl.glGetIntegerv(pname, params);
+	}
+
+	@Override
+	public String glGetString(int name) {
+		return gl.glGetString(name);
+	}
+
+	@Override
+	public void glHint(int target, int mode) {
+		gl.glHint(target, mode);
+	}
+
+	@Override
+	public void glLightModelf(int pname, float param) {
+		gl.glLightModelf(pname, param);
+	}
+
+	@Override
+	public void glLightModelfv(int pname, FloatBuffer params) {
+		gl.glLightModelfv(pname, params);
+	}
+
+	@Override
+	public void glLightf(int light, int pname, float param) {
+		gl.glLightf(light, pname, param);
+	}
+
+	@Override
+	public void glLightfv(int light, int pname, FloatBuffer params) {
+		gl.glLightfv(light, pname, params);
+	}
+
+	@Override
+	public void glLineWidth(float width) {
+		gl.glLineWidth(width);
+	}
+
+	@Override
+	public void glLoadIdentity() {
+		gl.glLoadIdentity();
+	}
+
+	@Override
+	public void glLoadMatrixf(FloatBuffer m) {
+		gl.glLoadMatrixf(m);
+	}
+
+	@Override
+	public void glLogicOp(int opcode) {
+		gl.glLogicOp(opcode);
+	}
+
+	@Override
+	public void glMaterialf(int face, int pname, float param) {
+		gl.glMaterialf(face, pname, param);
+	}
+
+	@Override
+	public void glMaterialfv(int face, int pname, FloatBuffer params) {
+		gl.glMaterialfv(face, pname, params);
+	}
+
+	@Override
+	public void glMatrixMode(int mode) {
+		gl.glMatrixMode(mode);
+	}
+
+	@Override
+	public void glMultMatrixf(FloatBuffer m) {
+		gl.glMultMatrixf(m);
+	}
+
+	@Override
+	public void glMultiTexCoord4f(int target, float s, float t, float r, float q) {
+		gl.glMultiTexCoord4f(target, s, t, r, q);
+	}
+
+	@Override
+	public void glNormal3f(float nx, float ny, float nz) {
+		gl.glNormal3f(nx, ny, nz);
+	}
+
+	@Override
+	public void glNormalPointer(int type, int stride, Buffer pointer) {
+		gl.glNormalPointer(type, stride, pointer);
+	}
+
+	@Override
+	public void glOrthof(float left, float right, float bottom, float top, float zNear, float zFar) {
+		gl.glOrthof(left, right, bottom, top, zNear, zFar);
+	}
+
+	@Override
+	public void glPixelStorei(int pname, int param) {
+		gl.glPixelStorei(pname, param);
+	}
+
+	@Override
+	public void glPointSize(float size) {
+		gl.glPointSize(size);
+	}
+
+	@Override
+	public void glPolygonOffset(float factor, float units) {
+		gl.glPolygonOffset(factor, units);
+	}
+
+	@Override
+	public void glPopMatrix() {
+		gl.glPopMatrix();
+	}
+
+	@Override
+	public void glPushMatrix() {
+		gl.glPushMatrix();
+	}
+
+	@Override
+	public void glReadPixels(int x, int y, int width, int height, int format, int type, Buffer pixels) {
+		gl.glReadPixels(x, y, width, height, format, type, pixels);
+	}
+
+	@Override
+	public void glRotatef(float angle, float x, float y, float z) {
+		gl.glRotatef(angle, x, y, z);
+	}
+
+	@Override
+	public void glSampleCoverage(float value, boolean invert) {
+		gl.glSampleCoverage(value, invert);
+	}
+
+	@Override
+	public void glScalef(float x, float y, float z) {
+		gl.glScalef(x, y, z);
+	}
+
+	@Override
+	public void glScissor(int x, int y, int width, int height) {
+		gl.glScissor(x, y, width, height);
+	}
+
+	@Override
+	public void glShadeModel(int mode) {
+		gl.glShadeModel(mode);
+	}
+
+	@Override
+	public void glStencilFunc(int func, int ref, int mask) {
+		gl.glStencilFunc(func, ref, mask);
+	}
+
+	@Override
+	public void glStencilMask(int mask) {
+		gl.glStencilMask(mask);
+	}
+
+	@Override
+	public void glStencilOp(int fail, int zfail, int zpass) {
+		gl.glStencilOp(fail, zfail, zpass);
+	}
+
+	@Override
+	public void glTexCoordPointer(int size, int type, int stride, Buffer pointer) {
+		gl.glTexCoordPointer(size, type, stride, pointer);
+	}
+
+	@Override
+	public void glTexEnvf(int target, int pname, float param) {
+		gl.glTexEnvf(target, pname, param);
+	}
+
+	@Override
+	public void glTexEnvfv(int target, int pname, FloatBuffer params) {
+		gl.glTexEnvfv(target, pname, params);
+	}
+
+	@Override
+	public void glTexImage2D(int target, int level, int internalformat, int width, int height, int border, int format, int type, Buffer pixels) {
+		gl.glTexImage2D(target, level, internalformat, width, height, border, format, type, pixels);
+	}
+
+	@Override
+	public void glTexParameterf(int target, int pname, float param) {
+		gl.glTexParameterf(target, pname, param);
+	}
+
+	@Override
+	public void glTexSubImage2D(int target, int level, int xoffset, int yoffset, int width, int height, int format, int type, Buffer pixels) {
+		gl.glTexSubImage2D(target, level, xoffset, yoffset, width, height, format, type, pixels);
+	}
+
+	@Override
+	public void glTranslatef(float x, float y, float z) {
+		gl.glTranslatef(x, y, z);
+	}
+
+	@Override
+	public void glVertexPointer(int size, int type, int stride, Buffer pointer) {
+		gl.glVertexPointer(size, type, stride, pointer);
+	}
+
+	@Override
+	public void glViewport(int x, int y, int width, int height) {
+		gl.glViewport(x, y, width, height);
+	}
+
+	@Override
+	public void glClipPlanef(int plane, FloatBuffer equation) {
+		gl.glClipPlanef(plane, equation);
+	}
+
+	@Override
+	public void glGetClipPlanef(int pname, FloatBuffer eqn) {
+		gl.glGetClipPlanef(pname, eqn);
+	}
+
+	@Override
+	public void glGetFloatv(int pname, FloatBuffer params) {
+		gl.glGetFloatv(pname, params);
+	}
+
+	@Override
+	public void glGetLightfv(int light, int pname, FloatBuffer params) {
+		gl.glGetLightfv(light, pname, params);
+	}
+
+	@Override
+	public void glGetMaterialfv(int face, int pname, FloatBuffer params) {
+		gl.glGetMaterialfv(face, pname, params);
+	}
+
+	@Override
+	public void glGetTexEnvfv(int env, int pname, FloatBuffer params) {
+		gl.glGetTexEnvfv(env, pname, params);
+	}
+
+	@Override
+	public void glGetTexParameterfv(int target, int pname, FloatBuffer params) {
+		gl.glGetTexParameterfv(target, pname, params);
+	}
+
+	@Override
+	public void glPointParameterf(int pname, float param) {
+		gl.glPointParameterf(pname, param);
+	}
+
+	@Override
+	public void glPointParameterfv(int pname, FloatBuffer params) {
+		gl.glPointParameterfv(pname, params);
+	}
+
+	@Override
+	public void glTexParameterfv(int target, int pname, FloatBuffer params) {
+		gl.glTexParameterfv(target, pname, params);
+	}
+
+	@Override
+	public void glAlphaFuncx(int func, int ref) {
+		gl.glAlphaFuncx(func, ref);
+	}
+
+	@Override
+	public void glBindBuffer(int target, int buffer) {
+		gl.glBindBuffer(target, buffer);
+	}
+
+	@Override
+	public void glBufferData(int target, int size, Buffer data, int usage) {
+		gl.glBufferData(target, size, data, usage);
+	}
+
+	@Override
+	public void glBufferSubData(int target, int offset, int size, Buffer data) {
+		gl.glBufferSubData(target, offset, size, data);
+	}
+
+	@Override
+	public void glClearColorx(int red, int green, int blue, int alpha) {
+		gl.glClearColorx(red, green, blue, alpha);
+	}
+
+	@Override
+	public void glClearDepthx(int depth) {
+		gl.glClearDepthx(depth);
+	}
+
+	@Override
+	public void glClipPlanex(int plane, IntBuffer equation) {
+		gl.glClipPlanex(plane, equation);
+	}
+
+	@Override
+	public void glColor4ub(byte red, byte green, byte blue, byte alpha) {
+		gl.glColor4ub(red, green, blue, alpha);
+	}
+
+	@Override
+	public void glColor4x(int red, int green, int blue, int alpha) {
+		gl.glColor4x(red, green, blue, alpha);
+	}
+
+	@Override
+	public void glDeleteBuffers(int n, IntBuffer buffers) {
+		gl.glDeleteBuffers(n, buffers);
+	}
+
+	@Override
+	public void glDepthRangex(int zNear, int zFar) {
+		gl.glDepthRangex(zNear, zFar);
+	}
+
+	@Override
+	public void glDrawElements(int mode, int count, int type, int offset) {
+		gl.glDrawElements(mode, count, type, offset);
+	}
+
+	@Override
+	public void glFogx(int pname, int param) {
+		gl.glFogx(pname, param);
+	}
+
+	@Override
+	public void glFogxv(int pname, IntBuffer params) {
+		gl.glFogxv(pname, params);
+	}
+
+	@Override
+	public void glFrustumx(int left, int right, int bottom, int top, int zNear, int zFar) {
+		gl.glFrustumx(left, right, bottom, top, zNear, zFar);
+	}
+
+	@Override
+	public void glGetBooleanv(int pname, ByteBuffer params) {
+		gl.glGetBooleanv(pname, params);
+	}
+
+	@Override
+	public void glGetBufferParameteriv(int target, int pname, IntBuffer params) {
+		gl.glGetBufferParameteriv(target, pname, params);
+	}
+
+	@Override
+	public void glGetClipPlanex(int pname, IntBuffer eqn) {
+		gl.glGetClipPlanex(pname, eqn);
+	}
+
+	@Override
+	public void glGenBuffers(int n, IntBuffer buffers) {
+		gl.glGenBuffers(n, buffers);
+	}
+
+	@Override
+	public void glGetFixedv(int pname, IntBuffer params) {
+		gl.glGetFixedv(pname, params);
+	}
+
+	@Override
+	public void glGetLightxv(int light, int pname, IntBuffer params) {
+		gl.glGetLightxv(light, pname, params);
+	}
+
+	@Override
+	public void glGetMaterialxv(int face, int pname, IntBuffer params) {
+		gl.glGetMaterialxv(face, pname, params);
+	}
+
+	@Override
+	public void glGetPointerv(int pname, Buffer[] params) {
+		gl.glGetPointerv(pname, params);
+	}
+
+	@Override
+	public void glGetTexEnviv(int env, int pname, IntBuffer params) {
+		gl.glGetTexEnviv(env, pname, params);
+	}
+
+	@Override
+	public void glGetTexEnvxv(int env, int pname, IntBuffer params) {
+		gl.glGetTexEnvxv(env, pname, params);
+	}
+
+	@Override
+	public void glGetTexParameteriv(int target, int pname, IntBuffer params) {
+		gl.glGetTexParameteriv(target, pname, params);
+	}
+
+	@Override
+	public void glGetTexParameterxv(int target, int pname, IntBuffer params) {
+		gl.glGetTexParameterxv(target, pname, params);
+	}
+
+	@Override
+	public boolean glIsBuffer(int buffer) {
+		return gl.glIsBuffer(buffer);
+	}
+
+	@Override
+	public boolean glIsEnabled(int cap) {
+		return gl.glIsEnabled(cap);
+	}
+
+	@Override
+	public boolean glIsTexture(int texture) {
+		return gl.glIsTexture(texture);
+	}
+
+	@Override
+	public void glLightModelx(int pname, int param) {
+		gl.glLightModelx(pname, param);
+	}
+
+	@Override
+	public void glLightModelxv(int pname, IntBuffer params) {
+		gl.glLightModelxv(pname, params);
+	}
+
+	@Override
+	public void glLightx(int light, int pname, int param) {
+		gl.glLightx(light, pname, param);
+	}
+
+	@Override
+	public void glLightxv(int light, int pname, IntBuffer params) {
+		gl.glLightxv(light, pname, params);
+	}
+
+	@Override
+	public void glLineWidthx(int width) {
+		gl.glLineWidthx(width);
+	}
+
+	@Override
+	public void glLoadMatrixx(IntBuffer m) {
+		gl.glLoadMatrixx(m);
+	}
+
+	@Override
+	public void glMaterialx(int face, int pname, int param) {
+		gl.glMaterialx(face, pname, param);
+	}
+
+	@Override
+	public void glMaterialxv(int face, int pname, IntBuffer params) {
+		gl.glMaterialxv(face, pname, params);
+	}
+
+	@Override
+	public void glMultMatrixx(IntBuffer m) {
+		gl.glMultMatrixx(m);
+	}
+
+	@Override
+	public void glMultiTexCoord4x(int target, int s, int t, int r, int q) {
+		gl.glMultiTexCoord4x(target, s, t, r, q);
+	}
+
+	@Override
+	public void glNormal3x(int nx, int ny, int nz) {
+		gl.glNormal3x(nx, ny, nz);
+	}
+
+	@Override
+	public void glOrthox(int left, int right, int bottom, int top, int zNear, int zFar) {
+		gl.glOrthox(left, right, bottom, top, zNear, zFar);
+	}
+
+	@Override
+	public void glPointParameterx(int pname, int param) {
+		gl.glPointParameterx(pname, param);
+	}
+
+	@Override
+	public void glPointParameterxv(int pname, IntBuffer params) {
+		gl.glPointParameterxv(pname, params);
+	}
+
+	@Override
+	public void glPointSizex(int size) {
+		gl.glPointSizex(size);
+	}
+
+	@Override
+	public void glPolygonOffsetx(int factor, int units) {
+		gl.glPolygonOffsetx(factor, units);
+	}
+
+	@Override
+	public void glRotatex(int angle, int x, int y, int z) {
+		gl.glRotatex(angle, x, y, z);
+	}
+
+	@Override
+	public void glSampleCoveragex(int value, boolean invert) {
+		gl.glSampleCoveragex(value, invert);
+	}
+
+	@Override
+	public void glScalex(int x, int y, int z) {
+		gl.glScalex(x, y, z);
+	}
+
+	@Override
+	public void glTexEnvi(int target, int pname, int param) {
+		gl.glTexEnvi(target, pname, param);
+	}
+
+	@Override
+	public void glTexEnvx(int target, int pname, int param) {
+		gl.glTexEnvx(target, pname, param);
+	}
+
+	@Override
+	public void glTexEnviv(int target, int pname, IntBuffer params) {
+		gl.glTexEnviv(target, pname, params);
+	}
+
+	@Override
+	public void glTexEnvxv(int target, int pname, IntBuffer params) {
+		gl.glTexEnvxv(target, pname, params);
+	}
+
+	@Override
+	public void glTexParameteri(int target, int pname, int param) {
+		gl.glTexParameteri(target, pname, param);
+	}
+
+	@Override
+	public void glTexParameterx(int target, int pname, int param) {
+		gl.glTexParameterx(target, pname, param);
+	}
+
+	@Override
+	public void glTexParameteriv(int target, int pname, IntBuffer params) {
+		gl.glTexParameteriv(target, pname, params);
+	}
+
+	@Override
+	public void glTexParameterxv(int target, int pname, IntBuffer params) {
+		gl.glTexParameterxv(target, pname, params);
+	}
+
+	@Override
+	public void glTranslatex(int x, int y, int z) {
+		gl.glTranslatex(x, y, z);
+	}
+
+	@Override
+	public void glAttachShader(int program, int shader) {
+		gl.glAttachShader(program, shader);
+	}
+
+	@Override
+	public void glBindAttribLocation(int program, int index, CharSequence name) {
+		gl.glBindAttribLocation(program, index, name);
+	}
+
+	@Override
+	public void glBindFramebuffer(int target, int framebuffer) {
+		gl.glBindFramebuffer(target, framebuffer);
+	}
+
+	@Override
+	public void glBindRenderbuffer(int target, int renderbuffer) {
+		gl.glBindRenderbuffer(target, renderbuffer);
+	}
+
+	@Override
+	public void glBlendColor(float red, float green, float blue, float alpha) {
+		gl.glBlendColor(red, green, blue, alpha);
+	}
+
+	@Override
+	public void glBlendEquation(int mode) {
+		gl.glBlendEquation(mode);
+	}
+
+	@Override
+	public void glBlendEquationSeparate(int modeRGB, int modeAlpha) {
+		gl.glBlendEquationSeparate(modeRGB, modeAlpha);
+	}
+
+	@Override
+	public void glBlendFuncSeparate(int sfactorRGB, int dfactorRGB, int sfactorAlpha, int dfactorAlpha) {
+		gl.glBlendFuncSeparate(sfactorRGB, dfactorRGB, sfactorAlpha, dfactorAlpha);
+	}
+
+	@Override
+	public int glCheckFramebufferStatus(int target) {
+		return gl.glCheckFramebufferStatus(target);
+	}
+
+	@Override
+	public void glCompileShader(int shader) {
+		gl.glCompileShader(shader);
+	}
+
+	@Override
+	public int glCreateProgram() {
+		return gl.glCreateProgram();
+	}
+
+	@Override
+	public int glCreateShader(int type) {
+		return gl.glCreateShader(type);
+	}
+
+	@Override
+	public void glDeleteFramebuffers(int n, IntBuffer framebuffers) {
+		gl.glDeleteFramebuffers(n, framebuffers);
+	}
+
+	@Override
+	public void glDeleteProgram(int program) {
+		gl.glDeleteProgram(program);
+	}
+
+	@Override
+	public void glDeleteRenderbuffers(int n, IntBuffer renderbuffers) {
+		gl.glDeleteRenderbuffers(n, renderbuffers);
+	}
+
+	@Override
+	public void glDeleteShader(int shader) {
+		gl.glDeleteShader(shader);
+	}
+
+	@Override
+	public void glDetachShader(int program, int shader) {
+		gl.glDetachShader(program, shader);
+	}
+
+	@Override
+	public void glDisableVertexAttribArray(int index) {
+		gl.glDisableVertexAttribArray(index);
+	}
+
+	@Override
+	public void glEnableVertexAttribArray(int index) {
+		gl.glEnableVertexAttribArray(index);
+	}
+
+	@Override
+	public void glFramebufferRenderbuffer(int target, int attachment, int renderbuffertarget, int renderbuffer) {
+		gl.glFramebufferRenderbuffer(target, attachment, renderbuffertarget, renderbuffer);
+	}
+
+	@Override
+	public void glFramebufferTexture2D(int target, int attachment, int textarget, int texture, int level) {
+		gl.glFramebufferTexture2D(target, attachment, textarget, texture, level);
+	}
+
+	@Override
+	public void glGenerateMipmap(int target) {
+		gl.glGenerateMipmap(target);
+	}
+
+	@Override
+	public void glGenFramebuffers(int n, IntBuffer framebuffers) {
+		gl.glGenFramebuffers(n, framebuffers);
+	}
+
+	@Override
+	public void glGenRenderbuffers(int n, IntBuffer renderbuffers) {
+		gl.glGenRenderbuffers(n, renderbuffers);
+	}
+
+	@Override
+	public void glGetActiveAttrib(int program, int index, int bufSize, IntBuffer length, IntBuffer size, IntBuffer type, ByteBuffer name) {
+		gl.glGetActiveAttrib(program, index, bufSize, length, size, type, name);
+	}
+
+	@Override
+	public void glGetActiveUniform(int program, int index, int bufSize, IntBuffer length, IntBuffer size, IntBuffer type, ByteBuffer name) {
+		gl.glGetActiveUniform(program, index, bufSize, length, size, type, name);
+	}
+
+	@Override
+	public void glGetAttachedShaders(int program, int maxCount, IntBuffer count, IntBuffer shaders) {
+		gl.glGetAttachedShaders(program, maxCount, count, shaders);
+	}
+
+	@Override
+	public int glGetAttribLocation(int program, CharSequence name) {
+		return gl.glGetAttribLocation(program, name);
+	}
+
+	@Override
+	public void glGetFramebufferAttachmentParameteriv(int target, int attachment, int pname, IntBuffer params) {
+		gl.glGetFramebufferAttachmentParameteriv(target, attachment, pname, params);
+	}
+
+	@Override
+	public void glGetProgramiv(int program, int pname, IntBuffer params) {
+		gl.glGetProgramiv(program, pname, params);
+	}
+
+	@Override
+	public void glGetProgramInfoLog(int program, int bufSize, IntBuffer length, ByteBuffer infoLog) {
+		gl.glGetProgramInfoLog(program, bufSize, length, infoLog);
+	}
+
+	@Override
+	public void glGetRenderbufferParameteriv(int target, int pname, IntBuffer params) {
+		gl.glGetRenderbufferParameteriv(target, pname, params);
+	}
+
+	@Override
+	public void glGetShaderiv(int shader, int pname, IntBuffer params) {
+		gl.glGetShaderiv(shader, pname, params);
+	}
+
+	@Override
+	public void glGetShaderInfoLog(int shader, int bufSize, IntBuffer length, ByteBuffer infoLog) {
+		gl.glGetShaderInfoLog(shader, bufSize, length, infoLog);
+	}
+
+	@Override
+	public void glGetShaderPrecisionFormat(int shadertype, int precisiontype, IntBuffer range, IntBuffer precision) {
+		gl.glGetShaderPrecisionFormat(shadertype, precisiontype, range, precision);
+	}
+
+	@Override
+	public void glGetShaderSource(int shader, int bufSize, IntBuffer length, ByteBuffer source) {
+		gl.glGetShaderSource(shader, bufSize, length, source);
+	}
+
+	@Override
+	public void glGetUniformfv(int program, int location, FloatBuffer params) {
+		gl.glGetUniformfv(program, location, params);
+	}
+
+	@Override
+	public void glGetUniformiv(int program, int location, IntBuffer params) {
+		gl.glGetUniformiv(program, location, params);
+	}
+
+	@Override
+	public int glGetUniformLocation(int program, CharSequence name) {
+		return gl.glGetUniformLocation(program, name);
+	}
+
+	@Override
+	public void glGetVertexAttribfv(int index, int pname, FloatBuffer params) {
+		gl.glGetVertexAttribfv(index, pname, params);
+	}
+
+	@Override
+	public void glGetVertexAttribiv(int index, int pname, IntBuffer params) {
+		gl.glGetVertexAttribiv(index, pname, params);
+	}
+
+	@Override
+	public ByteBuffer glGetVertexAttribPointerv(int index, int pname, long result_size) {
+		return gl.glGetVertexAttribPointerv(index, pname, result_size);
+	}
+
+	@Override
+	public boolean glIsFramebuffer(int framebuffer) {
+		return gl.glIsFramebuffer(framebuffer);
+	}
+
+	@Override
+	public boolean glIsProgram(int program) {
+		return gl.glIsProgram(program);
+	}
+
+	@Override
+	public boolean glIsRenderbuffer(int renderbuffer) {
+		return gl.glIsRenderbuffer(renderbuffer);
+	}
+
+	@Override
+	public boolean glIsShader(int shader) {
+		return gl.glIsShader(shader);
+	}
+
+	@Override
+	public void glLinkProgram(int program) {
+		gl.glLinkProgram(program);
+	}
+
+	@Override
+	public void glReleaseShaderCompiler() {
+		gl.glReleaseShaderCompiler();
+	}
+
+	@Override
+	public void glRenderbufferStorage(int target, int internalformat, int width, int height) {
+		gl.glRenderbufferStorage(target, internalformat, width, height);
+	}
+
+	@Override
+	public void glShaderBinary(int count, IntBuffer shaders, int binaryformat, Buffer binary, int length) {
+		gl.glShaderBinary(count, shaders, binaryformat, binary, length);
+	}
+
+	@Override
+	public void glShaderSource(int shader, int count, String string, IntBuffer length) {
+		gl.glShaderSource(shader, count, string, length);
+	}
+
+	@Override
+	public void glStencilFuncSeparate(int face, int func, int ref, int mask) {
+		gl.glStencilFuncSeparate(face, func, ref, mask);
+	}
+
+	@Override
+	public void glStencilMaskSeparate(int face, int mask) {
+		gl.glStencilMaskSeparate(face, mask);
+	}
+
+	@Override
+	public void glStencilOpSeparate(int face, int sfail, int dpfail, int dppass) {
+		gl.glStencilOpSeparate(face, sfail, dpfail, dppass);
+	}
+
+	@Override
+	public void glUniform1f(int location, float v0) {
+		gl.glUniform1f(location, v0);
+	}
+
+	@Override
+	public void glUniform1fv(int location, int count, FloatBuffer value) {
+		gl.glUniform1fv(location, count, value);
+	}
+
+	@Override
+	public void glUniform1i(int location, int v0) {
+		gl.glUniform1i(location, v0);
+	}
+
+	@Override
+	public void glUniform1iv(int location, int count, IntBuffer value) {
+		gl.glUniform1iv(location, count, value);
+	}
+
+	@Override
+	public void glUniform2f(int location, float v0, float v1) {
+		gl.glUniform2f(location, v0, v1);
+	}
+
+	@Override
+	public void glUniform2fv(int location, int count, FloatBuffer value) {
+		gl.glUniform2fv(location, count, value);
+	}
+
+	@Override
+	public void glUniform2i(int location, int v0, int v1) {
+		gl.glUniform2i(location, v0, v1);
+	}
+
+	@Override
+	public void glUniform2iv(int location, int count, IntBuffer value) {
+		gl.glUniform2iv(location, count, value);
+	}
+
+	@Override
+	public void glUniform3f(int location, float v0, float v1, float v2) {
+		gl.glUniform3f(location, v0, v1, v2);
+	}
+
+	@Override
+	public void glUniform3fv(int location, int count, FloatBuffer value) {
+		gl.glUniform3fv(location, count, value);
+	}
+
+	@Override
+	public void glUniform3i(int location, int v0, int v1, int v2) {
+		gl.glUniform3i(location, v0, v1, v2);
+	}
+
+	@Override
+	public void glUniform3iv(int location, int count, IntBuffer value) {
+		gl.glUniform3iv(location, count, value);
+	}
+
+	@Override
+	public void glUniform4f(int location, float v0, float v1, float v2, float v3) {
+		gl.glUniform4f(location, v0, v1, v2, v3);
+	}
+
+	@Override
+	public void glUniform4fv(int location, int count, FloatBuffer value) {
+		gl.glUniform4fv(location, count, value);
+	}
+
+	@Override
+	public void glUniform4i(int location, int v0, int v1, int v2, int v3) {
+		gl.glUniform4i(location, v0, v1, v2, v3);
+	}
+
+	@Override
+	public void glUniform4iv(int location, int count, IntBuffer value) {
+		gl.glUniform4iv(location, count, value);
+	}
+
+	@Override
+	public void glUniformMatrix2fv(int location, int count, boolean transpose, FloatBuffer value) {
+		gl.glUniformMatrix2fv(location, count, transpose, value);
+	}
+
+	@Override
+	public void glUniformMatrix3fv(int location, int count, boolean transpose, FloatBuffer value) {
+		gl.glUniformMatrix3fv(location, count, transpose, value);
+	}
+
+	@Override
+	public void glUniformMatrix4fv(int location, int count, boolean transpose, FloatBuffer value) {
+		gl.glUniformMatrix4fv(location, count, transpose, value);
+	}
+
+	@Override
+	public void glUseProgram(int program) {
+		gl.glUseProgram(program);
+	}
+
+	@Override
+	public void glValidateProgram(int program) {
+		gl.glValidateProgram(program);
+	}
+
+	@Override
+	public void glVertexAttrib1f(int index, float x) {
+		gl.glVertexAttrib1f(index, x);
+	}
+
+	@Override
+	public void glVertexAttrib1fv(int index, FloatBuffer v) {
+		gl.glVertexAttrib1fv(index, v);
+	}
+
+	@Override
+	public void glVertexAttrib2f(int index, float x, float y) {
+		gl.glVertexAttrib2f(index, x, y);
+	}
+
+	@Override
+	public void glVertexAttrib2fv(int index, FloatBuffer v) {
+		gl.glVertexAttrib2fv(index, v);
+	}
+
+	@Override
+	public void glVertexAttrib3f(int index, float x, float y, float z) {
+		gl.glVertexAttrib3f(index, x, y, z);
+	}
+
+	@Override
+	public void glVertexAttrib3fv(int index, FloatBuffer v) {
+		gl.glVertexAttrib3fv(index, v);
+	}
+
+	@Override
+	public void glVertexAttrib4f(int index, float x, float y, float z, float w) {
+		gl.glVertexAttrib4f(index, x, y, z, w);
+	}
+
+	@Override
+	public void glVertexAttrib4fv(int index, FloatBuffer v) {
+		gl.glVertexAttrib4fv(index, v);
+	}
+
+	@Override
+	public void glVertexAttribPointer(int index, int size, int type, boolean normalized, int stride, Buffer pointer) {
+		gl.glVertexAttribPointer(index, size, type, normalized, stride, pointer);
+	}
+
+	@Override
+	public void glVertexAttribPointer(int index, int size, int type, boolean normalized, int stride, int offset) {
+		gl.glVertexAttribPointer(index, size, type, normalized, stride, offset);
+	}
+}
@@ -3,7 +3,41 @@
  */
 package ak5.graphics;
 
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+
 /** @author pwnedary */
 public interface GL30 extends GL20 {
+	/* Buffer mapping */
+	final int GL_MAP_READ_BIT = 0x0001;
+	final int GL_MAP_WRITE_BIT = 0x0002;
+	final int GL_MAP_INVALIDATE_RANGE_BIT = 0x0004;
+	final int GL_MAP_INVALIDATE_BUFFER_BIT = 0x0008;
+	final int GL_MAP_FLUSH_EXPLICIT_BIT = 0x0010;
+	final int GL_MAP_UNSYNCHRONIZED_BIT = 0x0020;
+
+	/** Maps a range of the buffer bound to <code>target</code> into client memory, until {@link #glUnmapBuffer(int)}. */
+	ByteBuffer glMapBufferRange(int target, int offset, int length, int access);
+
+	boolean glUnmapBuffer(int target);
+
+	/* Instancing */
+	/** Makes the attribute at <code>index</code> advance once every <code>divisor</code> instances instead of once per
+	 * vertex, <code>0</code> restoring the latter. */
+	void glVertexAttribDivisor(int index, int divisor);
+
+	void glDrawArraysInstanced(int mode, int first, int count, int instanceCount);
+
+	void glDrawElementsInstanced(int mode, int count, int type, int offset, int instanceCount);
+
+	/* Vertex array objects */
+	final int GL_VERTEX_ARRAY_BINDING = 0x85B5;
+
+	void glGenVertexArrays(int n, IntBuffer arrays);
+
+	/** Binds the vertex array object <code>array</code>, which records the enabled attributes, their pointers and the
+	 * element buffer from then on, <code>0</code> restoring the default. */
+	void glBindVertexArray(int array);
 
+	void glDeleteVertexArrays(int n, IntBuffer arrays);
 }
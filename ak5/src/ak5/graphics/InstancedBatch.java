@@ -0,0 +1,273 @@
+/**
+ * 
+ */
+package ak5.graphics;
+
+import java.nio.FloatBuffer;
+
+import ak5.graphics.Mesh.VertexDataType;
+import ak5.graphics.VertexAttribute.Type;
+import ak5.util.Disposable;
+import ak5.util.Profiler;
+import ak5.util.io.BufferUtil;
+import ak5.util.math.Matrix4;
+
+/** A {@link Batch} for many small sprites, e.g. particles and bullets, that draws one static unit quad once per sprite
+ * with <code>glDrawElementsInstanced</code>. Only the position, size, rotation, texture region and color of each sprite
+ * are written, 10 floats instead of the 20 a {@link QuadBatch} needs, and the corners are computed by the vertex
+ * shader. Where instancing is not {@link #isInstancingSupported(GL10) supported} it draws through a {@link QuadBatch}
+ * instead.
+ * 
+ * @author pwnedary */
+public class InstancedBatch implements Batch, Disposable {
+	private static final Profiler.Scope FLUSH = Profiler.scope(Profiler.FLUSH);
+	/** The number of floats per instance. */
+	private static final int INSTANCE_SIZE = 10;
+	private static final String[] INSTANCE_ATTRIBUTES = { "i_position", "i_size", "i_rotation", "i_region", "i_color" };
+
+	private final GL30 gl;
+	/** The batch drawn through when instancing is unavailable. */
+	private final QuadBatch fallback;
+	private Mesh quad;
+	private StreamingVertexBuffer instances;
+	private ShaderProgram shader;
+	/** The locations of {@link #INSTANCE_ATTRIBUTES} in the {@link #shader}. */
+	private int[] instanceLocations;
+	/** Whether {@link #begin()} enables blending, for {@link #end()} to disable it again. */
+	private boolean blending = true;
+	private int blendSrc = GL10.GL_SRC_ALPHA, blendDst = GL10.GL_ONE_MINUS_SRC_ALPHA;
+
+	private float[] data;
+	private int idx;
+	private Texture lastTexture;
+	private Color color = Color.WHITE;
+	private float packedColor = Color.WHITE.toFloatBits();
+
+	public final Matrix4 transformMatrix = new Matrix4();
+	public final Matrix4 projectionMatrix = new Matrix4();
+	private final Matrix4 combinedMatrix = new Matrix4();
+	private final FloatBuffer matrixBuffer = BufferUtil.newFloatBuffer(16);
+
+	/** Number of render calls since the last {@link #begin()}. */
+	public int renderCalls;
+	/** Number of render calls ever. Will not be reset unless set manually. */
+	public int totalRenderCalls;
+
+	public InstancedBatch(GL10 gl) {
+		this(gl, 1000);
+	}
+
+	/** @param size the maximum number of sprites per render call */
+	public InstancedBatch(GL10 gl, int size) {
+		if (!isInstancingSupported(gl)) {
+			this.gl = null;
+			fallback = new QuadBatch(gl, size);
+			return;
+		}
+		this.gl = (GL30) gl;
+		fallback = null;
+
+		quad = new Mesh(gl, VertexDataType.VERTEX_BUFFER_OBJECT, true, 4, 6, new VertexAttribute(Type.POSITION, 2, ShaderProgram.POSITION_ATTRIBUTE));
+		quad.setVertices(new float[] { 0, 1, 0, 0, 1, 0, 1, 1 }, 0, 8); // In the corner order of QuadBatch
+		quad.setIndices(new short[] { 0, 1, 2, 2, 3, 0 }, 0, 6);
+		instances = new StreamingVertexBuffer(this.gl, size, Mesh.STREAMING_SEGMENTS, //
+				new VertexAttribute(Type.GENERIC, 2, INSTANCE_ATTRIBUTES[0]), //
+				new VertexAttribute(Type.GENERIC, 2, INSTANCE_ATTRIBUTES[1]), //
+				new VertexAttribute(Type.GENERIC, 1, INSTANCE_ATTRIBUTES[2]), //
+				new VertexAttribute(Type.GENERIC, 4, INSTANCE_ATTRIBUTES[3]), //
+				new VertexAttribute(Type.COLOR_PACKED, 4, INSTANCE_ATTRIBUTES[4]));
+		data = new float[size * INSTANCE_SIZE];
+
+		String vertexShader = "attribute vec2 " + ShaderProgram.POSITION_ATTRIBUTE + ";\n" //
+				+ "attribute vec2 i_position;\n" //
+				+ "attribute vec2 i_size;\n" //
+				+ "attribute float i_rotation;\n" //
+				+ "attribute vec4 i_region;\n" //
+				+ "attribute vec4 i_color;\n" //
+				+ "uniform mat4 u_projTrans;\n" //
+				+ "varying vec4 v_color;\n" //
+				+ "varying vec2 v_texCoords;\n" //
+				+ "void main(){\n" //
+				+ " vec2 local = (" + ShaderProgram.POSITION_ATTRIBUTE + " - 0.5) * i_size;\n" //
+				+ " float c = cos(i_rotation), s = sin(i_rotation);\n" //
+				+ " vec2 position = i_position + 0.5 * i_size + vec2(local.x * c - local.y * s, local.x * s + local.y * c);\n" //
+				+ " gl_Position = u_projTrans * vec4(position, 0.0, 1.0);\n" //
+				+ " v_color = i_color;\n" //
+				+ " v_texCoords = mix(i_region.xy, i_region.zw, " + ShaderProgram.POSITION_ATTRIBUTE + ");\n" //
+				+ "}\n";
+		String fragmentShader = "uniform sampler2D u_texture;\n" //
+				+ "varying vec4 v_color;\n" //
+				+ "varying vec2 v_texCoords;\n" //
+				+ "void main(){\n"//
+				+ " gl_FragColor = v_color * texture2D(u_texture, v_texCoords);\n" //
+				+ "}";
+		shader = new ShaderProgram(this.gl, vertexShader, fragmentShader);
+		instanceLocations = new int[INSTANCE_ATTRIBUTES.length];
+		for (int i = 0; i < INSTANCE_ATTRIBUTES.length; i++)
+			instanceLocations[i] = shader.getAttribLocation(INSTANCE_ATTRIBUTES[i]);
+	}
+
+	/** Returns whether <code>gl</code> draws instanced with per instance attributes, which takes a {@link GL30} of
+	 * OpenGL 3.3 or OpenGL ES 3.0, or the <code>ARB_instanced_arrays</code> extension and, below OpenGL 3.1, the
+	 * <code>ARB_draw_instanced</code> one.
+	 * 
+	 * @param gl the context to check
+	 * @return whether an {@link InstancedBatch} on <code>gl</code> draws instanced */
+	public static boolean isInstancingSupported(GL10 gl) {
+		if (!(gl instanceof GL30)) return false;
+		String version = gl.glGetString(GL10.GL_VERSION);
+		if (version == null) return false;
+		if (version.startsWith("OpenGL ES ")) return version.length() > 10 && version.charAt(10) >= '3';
+		int major = Character.digit(version.charAt(0), 10), minor = version.length() > 2 ? Character.digit(version.charAt(2), 10) : 0;
+		if (major > 3 || major == 3 && minor >= 3) return true;
+		String extensions = gl.glGetString(GL10.GL_EXTENSIONS);
+		return extensions != null && extensions.contains("GL_ARB_instanced_arrays") && (major == 3 && minor >= 1 || extensions.contains("GL_ARB_draw_instanced"));
+	}
+
+	/** @return whether sprites are drawn instanced rather than through a {@link QuadBatch} */
+	public boolean isInstanced() {
+		return fallback == null;
+	}
+
+	/** Sets whether blending is enabled with the {@link #setBlendFunction(int, int) blend function} from
+	 * {@link #begin()} and disabled again by {@link #end()}, which it is by default. If not, the blend state is left to
+	 * the caller.
+	 * 
+	 * @see QuadBatch#setBlending(boolean) */
+	public void setBlending(boolean blending) {
+		if (fallback != null) fallback.setBlending(blending);
+		this.blending = blending;
+	}
+
+	/** Sets the blend function set by {@link #begin()} if {@link #setBlending(boolean) blending},
+	 * <code>GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA</code> by default. */
+	public void setBlendFunction(int src, int dst) {
+		if (fallback != null) fallback.setBlendFunction(src, dst);
+		blendSrc = src;
+		blendDst = dst;
+	}
+
+	@Override
+	public void begin() {
+		renderCalls = 0;
+		if (fallback != null) {
+			fallback.projectionMatrix.set(projectionMatrix);
+			fallback.transformMatrix.set(transformMatrix);
+			fallback.begin();
+			return;
+		}
+		gl.glDepthMask(false);
+		if (blending) {
+			gl.glEnable(GL10.GL_BLEND);
+			gl.glBlendFunc(blendSrc, blendDst);
+		}
+		shader.begin();
+		combinedMatrix.set(projectionMatrix).mult(transformMatrix);
+		gl.glUniformMatrix4fv(shader.getUniformLocation("u_projTrans"), 1, false, (FloatBuffer) ((FloatBuffer) matrixBuffer.clear()).put(combinedMatrix.data).flip());
+		gl.glUniform1i(shader.getUniformLocation("u_texture"), 0);
+	}
+
+	@Override
+	public void end() {
+		if (fallback != null) {
+			fallback.end();
+			renderCalls = fallback.renderCalls;
+			totalRenderCalls += renderCalls;
+			return;
+		}
+		if (idx > 0) flush();
+		lastTexture = null;
+		gl.glDepthMask(true);
+		if (blending) gl.glDisable(GL10.GL_BLEND);
+		shader.end();
+	}
+
+	@Override
+	public void setColor(Color tint) {
+		if (fallback != null) fallback.setColor(tint);
+		color = tint;
+		packedColor = tint.toFloatBits();
+	}
+
+	@Override
+	public Color getColor() {
+		return color;
+	}
+
+	@Override
+	public void draw(Texture texture, float x1, float y1, float x2, float y2) {
+		if (fallback != null) fallback.draw(texture, x1, y1, x2, y2);
+		else instance(texture, x1, y1, x2 - x1, y2 - y1, 0, texture.getU(), texture.getV(), texture.getU2(), texture.getV2());
+	}
+
+	@Override
+	public void draw(Texture texture, float dx1, float dy1, float dx2, float dy2, float sx1, float sy1, float sx2, float sy2) {
+		if (fallback != null) {
+			fallback.draw(texture, dx1, dy1, dx2, dy2, sx1, sy1, sx2, sy2);
+			return;
+		}
+		final float texWidth = texture.getTexWidth(), texHeight = texture.getTexHeight();
+		instance(texture, dx1, dy1, dx2 - dx1, dy2 - dy1, 0, sx1 / texWidth + texture.getU(), sy1 / texHeight + texture.getV(), sx2 / texWidth + texture.getU(), sy2 / texHeight + texture.getV());
+	}
+
+	/** Draws <code>texture</code> rotated <code>rotation</code> radians counterclockwise around its center. */
+	public void draw(Texture texture, float x, float y, float width, float height, float rotation) {
+		if (fallback != null) fallback.draw(texture, x, y, width, height, rotation);
+		else instance(texture, x, y, width, height, rotation, texture.getU(), texture.getV(), texture.getU2(), texture.getV2());
+	}
+
+	private void instance(Texture texture, float x, float y, float width, float height, float rotation, float u, float v, float u2, float v2) {
+		if (lastTexture == null || texture.getTexture() != lastTexture.getTexture()) {
+			flush();
+			lastTexture = texture;
+		} else if (idx == data.length) flush();
+
+		final float[] data = this.data;
+		data[idx++] = x;
+		data[idx++] = y;
+		data[idx++] = width;
+		data[idx++] = height;
+		data[idx++] = rotation;
+		data[idx++] = u;
+		data[idx++] = v;
+		data[idx++] = u2;
+		data[idx++] = v2;
+		data[idx++] = packedColor;
+	}
+
+	@Override
+	public void flush() {
+		if (fallback != null) {
+			fallback.flush();
+			return;
+		}
+		if (idx == 0) return;
+		long start = FLUSH.begin();
+		renderCalls++;
+		totalRenderCalls++;
+
+		gl.glActiveTexture(GL10.GL_TEXTURE0);
+		lastTexture.bind();
+		instances.setVertices(data, 0, idx);
+		quad.bind(shader);
+		instances.bind(shader, instanceLocations);
+		for (int location : instanceLocations)
+			if (location >= 0) gl.glVertexAttribDivisor(location, 1);
+		quad.renderInstanced(GL10.GL_TRIANGLES, 0, 6, idx / INSTANCE_SIZE);
+		for (int location : instanceLocations) // Leave the locations per vertex for other meshes
+			if (location >= 0) gl.glVertexAttribDivisor(location, 0);
+		instances.unbind(shader, instanceLocations);
+		quad.unbind(shader);
+
+		idx = 0;
+		FLUSH.end(start);
+	}
+
+	@Override
+	public void dispose() {
+		if (fallback != null) return;
+		quad.dispose();
+		instances.dispose();
+		shader.dispose();
+	}
+}
@@ -3,31 +3,64 @@
  */
 package ak5.graphics;
 
+import java.nio.IntBuffer;
 import java.nio.ShortBuffer;
+import java.util.HashMap;
+import java.util.Map;
 
 import ak5.util.Disposable;
+import ak5.util.io.BufferUtil;
 
-/** @author pwnedary */
+/** With {@link GL30} and {@link VertexDataType#VERTEX_BUFFER_OBJECT} the attribute layout is recorded in a vertex array
+ * object the first time the mesh is bound with a shader, after which binding it with that shader is a single
+ * <code>glBindVertexArray</code>. Otherwise, or when given attribute locations, every bind sets up each attribute.
+ * 
+ * @author pwnedary */
 public class Mesh implements Disposable {
+	/** The number of segments in a {@link StreamingVertexBuffer}. */
+	public static final int STREAMING_SEGMENTS = 4;
+
 	private final GL10 gl;
 	private final VertexData vertices;
 	private final IndexData indices;
+	/** The vertex array object of each shader the mesh has been bound with, if they are used. */
+	private final Map<ShaderProgram, Integer> vertexArrays;
+	private final IntBuffer tmpHandle = BufferUtil.newIntBuffer(1);
+	/** Whether the mesh is bound through a vertex array object. */
+	private boolean vertexArrayBound;
 
 	public Mesh(GL10 gl, boolean isStatic, int maxVertices, int maxIndices, VertexAttribute... attributes) {
+		this(gl, gl instanceof GL20 ? VertexDataType.VERTEX_BUFFER_OBJECT : VertexDataType.VERTEX_ARRAY, isStatic, maxVertices, maxIndices, attributes);
+	}
+
+	/** @param type how to store the vertices; anything but {@link VertexDataType#VERTEX_ARRAY} requires {@link GL20} */
+	public Mesh(GL10 gl, VertexDataType type, boolean isStatic, int maxVertices, int maxIndices, VertexAttribute... attributes) {
 		this.gl = gl;
-		if (gl instanceof GL20) { // VertexBufferObject
+		switch (type) {
+		case VERTEX_BUFFER_OBJECT:
 			vertices = new VertexBufferObject((GL20) gl, isStatic, maxVertices, attributes);
 			indices = new IndexBufferObject((GL20) gl, isStatic, maxIndices);
-		} else { // Vertex array
+			break;
+		case STREAMING_VERTEX_BUFFER:
+			vertices = new StreamingVertexBuffer((GL20) gl, maxVertices, STREAMING_SEGMENTS, attributes);
+			indices = new IndexBufferObject((GL20) gl, true, maxIndices);
+			break;
+		default:
 			vertices = new VertexArray(gl, maxVertices, attributes);
 			indices = new IndexArray(maxIndices);
 		}
+		vertexArrays = type == VertexDataType.VERTEX_BUFFER_OBJECT && gl instanceof GL30 ? new HashMap<ShaderProgram, Integer>() : null;
 	}
 
 	public void setVertices(float[] vertices, int offset, int length) {
 		this.vertices.setVertices(vertices, offset, length);
 	}
 
+	/** @see VertexData#updateVertices(int, float[], int, int) */
+	public void updateVertices(int targetOffset, float[] vertices, int sourceOffset, int count) {
+		this.vertices.updateVertices(targetOffset, vertices, sourceOffset, count);
+	}
+
 	public IndexData getIndices() {
 		return indices;
 	}
@@ -55,10 +88,36 @@ public class Mesh implements Disposable {
 	 * @param shader the shader (does not bind the shader)
 	 * @param locations array containing the attribute locations. */
 	public void bind(final ShaderProgram shader, final int[] locations) {
+		if (vertexArrays != null && locations == null) {
+			bindVertexArray(shader);
+			return;
+		}
 		vertices.bind(shader, locations);
 		if (indices.getNumIndices() > 0) indices.bind();
 	}
 
+	/** Binds the vertex array object of <code>shader</code>, recording it on first use. Data changed since is uploaded,
+	 * which for vertices also sets up the attributes again. */
+	private void bindVertexArray(final ShaderProgram shader) {
+		final GL30 gl = (GL30) this.gl;
+		final VertexBufferObject vertices = (VertexBufferObject) this.vertices;
+		final IndexBufferObject indices = (IndexBufferObject) this.indices;
+		Integer array = vertexArrays.get(shader);
+		if (array == null) {
+			gl.glGenVertexArrays(1, (IntBuffer) tmpHandle.clear());
+			vertexArrays.put(shader, array = tmpHandle.get(0));
+			gl.glBindVertexArray(array);
+			vertices.bind(shader, null);
+			indices.bind(); // The element buffer binding is kept by the array
+		} else {
+			gl.glBindVertexArray(array);
+			if (vertices.isDirty) vertices.bind(shader, null);
+			else vertices.isBound = true;
+			if (indices.isDirty) indices.bind();
+		}
+		vertexArrayBound = true;
+	}
+
 	public void unbind() {
 		vertices.unbind();
 		if (!(vertices instanceof VertexArray) && indices.getNumIndices() > 0) indices.unbind();
@@ -78,6 +137,12 @@ public class Mesh implements Disposable {
 	 * @param shader the shader (does not unbind the shader)
 	 * @param locations array containing the attribute locations. */
 	public void unbind(final ShaderProgram shader, final int[] locations) {
+		if (vertexArrayBound) { // Leaves the attributes and element buffer recorded in the array alone
+			((GL30) gl).glBindVertexArray(0);
+			((VertexBufferObject) vertices).isBound = false;
+			vertexArrayBound = false;
+			return;
+		}
 		vertices.unbind(shader, locations);
 		if (indices.getNumIndices() > 0) indices.unbind();
 	}
@@ -97,13 +162,22 @@ public class Mesh implements Disposable {
 		} else gl.glDrawArrays(mode, first, count);
 	}
 
+	/** Renders <code>instances</code> copies of the indexed range, with attributes given a divisor by
+	 * {@link GL30#glVertexAttribDivisor(int, int)} advancing per copy. Requires {@link GL30} and buffer objects. */
+	public void renderInstanced(int mode, int first, int count, int instances) {
+		if (indices.getNumIndices() > 0) ((GL30) gl).glDrawElementsInstanced(mode, count, GL20.GL_UNSIGNED_SHORT, first * 2, instances);
+		else ((GL30) gl).glDrawArraysInstanced(mode, first, count, instances);
+	}
+
 	public enum VertexDataType {
-		VERTEX_ARRAY, VERTEX_BUFFER_OBJECT;
+		VERTEX_ARRAY, VERTEX_BUFFER_OBJECT, STREAMING_VERTEX_BUFFER;
 	}
 
 	@Override
 	public void dispose() {
 		vertices.dispose();
 		indices.dispose();
+		if (vertexArrays != null) for (int array : vertexArrays.values())
+			((GL30) gl).glDeleteVertexArrays(1, (IntBuffer) ((IntBuffer) tmpHandle.clear()).put(array).flip());
 	}
 }
@@ -4,25 +4,47 @@
 package ak5.graphics;
 
 import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
 
-import ak5.graphics.Texture.GLTexture;
+import ak5.graphics.Mesh.VertexDataType;
 import ak5.graphics.VertexAttribute.Type;
+import ak5.util.Profiler;
 import ak5.util.io.BufferUtil;
 import ak5.util.math.Matrix4;
 
 /** @author pwnedary */
 public class QuadBatch implements Batch {
+	private static final Profiler.Scope FLUSH = Profiler.scope(Profiler.FLUSH);
+
 	private final GL10 gl;
 	private Mesh mesh;
 
 	private final float[] vertices;
 	private int idx;
-	private Texture lastTexture;
+	/** The number of floats per vertex. */
+	private final int vertexSize;
+	/** The textures of the current batch, each bound to the unit of the same index when flushing. */
+	private final Texture[] textures;
+	private int textureCount;
+	private int lastTextureIndex;
+	private IntBuffer textureUnits;
+	private Color color = Color.WHITE;
+	private float packedColor = Color.WHITE.toFloatBits();
+
+	/** Number of render calls since the last {@link #begin()}. */
+	public int renderCalls;
+	/** Number of render calls ever. Will not be reset unless set manually. */
+	public int totalRenderCalls;
 
 	public final Matrix4 transformMatrix = new Matrix4();
 	public final Matrix4 projectionMatrix = new Matrix4();
 	private final Matrix4 combinedMatrix = new Matrix4();
 	private ShaderProgram shader;
+	private final ShaderProgram defaultShader;
+	private boolean drawing;
+	/** Whether {@link #begin()} enables blending, for {@link #end()} to disable it again. */
+	private boolean blending = true;
+	private int blendSrc = GL10.GL_SRC_ALPHA, blendDst = GL10.GL_ONE_MINUS_SRC_ALPHA;
 
 	public QuadBatch(GL10 gl) {
 		this(gl, 1000);
@@ -33,11 +55,49 @@ public class QuadBatch implements Batch {
 	}
 
 	public QuadBatch(GL10 gl, int size, ShaderProgram shader) {
+		this(gl, size, shader, gl instanceof GL20 ? VertexDataType.STREAMING_VERTEX_BUFFER : VertexDataType.VERTEX_ARRAY);
+	}
+
+	/** @param type how the mesh should store its vertices, streaming them through a ring of buffer segments by default
+	 *            where {@link GL20} is available */
+	public QuadBatch(GL10 gl, int size, ShaderProgram shader, VertexDataType type) {
+		this(gl, size, shader, type, 1);
+	}
+
+	/** Creates a batch that only flushes when it runs out of vertices or when more than <code>maxTextures</code> distinct
+	 * textures are drawn, binding each to its own texture unit.
+	 * 
+	 * @param maxTextures the number of texture units to batch across, clamped to what the hardware supports. A custom
+	 *            shader has to declare a <code>u_textures</code> sampler array and read the texture index from the
+	 *            {@link ShaderProgram#TEXINDEX_ATTRIBUTE} attribute when this is greater than one */
+	public QuadBatch(GL10 gl, int size, ShaderProgram shader, VertexDataType type, int maxTextures) {
 		this.gl = gl;
-		mesh = new Mesh(gl, false, size * 4, size * 6, //
-		new VertexAttribute(Type.POSITION, 2, ShaderProgram.POSITION_ATTRIBUTE), //
-		new VertexAttribute(Type.TEXTURE_COORDINATES, 2, ShaderProgram.TEXCOORD_ATTRIBUTE + '0'));
-		vertices = new float[size * 4];
+		if (maxTextures > 1) {
+			if (!(gl instanceof GL20)) throw new IllegalArgumentException("batching multiple textures requires GL20");
+			IntBuffer buffer = BufferUtil.newIntBuffer(16);
+			gl.glGetIntegerv(GL20.GL_MAX_TEXTURE_IMAGE_UNITS, buffer);
+			maxTextures = Math.min(maxTextures, buffer.get(0));
+		}
+		textures = new Texture[Math.max(maxTextures, 1)];
+
+		if (textures.length > 1) {
+			mesh = new Mesh(gl, type, false, size * 4, size * 6, //
+			new VertexAttribute(Type.POSITION, 2, ShaderProgram.POSITION_ATTRIBUTE), //
+			new VertexAttribute(Type.COLOR_PACKED, 4, ShaderProgram.COLOR_ATTRIBUTE), //
+			new VertexAttribute(Type.TEXTURE_COORDINATES, 2, ShaderProgram.TEXCOORD_ATTRIBUTE + '0'), //
+			new VertexAttribute(Type.GENERIC, 1, ShaderProgram.TEXINDEX_ATTRIBUTE));
+			vertexSize = 6;
+			textureUnits = BufferUtil.newIntBuffer(textures.length);
+			for (int i = 0; i < textures.length; i++)
+				textureUnits.put(i, i);
+		} else {
+			mesh = new Mesh(gl, type, false, size * 4, size * 6, //
+			new VertexAttribute(Type.POSITION, 2, ShaderProgram.POSITION_ATTRIBUTE), //
+			new VertexAttribute(Type.COLOR_PACKED, 4, ShaderProgram.COLOR_ATTRIBUTE), //
+			new VertexAttribute(Type.TEXTURE_COORDINATES, 2, ShaderProgram.TEXCOORD_ATTRIBUTE + '0'));
+			vertexSize = 5;
+		}
+		vertices = new float[size * 4 * vertexSize];
 
 		short[] indices = new short[size * 6];
 		short j = 0;
@@ -51,10 +111,12 @@ public class QuadBatch implements Batch {
 		}
 		mesh.setIndices(indices, 0, indices.length);
 
-		this.shader = shader != null ? shader : createDefaultShader(gl);
+		this.shader = defaultShader = shader != null ? shader : createDefaultShader(gl, textures.length);
 	}
 
-	private static ShaderProgram createDefaultShader(GL10 gl) {
+	/** @return the shader drawing the vertices of a batch batching <code>maxTextures</code> textures, or
+	 *         <code>null</code> without {@link GL20} */
+	static ShaderProgram createDefaultShader(GL10 gl, int maxTextures) {
 		//		String vertexShader = "attribute vec4 " + ShaderProgram.POSITION_ATTRIBUTE + ";\n" //
 		//				+ "attribute vec4 " + ShaderProgram.COLOR_ATTRIBUTE + ";\n" //
 		//				+ "attribute vec2 " + ShaderProgram.TEXCOORD_ATTRIBUTE + "0;\n" //
@@ -98,22 +160,56 @@ public class QuadBatch implements Batch {
 		//					+ " color = texture(texture, UV).rgb\n" //
 		//					+ "}\n";
 		//		} else
-		if (gl instanceof GL20) {
+		if (gl instanceof GL20 && maxTextures > 1) {
+			vertexShader = "attribute vec4 " + ShaderProgram.POSITION_ATTRIBUTE + ";\n" //
+					+ "attribute vec4 " + ShaderProgram.COLOR_ATTRIBUTE + ";\n" //
+					+ "attribute vec2 " + ShaderProgram.TEXCOORD_ATTRIBUTE + "0;\n" //
+					+ "attribute float " + ShaderProgram.TEXINDEX_ATTRIBUTE + ";\n" //
+					+ "uniform mat4 u_projTrans;\n" //
+					+ "varying vec4 v_color;\n" //
+					+ "varying vec2 v_texCoords;\n" //
+					+ "varying float v_texIndex;\n" //
+					+ "void main(){\n" //
+					+ " gl_Position = u_projTrans * " + ShaderProgram.POSITION_ATTRIBUTE + ";\n" //
+					+ " v_color = " + ShaderProgram.COLOR_ATTRIBUTE + ";\n" //
+					+ " v_texCoords = " + ShaderProgram.TEXCOORD_ATTRIBUTE + "0;\n" //
+					+ " v_texIndex = " + ShaderProgram.TEXINDEX_ATTRIBUTE + ";\n" //
+					+ "}\n";
+			// GLSL ES 1.00 only allows constant sampler array indices, hence the branches
+			StringBuilder select = new StringBuilder();
+			for (int i = 0; i < maxTextures - 1; i++)
+				select.append(" if (v_texIndex < ").append(i).append(".5) gl_FragColor = v_color * texture2D(u_textures[").append(i).append("], v_texCoords);\n else");
+			select.append(" gl_FragColor = v_color * texture2D(u_textures[").append(maxTextures - 1).append("], v_texCoords);\n");
+			fragmentShader = "#ifdef GL_ES\n" //
+					+ "precision highp float;\n" //
+					+ "#endif\n" //
+					+ "uniform sampler2D u_textures[" + maxTextures + "];\n" //
+					+ "varying vec4 v_color;\n" //
+					+ "varying vec2 v_texCoords;\n" //
+					+ "varying float v_texIndex;\n" //
+					+ "void main(){\n"//
+					+ select //
+					+ "}";
+		} else if (gl instanceof GL20) {
 			vertexShader = "attribute vec4 " + ShaderProgram.POSITION_ATTRIBUTE + ";\n" //
+					+ "attribute vec4 " + ShaderProgram.COLOR_ATTRIBUTE + ";\n" //
 					+ "attribute vec2 " + ShaderProgram.TEXCOORD_ATTRIBUTE + "0;\n" //
 					+ "uniform mat4 u_projTrans;\n" //
+					+ "varying vec4 v_color;\n" //
 					+ "varying vec2 v_texCoords;\n" //
 					+ "void main(){\n" //
 					+ " gl_Position = u_projTrans * " + ShaderProgram.POSITION_ATTRIBUTE + ";\n" //
+					+ " v_color = " + ShaderProgram.COLOR_ATTRIBUTE + ";\n" //
 					+ " v_texCoords = " + ShaderProgram.TEXCOORD_ATTRIBUTE + "0;\n" //
 					+ "}\n";
 			fragmentShader = "#ifdef GL_ES\n" //
 					+ "precision highp float;\n" //
 					+ "#endif\n" //
 					+ "uniform sampler2D u_texture;\n" //
+					+ "varying vec4 v_color;\n" //
 					+ "varying vec2 v_texCoords;\n" //
 					+ "void main(){\n"//
-					+ " gl_FragColor = texture2D(u_texture, v_texCoords);\n" //
+					+ " gl_FragColor = v_color * texture2D(u_texture, v_texCoords);\n" //
 					+ "}";
 		} else return null;
 		//		String vertexShader = "varying vec4 vertColor;\n" //
@@ -132,88 +228,183 @@ public class QuadBatch implements Batch {
 
 	@Override
 	public void begin() {
+		renderCalls = 0;
 		gl.glDepthMask(false);
+		if (blending) {
+			gl.glEnable(GL10.GL_BLEND); // So that tints can fade sprites
+			gl.glBlendFunc(blendSrc, blendDst);
+		}
 		if (shader != null) shader.begin();
 		else gl.glEnable(GL10.GL_TEXTURE_2D);
 		setupMatrices();
+		drawing = true;
 	}
 
 	@Override
 	public void end() {
+		drawing = false;
 		if (idx > 0) flush();
-		lastTexture = null;
+		textureCount = 0;
 
 		gl.glDepthMask(true);
+		if (blending) gl.glDisable(GL10.GL_BLEND);
 		if (shader != null) shader.end();
 		else gl.glDisable(GL10.GL_TEXTURE_2D);
 	}
 
-	@Override
-	public void draw(Texture texture, float x1, float y1, float x2, float y2) {
-		if (texture != lastTexture) switchTexture(texture);
-		else if (idx == vertices.length) flush();
-		vertices[idx++] = x1;
-		vertices[idx++] = y2;
-		vertices[idx++] = texture.getU();
-		vertices[idx++] = texture.getV2();
-
-		vertices[idx++] = x1;
-		vertices[idx++] = y1;
-		vertices[idx++] = texture.getU();
-		vertices[idx++] = texture.getV();
+	/** Sets whether blending is enabled with the {@link #setBlendFunction(int, int) blend function} from
+	 * {@link #begin()} and disabled again by {@link #end()}, which it is by default. If not, the blend state is left to
+	 * the caller.
+	 * 
+	 * @param blending whether to enable blending while drawing */
+	public void setBlending(boolean blending) {
+		if (drawing) throw new IllegalStateException("end must be called before changing the blending.");
+		this.blending = blending;
+	}
 
-		vertices[idx++] = x2;
-		vertices[idx++] = y1;
-		vertices[idx++] = texture.getU2();
-		vertices[idx++] = texture.getV();
+	/** Sets the blend function set by {@link #begin()} if {@link #setBlending(boolean) blending},
+	 * <code>GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA</code> by default. */
+	public void setBlendFunction(int src, int dst) {
+		if (drawing) throw new IllegalStateException("end must be called before changing the blend function.");
+		blendSrc = src;
+		blendDst = dst;
+	}
 
-		vertices[idx++] = x2;
-		vertices[idx++] = y2;
-		vertices[idx++] = texture.getU2();
-		vertices[idx++] = texture.getV2();
+	@Override
+	public void draw(Texture texture, float x1, float y1, float x2, float y2) {
+		if (idx == vertices.length) flush();
+		final float unit = textureIndex(texture);
+		final float u = texture.getU(), v = texture.getV(), u2 = texture.getU2(), v2 = texture.getV2();
+		vertex(x1, y2, u, v2, unit);
+		vertex(x1, y1, u, v, unit);
+		vertex(x2, y1, u2, v, unit);
+		vertex(x2, y2, u2, v2, unit);
 	}
 
 	@Override
 	public void draw(Texture texture, float dx1, float dy1, float dx2, float dy2, float sx1, float sy1, float sx2, float sy2) {
-		if (texture != lastTexture) switchTexture(texture);
-		else if (idx == vertices.length) flush();
+		if (idx == vertices.length) flush();
+		final float unit = textureIndex(texture);
+		final float u = sx1 / texture.getTexWidth() + texture.getU();
+		final float v = sy1 / texture.getTexHeight() + texture.getV();
+		final float u2 = sx2 / texture.getTexWidth() + texture.getU();
+		final float v2 = sy2 / texture.getTexHeight() + texture.getV();
+
+		vertex(dx1, dy1, u, v, unit);
+		vertex(dx1, dy2, u, v2, unit);
+		vertex(dx2, dy2, u2, v2, unit);
+		vertex(dx2, dy1, u2, v, unit);
+	}
+
+	/** Draws <code>texture</code> rotated <code>rotation</code> radians counterclockwise around its center. */
+	public void draw(Texture texture, float x, float y, float width, float height, float rotation) {
+		if (idx == vertices.length) flush();
+		final float unit = textureIndex(texture);
+		final float u = texture.getU(), v = texture.getV(), u2 = texture.getU2(), v2 = texture.getV2();
+		final float cos = (float) Math.cos(rotation), sin = (float) Math.sin(rotation);
+		final float cx = x + width / 2, cy = y + height / 2;
+		final float ax = width / 2 * cos, ay = width / 2 * sin; // The rotated half axes
+		final float bx = -height / 2 * sin, by = height / 2 * cos;
+		vertex(cx - ax + bx, cy - ay + by, u, v2, unit);
+		vertex(cx - ax - bx, cy - ay - by, u, v, unit);
+		vertex(cx + ax - bx, cy + ay - by, u2, v, unit);
+		vertex(cx + ax + bx, cy + ay + by, u2, v2, unit);
+	}
 
-		final float u = (float) sx1 / ((GLTexture) texture).getTexWidth() + texture.getU();
-		final float v = (float) sy1 / ((GLTexture) texture).getTexHeight() + texture.getV();
-		final float u2 = (float) sx2 / ((GLTexture) texture).getTexWidth() + texture.getU();
-		final float v2 = (float) sy2 / ((GLTexture) texture).getTexHeight() + texture.getV();
+	/** Draws quads of <code>texture</code> made beforehand, <code>count</code> floats of them: for each corner its
+	 * position, packed color and texture coordinates, in the order of
+	 * {@link #draw(Texture, float, float, float, float, float, float, float, float)}. They are copied as they are when
+	 * batching a single texture. */
+	public void draw(Texture texture, float[] spriteVertices, int offset, int count) {
+		while (count > 0) {
+			if (idx == vertices.length) flush();
+			final float unit = textureIndex(texture);
+			if (vertexSize == 5) {
+				final int copied = Math.min(count, vertices.length - idx);
+				System.arraycopy(spriteVertices, offset, vertices, idx, copied);
+				idx += copied;
+				offset += copied;
+				count -= copied;
+			} else for (; count > 0 && idx < vertices.length; offset += 5, count -= 5) {
+				System.arraycopy(spriteVertices, offset, vertices, idx, 5);
+				vertices[idx + 5] = unit;
+				idx += 6;
+			}
+		}
+	}
 
-		vertices[idx++] = dx1;
-		vertices[idx++] = dy1;
+	private void vertex(float x, float y, float u, float v, float unit) {
+		final float[] vertices = this.vertices;
+		vertices[idx++] = x;
+		vertices[idx++] = y;
+		vertices[idx++] = packedColor;
 		vertices[idx++] = u;
 		vertices[idx++] = v;
+		if (vertexSize == 6) vertices[idx++] = unit;
+	}
 
-		vertices[idx++] = dx1;
-		vertices[idx++] = dy2;
-		vertices[idx++] = u;
-		vertices[idx++] = v2;
+	/** Flushes and switches to <code>shader</code>, <code>null</code> restoring the one this batch was created with.
+	 * Requires {@link GL20}. */
+	public void setShader(ShaderProgram shader) {
+		if (shader == null) shader = defaultShader;
+		if (shader == this.shader) return;
+		if (drawing) {
+			flush();
+			this.shader.end();
+		}
+		this.shader = shader;
+		if (drawing) {
+			shader.begin();
+			setupMatrices();
+		}
+	}
 
-		vertices[idx++] = dx2;
-		vertices[idx++] = dy2;
-		vertices[idx++] = u2;
-		vertices[idx++] = v2;
+	public ShaderProgram getShader() {
+		return shader;
+	}
 
-		vertices[idx++] = dx2;
-		vertices[idx++] = dy1;
-		vertices[idx++] = u2;
-		vertices[idx++] = v;
+	/** @return the number of textures batched at once, each bound to its own texture unit */
+	public int getMaxTextures() {
+		return textures.length;
+	}
+
+	@Override
+	public void setColor(Color tint) {
+		color = tint;
+		packedColor = tint.toFloatBits();
+	}
+
+	@Override
+	public Color getColor() {
+		return color;
+	}
+
+	/** Returns the texture unit <code>texture</code> will be bound to, flushing first if all units are taken. Textures
+	 * are told apart by their OpenGL handle, so regions of the same sheet share a unit. */
+	private int textureIndex(Texture texture) {
+		final int handle = texture.getTexture();
+		if (textureCount > 0 && textures[lastTextureIndex].getTexture() == handle) return lastTextureIndex;
+		for (int i = 0; i < textureCount; i++)
+			if (textures[i].getTexture() == handle) return lastTextureIndex = i;
+		if (textureCount == textures.length) flush();
+		textures[textureCount] = texture;
+		return lastTextureIndex = textureCount++;
 	}
 
 	@Override
 	public void flush() {
 		if (idx == 0) return;
-		int spritesInBatch = idx / 16;
+		long start = FLUSH.begin();
+		int spritesInBatch = idx / (4 * vertexSize);
 		int count = spritesInBatch * 6;
+		renderCalls++;
+		totalRenderCalls++;
 
-		gl.glActiveTexture(GL10.GL_TEXTURE0);
-		lastTexture.bind();
+		for (int i = textureCount - 1; i >= 0; i--) { // Ends on the first unit
+			gl.glActiveTexture(GL10.GL_TEXTURE0 + i);
+			textures[i].bind();
+		}
 		mesh.setVertices(vertices, 0, idx);
-		mesh.getIndices().getBuffer().position(0).limit(count);
 
 		if (shader != null) {
 			mesh.bind(shader);
@@ -226,18 +417,16 @@ public class QuadBatch implements Batch {
 		}
 
 		idx = 0;
-	}
-
-	private void switchTexture(Texture texture) {
-		flush();
-		lastTexture = texture;
+		textureCount = 0;
+		FLUSH.end(start);
 	}
 
 	private void setupMatrices() {
 		combinedMatrix.set(projectionMatrix).mult(transformMatrix);
 		if (shader != null) {
 			((GL20) gl).glUniformMatrix4fv(shader.getUniformLocation("u_projTrans"), 1, false, (FloatBuffer) BufferUtil.newFloatBuffer(16).put(combinedMatrix.data).flip());
-			((GL20) gl).glUniform1i(shader.getUniformLocation("u_texture"), 0);
+			if (textureUnits != null) ((GL20) gl).glUniform1iv(shader.getUniformLocation("u_textures"), textureUnits.capacity(), textureUnits);
+			else ((GL20) gl).glUniform1i(shader.getUniformLocation("u_texture"), 0);
 		} else {
 			gl.glMatrixMode(GL10.GL_PROJECTION);
 			gl.glLoadIdentity();
@@ -0,0 +1,206 @@
+/**
+ * 
+ */
+package ak5.graphics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/** A {@link Batch} that defers its draws until {@link #flush()}, then sorts them so that a {@link QuadBatch} can emit
+ * them with as few texture and shader switches as possible.
+ * <p>
+ * Every draw gets a 64-bit sort key made of, from the most significant bits, the current layer, shader, texture and
+ * depth. Lower keys are drawn first. In stable mode shader and texture are left out, so sprites that overlap keep
+ * being drawn back to front, draws with equal layer and depth keeping their submission order.
+ * 
+ * @author pwnedary */
+public class RenderQueue implements Batch {
+	/** The marker for draws of whole textures, in place of source coordinates. */
+	private static final float WHOLE = Float.NaN;
+
+	private final QuadBatch batch;
+	private boolean stable;
+	private int layer;
+	private float depth;
+	private ShaderProgram shader;
+	private Color color = Color.WHITE;
+	/** Shaders used this frame, their index being their part of the sort key. */
+	private final List<ShaderProgram> shaders = new ArrayList<>();
+
+	private int count;
+	private long[] keys = new long[64], sortedKeys = new long[64];
+	private int[] order = new int[64], sortedOrder = new int[64];
+	private final int[] histogram = new int[256];
+	private Texture[] textures = new Texture[64];
+	private ShaderProgram[] programs = new ShaderProgram[64];
+	private Color[] colors = new Color[64];
+	/** Destination and source coordinates, 8 per draw. */
+	private float[] coords = new float[64 * 8];
+
+	public RenderQueue(QuadBatch batch) {
+		this.batch = batch;
+	}
+
+	/** @param stable whether to only sort by layer and depth, as translucent sprites need */
+	public void setStable(boolean stable) {
+		this.stable = stable;
+	}
+
+	/** Sets the layer, 0-255, of subsequent draws. Higher layers are drawn over lower ones. */
+	public void setLayer(int layer) {
+		if (layer < 0 || layer > 255) throw new IllegalArgumentException("layer must be within 0-255");
+		this.layer = layer;
+	}
+
+	/** Sets the depth of subsequent draws, lower depths being drawn first within a layer. */
+	public void setDepth(float depth) {
+		this.depth = depth;
+	}
+
+	/** Sets the shader of subsequent draws, <code>null</code> meaning the batch's own. */
+	public void setShader(ShaderProgram shader) {
+		this.shader = shader;
+	}
+
+	@Override
+	public void setColor(Color tint) {
+		color = tint;
+	}
+
+	@Override
+	public Color getColor() {
+		return color;
+	}
+
+	@Override
+	public void begin() {
+		count = 0;
+		shaders.clear();
+	}
+
+	@Override
+	public void end() {
+		flush();
+	}
+
+	@Override
+	public void draw(Texture texture, float x1, float y1, float x2, float y2) {
+		add(texture, x1, y1, x2, y2, WHOLE, WHOLE, WHOLE, WHOLE);
+	}
+
+	@Override
+	public void draw(Texture texture, float dx1, float dy1, float dx2, float dy2, float sx1, float sy1, float sx2, float sy2) {
+		add(texture, dx1, dy1, dx2, dy2, sx1, sy1, sx2, sy2);
+	}
+
+	private void add(Texture texture, float dx1, float dy1, float dx2, float dy2, float sx1, float sy1, float sx2, float sy2) {
+		if (count == keys.length) grow();
+		int shaderIndex = shaders.indexOf(shader);
+		if (shaderIndex == -1) {
+			shaderIndex = shaders.size();
+			shaders.add(shader);
+		}
+
+		int depthBits = Float.floatToIntBits(depth);
+		depthBits ^= depthBits >> 31 | 0x80000000; // Orders the bits of negative and positive floats alike
+		long key = (long) layer << 56;
+		if (stable) key |= (depthBits & 0xFFFFFFFFL) << 24;
+		else key |= (long) (shaderIndex & 0xFF) << 48 | (long) (texture.getTexture() & 0xFFFF) << 32 | depthBits & 0xFFFFFFFFL;
+
+		keys[count] = key;
+		order[count] = count;
+		textures[count] = texture;
+		programs[count] = shader;
+		colors[count] = color;
+		final float[] coords = this.coords;
+		int i = count++ * 8;
+		coords[i++] = dx1;
+		coords[i++] = dy1;
+		coords[i++] = dx2;
+		coords[i++] = dy2;
+		coords[i++] = sx1;
+		coords[i++] = sy1;
+		coords[i++] = sx2;
+		coords[i] = sy2;
+	}
+
+	private void grow() {
+		int capacity = keys.length * 2;
+		keys = Arrays.copyOf(keys, capacity);
+		sortedKeys = new long[capacity];
+		order = Arrays.copyOf(order, capacity);
+		sortedOrder = new int[capacity];
+		textures = Arrays.copyOf(textures, capacity);
+		programs = Arrays.copyOf(programs, capacity);
+		colors = Arrays.copyOf(colors, capacity);
+		coords = Arrays.copyOf(coords, capacity * 8);
+	}
+
+	/** Sorts the draws by key with a least significant digit radix sort, which keeps equal keys in order. Passes over
+	 * bytes shared by every key are skipped. */
+	private void sort() {
+		long[] keys = this.keys, sortedKeys = this.sortedKeys;
+		int[] order = this.order, sortedOrder = this.sortedOrder;
+		for (int shift = 0; shift < 64; shift += 8) {
+			Arrays.fill(histogram, 0);
+			for (int i = 0; i < count; i++)
+				histogram[(int) (keys[i] >>> shift) & 0xFF]++;
+			if (histogram[(int) (keys[0] >>> shift) & 0xFF] == count) continue;
+
+			for (int digit = 0, sum = 0; digit < histogram.length; digit++) {
+				int n = histogram[digit];
+				histogram[digit] = sum;
+				sum += n;
+			}
+			for (int i = 0; i < count; i++) {
+				int position = histogram[(int) (keys[i] >>> shift) & 0xFF]++;
+				sortedKeys[position] = keys[i];
+				sortedOrder[position] = order[i];
+			}
+
+			long[] tmpKeys = keys;
+			keys = sortedKeys;
+			sortedKeys = tmpKeys;
+			int[] tmpOrder = order;
+			order = sortedOrder;
+			sortedOrder = tmpOrder;
+		}
+		this.keys = keys;
+		this.sortedKeys = sortedKeys;
+		this.order = order;
+		this.sortedOrder = sortedOrder;
+	}
+
+	/** Sorts and draws every queued draw. */
+	@Override
+	public void flush() {
+		if (count == 0) return;
+		sort();
+
+		Color tint = batch.getColor();
+		batch.begin();
+		for (int n = 0; n < count; n++) {
+			final int index = order[n];
+			final int i = index * 8;
+			batch.setShader(programs[index]);
+			batch.setColor(colors[index]);
+			if (Float.isNaN(coords[i + 4])) batch.draw(textures[index], coords[i], coords[i + 1], coords[i + 2], coords[i + 3]);
+			else batch.draw(textures[index], coords[i], coords[i + 1], coords[i + 2], coords[i + 3], coords[i + 4], coords[i + 5], coords[i + 6], coords[i + 7]);
+			textures[index] = null;
+			programs[index] = null;
+			colors[index] = null;
+		}
+		batch.end();
+		batch.setShader(null);
+		batch.setColor(tint);
+
+		count = 0;
+		shaders.clear();
+	}
+
+	/** @return the batch the draws are emitted through */
+	public QuadBatch getBatch() {
+		return batch;
+	}
+}
@@ -32,6 +32,8 @@ public class ShaderProgram implements Disposable {
 	public static final String TANGENT_ATTRIBUTE = "a_tangent";
 	/** Default name for binormal attribute. **/
 	public static final String BINORMAL_ATTRIBUTE = "a_binormal";
+	/** Default name for the attribute selecting which bound texture unit to sample. **/
+	public static final String TEXINDEX_ATTRIBUTE = "a_texIndex";
 
 	private GL20 gl;
 	/** The OpenGL handle for this shader program object. */
@@ -0,0 +1,290 @@
+/**
+ * 
+ */
+package ak5.graphics;
+
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import ak5.graphics.Mesh.VertexDataType;
+import ak5.graphics.VertexAttribute.Type;
+import ak5.util.Disposable;
+import ak5.util.io.BufferUtil;
+import ak5.util.math.Matrix4;
+
+/** Keeps sprites that rarely change, e.g. the tiles of a background layer, in a static {@link Mesh} so that drawing
+ * them costs one render call per texture and no uploads.
+ * <p>
+ * Sprites are recorded into caches with the {@link Batch} draw methods between {@link #beginCache()} and
+ * {@link #endCache()}, which groups them by texture. A cache can later be recorded anew with
+ * {@link #beginCache(int)}, only uploading its own vertices, as long as it does not grow. Caches are drawn with
+ * {@link #draw(int)} between {@link #begin()} and {@link #end()}, moved by {@link #transformMatrix} through a uniform.
+ * 
+ * @author pwnedary */
+public class SpriteCache implements Batch, Disposable {
+	/** The number of floats per sprite. */
+	private static final int SPRITE_SIZE = 4 * 5;
+	/** The most sprites a cache can hold, their vertices being indexed by unsigned shorts. */
+	public static final int MAX_SIZE = 65536 / 4;
+
+	private final GL20 gl;
+	private final Mesh mesh;
+	private final ShaderProgram shader;
+	private final float[] vertices;
+	/** The number of sprites in use by caches. */
+	private int sprites;
+	private final List<Cache> caches = new ArrayList<>();
+
+	/** The cache being recorded, if any. */
+	private Cache current;
+	private float[] recorded = new float[64 * SPRITE_SIZE];
+	private Texture[] recordedTextures = new Texture[64];
+	private int recordedCount;
+	private Color color = Color.WHITE;
+	private float packedColor = Color.WHITE.toFloatBits();
+
+	public final Matrix4 transformMatrix = new Matrix4();
+	public final Matrix4 projectionMatrix = new Matrix4();
+	private final Matrix4 combinedMatrix = new Matrix4();
+	private final FloatBuffer matrixBuffer = BufferUtil.newFloatBuffer(16);
+	private boolean drawing;
+	/** Whether {@link #begin()} enables blending, for {@link #end()} to disable it again. */
+	private boolean blending = true;
+	private int blendSrc = GL10.GL_SRC_ALPHA, blendDst = GL10.GL_ONE_MINUS_SRC_ALPHA;
+
+	/** Number of render calls since the last {@link #begin()}. */
+	public int renderCalls;
+
+	public SpriteCache(GL10 gl) {
+		this(gl, 1000);
+	}
+
+	/** @param size the maximum number of sprites in all caches together, at most {@link #MAX_SIZE} */
+	public SpriteCache(GL10 gl, int size) {
+		if (!(gl instanceof GL20)) throw new IllegalArgumentException("SpriteCache requires GL20");
+		if (size > MAX_SIZE) throw new IllegalArgumentException("SpriteCache can hold at most " + MAX_SIZE + " sprites, not " + size + ".");
+		this.gl = (GL20) gl;
+		mesh = new Mesh(gl, VertexDataType.VERTEX_BUFFER_OBJECT, true, size * 4, size * 6, //
+		new VertexAttribute(Type.POSITION, 2, ShaderProgram.POSITION_ATTRIBUTE), //
+		new VertexAttribute(Type.COLOR_PACKED, 4, ShaderProgram.COLOR_ATTRIBUTE), //
+		new VertexAttribute(Type.TEXTURE_COORDINATES, 2, ShaderProgram.TEXCOORD_ATTRIBUTE + '0'));
+		vertices = new float[size * SPRITE_SIZE];
+		mesh.setVertices(vertices, 0, vertices.length);
+
+		short[] indices = new short[size * 6];
+		short j = 0;
+		for (int i = 0; i < indices.length; i += 6, j += 4) {
+			indices[i + 0] = j;
+			indices[i + 1] = (short) (j + 1);
+			indices[i + 2] = (short) (j + 2);
+			indices[i + 3] = (short) (j + 2);
+			indices[i + 4] = (short) (j + 3);
+			indices[i + 5] = j;
+		}
+		mesh.setIndices(indices, 0, indices.length);
+		shader = QuadBatch.createDefaultShader(gl, 1);
+	}
+
+	/** Starts recording a new cache.
+	 * 
+	 * @return the id of the cache */
+	public int beginCache() {
+		if (current != null) throw new IllegalStateException("Already recording a cache.");
+		current = new Cache(caches.size(), sprites);
+		recordedCount = 0;
+		return current.id;
+	}
+
+	/** Starts recording the cache <code>id</code> anew, replacing its sprites. It may not end up with more sprites than
+	 * it has room for. */
+	public void beginCache(int id) {
+		if (current != null) throw new IllegalStateException("Already recording a cache.");
+		current = caches.get(id);
+		recordedCount = 0;
+	}
+
+	/** Stops recording, writing the sprites grouped by texture and uploading only them.
+	 * 
+	 * @return the id of the cache */
+	public int endCache() {
+		return endCache(0);
+	}
+
+	/** Stops recording like {@link #endCache()}, reserving room for <code>capacity</code> sprites if the cache is new so
+	 * that it may grow up to that when recorded anew.
+	 * 
+	 * @return the id of the cache */
+	public int endCache(int capacity) {
+		if (current == null) throw new IllegalStateException("Not recording a cache.");
+		final Cache cache = current;
+		current = null;
+		if (cache.id == caches.size()) {
+			cache.capacity = Math.max(recordedCount, capacity);
+			if (sprites + cache.capacity > vertices.length / SPRITE_SIZE) throw new IllegalStateException("SpriteCache is full: " + cache.capacity + " sprites do not fit in the " + (vertices.length / SPRITE_SIZE - sprites) + " left of " + vertices.length / SPRITE_SIZE + ".");
+			sprites += cache.capacity;
+			caches.add(cache);
+		} else if (recordedCount > cache.capacity) throw new IllegalStateException("Cache " + cache.id + " cannot grow past " + cache.capacity + " sprites.");
+
+		// Counting sort by texture, in order of first appearance
+		List<Texture> textures = new ArrayList<>();
+		int[] counts = new int[8];
+		int[] groupOf = new int[recordedCount];
+		for (int i = 0; i < recordedCount; i++) {
+			int group = 0;
+			while (group < textures.size() && textures.get(group).getTexture() != recordedTextures[i].getTexture())
+				group++;
+			if (group == textures.size()) {
+				textures.add(recordedTextures[i]);
+				if (group == counts.length) counts = Arrays.copyOf(counts, group * 2);
+			}
+			counts[group]++;
+			groupOf[i] = group;
+		}
+		int[] starts = new int[textures.size()];
+		for (int group = 1; group < starts.length; group++)
+			starts[group] = starts[group - 1] + counts[group - 1];
+		cache.textures = textures.toArray(new Texture[textures.size()]);
+		cache.counts = Arrays.copyOf(counts, textures.size());
+
+		for (int i = 0; i < recordedCount; i++)
+			System.arraycopy(recorded, i * SPRITE_SIZE, vertices, (cache.offset + starts[groupOf[i]]++) * SPRITE_SIZE, SPRITE_SIZE);
+		Arrays.fill(recordedTextures, 0, recordedCount, null);
+		mesh.updateVertices(cache.offset * SPRITE_SIZE, vertices, cache.offset * SPRITE_SIZE, recordedCount * SPRITE_SIZE);
+		return cache.id;
+	}
+
+	@Override
+	public void setColor(Color tint) {
+		color = tint;
+		packedColor = tint.toFloatBits();
+	}
+
+	@Override
+	public Color getColor() {
+		return color;
+	}
+
+	@Override
+	public void draw(Texture texture, float x1, float y1, float x2, float y2) {
+		record(texture, x1, y1, x2, y2, texture.getU(), texture.getV(), texture.getU2(), texture.getV2());
+	}
+
+	@Override
+	public void draw(Texture texture, float dx1, float dy1, float dx2, float dy2, float sx1, float sy1, float sx2, float sy2) {
+		final float texWidth = texture.getTexWidth(), texHeight = texture.getTexHeight();
+		final float u = sx1 / texWidth + texture.getU(), v = sy1 / texHeight + texture.getV();
+		final float u2 = sx2 / texWidth + texture.getU(), v2 = sy2 / texHeight + texture.getV();
+		record(texture, dx1, dy1, dx2, dy2, u, v, u2, v2);
+	}
+
+	/** Records a sprite in the corner order of {@link QuadBatch#draw(Texture, float, float, float, float)}. */
+	private void record(Texture texture, float x1, float y1, float x2, float y2, float u, float v, float u2, float v2) {
+		if (current == null) throw new IllegalStateException("Not recording a cache.");
+		if (recordedCount == recordedTextures.length) grow();
+		recordedTextures[recordedCount] = texture;
+		int idx = recordedCount++ * SPRITE_SIZE;
+		idx = vertex(idx, x1, y2, u, v2);
+		idx = vertex(idx, x1, y1, u, v);
+		idx = vertex(idx, x2, y1, u2, v);
+		vertex(idx, x2, y2, u2, v2);
+	}
+
+	private int vertex(int idx, float x, float y, float u, float v) {
+		final float[] recorded = this.recorded;
+		recorded[idx++] = x;
+		recorded[idx++] = y;
+		recorded[idx++] = packedColor;
+		recorded[idx++] = u;
+		recorded[idx++] = v;
+		return idx;
+	}
+
+	private void grow() {
+		recorded = Arrays.copyOf(recorded, recorded.length * 2);
+		recordedTextures = Arrays.copyOf(recordedTextures, recordedTextures.length * 2);
+	}
+
+	@Override
+	public void begin() {
+		if (current != null) throw new IllegalStateException("Still recording a cache.");
+		renderCalls = 0;
+		gl.glDepthMask(false);
+		if (blending) {
+			gl.glEnable(GL10.GL_BLEND);
+			gl.glBlendFunc(blendSrc, blendDst);
+		}
+		shader.begin();
+		gl.glUniform1i(shader.getUniformLocation("u_texture"), 0);
+		gl.glActiveTexture(GL10.GL_TEXTURE0);
+		mesh.bind(shader);
+		drawing = true;
+	}
+
+	/** Draws the cache <code>id</code>, one render call per texture, transformed by the current matrices. */
+	public void draw(int id) {
+		if (!drawing) throw new IllegalStateException("begin must be called before draw.");
+		Cache cache = caches.get(id);
+		combinedMatrix.set(projectionMatrix).mult(transformMatrix);
+		gl.glUniformMatrix4fv(shader.getUniformLocation("u_projTrans"), 1, false, (FloatBuffer) ((FloatBuffer) matrixBuffer.clear()).put(combinedMatrix.data).flip());
+		for (int group = 0, offset = cache.offset; group < cache.textures.length; offset += cache.counts[group++]) {
+			cache.textures[group].bind();
+			mesh.render(GL10.GL_TRIANGLES, offset * 6, cache.counts[group] * 6);
+			renderCalls++;
+		}
+	}
+
+	@Override
+	public void end() {
+		drawing = false;
+		mesh.unbind(shader);
+		gl.glDepthMask(true);
+		if (blending) gl.glDisable(GL10.GL_BLEND);
+		shader.end();
+	}
+
+	/** Sets whether blending is enabled with the {@link #setBlendFunction(int, int) blend function} from
+	 * {@link #begin()} and disabled again by {@link #end()}, which it is by default. If not, the blend state is left to
+	 * the caller.
+	 * 
+	 * @see QuadBatch#setBlending(boolean) */
+	public void setBlending(boolean blending) {
+		if (drawing) throw new IllegalStateException("end must be called before changing the blending.");
+		this.blending = blending;
+	}
+
+	/** Sets the blend function set by {@link #begin()} if {@link #setBlending(boolean) blending},
+	 * <code>GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA</code> by default. */
+	public void setBlendFunction(int src, int dst) {
+		if (drawing) throw new IllegalStateException("end must be called before changing the blend function.");
+		blendSrc = src;
+		blendDst = dst;
+	}
+
+	/** Does nothing, as caches are drawn as soon as {@link #draw(int)} is called. */
+	@Override
+	public void flush() {}
+
+	@Override
+	public void dispose() {
+		mesh.dispose();
+		shader.dispose();
+	}
+
+	private static class Cache {
+		final int id;
+		/** The first sprite of the cache. */
+		final int offset;
+		/** The number of sprites reserved for the cache. */
+		int capacity;
+		/** The textures of the cache, with the number of sprites using each. */
+		Texture[] textures;
+		int[] counts;
+
+		Cache(int id, int offset) {
+			this.id = id;
+			this.offset = offset;
+		}
+	}
+}
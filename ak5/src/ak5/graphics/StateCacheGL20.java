@@ -0,0 +1,212 @@
+/**
+ * 
+ */
+package ak5.graphics;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/** A {@link GL20} that remembers the state it last set and drops calls that would not change it: the bound program,
+ * textures per unit, array and element buffers, enabled vertex attributes, capabilities, depth mask and blend function.
+ * <p>
+ * Everything starts out unknown, so the first call for each piece of state always goes through. State changed behind
+ * its back, e.g. by calling the wrapped GL directly, has to be forgotten with {@link #invalidate()}.
+ * 
+ * @author pwnedary */
+public class StateCacheGL20 extends ForwardingGL20 {
+	/** Stands for state that has not been set through this GL yet. */
+	private static final int UNKNOWN = -1;
+	private static final int MAX_UNITS = 32, MAX_ATTRIBUTES = 32;
+	/** The tracked capabilities, {@link #capabilities} being indexed alike. */
+	private static final int[] CAPABILITIES = { GL10.GL_BLEND, GL10.GL_DEPTH_TEST, GL10.GL_CULL_FACE, GL10.GL_SCISSOR_TEST, GL10.GL_TEXTURE_2D };
+
+	private int program;
+	private int activeUnit;
+	/** The texture bound to <code>GL_TEXTURE_2D</code> of each unit. */
+	private final int[] textures = new int[MAX_UNITS];
+	private int arrayBuffer, elementArrayBuffer;
+	/** <code>1</code> for enabled, <code>0</code> for disabled. */
+	private final int[] attributes = new int[MAX_ATTRIBUTES];
+	private final int[] capabilities = new int[CAPABILITIES.length];
+	private int depthMask;
+	private int blendSrc, blendDst;
+
+	/** The number of calls dropped since the last {@link #resetStats()}. */
+	public int avoidedCalls;
+	/** The number of calls dropped ever. Will not be reset unless set manually. */
+	public long totalAvoidedCalls;
+
+	public StateCacheGL20(GL20 gl) {
+		super(gl);
+		invalidate();
+	}
+
+	/** @return <code>gl</code> decorated with a state cache, keeping it a {@link GL30} if it was one */
+	public static StateCacheGL20 wrap(GL20 gl) {
+		return gl instanceof GL30 ? new StateCacheGL30((GL30) gl) : new StateCacheGL20(gl);
+	}
+
+	/** Forgets all state, so that the next call for each piece of state goes through. */
+	public void invalidate() {
+		program = activeUnit = arrayBuffer = elementArrayBuffer = depthMask = blendSrc = blendDst = UNKNOWN;
+		Arrays.fill(textures, UNKNOWN);
+		Arrays.fill(attributes, UNKNOWN);
+		Arrays.fill(capabilities, UNKNOWN);
+	}
+
+	/** Forgets the enabled vertex attributes and the element buffer, which are part of a vertex array object. */
+	protected void invalidateVertexArray() {
+		Arrays.fill(attributes, UNKNOWN);
+		elementArrayBuffer = UNKNOWN;
+	}
+
+	/** Resets {@link #avoidedCalls}; meant to be called once per frame, as the LWJGL platform does before drawing. */
+	public void resetStats() {
+		avoidedCalls = 0;
+	}
+
+	private void avoided() {
+		avoidedCalls++;
+		totalAvoidedCalls++;
+	}
+
+	@Override
+	public void glUseProgram(int program) {
+		if (this.program == program) avoided();
+		else gl.glUseProgram(this.program = program);
+	}
+
+	@Override
+	public void glDeleteProgram(int program) {
+		if (this.program == program) this.program = UNKNOWN;
+		gl.glDeleteProgram(program);
+	}
+
+	@Override
+	public void glActiveTexture(int texture) {
+		if (activeUnit == texture) avoided();
+		else gl.glActiveTexture(activeUnit = texture);
+	}
+
+	@Override
+	public void glBindTexture(int target, int texture) {
+		final int unit = activeUnit - GL10.GL_TEXTURE0;
+		if (target != GL10.GL_TEXTURE_2D || activeUnit == UNKNOWN || unit >= MAX_UNITS) gl.glBindTexture(target, texture);
+		else if (textures[unit] == texture) avoided();
+		else gl.glBindTexture(target, textures[unit] = texture);
+	}
+
+	@Override
+	public void glDeleteTextures(int n, IntBuffer textures) {
+		Arrays.fill(this.textures, UNKNOWN); // Deleting a bound texture binds 0 instead
+		gl.glDeleteTextures(n, textures);
+	}
+
+	@Override
+	public void glBindBuffer(int target, int buffer) {
+		if (target == GL20.GL_ARRAY_BUFFER) {
+			if (arrayBuffer == buffer) avoided();
+			else gl.glBindBuffer(target, arrayBuffer = buffer);
+		} else if (target == GL20.GL_ELEMENT_ARRAY_BUFFER) {
+			if (elementArrayBuffer == buffer) avoided();
+			else gl.glBindBuffer(target, elementArrayBuffer = buffer);
+		} else gl.glBindBuffer(target, buffer);
+	}
+
+	@Override
+	public void glDeleteBuffers(int n, IntBuffer buffers) {
+		arrayBuffer = elementArrayBuffer = UNKNOWN;
+		gl.glDeleteBuffers(n, buffers);
+	}
+
+	@Override
+	public void glEnableVertexAttribArray(int index) {
+		if (index >= 0 && index < MAX_ATTRIBUTES) {
+			if (attributes[index] == 1) {
+				avoided();
+				return;
+			}
+			attributes[index] = 1;
+		}
+		gl.glEnableVertexAttribArray(index);
+	}
+
+	@Override
+	public void glDisableVertexAttribArray(int index) {
+		if (index >= 0 && index < MAX_ATTRIBUTES) {
+			if (attributes[index] == 0) {
+				avoided();
+				return;
+			}
+			attributes[index] = 0;
+		}
+		gl.glDisableVertexAttribArray(index);
+	}
+
+	@Override
+	public void glEnable(int cap) {
+		final int i = indexOf(cap);
+		if (i != -1) {
+			if (capabilities[i] == 1) {
+				avoided();
+				return;
+			}
+			capabilities[i] = 1;
+		}
+		gl.glEnable(cap);
+	}
+
+	@Override
+	public void glDisable(int cap) {
+		final int i = indexOf(cap);
+		if (i != -1) {
+			if (capabilities[i] == 0) {
+				avoided();
+				return;
+			}
+			capabilities[i] = 0;
+		}
+		gl.glDisable(cap);
+	}
+
+	/** Answers from the cache where the capability is known, without asking the GL. */
+	@Override
+	public boolean glIsEnabled(int cap) {
+		final int i = indexOf(cap);
+		if (i != -1 && capabilities[i] != UNKNOWN) {
+			avoided();
+			return capabilities[i] == 1;
+		}
+		final boolean enabled = gl.glIsEnabled(cap);
+		if (i != -1) capabilities[i] = enabled ? 1 : 0;
+		return enabled;
+	}
+
+	private static int indexOf(int cap) {
+		for (int i = 0; i < CAPABILITIES.length; i++)
+			if (CAPABILITIES[i] == cap) return i;
+		return -1;
+	}
+
+	@Override
+	public void glDepthMask(boolean flag) {
+		final int mask = flag ? 1 : 0;
+		if (depthMask == mask) avoided();
+		else {
+			depthMask = mask;
+			gl.glDepthMask(flag);
+		}
+	}
+
+	@Override
+	public void glBlendFunc(int sfactor, int dfactor) {
+		if (blendSrc == sfactor && blendDst == dfactor) avoided();
+		else gl.glBlendFunc(blendSrc = sfactor, blendDst = dfactor);
+	}
+
+	@Override
+	public void glBlendFuncSeparate(int sfactorRGB, int dfactorRGB, int sfactorAlpha, int dfactorAlpha) {
+		blendSrc = blendDst = UNKNOWN;
+		gl.glBlendFuncSeparate(sfactorRGB, dfactorRGB, sfactorAlpha, dfactorAlpha);
+	}
+}
@@ -0,0 +1,62 @@
+/**
+ * 
+ */
+package ak5.graphics;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+
+/** A {@link StateCacheGL20} for {@link GL30}, passing the calls added by it straight on. Binding a vertex array object
+ * forgets the state it holds.
+ * 
+ * @author pwnedary */
+public class StateCacheGL30 extends StateCacheGL20 implements GL30 {
+	private final GL30 gl30;
+
+	public StateCacheGL30(GL30 gl) {
+		super(gl);
+		gl30 = gl;
+	}
+
+	@Override
+	public ByteBuffer glMapBufferRange(int target, int offset, int length, int access) {
+		return gl30.glMapBufferRange(target, offset, length, access);
+	}
+
+	@Override
+	public boolean glUnmapBuffer(int target) {
+		return gl30.glUnmapBuffer(target);
+	}
+
+	@Override
+	public void glVertexAttribDivisor(int index, int divisor) {
+		gl30.glVertexAttribDivisor(index, divisor);
+	}
+
+	@Override
+	public void glDrawArraysInstanced(int mode, int first, int count, int instanceCount) {
+		gl30.glDrawArraysInstanced(mode, first, count, instanceCount);
+	}
+
+	@Override
+	public void glDrawElementsInstanced(int mode, int count, int type, int offset, int instanceCount) {
+		gl30.glDrawElementsInstanced(mode, count, type, offset, instanceCount);
+	}
+
+	@Override
+	public void glGenVertexArrays(int n, IntBuffer arrays) {
+		gl30.glGenVertexArrays(n, arrays);
+	}
+
+	@Override
+	public void glBindVertexArray(int array) {
+		invalidateVertexArray();
+		gl30.glBindVertexArray(array);
+	}
+
+	@Override
+	public void glDeleteVertexArrays(int n, IntBuffer arrays) {
+		invalidateVertexArray();
+		gl30.glDeleteVertexArrays(n, arrays);
+	}
+}
@@ -0,0 +1,147 @@
+/**
+ * 
+ */
+package ak5.graphics;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+import ak5.graphics.VertexAttribute.Type;
+import ak5.util.io.BufferUtil;
+
+/** Vertex data that is rewritten every frame, e.g. by a {@link QuadBatch}, streamed through a ring of segments in one
+ * buffer object. Each {@link #setVertices(float[], int, int)} writes the next segment, so the GPU may still be reading
+ * the previous ones. Where {@link GL30} is available the segment is mapped unsynchronized and written directly;
+ * otherwise, or if mapping fails, it is written with <code>glBufferSubData</code>. Either way the whole buffer is orphaned when the ring wraps
+ * around, instead of waiting for the GPU to be done with it.
+ * 
+ * @author pwnedary */
+public class StreamingVertexBuffer implements VertexData {
+	private static final IntBuffer tmpHandle = BufferUtil.newIntBuffer(1);
+
+	private final GL20 gl;
+	private final VertexAttribute[] attributes;
+	private final int vertexSize;
+	/** The size of a segment in bytes. */
+	private final int segmentSize;
+	private final int segments;
+	private final int bufferHandle;
+	/** Staging buffer for when the buffer can't be mapped, allocated once it can't. */
+	private FloatBuffer buffer;
+	/** The segment holding the latest vertices. */
+	private int segment = -1;
+	private int numVertices;
+	private boolean isBound = false;
+
+	/** @param numVertices the maximum number of vertices per segment
+	 * @param segments the number of segments in the ring */
+	public StreamingVertexBuffer(GL20 gl, int numVertices, int segments, VertexAttribute... attributes) {
+		if (segments < 1) throw new IllegalArgumentException("segments must be at least 1");
+		this.gl = gl;
+		this.segments = segments;
+		vertexSize = VertexAttribute.calculateOffsets(this.attributes = attributes);
+		segmentSize = vertexSize * numVertices;
+
+		gl.glGenBuffers(1, tmpHandle);
+		bufferHandle = tmpHandle.get(0);
+		gl.glBindBuffer(GL20.GL_ARRAY_BUFFER, bufferHandle);
+		gl.glBufferData(GL20.GL_ARRAY_BUFFER, segmentSize * segments, null, GL20.GL_STREAM_DRAW);
+		gl.glBindBuffer(GL20.GL_ARRAY_BUFFER, 0);
+	}
+
+	@Override
+	public int getNumVertices() {
+		return numVertices;
+	}
+
+	@Override
+	public void setVertices(float[] vertices, int offset, int count) {
+		if (isBound) throw new RuntimeException("Already bound.");
+		if (count * 4 > segmentSize) throw new IllegalArgumentException("Too many vertices for a segment: " + count * 4 / vertexSize);
+		segment = (segment + 1) % segments;
+		boolean orphan = segment == 0;
+		int byteOffset = segment * segmentSize;
+
+		gl.glBindBuffer(GL20.GL_ARRAY_BUFFER, bufferHandle);
+		write(byteOffset, vertices, offset, count, orphan ? GL30.GL_MAP_INVALIDATE_BUFFER_BIT : GL30.GL_MAP_INVALIDATE_RANGE_BIT | GL30.GL_MAP_UNSYNCHRONIZED_BIT);
+		numVertices = count * 4 / vertexSize;
+	}
+
+	/** Writes <code>count</code> floats to the bound buffer at <code>byteOffset</code>, mapping the range with
+	 * <code>access</code> besides writing where possible, orphaning the buffer first otherwise if it is to be
+	 * invalidated. */
+	private void write(int byteOffset, float[] vertices, int offset, int count, int access) {
+		if (gl instanceof GL30) {
+			ByteBuffer mapped = ((GL30) gl).glMapBufferRange(GL20.GL_ARRAY_BUFFER, byteOffset, count * 4, GL30.GL_MAP_WRITE_BIT | access);
+			if (mapped != null) {
+				mapped.order(ByteOrder.nativeOrder()).asFloatBuffer().put(vertices, offset, count);
+				if (((GL30) gl).glUnmapBuffer(GL20.GL_ARRAY_BUFFER)) return;
+			}
+		}
+		if ((access & GL30.GL_MAP_INVALIDATE_BUFFER_BIT) != 0) gl.glBufferData(GL20.GL_ARRAY_BUFFER, segmentSize * segments, null, GL20.GL_STREAM_DRAW);
+		if (buffer == null) buffer = BufferUtil.newFloatBuffer(segmentSize / 4);
+		((FloatBuffer) buffer.clear()).put(vertices, offset, count).flip();
+		gl.glBufferSubData(GL20.GL_ARRAY_BUFFER, byteOffset, count * 4, buffer);
+	}
+
+	/** Overwrites part of the latest segment in place, synchronizing with the GPU should it still be reading it; the
+	 * first segment if none has been written yet. */
+	@Override
+	public void updateVertices(int targetOffset, float[] vertices, int sourceOffset, int count) {
+		if (isBound) throw new RuntimeException("Already bound.");
+		if ((targetOffset + count) * 4 > segmentSize) throw new IllegalArgumentException("Too many vertices for a segment: " + (targetOffset + count) * 4 / vertexSize);
+		if (segment == -1) segment = 0;
+		gl.glBindBuffer(GL20.GL_ARRAY_BUFFER, bufferHandle);
+		write(segment * segmentSize + targetOffset * 4, vertices, sourceOffset, count, 0);
+		gl.glBindBuffer(GL20.GL_ARRAY_BUFFER, 0);
+		numVertices = Math.max(numVertices, (targetOffset + count) * 4 / vertexSize);
+	}
+
+	@Override
+	public void bind() {
+		throw new UnsupportedOperationException();
+	}
+
+	/** Binds the latest segment for rendering via glDrawArrays or glDrawElements.
+	 * 
+	 * @param shader the shader */
+	@Override
+	public void bind(ShaderProgram shader, int[] locations) {
+		gl.glBindBuffer(GL20.GL_ARRAY_BUFFER, bufferHandle);
+		int byteOffset = Math.max(segment, 0) * segmentSize;
+		for (int i = 0; i < attributes.length; i++) {
+			final VertexAttribute attribute = attributes[i];
+			final int location = locations == null ? shader.getAttribLocation(attribute.name) : locations[i];
+			if (location < 0) continue;
+			gl.glEnableVertexAttribArray(location);
+
+			if (attribute.type == Type.COLOR_PACKED) gl.glVertexAttribPointer(location, attribute.numComponents, GL20.GL_UNSIGNED_BYTE, true, vertexSize, byteOffset + attribute.location);
+			else gl.glVertexAttribPointer(location, attribute.numComponents, GL20.GL_FLOAT, false, vertexSize, byteOffset + attribute.location);
+		}
+		isBound = true;
+	}
+
+	@Override
+	public void unbind() {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public void unbind(ShaderProgram shader, int[] locations) {
+		for (int i = 0; i < attributes.length; i++) {
+			final int location = locations == null ? shader.getAttribLocation(attributes[i].name) : locations[i];
+			if (location >= 0) gl.glDisableVertexAttribArray(location);
+		}
+		gl.glBindBuffer(GL20.GL_ARRAY_BUFFER, 0);
+		isBound = false;
+	}
+
+	@Override
+	public void dispose() {
+		((IntBuffer) tmpHandle.clear()).put(bufferHandle).flip();
+		gl.glBindBuffer(GL20.GL_ARRAY_BUFFER, 0);
+		gl.glDeleteBuffers(1, tmpHandle);
+	}
+}
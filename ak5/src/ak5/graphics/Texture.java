@@ -75,6 +75,17 @@ public interface Texture extends Drawable, Disposable {
 	 * @return the height of this image */
 	int getHeight();
 
+	/** Returns the width of the texture object this image is drawn from, e.g. the whole sheet of a region, which
+	 * source rectangles in pixels are divided by.
+	 * 
+	 * @return the width of the texture object */
+	int getTexWidth();
+
+	/** Returns the height of the texture object this image is drawn from.
+	 * 
+	 * @return the height of the texture object */
+	int getTexHeight();
+
 	/** Sets the {@link Filter} for minification and magnification.
 	 * 
 	 * @param minFilter the minification filter
@@ -132,11 +143,16 @@ public interface Texture extends Drawable, Disposable {
 	float getV2();
 
 	class GLTexture implements Texture {
+		/** The video memory used by every texture not yet disposed, in bytes. */
+		private static long totalMemoryUsage;
+
 		private final GL10 gl;
 		private final int target;
 		private final int texture;
 		private final int width, height;
 		private int texWidth, texHeight;
+		/** The video memory used, <code>0</code> for regions sharing another texture's. */
+		private int memoryUsage;
 		/* The texture coordinates. */
 		private float u = 0, v = 0, u2 = 1, v2 = 1;
 
@@ -154,8 +170,9 @@ public interface Texture extends Drawable, Disposable {
 		@Override
 		public void dispose() {
 			IntBuffer buffer = BufferUtil.newIntBuffer(1);
-			buffer.put(texture);
+			buffer.put(texture).flip();
 			gl.glDeleteTextures(1, buffer);
+			setMemoryUsage(0);
 		}
 
 		@Override
@@ -188,7 +205,7 @@ public interface Texture extends Drawable, Disposable {
 			return height;
 		}
 
-		/** @return the texWidth */
+		@Override
 		public int getTexWidth() {
 			return texWidth;
 		}
@@ -198,7 +215,7 @@ public interface Texture extends Drawable, Disposable {
 			this.texWidth = texWidth;
 		}
 
-		/** @return the texHeight */
+		@Override
 		public int getTexHeight() {
 			return texHeight;
 		}
@@ -208,6 +225,35 @@ public interface Texture extends Drawable, Disposable {
 			this.texHeight = texHeight;
 		}
 
+		/** @return the video memory used by this texture, as estimated by whoever uploaded it, in bytes */
+		public int getMemoryUsage() {
+			return memoryUsage;
+		}
+
+		/** Sets the video memory used, e.g. to {@link #estimateMemoryUsage(int, int, int, boolean)}, after uploading. */
+		public void setMemoryUsage(int memoryUsage) {
+			totalMemoryUsage += memoryUsage - this.memoryUsage;
+			this.memoryUsage = memoryUsage;
+		}
+
+		/** @return the video memory used by every texture not yet disposed, in bytes */
+		public static long getTotalMemoryUsage() {
+			return totalMemoryUsage;
+		}
+
+		/** @param bytesPerPixel the size of a pixel as stored, e.g. <code>4</code> for <code>GL_RGBA</code>
+		 * @param mipmaps whether there are levels down to 1x1, adding about a third
+		 * @return the bytes used by a <code>width</code> by <code>height</code> texture */
+		public static int estimateMemoryUsage(int width, int height, int bytesPerPixel, boolean mipmaps) {
+			int bytes = width * height * bytesPerPixel;
+			while (mipmaps && (width > 1 || height > 1)) {
+				width = Math.max(1, width / 2);
+				height = Math.max(1, height / 2);
+				bytes += width * height * bytesPerPixel;
+			}
+			return bytes;
+		}
+
 		@Override
 		public void setFilter(Filter min, Filter mag) {
 			gl.glTexParameterf(target, GL10.GL_TEXTURE_MIN_FILTER, min.getGLEnum());
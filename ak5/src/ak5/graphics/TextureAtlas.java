@@ -0,0 +1,165 @@
+/**
+ * 
+ */
+package ak5.graphics;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringTokenizer;
+
+import ak5.Platform;
+import ak5.util.Disposable;
+import ak5.util.math.geom.Rectangle;
+
+/** Named {@link Texture} regions packed into a few large pages, so that drawing them rarely has to switch textures.
+ * <p>
+ * Atlases are either assembled at runtime by a platform specific packer or loaded from a previously written atlas
+ * file, which looks like:
+ * 
+ * <pre>
+ * page sprites0.png
+ * region 0 0 32 48 player
+ * region 34 0 16 16 coin
+ * </pre>
+ * 
+ * where regions belong to the preceding page and are given as x, y, width and height from the top-left corner of the
+ * page image, followed by their name.
+ * 
+ * @author pwnedary */
+public class TextureAtlas implements Disposable {
+	private final List<Texture> pages = new ArrayList<>();
+	private final Map<String, Texture> regions = new HashMap<>();
+
+	public TextureAtlas() {}
+
+	/** Loads the atlas described by <code>file</code>, resolving page images relative to it. */
+	public TextureAtlas(Platform platform, File file) throws IOException {
+		try (InputStream stream = platform.getResourceAsStream(file.getPath());
+				BufferedReader reader = new BufferedReader(new InputStreamReader(stream, Charset.forName("UTF-8")))) {
+			for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+				if (line.startsWith("page ")) addPage(platform.getTexture(new File(file.getParentFile(), line.substring(5)).getPath()));
+				else if (line.startsWith("region ")) {
+					StringTokenizer tokens = new StringTokenizer(line.substring(7), " ");
+					int x = Integer.parseInt(tokens.nextToken()), y = Integer.parseInt(tokens.nextToken());
+					int width = Integer.parseInt(tokens.nextToken()), height = Integer.parseInt(tokens.nextToken());
+					addRegion(tokens.nextToken("").trim(), pages.size() - 1, x, y, width, height);
+				}
+			}
+		} catch (RuntimeException e) {
+			throw new IOException("Invalid atlas file.", e);
+		}
+	}
+
+	/** @return the index of the newly added page */
+	public int addPage(Texture page) {
+		pages.add(page);
+		return pages.size() - 1;
+	}
+
+	/** Registers the region at (<code>x,y</code>), <code>0,0</code> being the top-left corner of the page image.
+	 * 
+	 * @return the region */
+	public Texture addRegion(String name, int page, int x, int y, int width, int height) {
+		Texture texture = pages.get(page);
+		Texture region = texture.region(x, texture.getHeight() - y - height, width, height); // Textures are stored bottom-up
+		regions.put(name, region);
+		return region;
+	}
+
+	/** @return the region named <code>name</code>, or <code>null</code> if there is none */
+	public Texture get(String name) {
+		return regions.get(name);
+	}
+
+	public List<Texture> getPages() {
+		return Collections.unmodifiableList(pages);
+	}
+
+	@Override
+	public void dispose() {
+		for (Texture page : pages)
+			page.dispose();
+		pages.clear();
+		regions.clear();
+	}
+
+	/** Places rectangles within a page using the MaxRects algorithm, keeping track of every maximal free rectangle and
+	 * choosing the one that leaves the shortest side over (best short side fit). */
+	public static class Packer {
+		public final int width, height;
+		private final List<Rectangle> free = new ArrayList<>();
+		private final List<Rectangle> split = new ArrayList<>();
+
+		public Packer(int width, int height) {
+			this.width = width;
+			this.height = height;
+			free.add(new Rectangle(0, 0, width, height));
+		}
+
+		/** @return where to place the rectangle, or <code>null</code> if it does not fit */
+		public Rectangle insert(int width, int height) {
+			Rectangle best = null;
+			int bestShortSide = Integer.MAX_VALUE, bestLongSide = Integer.MAX_VALUE;
+			for (int i = 0; i < free.size(); i++) {
+				Rectangle rect = free.get(i);
+				if (rect.getWidth() < width || rect.getHeight() < height) continue;
+				int leftoverX = rect.getWidth() - width, leftoverY = rect.getHeight() - height;
+				int shortSide = Math.min(leftoverX, leftoverY), longSide = Math.max(leftoverX, leftoverY);
+				if (shortSide < bestShortSide || shortSide == bestShortSide && longSide < bestLongSide) {
+					best = rect;
+					bestShortSide = shortSide;
+					bestLongSide = longSide;
+				}
+			}
+			if (best == null) return null;
+
+			Rectangle placed = new Rectangle(best.getX(), best.getY(), width, height);
+			for (int i = free.size() - 1; i >= 0; i--)
+				if (split(free.get(i), placed)) free.remove(i);
+			free.addAll(split);
+			split.clear();
+			prune();
+			return placed;
+		}
+
+		/** Adds the parts of <code>rect</code> not covered by <code>placed</code> to {@link #split}.
+		 * 
+		 * @return whether they overlapped */
+		private boolean split(Rectangle rect, Rectangle placed) {
+			int x = rect.getX(), y = rect.getY(), x2 = x + rect.getWidth(), y2 = y + rect.getHeight();
+			int px = placed.getX(), py = placed.getY(), px2 = px + placed.getWidth(), py2 = py + placed.getHeight();
+			if (px >= x2 || px2 <= x || py >= y2 || py2 <= y) return false;
+
+			if (px > x) split.add(new Rectangle(x, y, px - x, y2 - y));
+			if (px2 < x2) split.add(new Rectangle(px2, y, x2 - px2, y2 - y));
+			if (py > y) split.add(new Rectangle(x, y, x2 - x, py - y));
+			if (py2 < y2) split.add(new Rectangle(x, py2, x2 - x, y2 - py2));
+			return true;
+		}
+
+		/** Removes every free rectangle that is contained within another. */
+		private void prune() {
+			for (int i = 0; i < free.size(); i++)
+				for (int j = i + 1; j < free.size(); j++) {
+					if (contains(free.get(j), free.get(i))) {
+						free.remove(i--);
+						break;
+					}
+					if (contains(free.get(i), free.get(j))) free.remove(j--);
+				}
+		}
+
+		private static boolean contains(Rectangle outer, Rectangle inner) {
+			return inner.getX() >= outer.getX() && inner.getY() >= outer.getY() && inner.getX() + inner.getWidth() <= outer.getX() + outer.getWidth() && inner.getY() + inner.getHeight() <= outer.getY() + outer.getHeight();
+		}
+	}
+}
@@ -0,0 +1,208 @@
+/**
+ * 
+ */
+package ak5.graphics;
+
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+import ak5.graphics.Texture.GLTexture;
+import ak5.util.io.BufferUtil;
+
+/** Texture levels stored exactly as they are uploaded, so that loading them is mapping a file and handing its bytes to
+ * GL, without decoding anything.
+ * <p>
+ * The file starts with a header of big-endian ints: {@link #MAGIC}, {@link #VERSION}, the {@link Format} by ordinal,
+ * width, height and number of levels. Each level follows as its size in bytes and its data, padded to four bytes, the
+ * largest first. Rows go bottom to top, as GL takes them, and 16-bit pixels are little-endian, as GL takes them on the
+ * machines that matter.
+ * 
+ * @author pwnedary */
+public class TextureContainer {
+	/** Starts a container: <code>"AK5T"</code>. */
+	public static final int MAGIC = 0x414B3554;
+	public static final int VERSION = 1;
+	/** The customary extension of container files. */
+	public static final String EXTENSION = ".ak5t";
+
+	/** How pixels are stored. Stored by ordinal, so new formats only go last. */
+	public enum Format {
+		RGBA8(GL20.GL_RGBA, GL20.GL_RGBA, GL20.GL_UNSIGNED_BYTE, 1, 4),
+		RGB565(GL20.GL_RGB, GL20.GL_RGB, GL20.GL_UNSIGNED_SHORT_5_6_5, 1, 2),
+		RGBA4444(GL20.GL_RGBA, GL20.GL_RGBA, GL20.GL_UNSIGNED_SHORT_4_4_4_4, 1, 2),
+		/** ETC1 blocks, uploaded as <code>GL_COMPRESSED_RGB8_ETC2</code>, which decodes them alike. */
+		ETC1(0x9274, 0, 0, 4, 8),
+		/** <code>GL_COMPRESSED_RGB_S3TC_DXT1_EXT</code>, without alpha. */
+		DXT1(0x83F0, 0, 0, 4, 8),
+		/** <code>GL_COMPRESSED_RGBA_S3TC_DXT5_EXT</code>. */
+		DXT5(0x83F3, 0, 0, 4, 16);
+
+		final int internalFormat, format, type;
+		/** The width and height of a block of pixels, and its size in bytes. */
+		final int blockSize, blockBytes;
+
+		Format(int internalFormat, int format, int type, int blockSize, int blockBytes) {
+			this.internalFormat = internalFormat;
+			this.format = format;
+			this.type = type;
+			this.blockSize = blockSize;
+			this.blockBytes = blockBytes;
+		}
+
+		public boolean isCompressed() {
+			return blockSize > 1;
+		}
+
+		/** @return the bytes taken by a level of <code>width</code> by <code>height</code> pixels */
+		public int getSize(int width, int height) {
+			return (width + blockSize - 1) / blockSize * ((height + blockSize - 1) / blockSize) * blockBytes;
+		}
+	}
+
+	private final Format format;
+	private final int width, height;
+	private final ByteBuffer[] levels;
+
+	/** @param levels the data of each level, the largest first, each halving the size of the previous */
+	public TextureContainer(Format format, int width, int height, ByteBuffer... levels) {
+		if (levels.length == 0) throw new IllegalArgumentException("No levels.");
+		if (levels.length > 1 && levelSize(width, levels.length - 1) + levelSize(height, levels.length - 1) != 2) throw new IllegalArgumentException("Mipmaps have to go down to 1x1.");
+		for (int i = 0; i < levels.length; i++)
+			if (levels[i].remaining() != format.getSize(levelSize(width, i), levelSize(height, i))) throw new IllegalArgumentException("Level " + i + " is not the size of a " + format + " level.");
+		this.format = format;
+		this.width = width;
+		this.height = height;
+		this.levels = levels;
+	}
+
+	/** Maps <code>file</code>, reading every page of it, so that uploading does not wait for the disk. */
+	public static TextureContainer read(File file) throws IOException {
+		try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+			MappedByteBuffer buffer = in.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, in.length());
+			buffer.load();
+			return read(buffer);
+		}
+	}
+
+	/** Reads <code>in</code> to its end, into a direct buffer. */
+	public static TextureContainer read(InputStream in) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocateDirect(Math.max(in.available(), 4096));
+		ReadableByteChannel channel = Channels.newChannel(in);
+		while (channel.read(buffer) != -1)
+			if (!buffer.hasRemaining()) {
+				ByteBuffer bigger = ByteBuffer.allocateDirect(buffer.capacity() * 2);
+				buffer.flip();
+				buffer = bigger.put(buffer);
+			}
+		buffer.flip();
+		return read(buffer);
+	}
+
+	/** Reads a container from <code>buffer</code>, the levels sharing its content. */
+	public static TextureContainer read(ByteBuffer buffer) throws IOException {
+		buffer = buffer.duplicate().order(ByteOrder.BIG_ENDIAN);
+		try {
+			if (buffer.getInt() != MAGIC) throw new IOException("Not a texture container.");
+			if (buffer.getInt() != VERSION) throw new IOException("Unsupported texture container version.");
+			final int ordinal = buffer.getInt();
+			if (ordinal < 0 || ordinal >= Format.values().length) throw new IOException("Unknown texture format " + ordinal + ".");
+			final Format format = Format.values()[ordinal];
+			final int width = buffer.getInt(), height = buffer.getInt();
+			final ByteBuffer[] levels = new ByteBuffer[buffer.getInt()];
+			for (int i = 0; i < levels.length; i++) {
+				final int size = buffer.getInt();
+				if (size > buffer.remaining()) throw new EOFException("Truncated texture container.");
+				ByteBuffer level = buffer.slice();
+				level.limit(size);
+				levels[i] = level.order(ByteOrder.nativeOrder());
+				buffer.position(buffer.position() + (size + 3 & ~3));
+			}
+			return new TextureContainer(format, width, height, levels);
+		} catch (RuntimeException e) {
+			throw new IOException("Invalid texture container.", e);
+		}
+	}
+
+	public void write(OutputStream out) throws IOException {
+		DataOutputStream header = new DataOutputStream(out);
+		header.writeInt(MAGIC);
+		header.writeInt(VERSION);
+		header.writeInt(format.ordinal());
+		header.writeInt(width);
+		header.writeInt(height);
+		header.writeInt(levels.length);
+		WritableByteChannel channel = Channels.newChannel(out);
+		for (ByteBuffer level : levels) {
+			header.writeInt(level.remaining());
+			header.flush();
+			ByteBuffer data = level.duplicate();
+			while (data.hasRemaining())
+				channel.write(data);
+			for (int i = level.remaining(); (i & 3) != 0; i++)
+				out.write(0);
+		}
+		header.flush();
+	}
+
+	/** Uploads every level to a new texture, filtered linearly between the levels if there are several. Compressed
+	 * formats have to be supported by GL, see {@link Format}. */
+	public GLTexture upload(GL10 gl) {
+		IntBuffer buffer = BufferUtil.newIntBuffer(1);
+		gl.glGenTextures(1, buffer);
+		GLTexture texture = new GLTexture(gl, GL10.GL_TEXTURE_2D, buffer.get(0), width, height);
+		texture.setTexWidth(width);
+		texture.setTexHeight(height);
+		texture.bind();
+		texture.setFilter(levels.length > 1 ? Texture.Filter.LINEAR_MIPMAP_LINEAR : Texture.Filter.NEAREST, Texture.Filter.NEAREST);
+		gl.glPixelStorei(GL10.GL_UNPACK_ALIGNMENT, 1); // Rows of 16-bit pixels need not be aligned
+		int memoryUsage = 0;
+		for (int i = 0; i < levels.length; i++) {
+			final int levelWidth = levelSize(width, i), levelHeight = levelSize(height, i);
+			final ByteBuffer level = levels[i].duplicate();
+			if (format.isCompressed()) gl.glCompressedTexImage2D(GL10.GL_TEXTURE_2D, i, format.internalFormat, levelWidth, levelHeight, 0, level.remaining(), level);
+			else gl.glTexImage2D(GL10.GL_TEXTURE_2D, i, format.internalFormat, levelWidth, levelHeight, 0, format.format, format.type, level);
+			memoryUsage += level.remaining();
+		}
+		texture.setMemoryUsage(memoryUsage);
+		return texture;
+	}
+
+	/** @return the size of <code>level</code> of a texture <code>size</code> wide or high */
+	private static int levelSize(int size, int level) {
+		return Math.max(1, size >> level);
+	}
+
+	public Format getFormat() {
+		return format;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public int getLevels() {
+		return levels.length;
+	}
+
+	/** @return the data of <code>level</code>, <code>0</code> being the largest */
+	public ByteBuffer getLevel(int level) {
+		return levels[level].duplicate();
+	}
+}
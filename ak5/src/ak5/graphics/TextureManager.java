@@ -0,0 +1,395 @@
+/**
+ * 
+ */
+package ak5.graphics;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import ak5.Platform;
+import ak5.graphics.Texture.GLTexture;
+import ak5.util.Disposable;
+
+/** Keeps the textures it manages within a budget of video memory, evicting those used least recently and loading them
+ * again from their source once they are used.
+ * <p>
+ * A texture is used when it is bound or its handle is asked for, which the batches do for every sprite. Only textures
+ * that have gone unused for some frames are evicted, so that what is drawn each frame stays resident even if it does
+ * not fit; the budget is then exceeded until it is no longer drawn. {@link #update()} marks the frames and is where
+ * eviction usually happens.
+ * <p>
+ * Managed textures, and regions of them, can be handed to the batches like any other. Filters and wraps set on them
+ * are set again on reload.
+ * 
+ * @author pwnedary */
+public class TextureManager implements Disposable {
+	private final List<ManagedTexture> textures = new ArrayList<>();
+	private long budget;
+	private final int idleFrames;
+	/** The bytes of the resident textures. */
+	private long memoryUsage;
+	private int frame;
+
+	/** Uses of textures that were resident, at most one per texture per frame, since the last {@link #resetStats()}. */
+	public int hits;
+	/** Uses of textures that had to be loaded again since the last {@link #resetStats()}. */
+	public int misses;
+	public long totalHits, totalMisses;
+	/** The number of textures evicted ever. */
+	public long evictions;
+
+	/** @param budget the bytes of video memory the managed textures may use
+	 * @param idleFrames how many frames a texture has to go unused before it may be evicted, at least one */
+	public TextureManager(long budget, int idleFrames) {
+		if (idleFrames < 1) throw new IllegalArgumentException("Textures used this frame cannot be evicted.");
+		this.budget = budget;
+		this.idleFrames = idleFrames;
+	}
+
+	/** Loads the texture <code>path</code> from <code>platform</code>, to be loaded from there again when evicted. */
+	public Texture load(final Platform platform, final String path) throws IOException {
+		return manage(new Source() {
+			@Override
+			public Texture load() throws IOException {
+				return platform.getTexture(path);
+			}
+
+			@Override
+			public String toString() {
+				return path;
+			}
+		});
+	}
+
+	/** Loads a texture from <code>source</code>, to be loaded from there again when evicted. */
+	public Texture manage(Source source) throws IOException {
+		ManagedTexture texture = new ManagedTexture(source);
+		texture.reload();
+		textures.add(texture);
+		trim();
+		return texture;
+	}
+
+	/** Ends a frame, evicting textures while over budget. Meant to be called once per frame. */
+	public void update() {
+		frame++;
+		trim();
+	}
+
+	/** Evicts the least recently used textures that have been idle long enough until within budget. */
+	private void trim() {
+		if (memoryUsage <= budget) return;
+		List<ManagedTexture> candidates = new ArrayList<>();
+		for (ManagedTexture texture : textures)
+			if (texture.resident != null && frame - texture.lastUsed >= idleFrames) candidates.add(texture);
+		Collections.sort(candidates, new Comparator<ManagedTexture>() {
+			@Override
+			public int compare(ManagedTexture o1, ManagedTexture o2) {
+				return o1.lastUsed < o2.lastUsed ? -1 : o1.lastUsed == o2.lastUsed ? 0 : 1;
+			}
+		});
+		for (int i = 0; i < candidates.size() && memoryUsage > budget; i++) {
+			candidates.get(i).evict();
+			evictions++;
+		}
+	}
+
+	/** Resets {@link #hits} and {@link #misses}; meant to be called once per frame. */
+	public void resetStats() {
+		hits = misses = 0;
+	}
+
+	/** @return the bytes of video memory used by the resident textures */
+	public long getMemoryUsage() {
+		return memoryUsage;
+	}
+
+	public long getBudget() {
+		return budget;
+	}
+
+	/** Sets the budget, evicting at the next {@link #update()} if it is exceeded. */
+	public void setBudget(long budget) {
+		this.budget = budget;
+	}
+
+	/** @return the number of textures currently resident, out of all managed */
+	public int getResidentCount() {
+		int count = 0;
+		for (ManagedTexture texture : textures)
+			if (texture.resident != null) count++;
+		return count;
+	}
+
+	/** Disposes every managed texture. */
+	@Override
+	public void dispose() {
+		for (ManagedTexture texture : textures)
+			if (texture.resident != null) texture.evict();
+		textures.clear();
+	}
+
+	/** Where a managed texture is loaded from, each time it has to be. */
+	public interface Source {
+		Texture load() throws IOException;
+	}
+
+	private class ManagedTexture implements Texture {
+		private final Source source;
+		/** The loaded texture, <code>null</code> while evicted. */
+		private Texture resident;
+		private int memory;
+		private int lastUsed;
+		private Filter minFilter, magFilter;
+		private Wrap uWrap, vWrap;
+
+		ManagedTexture(Source source) {
+			this.source = source;
+		}
+
+		/** Marks this texture used, loading it again if it was evicted. */
+		private void use() {
+			if (lastUsed == frame && resident != null) return;
+			lastUsed = frame;
+			if (resident != null) {
+				hits++;
+				totalHits++;
+				return;
+			}
+			misses++;
+			totalMisses++;
+			try {
+				reload();
+			} catch (IOException e) {
+				throw new RuntimeException("Couldn't reload " + source + ".", e);
+			}
+			trim();
+		}
+
+		void reload() throws IOException {
+			resident = source.load();
+			lastUsed = frame;
+			memory = resident instanceof GLTexture ? ((GLTexture) resident).getMemoryUsage() : 0;
+			if (memory == 0) memory = GLTexture.estimateMemoryUsage(resident.getWidth(), resident.getHeight(), 4, false);
+			memoryUsage += memory;
+			if (minFilter != null || uWrap != null) {
+				resident.bind();
+				if (minFilter != null) resident.setFilter(minFilter, magFilter);
+				if (uWrap != null) resident.setWrap(uWrap, vWrap);
+			}
+		}
+
+		void evict() {
+			resident.dispose();
+			resident = null;
+			memoryUsage -= memory;
+		}
+
+		@Override
+		public void draw(GL10 gl, float delta) {}
+
+		/** Stops managing this texture and disposes it. */
+		@Override
+		public void dispose() {
+			if (resident != null) evict();
+			textures.remove(this);
+		}
+
+		@Override
+		public int getTarget() {
+			use();
+			return resident.getTarget();
+		}
+
+		@Override
+		public int getTexture() {
+			use();
+			return resident.getTexture();
+		}
+
+		@Override
+		public void bind() {
+			use();
+			resident.bind();
+		}
+
+		@Override
+		public void unbind() {
+			if (resident != null) resident.unbind();
+		}
+
+		@Override
+		public int getWidth() {
+			use();
+			return resident.getWidth();
+		}
+
+		@Override
+		public int getHeight() {
+			use();
+			return resident.getHeight();
+		}
+
+		@Override
+		public int getTexWidth() {
+			use();
+			return resident.getTexWidth();
+		}
+
+		@Override
+		public int getTexHeight() {
+			use();
+			return resident.getTexHeight();
+		}
+
+		@Override
+		public void setFilter(Filter min, Filter mag) {
+			minFilter = min;
+			magFilter = mag;
+			use();
+			resident.setFilter(min, mag);
+		}
+
+		@Override
+		public void setWrap(Wrap u, Wrap v) {
+			uWrap = u;
+			vWrap = v;
+			use();
+			resident.setWrap(u, v);
+		}
+
+		@Override
+		public Texture region(int x, int y, int width, int height) {
+			use();
+			return new Region(this, resident.region(x, y, width, height));
+		}
+
+		@Override
+		public float getU() {
+			use();
+			return resident.getU();
+		}
+
+		@Override
+		public float getV() {
+			use();
+			return resident.getV();
+		}
+
+		@Override
+		public float getU2() {
+			use();
+			return resident.getU2();
+		}
+
+		@Override
+		public float getV2() {
+			use();
+			return resident.getV2();
+		}
+	}
+
+	/** A region of a managed texture, using the texture when used and keeping the coordinates it had when made. */
+	private static class Region implements Texture {
+		private final ManagedTexture texture;
+		private final int width, height, texWidth, texHeight;
+		private final float u, v, u2, v2;
+
+		Region(ManagedTexture texture, Texture region) {
+			this.texture = texture;
+			width = region.getWidth();
+			height = region.getHeight();
+			texWidth = region.getTexWidth();
+			texHeight = region.getTexHeight();
+			u = region.getU();
+			v = region.getV();
+			u2 = region.getU2();
+			v2 = region.getV2();
+		}
+
+		@Override
+		public void draw(GL10 gl, float delta) {}
+
+		/** Does nothing, as the texture is shared. */
+		@Override
+		public void dispose() {}
+
+		@Override
+		public int getTarget() {
+			return texture.getTarget();
+		}
+
+		@Override
+		public int getTexture() {
+			return texture.getTexture();
+		}
+
+		@Override
+		public void bind() {
+			texture.bind();
+		}
+
+		@Override
+		public void unbind() {
+			texture.unbind();
+		}
+
+		@Override
+		public int getWidth() {
+			return width;
+		}
+
+		@Override
+		public int getHeight() {
+			return height;
+		}
+
+		@Override
+		public int getTexWidth() {
+			return texWidth;
+		}
+
+		@Override
+		public int getTexHeight() {
+			return texHeight;
+		}
+
+		@Override
+		public void setFilter(Filter min, Filter mag) {
+			texture.setFilter(min, mag);
+		}
+
+		@Override
+		public void setWrap(Wrap u, Wrap v) {
+			texture.setWrap(u, v);
+		}
+
+		@Override
+		public Texture region(int x, int y, int width, int height) {
+			return texture.region(x, y, width, height); // Within the whole texture, as for a GLTexture
+		}
+
+		@Override
+		public float getU() {
+			return u;
+		}
+
+		@Override
+		public float getV() {
+			return v;
+		}
+
+		@Override
+		public float getU2() {
+			return u2;
+		}
+
+		@Override
+		public float getV2() {
+			return v2;
+		}
+	}
+}
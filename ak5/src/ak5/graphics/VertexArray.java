@@ -3,6 +3,7 @@
  */
 package ak5.graphics;
 
+import java.nio.ByteBuffer;
 import java.nio.FloatBuffer;
 
 import ak5.graphics.VertexAttribute.Type;
@@ -14,11 +15,14 @@ public class VertexArray implements VertexData {
 	private final VertexAttribute[] attributes;
 	private final int vertexSize;
 	private final FloatBuffer buffer;
+	/** The memory of {@link #buffer}, through which packed colors are pointed to as bytes. */
+	private final ByteBuffer bytes;
 
 	public VertexArray(GL10 gl, int numVertices, VertexAttribute... attributes) {
 		this.gl = gl;
 		vertexSize = VertexAttribute.calculateOffsets(this.attributes = attributes);
-		buffer = (FloatBuffer) BufferUtil.newByteBuffer(vertexSize * numVertices).asFloatBuffer().flip();
+		bytes = BufferUtil.newByteBuffer(vertexSize * numVertices);
+		buffer = (FloatBuffer) bytes.asFloatBuffer().flip();
 	}
 
 	public void bind() {
@@ -32,9 +36,13 @@ public class VertexArray implements VertexData {
 				gl.glVertexPointer(attrib.numComponents, GL10.GL_FLOAT, vertexSize, buffer);
 				break;
 			case COLOR:
+				gl.glEnableClientState(GL10.GL_COLOR_ARRAY);
+				gl.glColorPointer(attrib.numComponents, GL10.GL_FLOAT, vertexSize, buffer);
+				break;
 			case COLOR_PACKED:
 				gl.glEnableClientState(GL10.GL_COLOR_ARRAY);
-				gl.glColorPointer(attrib.numComponents, attrib.type == Type.COLOR ? GL10.GL_FLOAT : GL10.GL_UNSIGNED_BYTE, vertexSize, buffer);
+				bytes.position(attrib.location);
+				gl.glColorPointer(attrib.numComponents, GL10.GL_UNSIGNED_BYTE, vertexSize, bytes);
 				break;
 			case NORMAL:
 				gl.glEnableClientState(GL10.GL_NORMAL_ARRAY);
@@ -57,10 +65,14 @@ public class VertexArray implements VertexData {
 			final int location = locations == null ? shader.getAttribLocation(attribute.name) : locations[i];
 			if (location < 0) continue;
 			gl.glEnableVertexAttribArray(location);
-			buffer.position(attribute.location);
 
-			if (attribute.type == Type.COLOR_PACKED) gl.glVertexAttribPointer(location, attribute.numComponents, GL20.GL_UNSIGNED_BYTE, true, vertexSize, buffer);
-			gl.glVertexAttribPointer(location, attribute.numComponents, GL20.GL_FLOAT, false, vertexSize, buffer);
+			if (attribute.type == Type.COLOR_PACKED) {
+				bytes.position(attribute.location);
+				gl.glVertexAttribPointer(location, attribute.numComponents, GL20.GL_UNSIGNED_BYTE, true, vertexSize, bytes);
+			} else {
+				buffer.position(attribute.location / 4);
+				gl.glVertexAttribPointer(location, attribute.numComponents, GL20.GL_FLOAT, false, vertexSize, buffer);
+			}
 		}
 	}
 
@@ -89,8 +101,10 @@ public class VertexArray implements VertexData {
 	@Override
 	public void unbind(ShaderProgram shader, int[] locations) {
 		for (int i = 0; i < attributes.length; i++)
-			if (locations == null) ((GL20) gl).glEnableVertexAttribArray(shader.getAttribLocation(attributes[i].name));
-			else ((GL20) gl).glDisableVertexAttribArray(locations[i]);
+			if (locations == null) {
+				final int location = shader.getAttribLocation(attributes[i].name);
+				if (location >= 0) ((GL20) gl).glDisableVertexAttribArray(location);
+			} else ((GL20) gl).glDisableVertexAttribArray(locations[i]);
 	}
 
 	@Override
@@ -98,6 +112,14 @@ public class VertexArray implements VertexData {
 		((FloatBuffer) buffer.clear()).put(vertices, offset, length).flip();
 	}
 
+	@Override
+	public void updateVertices(int targetOffset, float[] vertices, int sourceOffset, int count) {
+		if (targetOffset + count > buffer.limit()) buffer.limit(targetOffset + count);
+		buffer.position(targetOffset);
+		buffer.put(vertices, sourceOffset, count);
+		buffer.position(0);
+	}
+
 	@Override
 	public int getNumVertices() {
 		return buffer.limit() * 4 / vertexSize;
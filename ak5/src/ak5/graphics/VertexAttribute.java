@@ -40,6 +40,7 @@ public class VertexAttribute {
 	}
 
 	public enum Type {
-		POSITION, COLOR, COLOR_PACKED, NORMAL, TEXTURE_COORDINATES;
+		POSITION, COLOR, COLOR_PACKED, NORMAL, TEXTURE_COORDINATES, /** Only available to shaders. */
+		GENERIC;
 	}
 }
@@ -19,8 +19,8 @@ public class VertexBufferObject implements VertexData {
 	private final FloatBuffer buffer;
 	private final int bufferHandle;
 	private final int type;
-	private boolean isBound = false;
-	private boolean isDirty = false;
+	boolean isBound = false;
+	boolean isDirty = false;
 
 	/** Constructs a new interleaved VertexBufferObject.
 	 * 
@@ -50,16 +50,21 @@ public class VertexBufferObject implements VertexData {
 		isDirty = true;
 	}
 
-	//	@Override
-	//	public void updateVertices(int targetOffset, float[] vertices, int sourceOffset, int count) {
-	//		isDirty = true;
-	//		final int pos = byteBuffer.position();
-	//		byteBuffer.position(targetOffset * 4);
-	//		BufferUtils.copy(vertices, sourceOffset, count, byteBuffer);
-	//		byteBuffer.position(pos);
-	//		buffer.position(0);
-	//		bufferChanged();
-	//	}
+	/** Uploads only the replaced range with <code>glBufferSubData</code>, unless the whole buffer is due anyway. */
+	@Override
+	public void updateVertices(int targetOffset, float[] vertices, int sourceOffset, int count) {
+		if (isBound) throw new RuntimeException("Already bound.");
+		if (targetOffset + count > buffer.limit()) isDirty = true; // Past what was uploaded
+		final int limit = Math.max(buffer.limit(), targetOffset + count);
+		buffer.limit(targetOffset + count).position(targetOffset);
+		buffer.put(vertices, sourceOffset, count);
+		if (!isDirty) {
+			gl.glBindBuffer(GL20.GL_ARRAY_BUFFER, bufferHandle);
+			gl.glBufferSubData(GL20.GL_ARRAY_BUFFER, targetOffset * 4, count * 4, buffer.position(targetOffset));
+			gl.glBindBuffer(GL20.GL_ARRAY_BUFFER, 0);
+		}
+		buffer.limit(limit).position(0);
+	}
 
 	@Override
 	public void bind() {
@@ -100,8 +105,10 @@ public class VertexBufferObject implements VertexData {
 	@Override
 	public void unbind(final ShaderProgram shader, final int[] locations) {
 		for (int i = 0; i < attributes.length; i++)
-			if (locations == null) ((GL20) gl).glEnableVertexAttribArray(shader.getAttribLocation(attributes[i].name));
-			else gl.glDisableVertexAttribArray(locations[i]);
+			if (locations == null) {
+				final int location = shader.getAttribLocation(attributes[i].name);
+				if (location >= 0) ((GL20) gl).glDisableVertexAttribArray(location);
+			} else gl.glDisableVertexAttribArray(locations[i]);
 		gl.glBindBuffer(GL20.GL_ARRAY_BUFFER, 0);
 		isBound = false;
 	}
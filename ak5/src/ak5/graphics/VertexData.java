@@ -17,5 +17,10 @@ public interface VertexData extends Disposable {
 
 	void setVertices(float[] vertices, int offset, int length);
 
+	/** Overwrites part of the vertices, keeping the rest.
+	 * 
+	 * @param targetOffset the offset, in floats, of the first float to replace */
+	void updateVertices(int targetOffset, float[] vertices, int sourceOffset, int count);
+
 	int getNumVertices();
 }
@@ -3,138 +3,313 @@
  */
 package ak5.util;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.charset.Charset;
-import java.util.StringTokenizer;
+import java.util.Arrays;
 
 import ak5.Platform;
 import ak5.graphics.Batch;
 import ak5.graphics.Texture;
 import ak5.util.Font.FontImpl;
 
-/** @author pwnedary */
+/** A font of glyphs packed into pages by AngelCode BMFont, read from either the text or the binary descriptor it
+ * writes.
+ * <p>
+ * The metrics of the glyphs are kept in arrays by index, found through a table by character, and kerning as a sorted
+ * table of pairs, so that fonts of tens of thousands of glyphs load quickly and take little heap. Only characters up
+ * to <code>U+FFFF</code> are kept.
+ * 
+ * @author pwnedary */
 public class BitmapFont extends FontImpl implements Font {
 	private static final int LOG2_PAGE_SIZE = 9;
 	private static final int PAGE_SIZE = 1 << LOG2_PAGE_SIZE;
 	private static final int PAGES = 0x10000 / PAGE_SIZE;
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
 	private int lineHeight;
 	private int pages;
 	private Texture[] pageImgs;
-	private Glyph[][] glyphs;
+	/** The image files of the pages, relative to the font file. */
+	private String[] pageFiles;
+	/** The index of each character's glyph plus one, <code>0</code> if missing, in pages of {@link #PAGE_SIZE}. */
+	private final int[][] indices = new int[PAGES][];
+	private int count;
+	/** The metrics of the glyphs by index. */
+	short[] x = new short[0], y = x, width = x, height = x, xoffset = x, yoffset = x, xadvance = x;
+	/** The page of each glyph, unsigned so as to index up to 256 pages. */
+	byte[] page = new byte[0];
+	/** The kerning pairs, the first character shifted 32 bits left or'ed with the second, sorted. */
+	private long[] kerningPairs = new long[0];
+	private short[] kerningAmounts = new short[0];
 
 	public BitmapFont(Platform platform, File file) {
-		try (InputStream stream = platform.getResourceAsStream(file.getPath());
-				BufferedReader reader = new BufferedReader(new InputStreamReader(stream, Charset.forName("UTF-8")))) {
-			reader.readLine(); // skip the information on how the font was generated
-			String[] common = reader.readLine().split(" ", 7); // information common to all characters
-			lineHeight = Integer.parseInt(common[1].substring(11)); // lineHeight=N
-			float base = Integer.parseInt(common[2].substring(5)); // base=N
-			pages = Integer.parseInt(common[5].substring(6)); // pages=N
-			pageImgs = new Texture[pages];
-			for (int p = 0; p < pages; p++) {
-				String[] page = reader.readLine().split(" ", 3);
-				if (Integer.parseInt(page[1].substring(3)) != p) throw new IllegalArgumentException("Invalid font file; page ids should increment from 0."); // id=N
-				File imgFile = new File(file.getParentFile(), page[2].split("\"")[1]); // file=string
-				pageImgs[p] = platform.getTexture(imgFile.getPath());
-			}
+		this(platform.getResourceAsStream(file.getPath()));
+		try {
+			for (int p = 0; p < pages; p++)
+				pageImgs[p] = platform.getTexture(new File(file.getParentFile(), pageFiles[p]).getPath());
+		} catch (Exception e) {
+			throw new IllegalArgumentException("Invalid font file.", e);
+		}
+	}
 
-			float descent = 0;
-			/* int pageSize = Integer.parseInt( */reader.readLine() /* ) */; // chars count=N
-			glyphs = new Glyph[PAGES][];
-			for (String line = reader.readLine(); line != null && line.startsWith("char "); line = reader.readLine()) {
-				Glyph glyph = new Glyph();
-				StringTokenizer tokens = new StringTokenizer(line, " =");
-				tokens.nextToken();
-				tokens.nextToken();
-				int c = Integer.parseInt(tokens.nextToken());
-				if (c <= Character.MAX_VALUE) setGlyph((char) c, glyph);
-				else continue;
-				glyph.id = c;
-				tokens.nextToken();
-				glyph.x = Integer.parseInt(tokens.nextToken());
-				tokens.nextToken();
-				glyph.y = Integer.parseInt(tokens.nextToken());
-				tokens.nextToken();
-				glyph.width = Integer.parseInt(tokens.nextToken());
-				tokens.nextToken();
-				glyph.height = Integer.parseInt(tokens.nextToken());
-				tokens.nextToken();
-				glyph.xoffset = Integer.parseInt(tokens.nextToken());
-				tokens.nextToken();
-				glyph.yoffset = Integer.parseInt(tokens.nextToken());
-				tokens.nextToken();
-				glyph.xadvance = Integer.parseInt(tokens.nextToken());
-				tokens.nextToken();
-				glyph.page = Integer.parseInt(tokens.nextToken());
-				if (glyph.width > 0 && glyph.height > 0) descent = Math.min(base + glyph.yoffset, descent);
+	/** Reads the font without loading its pages, which have to be given with {@link #setPage(int, Texture)} before it
+	 * is drawn. This does not touch GL, so it may be done off the GL thread.
+	 * 
+	 * @param stream the font file, text or binary, closed when done */
+	public BitmapFont(InputStream stream) {
+		try (InputStream in = new BufferedInputStream(stream)) {
+			in.mark(3);
+			final boolean binary = in.read() == 'B' && in.read() == 'M' && in.read() == 'F';
+			in.reset();
+			if (binary) readBinary(in);
+			else readText(in);
+		} catch (Exception e) {
+			throw new IllegalArgumentException("Invalid font file.", e);
+		}
+	}
+
+	/** Reads the text descriptor, each line a tag followed by <code>key=value</code> pairs in the order BMFont writes. */
+	private void readText(InputStream in) throws IOException {
+		final BufferedReader reader = new BufferedReader(new InputStreamReader(in, UTF_8));
+		final int[] values = new int[10];
+		long[] kerning = new long[0];
+		int kernings = 0;
+		for (String line = reader.readLine(); line != null; line = reader.readLine())
+			if (line.startsWith("char ")) {
+				parseInts(line, values, 9); // id x y width height xoffset yoffset xadvance page
+				addGlyph(values[0], values[1], values[2], values[3], values[4], values[5], values[6], values[7], values[8]);
+			} else if (line.startsWith("kerning ")) {
+				parseInts(line, values, 3); // first second amount
+				if (kernings == kerning.length) kerning = Arrays.copyOf(kerning, Math.max(16, kernings * 2));
+				kerning[kernings] = packKerning(values[0], values[1], values[2]);
+				if (kerning[kernings] != -1) kernings++;
+			} else if (line.startsWith("common ")) {
+				parseInts(line, values, 5); // lineHeight base scaleW scaleH pages
+				lineHeight = values[0];
+				setPageCount(values[4]);
+			} else if (line.startsWith("page ")) {
+				parseInts(line, values, 1); // id
+				final int file = line.indexOf('"', line.indexOf("file=")) + 1;
+				pageFiles[values[0]] = line.substring(file, line.indexOf('"', file));
+			} else if (line.startsWith("chars ")) {
+				parseInts(line, values, 1); // count
+				ensureCapacity(count + values[0]);
+			} else if (line.startsWith("kernings ")) {
+				parseInts(line, values, 1); // count
+				kerning = Arrays.copyOf(kerning, Math.max(kerning.length, values[0]));
 			}
+		finish(kerning, kernings);
+	}
 
-			for (String line = reader.readLine(); line != null && line.startsWith("kerning "); line = reader.readLine()) {
-				StringTokenizer tokens = new StringTokenizer(line, " =");
-				tokens.nextToken();
-				tokens.nextToken();
-				int first = Integer.parseInt(tokens.nextToken());
-				tokens.nextToken();
-				int second = Integer.parseInt(tokens.nextToken());
-				if (first > Character.MAX_VALUE || second > Character.MAX_VALUE) continue;
-				Glyph glyph = getGlyph((char) first);
-				tokens.nextToken();
-				int amount = Integer.parseInt(tokens.nextToken());
-				glyph.setKerning(second, amount);
+	/** Parses the first <code>n</code> integer values of a line of <code>key=value</code> pairs into
+	 * <code>values</code>. */
+	private static void parseInts(String line, int[] values, int n) {
+		for (int i = 0, j = line.indexOf('='); i < n; i++, j = line.indexOf('=', j)) {
+			if (j == -1) throw new IllegalArgumentException("Missing value: " + line);
+			boolean negative = line.charAt(++j) == '-';
+			if (negative) j++;
+			int value = 0;
+			for (char c; j < line.length() && (c = line.charAt(j)) >= '0' && c <= '9'; j++)
+				value = value * 10 + c - '0';
+			values[i] = negative ? -value : value;
+		}
+	}
+
+	/** Reads the binary descriptor of version 3: blocks of a type byte, a little-endian size and their fields. */
+	private void readBinary(InputStream in) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(in.available(), 4096));
+		byte[] bytes = new byte[4096];
+		for (int n; (n = in.read(bytes)) != -1;)
+			out.write(bytes, 0, n);
+		final ByteBuffer buffer = ByteBuffer.wrap(out.toByteArray()).order(ByteOrder.LITTLE_ENDIAN);
+		if (buffer.get(3) != 3) throw new IllegalArgumentException("Unsupported BMFont version " + buffer.get(3) + ".");
+		buffer.position(4);
+		long[] kerning = new long[0];
+		int kernings = 0;
+		while (buffer.hasRemaining()) {
+			final int type = buffer.get(), size = buffer.getInt();
+			final int start = buffer.position();
+			switch (type) {
+			case 2: // common
+				lineHeight = buffer.getShort() & 0xFFFF;
+				buffer.position(start + 8);
+				setPageCount(buffer.getShort() & 0xFFFF);
+				break;
+			case 3: // pages, as null-terminated strings
+				for (int p = 0, i = start; p < pages; p++) {
+					int terminator = i;
+					while (buffer.get(terminator) != 0)
+						terminator++;
+					pageFiles[p] = new String(buffer.array(), i, terminator - i, UTF_8);
+					i = terminator + 1;
+				}
+				break;
+			case 4: // chars, 20 bytes each
+				ensureCapacity(count + size / 20);
+				for (int i = 0; i < size / 20; i++) {
+					final int id = buffer.getInt(), x = buffer.getShort() & 0xFFFF, y = buffer.getShort() & 0xFFFF, width = buffer.getShort() & 0xFFFF, height = buffer.getShort() & 0xFFFF;
+					final int xoffset = buffer.getShort(), yoffset = buffer.getShort(), xadvance = buffer.getShort(), page = buffer.get() & 0xFF;
+					buffer.get(); // chnl
+					addGlyph(id, x, y, width, height, xoffset, yoffset, xadvance, page);
+				}
+				break;
+			case 5: // kerning pairs, 10 bytes each
+				kerning = Arrays.copyOf(kerning, kernings + size / 10);
+				for (int i = 0; i < size / 10; i++) {
+					kerning[kernings] = packKerning(buffer.getInt(), buffer.getInt(), buffer.getShort());
+					if (kerning[kernings] != -1) kernings++;
+				}
+				break;
 			}
-		} catch (Exception e) {
-			throw new IllegalArgumentException("Invalid font file.", e);
+			buffer.position(start + size);
+		}
+		finish(kerning, kernings);
+	}
+
+	private void setPageCount(int pages) {
+		if (pages > 256) throw new IllegalArgumentException("At most 256 pages are supported, not " + pages + ".");
+		this.pages = pages;
+		pageImgs = new Texture[pages];
+		pageFiles = new String[pages];
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (capacity > x.length) resize(capacity);
+	}
+
+	private void resize(int capacity) {
+		x = Arrays.copyOf(x, capacity);
+		y = Arrays.copyOf(y, capacity);
+		width = Arrays.copyOf(width, capacity);
+		height = Arrays.copyOf(height, capacity);
+		xoffset = Arrays.copyOf(xoffset, capacity);
+		yoffset = Arrays.copyOf(yoffset, capacity);
+		xadvance = Arrays.copyOf(xadvance, capacity);
+		page = Arrays.copyOf(page, capacity);
+	}
+
+	private void addGlyph(int c, int x, int y, int width, int height, int xoffset, int yoffset, int xadvance, int page) {
+		if (c > Character.MAX_VALUE) return;
+		if (count == this.x.length) ensureCapacity(Math.max(16, count * 2));
+		this.x[count] = (short) x;
+		this.y[count] = (short) y;
+		this.width[count] = (short) width;
+		this.height[count] = (short) height;
+		this.xoffset[count] = (short) xoffset;
+		this.yoffset[count] = (short) yoffset;
+		this.xadvance[count] = (short) xadvance;
+		this.page[count] = (byte) page;
+		int[] indices = this.indices[c >>> LOG2_PAGE_SIZE];
+		if (indices == null) this.indices[c >>> LOG2_PAGE_SIZE] = indices = new int[PAGE_SIZE];
+		indices[c & PAGE_SIZE - 1] = ++count;
+	}
+
+	/** @return the pair and amount packed to be sorted by pair, or <code>-1</code> beyond <code>U+FFFF</code> */
+	private static long packKerning(int first, int second, int amount) {
+		if (first > Character.MAX_VALUE || second > Character.MAX_VALUE) return -1;
+		return ((long) first << 16 | second) << 16 | amount & 0xFFFF;
+	}
+
+	/** Sorts the packed pairs into the kerning table and trims the metrics to the glyphs read. */
+	private void finish(long[] kerning, int kernings) {
+		Arrays.sort(kerning, 0, kernings);
+		kerningPairs = new long[kernings];
+		kerningAmounts = new short[kernings];
+		for (int i = 0; i < kernings; i++) {
+			kerningPairs[i] = kerning[i] >>> 32 << 32 | kerning[i] >>> 16 & 0xFFFF;
+			kerningAmounts[i] = (short) kerning[i];
 		}
+		if (x.length > count) resize(count);
+	}
+
+	/** @return the image files of the pages, relative to the font file */
+	public String[] getPageFiles() {
+		return pageFiles;
+	}
+
+	public void setPage(int page, Texture texture) {
+		pageImgs[page] = texture;
+	}
+
+	public Texture getPage(int page) {
+		return pageImgs[page];
+	}
+
+	public int getPageCount() {
+		return pages;
 	}
 
-	private Glyph getGlyph(char c) {
-		return glyphs[c / PAGE_SIZE][c & PAGE_SIZE - 1];
+	/** @return the index of the glyph of <code>c</code>, or <code>-1</code> if the font lacks it */
+	int glyph(char c) {
+		final int[] indices = this.indices[c >>> LOG2_PAGE_SIZE];
+		return indices == null ? -1 : indices[c & PAGE_SIZE - 1] - 1;
 	}
 
-	private void setGlyph(char c, Glyph glyph) {
-		Glyph[] page = glyphs[c / PAGE_SIZE];
-		if (page == null) glyphs[c / PAGE_SIZE] = page = new Glyph[PAGE_SIZE];
-		page[c & PAGE_SIZE - 1] = glyph;
+	/** @return the number of glyphs */
+	public int getGlyphCount() {
+		return count;
+	}
+
+	/** @return the amount added to the pen between <code>first</code> and <code>second</code>, negative to move them
+	 *         closer */
+	public int getKerning(char first, char second) {
+		if (kerningPairs.length == 0) return 0;
+		final int i = Arrays.binarySearch(kerningPairs, (long) first << 32 | second);
+		return i < 0 ? 0 : kerningAmounts[i];
 	}
 
 	@Override
 	public void drawString(Batch batch, String str, int x, int y) {
-		Glyph lastGlyph = null;
+		char last = 0;
 		int drawX = x;
 		int i = 0;
 		while (i < str.length()) {
 			char c = str.charAt(i++);
-			if (c == '\n') {
+			if (c == '\n') { // Lines go downwards, as in a FontCache
 				drawX = x;
-				y += getHeight();
+				y -= lineHeight;
+				last = 0;
+				continue;
 			}
-			Glyph glyph = getGlyph(c);
-			if (glyph != null) {
-				if (lastGlyph != null) drawX += lastGlyph.getKerning(c);
-				lastGlyph = glyph;
+			final int glyph = glyph(c);
+			if (glyph != -1) {
+				if (last != 0) drawX += getKerning(last, c);
+				last = c;
 
-				int x1 = drawX + glyph.xoffset, y2 = y + lineHeight - glyph.yoffset, x2 = x1 + glyph.width, y1 = y2 - glyph.height, //
-				sx1 = glyph.x, sy1 = pageImgs[glyph.page].getHeight() - glyph.y, sx2 = sx1 + glyph.width, sy2 = sy1 - glyph.height;
-				batch.draw(pageImgs[glyph.page], x1, y1, x2, y2, sx1, sy2, sx2, sy1);
+				final Texture pageImg = pageImgs[page[glyph] & 0xFF];
+				int x1 = drawX + xoffset[glyph], y2 = y + lineHeight - yoffset[glyph], x2 = x1 + width[glyph], y1 = y2 - height[glyph], //
+				sx1 = this.x[glyph], sy1 = pageImg.getHeight() - this.y[glyph], sx2 = sx1 + width[glyph], sy2 = sy1 - height[glyph];
+				batch.draw(pageImg, x1, y1, x2, y2, sx1, sy2, sx2, sy1);
 
-				drawX += glyph.xadvance;
+				drawX += xadvance[glyph];
 			}
 		}
 	}
 
+	/** @return the width of the widest line of <code>string</code>, advancing as {@link #drawString} does */
 	@Override
 	public int getWidth(String string) {
-		int totalWidth = 0;
-		char c, prev = '\u0000';
+		int totalWidth = 0, lineWidth = 0;
+		char last = 0;
 		for (int i = 0; i < string.length(); i++) {
-			c = string.charAt(i);
-			Glyph glyph = getGlyph(c);
-			totalWidth += glyph.xadvance;
-			if (prev != '\u0000') totalWidth += glyph.getKerning(prev);
-			prev = c;
+			char c = string.charAt(i);
+			if (c == '\n') {
+				lineWidth = 0;
+				last = 0;
+				continue;
+			}
+			final int glyph = glyph(c);
+			if (glyph == -1) continue;
+			if (last != 0) lineWidth += getKerning(last, c);
+			last = c;
+			totalWidth = Math.max(totalWidth, lineWidth += xadvance[glyph]);
 		}
 		return totalWidth;
 	}
@@ -149,22 +324,4 @@ public class BitmapFont extends FontImpl implements Font {
 		for (Texture texture : pageImgs)
 			texture.dispose();
 	}
-
-	public class Glyph {
-		public int id, x, y, width, height, xoffset, yoffset, xadvance, page;
-		public byte[][] kerning;
-
-		public int getKerning(char c) {
-			if (kerning == null) return 0;
-			return kerning[c >>> LOG2_PAGE_SIZE][c & PAGE_SIZE - 1];
-		}
-
-		public void setKerning(int c, int amount) {
-			if (kerning == null) kerning = new byte[PAGES][];
-			byte[] page = kerning[c >>> LOG2_PAGE_SIZE];
-			if (page == null) kerning[c >>> LOG2_PAGE_SIZE] = page = new byte[PAGE_SIZE];
-			page[c & PAGE_SIZE - 1] = (byte) amount;
-		}
-	}
-
 }
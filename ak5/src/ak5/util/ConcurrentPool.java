@@ -0,0 +1,201 @@
+/**
+ * 
+ */
+package ak5.util;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/** A {@link Pool} that can be shared between threads. Each thread keeps two magazines of free objects of its own, so
+ * that most calls touch no shared state; only full magazines are exchanged through a lock-free shared stack. Objects
+ * held in the magazines of threads are not counted towards {@link #max}.
+ * <p>
+ * Magazines left unused on the shared stack between two calls to {@link #trim()} are released, so that a burst of
+ * allocations doesn't stay pooled forever.
+ * 
+ * @author pwnedary */
+public abstract class ConcurrentPool<T> extends Pool<T> {
+	/** The number of objects per magazine. */
+	public final int magazineSize;
+	/** The most magazines on the shared stack. */
+	private final int maxMagazines;
+
+	private final ThreadLocal<Cache> caches = new ThreadLocal<Cache>() {
+		@Override
+		protected Cache initialValue() {
+			return new Cache(magazineSize);
+		}
+	};
+	/** The top of the shared stack of full magazines. */
+	private final AtomicReference<Node> top = new AtomicReference<>();
+	private final AtomicInteger magazines = new AtomicInteger();
+	/** The fewest magazines on the shared stack since the last {@link #trim()}. */
+	private final AtomicInteger lowWater = new AtomicInteger();
+
+	private final AtomicLong hits = new AtomicLong(), misses = new AtomicLong(), discarded = new AtomicLong();
+
+	/** Creates a pool with magazines of 16 and no maximum. */
+	public ConcurrentPool() {
+		this(16, Integer.MAX_VALUE);
+	}
+
+	/** @param magazineSize the number of objects exchanged between a thread and the shared stack at a time
+	 * @param max the maximum number of free objects on the shared stack */
+	public ConcurrentPool(int magazineSize, int max) {
+		super(0, max);
+		if (magazineSize < 1) throw new IllegalArgumentException("magazineSize must be at least 1");
+		this.magazineSize = magazineSize;
+		this.maxMagazines = Math.max(1, max / magazineSize);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public T obtain() {
+		Cache cache = caches.get();
+		if (cache.loadedSize == 0) {
+			if (cache.previousSize > 0) cache.swap();
+			else {
+				Object[] full = pop();
+				if (full == null) {
+					misses.incrementAndGet();
+					return newObject();
+				}
+				cache.previous = cache.loaded; // empty
+				cache.loaded = full;
+				cache.loadedSize = full.length;
+			}
+		}
+		hits.incrementAndGet();
+		T object = (T) cache.loaded[--cache.loadedSize];
+		cache.loaded[cache.loadedSize] = null;
+		return object;
+	}
+
+	/** Resets the object if {@link Pool.Poolable} and puts it in the calling thread's magazine. */
+	@Override
+	public void free(T object) {
+		if (object == null) throw new IllegalArgumentException("object cannot be null.");
+		if (object instanceof Poolable) ((Poolable) object).reset(); // before anyone else can see it
+		Cache cache = caches.get();
+		if (cache.loadedSize == magazineSize) {
+			if (cache.previousSize == 0) cache.swap();
+			else {
+				push(cache.previous);
+				cache.previous = cache.loaded;
+				cache.previousSize = magazineSize;
+				cache.loaded = new Object[magazineSize];
+				cache.loadedSize = 0;
+			}
+		}
+		cache.loaded[cache.loadedSize++] = object;
+	}
+
+	@Override
+	public void freeAll(List<T> objects) {
+		if (objects == null) throw new IllegalArgumentException("object cannot be null.");
+		for (int i = 0; i < objects.size(); i++) {
+			T object = objects.get(i);
+			if (object != null) free(object);
+		}
+	}
+
+	/** Removes all free objects from the shared stack and the calling thread's magazines. The magazines of other threads
+	 * are left as they are. */
+	@Override
+	public void clear() {
+		while (pop() != null)
+			;
+		caches.remove();
+	}
+
+	/** Releases the magazines that have stayed unused on the shared stack since the last call. Meant to be called
+	 * periodically, e.g. once a second.
+	 * 
+	 * @return the number of objects released */
+	public int trim() {
+		int released = 0;
+		for (int idle = lowWater.get(); idle > 0; idle--) {
+			Object[] magazine = pop();
+			if (magazine == null) break;
+			released += magazine.length;
+		}
+		lowWater.set(magazines.get());
+		discarded.addAndGet(released);
+		return released;
+	}
+
+	private void push(Object[] magazine) {
+		if (magazines.incrementAndGet() > maxMagazines) {
+			magazines.decrementAndGet();
+			discarded.addAndGet(magazine.length);
+			return;
+		}
+		Node node = new Node(magazine);
+		do
+			node.next = top.get();
+		while (!top.compareAndSet(node.next, node));
+	}
+
+	private Object[] pop() {
+		Node node;
+		do
+			if ((node = top.get()) == null) return null;
+		while (!top.compareAndSet(node, node.next));
+		int count = magazines.decrementAndGet();
+		for (int low; count < (low = lowWater.get()) && !lowWater.compareAndSet(low, count);)
+			;
+		return node.magazine;
+	}
+
+	/** @return the number of objects obtained from the pool rather than created */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/** @return the number of objects created since the pool was empty */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/** @return the number of freed objects dropped, for exceeding {@link #max} or by {@link #trim()} */
+	public long getDiscarded() {
+		return discarded.get();
+	}
+
+	/** @return the number of free objects on the shared stack, not counting the magazines of threads */
+	public int getFree() {
+		return magazines.get() * magazineSize;
+	}
+
+	/** A node of the shared stack; never reused, which rules out ABA. */
+	private static final class Node {
+		final Object[] magazine;
+		Node next;
+
+		Node(Object[] magazine) {
+			this.magazine = magazine;
+		}
+	}
+
+	/** The magazines of one thread: one being drawn from and filled, and a spare one. */
+	private static final class Cache {
+		Object[] loaded, previous;
+		int loadedSize, previousSize;
+
+		Cache(int magazineSize) {
+			loaded = new Object[magazineSize];
+			previous = new Object[magazineSize];
+		}
+
+		void swap() {
+			Object[] magazine = loaded;
+			loaded = previous;
+			previous = magazine;
+			int size = loadedSize;
+			loadedSize = previousSize;
+			previousSize = size;
+		}
+	}
+}
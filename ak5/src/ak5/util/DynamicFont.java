@@ -0,0 +1,407 @@
+/**
+ * 
+ */
+package ak5.util;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.awt.font.LineMetrics;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import ak5.Platform;
+import ak5.graphics.Batch;
+import ak5.graphics.GL10;
+import ak5.graphics.GL20;
+import ak5.graphics.QuadBatch;
+import ak5.graphics.ShaderProgram;
+import ak5.graphics.Texture;
+import ak5.util.Font.FontImpl;
+import ak5.util.io.BufferUtil;
+
+/** A font rasterizing its glyphs as they are first drawn, into pages of a few textures, rather than baking a size and
+ * character set up front like {@link TrueTypeFont}.
+ * <p>
+ * When every page is full, the page used least recently is cleared for new glyphs; pages used since the last
+ * {@link #update()} are kept, more pages being added instead, so that glyphs waiting in a batch never change.
+ * <p>
+ * With distance fields, glyphs are stored as the distance to their outline rather than their coverage, and drawn with
+ * the shader of {@link #createDistanceFieldShader(GL20)}, which keeps edges sharp at any scale. One size then serves
+ * every other: a 32 pixel font scaled up five times looks like a 160 pixel one. A {@link QuadBatch} batching a single
+ * texture is switched to the shader while drawing strings, flushing around each; other batches have to use it
+ * themselves.
+ * 
+ * @author pwnedary */
+public class DynamicFont extends FontImpl implements Font {
+	/** How far distances reach from the outlines, in pixels of the pages. */
+	private static final int SPREAD = 4;
+	/** How many times larger glyphs are rasterized to find the distances. */
+	private static final int UPSCALE = 4;
+
+	private final Platform platform;
+	private final GL10 gl;
+	private final java.awt.Font font, rasterFont;
+	private final boolean distanceField;
+	private final int pageSize, maxPages;
+	/** Empty pixels around each glyph, so that filtering never reaches its neighbours. */
+	private final int padding;
+	private final FontRenderContext context = new FontRenderContext(null, true, true);
+	private final float ascent, lineHeight;
+	private final Map<Integer, Glyph> glyphs = new HashMap<>();
+	private final List<Page> pages = new ArrayList<>();
+	private ByteBuffer upload;
+	private float scale = 1;
+	private int frame;
+	private ShaderProgram shader;
+	private float smoothing;
+
+	/** The number of glyphs rasterized ever. */
+	public int rasterized;
+	/** The number of pages cleared for new glyphs ever. */
+	public int evictions;
+
+	public DynamicFont(Platform platform, java.awt.Font font) {
+		this(platform, font, false, 256, 4);
+	}
+
+	/** @param distanceField whether to store distance fields, to be scaled freely
+	 * @param pageSize the width and height of each page
+	 * @param maxPages the most pages to keep, unless all are used by the same frame */
+	public DynamicFont(Platform platform, java.awt.Font font, boolean distanceField, int pageSize, int maxPages) {
+		this.platform = platform;
+		this.gl = platform.getGL();
+		this.font = font;
+		this.rasterFont = distanceField ? font.deriveFont(font.getSize2D() * UPSCALE) : font;
+		this.distanceField = distanceField;
+		this.pageSize = pageSize;
+		this.maxPages = maxPages;
+		this.padding = distanceField ? SPREAD : 1;
+		LineMetrics metrics = font.getLineMetrics("Ag", context);
+		ascent = metrics.getAscent();
+		lineHeight = (float) Math.ceil(metrics.getAscent() + metrics.getDescent() + metrics.getLeading());
+	}
+
+	/** Ends a frame, allowing the pages used until now to be cleared. Meant to be called once per frame. */
+	public void update() {
+		frame++;
+	}
+
+	/** Draws <code>str</code> with the bottom of its first line at <code>y</code>, lines going down. */
+	@Override
+	public void drawString(Batch batch, String str, int x, int y) {
+		ShaderProgram previous = null;
+		if (distanceField && batch instanceof QuadBatch && ((QuadBatch) batch).getMaxTextures() == 1 && gl instanceof GL20) {
+			QuadBatch quads = (QuadBatch) batch;
+			previous = quads.getShader();
+			quads.setShader(getDistanceFieldShader());
+			final float smoothing = Math.min(0.5f, 0.5f / (SPREAD * scale));
+			if (smoothing != this.smoothing) {
+				quads.flush();
+				((GL20) gl).glUniform1f(shader.getUniformLocation("u_smoothing"), this.smoothing = smoothing);
+			}
+		}
+
+		float penX = x, baseline = y + (lineHeight - ascent) * scale;
+		for (int i = 0; i < str.length(); i += Character.charCount(str.codePointAt(i))) {
+			final int c = str.codePointAt(i);
+			if (c == '\n') {
+				penX = x;
+				baseline -= lineHeight * scale;
+				continue;
+			}
+			final Glyph glyph = getGlyph(c);
+			if (glyph.width > 0) {
+				final Page page = pages.get(glyph.page);
+				page.lastUsed = frame;
+				final float x1 = penX + glyph.left * scale, y2 = baseline + glyph.top * scale;
+				batch.draw(page.texture, x1, y2 - glyph.height * scale, x1 + glyph.width * scale, y2, glyph.x, glyph.y, glyph.x + glyph.width, glyph.y + glyph.height);
+			}
+			penX += glyph.advance * scale;
+		}
+
+		if (previous != null) ((QuadBatch) batch).setShader(previous);
+	}
+
+	@Override
+	public int getWidth(String str) {
+		float width = 0, lineWidth = 0;
+		for (int i = 0; i < str.length(); i += Character.charCount(str.codePointAt(i))) {
+			final int c = str.codePointAt(i);
+			if (c == '\n') lineWidth = 0;
+			else width = Math.max(width, lineWidth += getGlyph(c).advance * scale);
+		}
+		return Math.round(width);
+	}
+
+	@Override
+	public int getHeight() {
+		return Math.round(lineHeight * scale);
+	}
+
+	/** Sets how many times larger than the font's size to draw, which only looks sharp with distance fields. */
+	public void setScale(float scale) {
+		this.scale = scale;
+	}
+
+	public float getScale() {
+		return scale;
+	}
+
+	/** @return the number of glyphs currently cached */
+	public int getGlyphCount() {
+		return glyphs.size();
+	}
+
+	public int getPageCount() {
+		return pages.size();
+	}
+
+	private Glyph getGlyph(int c) {
+		Glyph glyph = glyphs.get(c);
+		if (glyph == null) glyphs.put(c, glyph = rasterize(c));
+		return glyph;
+	}
+
+	/** Rasterizes <code>c</code> and uploads it to a page. */
+	private Glyph rasterize(int c) {
+		rasterized++;
+		final int upscale = distanceField ? UPSCALE : 1;
+		final GlyphVector vector = rasterFont.createGlyphVector(context, new String(Character.toChars(c)));
+		final Glyph glyph = new Glyph(vector.getGlyphMetrics(0).getAdvanceX() / upscale);
+		final java.awt.Rectangle bounds = vector.getPixelBounds(context, 0, 0);
+		if (bounds.isEmpty()) return glyph; // Whitespace
+
+		// Rasterized with padding, a multiple of the upscale wide and high
+		final int width = (bounds.width + 2 * padding * upscale + upscale - 1) / upscale, height = (bounds.height + 2 * padding * upscale + upscale - 1) / upscale;
+		final BufferedImage image = new BufferedImage(width * upscale, height * upscale, BufferedImage.TYPE_BYTE_GRAY);
+		final Graphics2D g = image.createGraphics();
+		g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+		g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+		g.setColor(Color.WHITE);
+		g.drawGlyphVector(vector, padding * upscale - bounds.x, padding * upscale - bounds.y);
+		g.dispose();
+		final byte[] coverage = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+		final byte[] alpha = distanceField ? distanceField(coverage, width * upscale, height * upscale, upscale) : coverage;
+
+		glyph.width = width;
+		glyph.height = height;
+		glyph.left = (float) (bounds.x - padding * upscale) / upscale;
+		glyph.top = (float) -(bounds.y - padding * upscale) / upscale;
+		allocate(glyph);
+
+		// White pixels with the glyph as alpha, bottom row first
+		final int size = width * height * 4;
+		if (upload == null || upload.capacity() < size) upload = BufferUtil.newByteBuffer(size);
+		upload.clear();
+		for (int row = height - 1; row >= 0; row--)
+			for (int col = 0; col < width; col++)
+				upload.put((byte) 0xFF).put((byte) 0xFF).put((byte) 0xFF).put(alpha[row * width + col]);
+		upload.flip();
+		final Page page = pages.get(glyph.page);
+		page.texture.bind();
+		gl.glTexSubImage2D(GL10.GL_TEXTURE_2D, 0, glyph.x, glyph.y, width, height, GL10.GL_RGBA, GL10.GL_UNSIGNED_BYTE, upload);
+		return glyph;
+	}
+
+	/** Finds room for <code>glyph</code>, adding a page or clearing the one used least recently if there is none. */
+	private void allocate(Glyph glyph) {
+		if (glyph.width > pageSize || glyph.height > pageSize) throw new IllegalArgumentException("Glyph larger than a page.");
+		for (int i = 0; i < pages.size(); i++)
+			if (pages.get(i).allocate(glyph)) {
+				glyph.page = i;
+				return;
+			}
+
+		int lru = -1;
+		if (pages.size() >= maxPages) for (int i = 0; i < pages.size(); i++)
+			if (pages.get(i).lastUsed < frame && (lru == -1 || pages.get(i).lastUsed < pages.get(lru).lastUsed)) lru = i;
+		if (lru == -1) {
+			Texture texture = platform.createTexture(pageSize, pageSize);
+			texture.bind();
+			texture.setFilter(distanceField ? Texture.Filter.LINEAR : Texture.Filter.NEAREST, distanceField ? Texture.Filter.LINEAR : Texture.Filter.NEAREST);
+			pages.add(new Page(texture));
+			lru = pages.size() - 1;
+		} else {
+			for (Iterator<Glyph> iterator = glyphs.values().iterator(); iterator.hasNext();)
+				if (iterator.next().page == lru) iterator.remove();
+			pages.get(lru).clear();
+			evictions++;
+		}
+		pages.get(lru).allocate(glyph);
+		glyph.page = lru;
+	}
+
+	/** Converts the coverage of a glyph rasterized <code>upscale</code> times larger to distances from its outline,
+	 * sampled at the center of each pixel of its actual size: <code>128</code> on the outline, rising inside. */
+	private static byte[] distanceField(byte[] coverage, int width, int height, int upscale) {
+		final float[] outside = new float[width * height], inside = new float[width * height];
+		for (int i = 0; i < coverage.length; i++) {
+			final boolean in = (coverage[i] & 0xFF) >= 128;
+			outside[i] = in ? 0 : Float.MAX_VALUE; // Becomes the distance to the glyph
+			inside[i] = in ? Float.MAX_VALUE : 0; // Becomes the distance to the background
+		}
+		distanceTransform(outside, width, height);
+		distanceTransform(inside, width, height);
+
+		final int w = width / upscale, h = height / upscale;
+		final float spread = SPREAD * upscale;
+		final byte[] distances = new byte[w * h];
+		for (int y = 0; y < h; y++)
+			for (int x = 0; x < w; x++) {
+				final int i = (y * upscale + upscale / 2) * width + x * upscale + upscale / 2;
+				final float distance = (float) (Math.sqrt(inside[i]) - Math.sqrt(outside[i])); // Positive inside
+				distances[y * w + x] = (byte) Math.max(0, Math.min(255, Math.round(128 + distance * 127 / spread)));
+			}
+		return distances;
+	}
+
+	/** Replaces each value with the smallest of every other value plus its squared distance, the values being
+	 * <code>0</code> at the points measured from. */
+	private static void distanceTransform(float[] grid, int width, int height) {
+		final int n = Math.max(width, height);
+		final float[] f = new float[n], d = new float[n], z = new float[n + 1];
+		final int[] v = new int[n];
+		for (int x = 0; x < width; x++) {
+			for (int y = 0; y < height; y++)
+				f[y] = grid[y * width + x];
+			distanceTransform(f, height, d, v, z);
+			for (int y = 0; y < height; y++)
+				grid[y * width + x] = d[y];
+		}
+		for (int y = 0; y < height; y++) {
+			System.arraycopy(grid, y * width, f, 0, width);
+			distanceTransform(f, width, d, v, z);
+			System.arraycopy(d, 0, grid, y * width, width);
+		}
+	}
+
+	/** The one dimensional transform of Felzenszwalb and Huttenlocher, taking the lower envelope of parabolas. */
+	private static void distanceTransform(float[] f, int n, float[] d, int[] v, float[] z) {
+		int k = 0;
+		v[0] = 0;
+		z[0] = Float.NEGATIVE_INFINITY;
+		z[1] = Float.POSITIVE_INFINITY;
+		for (int q = 1; q < n; q++) {
+			if (f[q] == Float.MAX_VALUE) continue; // Infinitely far, never the lowest
+			float s;
+			while (true) {
+				if (f[v[k]] == Float.MAX_VALUE) { // Replace an infinitely far start
+					v[k] = q;
+					s = Float.NEGATIVE_INFINITY;
+					break;
+				}
+				s = (f[q] + (float) q * q - (f[v[k]] + (float) v[k] * v[k])) / (2 * q - 2 * v[k]);
+				if (s > z[k] || k == 0) break;
+				k--;
+			}
+			if (s == Float.NEGATIVE_INFINITY) continue;
+			k++;
+			v[k] = q;
+			z[k] = s;
+			z[k + 1] = Float.POSITIVE_INFINITY;
+		}
+		for (int q = 0, j = 0; q < n; q++) {
+			while (z[j + 1] < q)
+				j++;
+			d[q] = f[v[j]] == Float.MAX_VALUE ? Float.MAX_VALUE : (q - v[j]) * (q - v[j]) + f[v[j]];
+		}
+	}
+
+	/** @return the shader drawing distance fields, shared by every string this font draws */
+	private ShaderProgram getDistanceFieldShader() {
+		if (shader == null) shader = createDistanceFieldShader((GL20) gl);
+		return shader;
+	}
+
+	/** @return a shader for the vertices of a {@link QuadBatch} batching one texture, thresholding the alpha of
+	 *         distance fields, smoothed by the <code>u_smoothing</code> uniform: <code>0.5 / (4 * scale)</code> */
+	public static ShaderProgram createDistanceFieldShader(GL20 gl) {
+		String vertexShader = "attribute vec4 " + ShaderProgram.POSITION_ATTRIBUTE + ";\n" //
+				+ "attribute vec4 " + ShaderProgram.COLOR_ATTRIBUTE + ";\n" //
+				+ "attribute vec2 " + ShaderProgram.TEXCOORD_ATTRIBUTE + "0;\n" //
+				+ "uniform mat4 u_projTrans;\n" //
+				+ "varying vec4 v_color;\n" //
+				+ "varying vec2 v_texCoords;\n" //
+				+ "void main(){\n" //
+				+ " gl_Position = u_projTrans * " + ShaderProgram.POSITION_ATTRIBUTE + ";\n" //
+				+ " v_color = " + ShaderProgram.COLOR_ATTRIBUTE + ";\n" //
+				+ " v_texCoords = " + ShaderProgram.TEXCOORD_ATTRIBUTE + "0;\n" //
+				+ "}\n";
+		String fragmentShader = "#ifdef GL_ES\n" //
+				+ "precision mediump float;\n" //
+				+ "#endif\n" //
+				+ "uniform sampler2D u_texture;\n" //
+				+ "uniform float u_smoothing;\n" //
+				+ "varying vec4 v_color;\n" //
+				+ "varying vec2 v_texCoords;\n" //
+				+ "void main(){\n"//
+				+ " float distance = texture2D(u_texture, v_texCoords).a;\n" //
+				+ " gl_FragColor = vec4(v_color.rgb, v_color.a * smoothstep(0.5 - u_smoothing, 0.5 + u_smoothing, distance));\n" //
+				+ "}";
+		return new ShaderProgram(gl, vertexShader, fragmentShader);
+	}
+
+	@Override
+	public void dispose() {
+		for (Page page : pages)
+			page.texture.dispose();
+		pages.clear();
+		glyphs.clear();
+		if (shader != null) shader.dispose();
+	}
+
+	private static class Glyph {
+		final float advance;
+		/** Where the glyph is in its page, from the bottom left, and its size with padding. */
+		int page, x, y, width, height;
+		/** The offset of the top left corner from the pen on the baseline, y going up. */
+		float left, top;
+
+		Glyph(float advance) {
+			this.advance = advance;
+		}
+	}
+
+	/** A texture filled with shelves of glyphs, from the bottom up. */
+	private class Page {
+		final Texture texture;
+		/** The bottom, height and used width of each shelf. */
+		final List<int[]> shelves = new ArrayList<>();
+		int top;
+		int lastUsed;
+
+		Page(Texture texture) {
+			this.texture = texture;
+		}
+
+		boolean allocate(Glyph glyph) {
+			for (int[] shelf : shelves)
+				if (glyph.height <= shelf[1] && glyph.height >= shelf[1] * 3 / 4 && shelf[2] + glyph.width <= pageSize) {
+					glyph.x = shelf[2];
+					glyph.y = shelf[0];
+					shelf[2] += glyph.width;
+					return true;
+				}
+			if (top + glyph.height > pageSize) return false;
+			shelves.add(new int[] { top, glyph.height, glyph.width });
+			glyph.x = 0;
+			glyph.y = top;
+			top += glyph.height;
+			return true;
+		}
+
+		void clear() {
+			shelves.clear();
+			top = 0;
+		}
+	}
+}
@@ -0,0 +1,259 @@
+/**
+ * 
+ */
+package ak5.util;
+
+import java.util.Arrays;
+
+import ak5.graphics.Batch;
+import ak5.graphics.Color;
+import ak5.graphics.QuadBatch;
+import ak5.graphics.Texture;
+
+/** Text of a {@link BitmapFont} laid out once into vertices, so that drawing it again is copying them into the batch
+ * rather than looking up, kerning and placing every glyph.
+ * <p>
+ * Text is laid out by {@link #setText(String, float, float, float, int)}, again only when it or how it is laid out
+ * changes. Lines may be wrapped at spaces to a width and aligned within it. The quads are grouped by page, so that a
+ * font of several pages still flushes at most once per page. Their color is part of the vertices, set with
+ * {@link #setColor(Color)} rather than on the batch.
+ * 
+ * @author pwnedary */
+public class FontCache {
+	/** The number of floats per quad, as {@link QuadBatch} takes them. */
+	private static final int QUAD_SIZE = 4 * 5;
+
+	private final BitmapFont font;
+	/** The quads grouped by page, in the order of the pages. */
+	private float[] vertices = new float[0];
+	/** Where the quads of each page start, the last entry being the number of quads. */
+	private int[] pageStarts;
+	/** The quads in the order they were laid out, and the page of each. */
+	private float[] laidOut = new float[16 * QUAD_SIZE];
+	private int[] quadPages = new int[16];
+	private int[] lineEnds = new int[4];
+	private float[] lineWidths = new float[4];
+
+	private String text;
+	private float x, y, wrapWidth;
+	private int align;
+	private float width;
+	private int lines;
+	private Color color = Color.WHITE;
+	private float packedColor = Color.WHITE.toFloatBits();
+
+	/** The number of times text has been laid out. */
+	public int layouts;
+
+	public FontCache(BitmapFont font) {
+		this.font = font;
+		pageStarts = new int[font.getPageCount() + 1];
+	}
+
+	/** Lays out <code>text</code> unwrapped, unless it is already laid out so, with the bottom of its first line at
+	 * <code>y</code>, lines going down. */
+	public void setText(String text, float x, float y) {
+		setText(text, x, y, 0, Font.ALIGN_LEFT);
+	}
+
+	/** Lays out <code>text</code>, unless it is already laid out so, only moving it if it is elsewhere.
+	 * 
+	 * @param wrapWidth the width to wrap lines within, at spaces or within words too long for it, <code>0</code> not
+	 *            wrapping
+	 * @param align {@link Font#ALIGN_LEFT}, {@link Font#ALIGN_RIGHT} or {@link Font#ALIGN_CENTER}, within the wrap
+	 *            width or else the widest line */
+	public void setText(String text, float x, float y, float wrapWidth, int align) {
+		if (text.equals(this.text) && wrapWidth == this.wrapWidth && align == this.align) {
+			setPosition(x, y);
+			return;
+		}
+		this.text = text;
+		this.x = x;
+		this.y = y;
+		this.wrapWidth = wrapWidth;
+		this.align = align;
+		layout();
+	}
+
+	private void layout() {
+		layouts++;
+		final int lineHeight = font.getHeight();
+		int quads = 0;
+		lines = 0;
+		width = 0;
+		for (int start = 0;;) {
+			// Find where the line ends and the next starts
+			final int end = text.indexOf('\n', start) == -1 ? text.length() : text.indexOf('\n', start);
+			int lineEnd = end, next = end + 1;
+			if (wrapWidth > 0) {
+				int space = -1;
+				float pen = 0;
+				char last = 0;
+				for (int i = start; i < end; i++) {
+					final char c = text.charAt(i);
+					if (c == ' ') space = i;
+					final int glyph = font.glyph(c);
+					if (glyph == -1) continue;
+					if (last != 0) pen += font.getKerning(last, c);
+					last = c;
+					if (c != ' ' && i > start && pen + font.xoffset[glyph] + font.width[glyph] > wrapWidth) {
+						if (space > start) next = (lineEnd = space) + 1;
+						else next = lineEnd = i;
+						break;
+					}
+					pen += font.xadvance[glyph];
+				}
+			}
+
+			// Place its glyphs from 0, aligning them once every line is known
+			final float lineY = y - lines * lineHeight;
+			float pen = 0, lineWidth = 0;
+			char last = 0;
+			for (int i = start; i < lineEnd; i++) {
+				final char c = text.charAt(i);
+				final int glyph = font.glyph(c);
+				if (glyph == -1) continue;
+				if (last != 0) pen += font.getKerning(last, c);
+				last = c;
+				if (font.width[glyph] > 0 && font.height[glyph] > 0) {
+					if (quads == quadPages.length) {
+						quadPages = Arrays.copyOf(quadPages, quads * 2);
+						laidOut = Arrays.copyOf(laidOut, quads * 2 * QUAD_SIZE);
+					}
+					quadPages[quads] = font.page[glyph] & 0xFF;
+					quad(quads++ * QUAD_SIZE, glyph, pen, lineY + lineHeight);
+				}
+				pen += font.xadvance[glyph];
+				if (c != ' ') lineWidth = pen; // Trailing spaces take no room
+			}
+			if (lines == lineEnds.length) {
+				lineEnds = Arrays.copyOf(lineEnds, lines * 2);
+				lineWidths = Arrays.copyOf(lineWidths, lines * 2);
+			}
+			lineEnds[lines] = quads;
+			lineWidths[lines++] = lineWidth;
+			width = Math.max(width, lineWidth);
+
+			if (next > text.length()) break;
+			start = next;
+			if (next <= end) while (start < end && text.charAt(start) == ' ') // Wrapped lines start at a word
+				start++;
+		}
+
+		// Align each line
+		final float target = Math.max(wrapWidth, width);
+		for (int line = 0, quad = 0; line < lines; line++) {
+			final float dx = x + (align == Font.ALIGN_RIGHT ? target - lineWidths[line] : align == Font.ALIGN_CENTER ? (target - lineWidths[line]) / 2 : 0);
+			for (; quad < lineEnds[line]; quad++)
+				for (int i = quad * QUAD_SIZE; i < (quad + 1) * QUAD_SIZE; i += 5)
+					laidOut[i] += dx;
+		}
+
+		// Group by page, keeping the order within each
+		Arrays.fill(pageStarts, 0);
+		for (int quad = 0; quad < quads; quad++)
+			pageStarts[quadPages[quad] + 1]++;
+		for (int page = 1; page < pageStarts.length; page++)
+			pageStarts[page] += pageStarts[page - 1];
+		if (vertices.length < quads * QUAD_SIZE) vertices = new float[laidOut.length];
+		final int[] next = Arrays.copyOf(pageStarts, pageStarts.length - 1);
+		for (int quad = 0; quad < quads; quad++)
+			System.arraycopy(laidOut, quad * QUAD_SIZE, vertices, next[quadPages[quad]]++ * QUAD_SIZE, QUAD_SIZE);
+	}
+
+	/** Writes the quad of <code>glyph</code> at <code>offset</code>, as {@link BitmapFont#drawString} draws it. */
+	private void quad(int offset, int glyph, float pen, float top) {
+		final Texture page = font.getPage(font.page[glyph] & 0xFF);
+		final int width = font.width[glyph], height = font.height[glyph];
+		final float x1 = pen + font.xoffset[glyph], y2 = top - font.yoffset[glyph], x2 = x1 + width, y1 = y2 - height;
+		final float u = (float) font.x[glyph] / page.getTexWidth() + page.getU(), u2 = (float) (font.x[glyph] + width) / page.getTexWidth() + page.getU();
+		final float v2 = (float) (page.getHeight() - font.y[glyph]) / page.getTexHeight() + page.getV(), v = v2 - (float) height / page.getTexHeight();
+		final float[] vertices = laidOut;
+		vertices[offset] = x1;
+		vertices[offset + 1] = y1;
+		vertices[offset + 2] = packedColor;
+		vertices[offset + 3] = u;
+		vertices[offset + 4] = v;
+		vertices[offset + 5] = x1;
+		vertices[offset + 6] = y2;
+		vertices[offset + 7] = packedColor;
+		vertices[offset + 8] = u;
+		vertices[offset + 9] = v2;
+		vertices[offset + 10] = x2;
+		vertices[offset + 11] = y2;
+		vertices[offset + 12] = packedColor;
+		vertices[offset + 13] = u2;
+		vertices[offset + 14] = v2;
+		vertices[offset + 15] = x2;
+		vertices[offset + 16] = y1;
+		vertices[offset + 17] = packedColor;
+		vertices[offset + 18] = u2;
+		vertices[offset + 19] = v;
+	}
+
+	/** Moves the text without laying it out again. */
+	public void setPosition(float x, float y) {
+		final float dx = x - this.x, dy = y - this.y;
+		if (dx == 0 && dy == 0) return;
+		this.x = x;
+		this.y = y;
+		for (int i = 0; i < getGlyphCount() * QUAD_SIZE; i += 5) {
+			vertices[i] += dx;
+			vertices[i + 1] += dy;
+		}
+	}
+
+	/** Tints the text, without laying it out again. */
+	public void setColor(Color tint) {
+		color = tint;
+		packedColor = tint.toFloatBits();
+		for (int i = 2; i < getGlyphCount() * QUAD_SIZE; i += 5)
+			vertices[i] = packedColor;
+	}
+
+	public Color getColor() {
+		return color;
+	}
+
+	/** Draws the text, copying its vertices into a {@link QuadBatch}, or else drawing each glyph with the color of
+	 * this cache. */
+	public void draw(Batch batch) {
+		for (int page = 0; page < pageStarts.length - 1; page++) {
+			final int offset = pageStarts[page] * QUAD_SIZE, count = (pageStarts[page + 1] - pageStarts[page]) * QUAD_SIZE;
+			if (count == 0) continue;
+			final Texture texture = font.getPage(page);
+			if (batch instanceof QuadBatch) {
+				((QuadBatch) batch).draw(texture, vertices, offset, count);
+				continue;
+			}
+			final Color tint = batch.getColor();
+			batch.setColor(color);
+			final float u = texture.getU(), v = texture.getV(), width = texture.getTexWidth(), height = texture.getTexHeight();
+			for (int i = offset; i < offset + count; i += QUAD_SIZE)
+				batch.draw(texture, vertices[i], vertices[i + 1], vertices[i + 10], vertices[i + 11], (vertices[i + 3] - u) * width, (vertices[i + 4] - v) * height, (vertices[i + 13] - u) * width, (vertices[i + 14] - v) * height);
+			batch.setColor(tint);
+		}
+	}
+
+	public String getText() {
+		return text;
+	}
+
+	/** @return the width of the widest line */
+	public float getWidth() {
+		return width;
+	}
+
+	public float getHeight() {
+		return lines * font.getHeight();
+	}
+
+	public int getLineCount() {
+		return lines;
+	}
+
+	/** @return the number of quads laid out, whitespace having none */
+	public int getGlyphCount() {
+		return pageStarts[pageStarts.length - 1];
+	}
+}
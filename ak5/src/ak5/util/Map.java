@@ -6,6 +6,10 @@ package ak5.util;
 import java.awt.Graphics;
 import java.io.Serializable;
 
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
 import org.w3c.dom.Element;
 
 import ak5.Platform;
@@ -53,10 +57,10 @@ public interface Map extends Serializable {
 	 * @param g the {@link Graphics} object
 	 * @param x the corner's x-coordinate of where to draw
 	 * @param y the corner's y-coordinate of where to draw
-	 * @param rx the region's corner's x-coordinate
-	 * @param ry the region's corner's y-coordinate
-	 * @param rw the region's width
-	 * @param rh the region's height */
+	 * @param rx the region's corner's x-coordinate, in tiles
+	 * @param ry the region's corner's y-coordinate, in tiles
+	 * @param rw the region's width, in tiles
+	 * @param rh the region's height, in tiles */
 	public void draw(Batch batch, int x, int y, int rx, int ry, int rw, int rh);
 
 	/** Returns the number of tiles horizontally.
@@ -139,6 +143,32 @@ public interface Map extends Serializable {
 			//			}
 		}
 
+		/** Reads the <code>tileset</code> element <code>reader</code> is at, up to its end. */
+		public TileSet(XMLStreamReader reader) throws XMLStreamException {
+			if (reader.getAttributeValue(null, "source") != null) throw new XMLStreamException("External tile sets are not supported.", reader.getLocation());
+			name = reader.getAttributeValue(null, "name");
+			firstGID = Integer.parseInt(reader.getAttributeValue(null, "firstgid"));
+			tileWidth = Integer.parseInt(reader.getAttributeValue(null, "tilewidth"));
+			tileHeight = Integer.parseInt(reader.getAttributeValue(null, "tileheight"));
+			String spacing = reader.getAttributeValue(null, "spacing");
+			tileSpacing = spacing == null ? 0 : Integer.parseInt(spacing);
+			String margin = reader.getAttributeValue(null, "margin");
+			tileMargin = margin == null ? 0 : Integer.parseInt(margin);
+
+			for (int depth = 1; depth > 0;)
+				switch (reader.next()) {
+				case XMLStreamConstants.START_ELEMENT:
+					if (depth++ == 1 && reader.getLocalName().equals("image")) {
+						tilesAcross = Integer.parseInt(reader.getAttributeValue(null, "width")) / tileWidth;
+						tilesDown = Integer.parseInt(reader.getAttributeValue(null, "height")) / tileHeight;
+					}
+					break;
+				case XMLStreamConstants.END_ELEMENT:
+					depth--;
+					break;
+				}
+		}
+
 		public void draw(Batch batch, int x, int y, int gid) {
 			int id = gid - firstGID;
 			int sx = getTileX(id) * tileWidth;
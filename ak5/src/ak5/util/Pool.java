@@ -41,7 +41,7 @@ public abstract class Pool<T> {
 	 * {@link #newObject()}) or reused (previously {@link #free(Object) freed}).
 	 */
 	public T obtain() {
-		return freeObjects.size() == 0 ? newObject() : freeObjects.remove(freeObjects.size());
+		return freeObjects.size() == 0 ? newObject() : freeObjects.remove(freeObjects.size() - 1);
 	}
 
 	/**
@@ -0,0 +1,196 @@
+/**
+ * 
+ */
+package ak5.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import ak5.graphics.Batch;
+import ak5.graphics.Texture;
+
+/** Frame profiler keeping, for each named {@link Scope}, the time spent in it per frame over the last
+ * {@link #WINDOW} frames, from which percentiles are read. The loop phases (input, tick, draw, flush, display and the
+ * handlers of a {@link ak5.Group}, a scope per class) are instrumented already; user code may open scopes of its own:
+ * 
+ * <pre>
+ * private static final Profiler.Scope PATHFINDING = Profiler.scope(&quot;pathfinding&quot;);
+ * ...
+ * long start = PATHFINDING.begin();
+ * findPath();
+ * PATHFINDING.end(start);
+ * </pre>
+ * 
+ * Nothing is timed unless {@link #enabled}, which the system property <code>ak5.profile</code> turns on.
+ * 
+ * @author pwnedary */
+public class Profiler {
+	/** The number of frames kept per scope. */
+	public static final int WINDOW = 300;
+	/** Nanoseconds between refreshes of the percentiles. */
+	private static final long PERCENTILE_PERIOD = 1000000000;
+	/** Names of the instrumented loop phases. */
+	public static final String FRAME = "frame", INPUT = "input", TICK = "tick", DRAW = "draw", FLUSH = "flush", DISPLAY = "display";
+
+	/** Whether to record timings. */
+	public static boolean enabled = Boolean.getBoolean("ak5.profile");
+
+	private static final Map<Object, Scope> scopes = new ConcurrentHashMap<>();
+	private static final List<Scope> order = new CopyOnWriteArrayList<>();
+	private static final Scope frame = scope(FRAME);
+	private static long lastFrame;
+
+	private Profiler() {}
+
+	/** Returns the scope for <code>key</code>, creating it on first use. Strings are used as names as they are, classes
+	 * are named by their {@link Class#getName()}, other keys by their {@link Object#toString()}.
+	 * 
+	 * @param key the name or owner of the scope
+	 * @return the scope */
+	public static Scope scope(Object key) {
+		Scope scope = scopes.get(key);
+		if (scope == null) synchronized (scopes) {
+			if ((scope = scopes.get(key)) == null) {
+				scopes.put(key, scope = new Scope(key instanceof Class ? ((Class<?>) key).getName() : key.toString()));
+				order.add(scope);
+			}
+		}
+		return scope;
+	}
+
+	/** Ends the current frame, moving what each scope has accumulated into its window. Called by the loop after each
+	 * draw. */
+	public static void frame() {
+		if (!enabled) return;
+		long now = System.nanoTime();
+		if (lastFrame != 0) frame.record(now - lastFrame);
+		lastFrame = now;
+		for (int i = 0; i < order.size(); i++)
+			order.get(i).roll();
+	}
+
+	/** @return every scope, in order of creation */
+	public static List<Scope> getScopes() {
+		return new ArrayList<>(order);
+	}
+
+	/** Draws a line per scope with its last, median, 99th percentile and maximum time in milliseconds, beneath a bar
+	 * showing its last time relative to <code>budget</code>.
+	 * 
+	 * @param bar a texture stretched to draw the bars, e.g. a single white pixel
+	 * @param budget the frame time filling the whole bar, in nanoseconds
+	 * @param width the width of a full bar */
+	public static void draw(Batch batch, Font font, Texture bar, int x, int y, long budget, int width) {
+		StringBuilder builder = new StringBuilder();
+		int lineHeight = font.getHeight();
+		for (int i = 0; i < order.size(); i++) {
+			Scope scope = order.get(i);
+			builder.setLength(0);
+			builder.append(scope.name).append(": ");
+			appendMillis(builder, scope.getLast()).append(" p50 ");
+			appendMillis(builder, scope.getPercentile(0.5)).append(" p99 ");
+			appendMillis(builder, scope.getPercentile(0.99)).append(" max ");
+			appendMillis(builder, scope.getMax());
+			font.drawString(batch, builder.toString(), x, y);
+			y += lineHeight;
+			int length = (int) Math.min(width, width * scope.getLast() / Math.max(1, budget));
+			if (length > 0) batch.draw(bar, x, y, x + length, y + 2);
+			y += 4;
+		}
+	}
+
+	private static StringBuilder appendMillis(StringBuilder builder, long nanos) {
+		long hundredths = (nanos + 5000) / 10000;
+		builder.append(hundredths / 100).append('.');
+		if (hundredths % 100 < 10) builder.append('0');
+		return builder.append(hundredths % 100);
+	}
+
+	/** A named section of code whose time is accumulated per frame. Safe to record into from several threads. */
+	public static class Scope {
+		public final String name;
+		/** Time and calls accumulated during the current frame. */
+		private final AtomicLong time = new AtomicLong();
+		private final AtomicInteger calls = new AtomicInteger();
+		/** Ring buffer of the time per frame. */
+		private final long[] samples = new long[WINDOW];
+		private int next, size;
+		private long last;
+		private int lastCalls;
+		/** The window as last sorted for {@link #getPercentile(double)}. */
+		private final long[] sorted = new long[WINDOW];
+		private int sortedSize;
+		private long sortedTime;
+
+		Scope(String name) {
+			this.name = name;
+		}
+
+		/** @return the start time to pass to {@link #end(long)}, or <code>0</code> if not {@link Profiler#enabled} */
+		public long begin() {
+			return enabled ? System.nanoTime() : 0;
+		}
+
+		/** @param start as returned by {@link #begin()} */
+		public void end(long start) {
+			if (start != 0) record(System.nanoTime() - start);
+		}
+
+		/** Adds <code>nanos</code> to the time spent in this scope during the current frame. */
+		public void record(long nanos) {
+			time.addAndGet(nanos);
+			calls.incrementAndGet();
+		}
+
+		synchronized void roll() {
+			samples[next] = last = time.getAndSet(0);
+			lastCalls = calls.getAndSet(0);
+			next = (next + 1) % WINDOW;
+			if (size < WINDOW) size++;
+		}
+
+		/** @return the time spent during the last frame, in nanoseconds */
+		public synchronized long getLast() {
+			return last;
+		}
+
+		/** @return the number of times recorded during the last frame */
+		public synchronized int getCalls() {
+			return lastCalls;
+		}
+
+		/** Reads the window as sorted at most once a second, so that drawing the percentiles each frame stays cheap.
+		 * 
+		 * @param percentile in the range 0 - 1
+		 * @return the time per frame below which <code>percentile</code> of the window falls, in nanoseconds */
+		public synchronized long getPercentile(double percentile) {
+			long now = System.nanoTime();
+			if (sortedSize == 0 || now - sortedTime >= PERCENTILE_PERIOD) {
+				if (size == 0) return 0;
+				System.arraycopy(samples, 0, sorted, 0, sortedSize = size);
+				Arrays.sort(sorted, 0, sortedSize);
+				sortedTime = now;
+			}
+			return sorted[Math.max(0, (int) Math.ceil(percentile * sortedSize) - 1)];
+		}
+
+		/** @return the longest time per frame within the window, in nanoseconds */
+		public synchronized long getMax() {
+			long max = 0;
+			for (int i = 0; i < size; i++)
+				max = Math.max(max, samples[i]);
+			return max;
+		}
+
+		@Override
+		public String toString() {
+			return name;
+		}
+	}
+}
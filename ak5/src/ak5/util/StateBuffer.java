@@ -0,0 +1,61 @@
+/**
+ * 
+ */
+package ak5.util;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/** A lock-free triple buffer handing state over from one writing thread to one reading thread, e.g. from simulation to
+ * rendering. The writer fills {@link #write()} and {@link #publish() publishes} it; the reader always {@link #read()
+ * reads} the latest published state. Neither side ever waits for the other, and neither sees the state the other is
+ * working on.
+ * 
+ * @author pwnedary */
+public abstract class StateBuffer<T> {
+	/** Set on the shared index when it holds a state the reader hasn't taken yet. */
+	private static final int DIRTY = 4;
+
+	private final Object[] states = new Object[3];
+	/** The state owned by the writer. */
+	private int back = 0;
+	/** The state owned by the reader. */
+	private int front = 1;
+	/** The state in between, with the {@link #DIRTY} bit. */
+	private final AtomicInteger middle = new AtomicInteger(2);
+
+	public StateBuffer() {
+		for (int i = 0; i < states.length; i++)
+			states[i] = newObject();
+	}
+
+	protected abstract T newObject();
+
+	/** Returns the state the writer should fill. It may hold stale data from two publishes ago.
+	 * 
+	 * @return the writer's state */
+	@SuppressWarnings("unchecked")
+	public T write() {
+		return (T) states[back];
+	}
+
+	/** Makes the state returned by {@link #write()} the latest for the reader, and gives the writer a new one. */
+	public void publish() {
+		back = middle.getAndSet(back | DIRTY) & ~DIRTY;
+	}
+
+	/** Returns the latest published state, which stays untouched until the next call.
+	 * 
+	 * @return the reader's state */
+	@SuppressWarnings("unchecked")
+	public T read() {
+		if ((middle.get() & DIRTY) != 0) front = middle.getAndSet(front) & ~DIRTY;
+		return (T) states[front];
+	}
+
+	/** Returns whether something has been published since the last {@link #read()}.
+	 * 
+	 * @return whether there is newer state */
+	public boolean hasUpdate() {
+		return (middle.get() & DIRTY) != 0;
+	}
+}
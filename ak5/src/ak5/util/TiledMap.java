@@ -3,26 +3,41 @@
  */
 package ak5.util;
 
-import java.io.ByteArrayInputStream;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Properties;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.Checksum;
 import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-import org.xml.sax.SAXException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 import ak5.Platform;
 import ak5.graphics.Batch;
+import ak5.graphics.Color;
+import ak5.graphics.QuadBatch;
+import ak5.graphics.SpriteCache;
+import ak5.graphics.Texture;
 
 /** A map intended to parse TileED maps. Maps can be loaded with {@link FileLoader#load(String)}.
  * 
@@ -52,101 +67,76 @@ public class TiledMap implements Map {
 	/** The list of object-groups defined in the map */
 	public final List<ObjectGroup> objectGroups;
 
-	public TiledMap(Platform platform, File file) {
-		try {
-			DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-			factory.setValidating(false);
-			DocumentBuilder builder = factory.newDocumentBuilder();
-			Document doc = builder.parse(platform.getResourceAsStream(file.getPath()));
-			Element root = doc.getDocumentElement();
-
-			width = Integer.parseInt(root.getAttribute("width"));
-			height = Integer.parseInt(root.getAttribute("height"));
-			tileWidth = Integer.parseInt(root.getAttribute("tilewidth"));
-			tileHeight = Integer.parseInt(root.getAttribute("tileheight"));
-			orientation = root.getAttribute("orientation").equals("orthogonal") ? TiledMap.ORTHOGONAL : TiledMap.ISOMETRIC;
-			String mapLocation = file.getParent();
-
-			properties = new Properties(); // now read the map properties
-			Element propsElement = (Element) root.getElementsByTagName("properties").item(0);
-			if (propsElement != null) {
-				NodeList props = propsElement.getElementsByTagName("property");
-				if (props != null) for (int p = 0; p < props.getLength(); p++) {
-					Element propElement = (Element) props.item(p);
-
-					String name = propElement.getAttribute("name");
-					String value = propElement.getAttribute("value");
-					properties.setProperty(name, value);
-				}
-			}
+	/** The number of floats per quad, as {@link QuadBatch} takes them. */
+	private static final int QUAD_SIZE = 4 * 5;
+	/** How many chunks around the region drawn keep their quads, so that scrolling back and forth does not build them
+	 * anew every time. */
+	private static final int CHUNK_MARGIN = 1;
+	/** The quads of each chunk of each layer, built as they are first drawn and dropped once out of the region. */
+	private transient TileChunk[][] tileChunks;
+	/** The chunks with quads, to be dropped. */
+	private transient List<TileChunk> builtChunks;
+	/** The images of the tile sets the quads were built with. */
+	private transient Texture[] chunkImages;
 
-			// acquire tile-sets
-			tileSets = new ArrayList<TileSet>();
-			TileSet lastSet = null;
-			NodeList setNodes = root.getElementsByTagName("tileset");
-			for (int i = 0; i < setNodes.getLength(); i++) {
-				Element element = (Element) setNodes.item(i);
-				TileSet tileSet = new TileSet(platform, element, mapLocation);
-				tileSet.index = i;
-				if (lastSet != null) lastSet.lastGID = tileSet.firstGID - 1;
-				lastSet = tileSet;
-				tileSets.add(tileSet);
-			}
+	public TiledMap(Platform platform, File file) {
+		this(platform, file, null);
+	}
 
-			// acquire layers
-			layers = new ArrayList<Layer>();
-			NodeList layerNodes = root.getElementsByTagName("layer");
-			for (int i = 0; i < layerNodes.getLength(); i++) {
-				Element element = (Element) layerNodes.item(i);
-				Layer layer = new TiledMap.Layer(element);
-				layer.index = i;
-				Element dataNode = (Element) element.getElementsByTagName("data").item(0);
-
-				String encoding = dataNode.getAttribute("encoding");
-				String compression = dataNode.getAttribute("compression");
-				if (encoding.equals("base64") && compression.equals("gzip")) {
-					try {
-						Node cdata = dataNode.getFirstChild();
-						char[] enc = cdata.getNodeValue().trim().toCharArray();
-						byte[] dec = decodeBase64(enc);
-						GZIPInputStream is = new GZIPInputStream(new ByteArrayInputStream(dec));
-
-						for (int y = 0; y < height; y++)
-							for (int x = 0; x < width; x++) {
-								int tileId = 0;
-								tileId |= is.read();
-								tileId |= is.read() << 8;
-								tileId |= is.read() << 16;
-								tileId |= is.read() << 24;
-
-								layer.data[x][y] = tileId;
-							}
-					} catch (IOException e) {
-						throw new RuntimeException("Unable to decode base 64 block");
-					}
-				} else throw new RuntimeException("unsupport tiled map type: " + encoding + "," + compression + " (only gzip base64 supported)");
-				layers.add(layer);
-			}
+	/** Reads the map <code>file</code> at once.
+	 * 
+	 * @param cache where to keep the tiles of the layers, see {@link #load(Platform, File, File)}, or
+	 *            <code>null</code> */
+	public TiledMap(Platform platform, File file, File cache) {
+		this(open(platform, file, cache), true);
+	}
 
-			// acquire object-groups
-			objectGroups = new ArrayList<ObjectGroup>();
-			NodeList objectGroupNodes = root.getElementsByTagName("objectgroup");
-			for (int i = 0; i < objectGroupNodes.getLength(); i++) {
-				ObjectGroup objectGroup = new TiledMap.ObjectGroup((Element) objectGroupNodes.item(i));
-				objectGroup.index = i;
+	/** @param complete whether to read the rest of the map from <code>loading</code> */
+	private TiledMap(Loading loading, boolean complete) {
+		width = loading.width;
+		height = loading.height;
+		tileWidth = loading.tileWidth;
+		tileHeight = loading.tileHeight;
+		orientation = loading.orientation;
+		properties = new Properties();
+		tileSets = new ArrayList<>();
+		layers = new ArrayList<>();
+		objectGroups = new ArrayList<>();
+		loading.map = this;
+		if (complete) try (Loading l = loading) {
+			while (l.step())
+				;
+		} catch (IOException e) {
+			throw new IllegalArgumentException("Invalid map file.", e);
+		}
+	}
 
-				objectGroups.add(objectGroup);
-			}
-		} catch (IOException | ParserConfigurationException | SAXException e) {
-			throw new Error("couldn't parse map");
+	private static Loading open(Platform platform, File file, File cache) {
+		try {
+			return new Loading(platform, file, cache);
+		} catch (IOException e) {
+			throw new IllegalArgumentException("Invalid map file.", e);
 		}
 	}
 
+	/** Starts reading the map <code>file</code>, to be read by {@link Loading#step()} an element at a time, e.g. a
+	 * layer per frame or off the GL thread.
+	 * <p>
+	 * The tiles of the layers are kept in <code>cache</code>, written when the map has been read and mapped from then
+	 * on, so that they take no heap and are only read from disk when used. A cache is used as long as the map file
+	 * has the same checksum as when it was written; the layers are read from the map otherwise.
+	 * 
+	 * @param cache where to keep the tiles of the layers, or <code>null</code> to keep them in the heap */
+	public static Loading load(Platform platform, File file, File cache) throws IOException {
+		Loading loading = new Loading(platform, file, cache);
+		new TiledMap(loading, false);
+		return loading;
+	}
+
 	public TiledMap(int tileWidth, int tileHeight, List<TileSet> tileSets, List<Layer> layers, List<ObjectGroup> objectGroups, int orientation, Properties properties) {
 		for (Layer layer : layers) {
-			int[][] data = layer.data;
-			width = data.length > width ? data.length : width;
-			height = data[0].length > height ? data[0].length : height;
+			width = layer.width > width ? layer.width : width;
+			height = layer.height > height ? layer.height : height;
 		}
 		this.tileWidth = tileWidth;
 		this.tileHeight = tileHeight;
@@ -160,34 +150,240 @@ public class TiledMap implements Map {
 	@Override
 	public void draw(Batch batch, int x, int y, int sx, int sy, int layer) {
 		int gid = getTileID(sx, sy, layer);
-		getTileSetByGID(gid).draw(batch, gid, x, y);
+		TileSet set = gid == 0 ? null : getTileSetByGID(gid);
+		if (set != null) set.draw(batch, x, y, gid);
 	}
 
+	/** Draws the region layer by layer, with tile <code>(rx,ry)</code> at <code>(x,y)</code>.
+	 * <p>
+	 * With a {@link QuadBatch}, the quads of each layer are built in chunks of {@link Layer#CHUNK_SIZE} tiles square,
+	 * grouped by tile set, as they are first drawn and again only once their tiles change. Only the chunks overlapping
+	 * the region are drawn, each tile set of a layer at once, so that a frame costs as much as the region regardless of
+	 * the size of the map. Chunks on the edge of the region are drawn a row at a time, clipped to it as the tiles are
+	 * with other batches. Chunks more than
+	 * {@value #CHUNK_MARGIN} away from the region are dropped, so that the quads kept follow the region too. */
 	@Override
 	public void draw(Batch batch, int x, int y, int rx, int ry, int rw, int rh) {
-		for (int tileSet = 0; tileSet < tileSets.size(); tileSet++) {
-			TileSet set = tileSets.get(tileSet);
-
-			if (orientation == ORTHOGONAL) for (int layer = 0; layer < layers.size(); layer++) {
-				int[][] data = layers.get(layer).data;
-				for (int tx = rx; tx < data.length; tx++)
-					for (int ty = ry; ty < data[0].length; ty++) {
-						int gid = data[tx][ty];
-						if (gid >= set.firstGID && gid <= set.lastGID) set.draw(batch, gid, tx * tileWidth, ty * tileHeight);
+		if (orientation == ISOMETRIC) throw new UnsupportedOperationException();
+		if (batch instanceof QuadBatch) {
+			checkImages();
+			drawChunks((QuadBatch) batch, x, y, rx, ry, rw, rh);
+			return;
+		}
+		for (int layer = 0; layer < layers.size(); layer++) {
+			Layer data = layers.get(layer);
+			for (int ty = Math.max(ry, 0); ty < Math.min(ry + rh, data.height); ty++)
+				for (int tx = Math.max(rx, 0); tx < Math.min(rx + rw, data.width); tx++) {
+					int gid = data.getTile(tx, ty);
+					TileSet set = gid == 0 ? null : getTileSetByGID(gid);
+					if (set != null) set.draw(batch, x + (tx - rx) * tileWidth, y + (ty - ry) * tileHeight, gid);
+				}
+		}
+	}
+
+	/** Drops the quads if the images of the tile sets have changed since they were built. */
+	private void checkImages() {
+		if (chunkImages == null || chunkImages.length != tileSets.size()) chunkImages = new Texture[tileSets.size()];
+		boolean changed = false;
+		for (int set = 0; set < tileSets.size(); set++) {
+			final Texture image = tileSets.get(set).image;
+			if (image != chunkImages[set]) changed = true;
+			chunkImages[set] = image;
+		}
+		if (changed || tileChunks == null || tileChunks.length != layers.size()) {
+			tileChunks = new TileChunk[layers.size()][];
+			builtChunks = new ArrayList<>();
+		}
+	}
+
+	private void drawChunks(QuadBatch batch, int x, int y, int rx, int ry, int rw, int rh) {
+		final float dx = x - rx * tileWidth, dy = y - ry * tileHeight, color = batch.getColor().toFloatBits();
+		for (int layer = 0; layer < layers.size(); layer++) {
+			final Layer data = layers.get(layer);
+			if (tileChunks[layer] == null || tileChunks[layer].length != data.chunks.length) tileChunks[layer] = new TileChunk[data.chunks.length];
+			final TileChunk[] chunks = tileChunks[layer];
+			final int right = Math.min(rx + rw, data.width), bottom = Math.min(ry + rh, data.height);
+			final int x1 = Math.max(rx, 0) >> Layer.CHUNK_SHIFT, x2 = right - 1 >> Layer.CHUNK_SHIFT;
+			final int y1 = Math.max(ry, 0) >> Layer.CHUNK_SHIFT, y2 = bottom - 1 >> Layer.CHUNK_SHIFT;
+
+			// Bring the visible chunks up to date, then draw them a tile set at a time
+			for (int cy = y1; cy <= y2; cy++)
+				for (int cx = x1; cx <= x2; cx++) {
+					final int index = cy * data.chunksAcross + cx;
+					TileChunk chunk = chunks[index];
+					if (chunk == null || chunk.revision != data.revisions[index]) {
+						chunks[index] = chunk = build(data, layer, index);
+						builtChunks.add(chunk);
 					}
+					chunk.moveTo(dx, dy, color);
+				}
+			for (int set = 0; set < tileSets.size(); set++)
+				for (int cy = y1; cy <= y2; cy++)
+					for (int cx = x1; cx <= x2; cx++) {
+						final int left = cx << Layer.CHUNK_SHIFT, top = cy << Layer.CHUNK_SHIFT;
+						chunks[cy * data.chunksAcross + cx].draw(batch, chunkImages[set], set, Math.max(rx - left, 0), Math.max(ry - top, 0), //
+								right == data.width ? Layer.CHUNK_SIZE : Math.min(right - left, Layer.CHUNK_SIZE), bottom == data.height ? Layer.CHUNK_SIZE : Math.min(bottom - top, Layer.CHUNK_SIZE));
+					}
+		}
+
+		// Drop the chunks away from the region, and those built anew
+		final int left = (Math.max(rx, 0) >> Layer.CHUNK_SHIFT) - CHUNK_MARGIN, right = (rx + rw - 1 >> Layer.CHUNK_SHIFT) + CHUNK_MARGIN;
+		final int top = (Math.max(ry, 0) >> Layer.CHUNK_SHIFT) - CHUNK_MARGIN, bottom = (ry + rh - 1 >> Layer.CHUNK_SHIFT) + CHUNK_MARGIN;
+		for (int i = builtChunks.size() - 1; i >= 0; i--) {
+			final TileChunk chunk = builtChunks.get(i);
+			final TileChunk[] chunks = tileChunks[chunk.layer];
+			final int chunksAcross = layers.get(chunk.layer).chunksAcross, cx = chunk.index % chunksAcross, cy = chunk.index / chunksAcross;
+			final boolean current = chunks != null && chunk.index < chunks.length && chunks[chunk.index] == chunk;
+			if (current && cx >= left && cx <= right && cy >= top && cy <= bottom) continue;
+			if (current) chunks[chunk.index] = null;
+			builtChunks.set(i, builtChunks.get(builtChunks.size() - 1));
+			builtChunks.remove(builtChunks.size() - 1);
+		}
+	}
+
+	/** @return the number of chunks with quads kept */
+	public int getBuiltChunkCount() {
+		return builtChunks == null ? 0 : builtChunks.size();
+	}
+
+	/** Builds the quads of chunk <code>index</code> of <code>layer</code>, as {@link TileSet#draw} draws each tile with
+	 * the tile at <code>(0,0)</code> at <code>(0,0)</code>, grouped by tile set and then by row. */
+	private TileChunk build(Layer layer, int layerIndex, int index) {
+		final int left = index % layer.chunksAcross << Layer.CHUNK_SHIFT, top = index / layer.chunksAcross << Layer.CHUNK_SHIFT;
+		final int right = Math.min(left + Layer.CHUNK_SIZE, layer.width), bottom = Math.min(top + Layer.CHUNK_SIZE, layer.height);
+		final TileChunk chunk = new TileChunk(layerIndex, index, layer.revisions[index], tileSets.size());
+		final int[] starts = chunk.rowStarts;
+		if (layer.chunks[index] != null) {
+			for (int ty = top; ty < bottom; ty++)
+				for (int tx = left; tx < right; tx++) {
+					final int set = tileSetIndex(layer.getTile(tx, ty));
+					if (set != -1) starts[set * Layer.CHUNK_SIZE + ty - top + 1]++;
+				}
+		}
+		for (int row = 1; row < starts.length; row++)
+			starts[row] += starts[row - 1];
+		chunk.vertices = new float[starts[starts.length - 1] * QUAD_SIZE];
+		chunk.columns = new byte[starts[starts.length - 1]];
+		if (chunk.vertices.length == 0) return chunk;
+
+		final int[] next = Arrays.copyOf(starts, starts.length - 1);
+		for (int ty = top; ty < bottom; ty++)
+			for (int tx = left; tx < right; tx++) {
+				final int gid = layer.getTile(tx, ty), set = tileSetIndex(gid);
+				if (set == -1) continue;
+				final int quad = next[set * Layer.CHUNK_SIZE + ty - top]++;
+				chunk.columns[quad] = (byte) (tx - left);
+				chunk.quad(quad * QUAD_SIZE, tileSets.get(set), gid, tx * tileWidth, ty * tileHeight);
+			}
+		return chunk;
+	}
+
+	/** @return the index of the tile set of <code>gid</code> if it has an image, <code>-1</code> otherwise */
+	private int tileSetIndex(int gid) {
+		if (gid == 0) return -1;
+		for (int set = 0; set < tileSets.size(); set++)
+			if (tileSets.get(set).contains(gid)) return tileSets.get(set).image == null ? -1 : set;
+		return -1;
+	}
+
+	/** The quads of the tiles of a chunk of a layer, grouped by tile set and then by row. */
+	private static class TileChunk {
+		/** The layer and the chunk of it, and the revision of the chunk the quads were built from. */
+		final int layer, index, revision;
+		float[] vertices;
+		/** Where the quads of each row of each tile set start, the last entry being the number of quads. */
+		final int[] rowStarts;
+		/** The column of each quad within the chunk. */
+		byte[] columns;
+		/** How far the quads have been moved from where they were built, and their color. */
+		private float x, y, color = Color.WHITE.toFloatBits();
+
+		TileChunk(int layer, int index, int revision, int tileSets) {
+			this.layer = layer;
+			this.index = index;
+			this.revision = revision;
+			rowStarts = new int[tileSets * Layer.CHUNK_SIZE + 1];
+		}
+
+		/** Draws the quads of tile set <code>set</code> within columns <code>c1</code> to <code>c2</code> and rows
+		 * <code>r1</code> to <code>r2</code>, exclusive, of the chunk; in one go if that is all of it, otherwise a
+		 * row at a time. */
+		void draw(QuadBatch batch, Texture image, int set, int c1, int r1, int c2, int r2) {
+			final int[] starts = rowStarts;
+			final int first = set * Layer.CHUNK_SIZE;
+			if (c1 == 0 && r1 == 0 && c2 == Layer.CHUNK_SIZE && r2 == Layer.CHUNK_SIZE) {
+				final int start = starts[first], end = starts[first + Layer.CHUNK_SIZE];
+				if (end > start) batch.draw(image, vertices, start * QUAD_SIZE, (end - start) * QUAD_SIZE);
+				return;
+			}
+			for (int row = r1; row < r2; row++) {
+				int start = starts[first + row], end = starts[first + row + 1];
+				while (start < end && columns[start] < c1)
+					start++;
+				while (end > start && columns[end - 1] >= c2)
+					end--;
+				if (end > start) batch.draw(image, vertices, start * QUAD_SIZE, (end - start) * QUAD_SIZE);
+			}
+		}
+
+		/** Writes the quad of <code>gid</code> at <code>offset</code>, as
+		 * {@link QuadBatch#draw(Texture, float, float, float, float, float, float, float, float)} does. */
+		void quad(int offset, TileSet set, int gid, float x1, float y1) {
+			final Texture image = set.image;
+			final int id = gid - set.firstGID, sx = set.getTileX(id) * set.tileWidth, sy = set.getTileY(id) * set.tileHeight;
+			final float x2 = x1 + set.tileWidth, y2 = y1 + set.tileHeight;
+			final float u = (float) sx / image.getTexWidth() + image.getU(), u2 = (float) (sx + set.tileWidth) / image.getTexWidth() + image.getU();
+			final float v = (float) sy / image.getTexHeight() + image.getV(), v2 = (float) (sy + set.tileHeight) / image.getTexHeight() + image.getV();
+			final float[] vertices = this.vertices;
+			vertices[offset] = x1;
+			vertices[offset + 1] = y1;
+			vertices[offset + 2] = color;
+			vertices[offset + 3] = u;
+			vertices[offset + 4] = v;
+			vertices[offset + 5] = x1;
+			vertices[offset + 6] = y2;
+			vertices[offset + 7] = color;
+			vertices[offset + 8] = u;
+			vertices[offset + 9] = v2;
+			vertices[offset + 10] = x2;
+			vertices[offset + 11] = y2;
+			vertices[offset + 12] = color;
+			vertices[offset + 13] = u2;
+			vertices[offset + 14] = v2;
+			vertices[offset + 15] = x2;
+			vertices[offset + 16] = y1;
+			vertices[offset + 17] = color;
+			vertices[offset + 18] = u2;
+			vertices[offset + 19] = v;
+		}
+
+		/** Moves and tints the quads in place, if they are elsewhere or tinted otherwise. */
+		void moveTo(float x, float y, float color) {
+			final float dx = x - this.x, dy = y - this.y;
+			if (dx != 0 || dy != 0) {
+				for (int i = 0; i < vertices.length; i += 5) {
+					vertices[i] += dx;
+					vertices[i + 1] += dy;
+				}
+				this.x = x;
+				this.y = y;
+			}
+			if (color != this.color) {
+				for (int i = 2; i < vertices.length; i += 5)
+					vertices[i] = color;
+				this.color = color;
 			}
-			else if (orientation == ISOMETRIC) throw new UnsupportedOperationException();
 		}
 	}
 
 	@Override
 	public int getTileID(int x, int y, int layer) {
-		return layers.get(layer).data[x][y];
+		return layers.get(layer).getTile(x, y);
 	}
 
 	@Override
 	public void setTileID(int x, int y, int layer, int tile) {
-		layers.get(layer).data[x][y] = tile;
+		layers.get(layer).setTile(x, y, tile);
 	}
 
 	/** Get a tileset by a given global ID
@@ -196,7 +392,7 @@ public class TiledMap implements Map {
 	 * @return The tileset requested or null if no tileset matches */
 	public TileSet getTileSetByGID(int gid) {
 		for (int i = 0; i < tileSets.size(); i++) {
-			TileSet set = (TileSet) tileSets.get(i);
+			TileSet set = tileSets.get(i);
 			if (set.contains(gid)) return set;
 		}
 		return null;
@@ -206,42 +402,170 @@ public class TiledMap implements Map {
 		return layers.get(layer);
 	}
 
+	/** Records <code>layer</code> into <code>cache</code>, in chunks of <code>chunkSize</code> by
+	 * <code>chunkSize</code> tiles.
+	 * 
+	 * @return the cached layer, to draw and edit it through */
+	public CachedLayer cache(SpriteCache cache, int layer, int chunkSize) {
+		return new CachedLayer(cache, layer, chunkSize);
+	}
+
+	/** A layer kept in a {@link SpriteCache}, in square chunks so that changing a tile through
+	 * {@link #setTileID(int, int, int)} only records its own chunk anew. Each chunk has room for the tiles it had when
+	 * first recorded; one that grows past that moves to a spare cache left by another chunk if one is large enough, or
+	 * to a new one with twice the room, up to the whole chunk. */
+	public class CachedLayer {
+		private final SpriteCache cache;
+		private final int layer;
+		private final int chunkSize, chunksAcross, chunksDown;
+		/** The cache id of each chunk, and the number of tiles it has room for. */
+		private final int[] chunks, capacities;
+		private final boolean[] dirty;
+		private boolean anyDirty;
+		/** Caches left by chunks that outgrew them, as <code>{id, capacity}</code>. */
+		private final List<int[]> spare = new ArrayList<>();
+
+		private CachedLayer(SpriteCache cache, int layer, int chunkSize) {
+			this.cache = cache;
+			this.layer = layer;
+			this.chunkSize = chunkSize;
+			Layer data = layers.get(layer);
+			chunksAcross = (data.width + chunkSize - 1) / chunkSize;
+			chunksDown = (data.height + chunkSize - 1) / chunkSize;
+			chunks = new int[chunksAcross * chunksDown];
+			capacities = new int[chunks.length];
+			dirty = new boolean[chunks.length];
+			for (int chunk = 0; chunk < chunks.length; chunk++)
+				recordNew(chunk, record(chunk, null));
+		}
+
+		/** Records <code>chunk</code> into a new cache with room for <code>capacity</code> tiles. */
+		private void recordNew(int chunk, int capacity) {
+			capacities[chunk] = capacity;
+			cache.beginCache();
+			record(chunk, cache);
+			chunks[chunk] = cache.endCache(capacity);
+		}
+
+		/** Records <code>chunk</code> anew, moving it to a spare or new cache if it has outgrown its own. */
+		private void recordAgain(int chunk) {
+			int tiles = record(chunk, null);
+			if (tiles > capacities[chunk]) {
+				if (capacities[chunk] > 0) spare.add(new int[] { chunks[chunk], capacities[chunk] });
+				int best = -1;
+				for (int i = 0; i < spare.size(); i++)
+					if (spare.get(i)[1] >= tiles && (best == -1 || spare.get(i)[1] < spare.get(best)[1])) best = i;
+				if (best == -1) {
+					Layer data = layers.get(layer);
+					int cx = chunk % chunksAcross * chunkSize, cy = chunk / chunksAcross * chunkSize;
+					int area = Math.min(chunkSize, data.width - cx) * Math.min(chunkSize, data.height - cy);
+					recordNew(chunk, Math.min(area, Math.max(tiles, capacities[chunk] * 2)));
+					return;
+				}
+				int[] reused = spare.remove(best);
+				chunks[chunk] = reused[0];
+				capacities[chunk] = reused[1];
+			}
+			cache.beginCache(chunks[chunk]);
+			record(chunk, cache);
+			cache.endCache();
+		}
+
+		/** Draws the tiles of <code>chunk</code> to <code>batch</code>, if not <code>null</code>.
+		 * 
+		 * @return the number of tiles */
+		private int record(int chunk, Batch batch) {
+			Layer data = layers.get(layer);
+			int cx = chunk % chunksAcross * chunkSize, cy = chunk / chunksAcross * chunkSize, tiles = 0;
+			for (int tx = cx; tx < Math.min(cx + chunkSize, data.width); tx++)
+				for (int ty = cy; ty < Math.min(cy + chunkSize, data.height); ty++) {
+					int gid = data.getTile(tx, ty);
+					TileSet set = gid == 0 ? null : getTileSetByGID(gid);
+					if (set == null) continue;
+					if (batch != null) set.draw(batch, tx * tileWidth, ty * tileHeight, gid);
+					tiles++;
+				}
+			return tiles;
+		}
+
+		public void setTileID(int x, int y, int tile) {
+			TiledMap.this.setTileID(x, y, layer, tile);
+			dirty[y / chunkSize * chunksAcross + x / chunkSize] = anyDirty = true;
+		}
+
+		/** Records changed chunks anew and draws every chunk, moved by the cache's <code>transformMatrix</code>. */
+		public void draw() {
+			if (anyDirty) {
+				for (int chunk = 0; chunk < chunks.length; chunk++)
+					if (dirty[chunk]) {
+						recordAgain(chunk);
+						dirty[chunk] = false;
+					}
+				anyDirty = false;
+			}
+			cache.begin();
+			for (int chunk = 0; chunk < chunks.length; chunk++)
+				cache.draw(chunks[chunk]);
+			cache.end();
+		}
+	}
+
 	public static class Layer {
+		/** The size of the square chunks the tiles are kept in, row by row. */
+		public static final int CHUNK_SIZE = 32;
+		private static final int CHUNK_SHIFT = 5;
+
 		/** The index of this layer */
 		public int index;
 		/** The name of this layer - read from the XML */
 		public String name;
-		/** The tile data representing this data. */
-		public int[][] data;
 		/** The width of this layer */
-		public int width;
+		public final int width;
 		/** The height of this layer */
-		public int height;
+		public final int height;
 
 		/** the properties of this layer */
 		public Properties props;
 
-		private Layer(Element element) {
-			name = element.getAttribute("name");
-			width = Integer.parseInt(element.getAttribute("width"));
-			height = Integer.parseInt(element.getAttribute("height"));
-			data = new int[width][height];
-
-			// now read the layer properties
-			Element propsElement = (Element) element.getElementsByTagName("properties").item(0);
-			if (propsElement != null) {
-				NodeList properties = propsElement.getElementsByTagName("property");
-				if (properties != null) {
-					props = new Properties();
-					for (int p = 0; p < properties.getLength(); p++) {
-						Element propElement = (Element) properties.item(p);
-
-						String name = propElement.getAttribute("name");
-						String value = propElement.getAttribute("value");
-						props.setProperty(name, value);
-					}
-				}
+		/** The tiles of each chunk, <code>null</code> where all are empty and read-only while mapped from a cache. */
+		private final IntBuffer[] chunks;
+		private final int chunksAcross;
+		/** How many times the tiles of each chunk have been set. */
+		private final int[] revisions;
+
+		private Layer(String name, int width, int height) {
+			this.name = name;
+			this.width = width;
+			this.height = height;
+			chunksAcross = (width + CHUNK_SIZE - 1) >> CHUNK_SHIFT;
+			chunks = new IntBuffer[chunksAcross * ((height + CHUNK_SIZE - 1) >> CHUNK_SHIFT)];
+			revisions = new int[chunks.length];
+		}
+
+		/** @return the global id of the tile at <code>(x,y)</code>, <code>0</code> if empty */
+		public int getTile(int x, int y) {
+			final IntBuffer chunk = chunks[(y >> CHUNK_SHIFT) * chunksAcross + (x >> CHUNK_SHIFT)];
+			return chunk == null ? 0 : chunk.get((y & CHUNK_SIZE - 1) << CHUNK_SHIFT | x & CHUNK_SIZE - 1);
+		}
+
+		/** Sets the tile at <code>(x,y)</code>, copying its chunk to the heap if it is mapped from a cache. */
+		public void setTile(int x, int y, int gid) {
+			final int index = (y >> CHUNK_SHIFT) * chunksAcross + (x >> CHUNK_SHIFT);
+			IntBuffer chunk = chunks[index];
+			if (chunk == null) {
+				if (gid == 0) return;
+				chunks[index] = chunk = IntBuffer.allocate(CHUNK_SIZE * CHUNK_SIZE);
+			} else if (chunk.isReadOnly()) {
+				chunks[index] = IntBuffer.allocate(CHUNK_SIZE * CHUNK_SIZE).put(chunk);
+				chunk = chunks[index];
 			}
+			chunk.put((y & CHUNK_SIZE - 1) << CHUNK_SHIFT | x & CHUNK_SIZE - 1, gid);
+			revisions[index]++;
+		}
+
+		/** Sets the tile at <code>index</code>, counting row by row, ignoring empty tiles and those past the end. */
+		private void setTile(int index, int gid) {
+			if (gid != 0 && index < width * height) setTile(index % width, index / width, gid);
 		}
 	}
 
@@ -265,37 +589,20 @@ public class TiledMap implements Map {
 
 		/** Create a new group based on the XML definition
 		 * 
-		 * @param element The XML element describing the layer
-		 * @throws SlickException Indicates a failure to parse the XML group */
-		private ObjectGroup(Element element) {
-			name = element.getAttribute("name");
-			width = Integer.parseInt(element.getAttribute("width"));
-			height = Integer.parseInt(element.getAttribute("height"));
+		 * @param reader at the XML element describing the group, read up to its end */
+		private ObjectGroup(XMLStreamReader reader) throws XMLStreamException {
+			name = reader.getAttributeValue(null, "name");
+			width = intAttribute(reader, "width");
+			height = intAttribute(reader, "height");
 			objects = new ArrayList<GroupObject>();
 
-			// now read the layer properties
-			Element propsElement = (Element) element.getElementsByTagName("properties").item(0);
-			if (propsElement != null) {
-				NodeList properties = propsElement.getElementsByTagName("property");
-				if (properties != null) {
-					props = new Properties();
-					for (int p = 0; p < properties.getLength(); p++) {
-						Element propElement = (Element) properties.item(p);
-
-						String name = propElement.getAttribute("name");
-						String value = propElement.getAttribute("value");
-						props.setProperty(name, value);
-					}
-				}
-			}
-
-			NodeList objectNodes = element.getElementsByTagName("object");
-			for (int i = 0; i < objectNodes.getLength(); i++) {
-				Element objElement = (Element) objectNodes.item(i);
-				GroupObject object = new GroupObject(objElement);
-				object.index = i;
-				objects.add(object);
-			}
+			while (nextChild(reader))
+				if (reader.getLocalName().equals("properties")) props = readProperties(reader, new Properties());
+				else if (reader.getLocalName().equals("object")) {
+					GroupObject object = new GroupObject(reader);
+					object.index = objects.size();
+					objects.add(object);
+				} else skipElement(reader);
 		}
 	}
 
@@ -323,80 +630,422 @@ public class TiledMap implements Map {
 		/** the properties of this group */
 		public Properties props;
 
-		/** Create a new group based on the XML definition
+		/** Create a new object based on the XML definition
 		 * 
-		 * @param element The XML element describing the layer
-		 * @throws SlickException Indicates a failure to parse the XML group */
-		private GroupObject(Element element) {
-			name = element.getAttribute("name");
-			type = element.getAttribute("type");
-			x = Integer.parseInt(element.getAttribute("x"));
-			y = Integer.parseInt(element.getAttribute("y"));
-			width = Integer.parseInt(element.getAttribute("width"));
-			height = Integer.parseInt(element.getAttribute("height"));
-
-			Element imageElement = (Element) element.getElementsByTagName("image").item(0);
-			if (imageElement != null) {
-				image = imageElement.getAttribute("source");
+		 * @param reader at the XML element describing the object, read up to its end */
+		private GroupObject(XMLStreamReader reader) throws XMLStreamException {
+			name = reader.getAttributeValue(null, "name");
+			type = reader.getAttributeValue(null, "type");
+			x = intAttribute(reader, "x");
+			y = intAttribute(reader, "y");
+			width = intAttribute(reader, "width");
+			height = intAttribute(reader, "height");
+
+			while (nextChild(reader)) {
+				if (reader.getLocalName().equals("image")) image = reader.getAttributeValue(null, "source");
+				else if (reader.getLocalName().equals("properties")) {
+					props = readProperties(reader, new Properties());
+					continue;
+				}
+				skipElement(reader);
+			}
+		}
+	}
+
+	/** A map being read, an element at a time. */
+	public static class Loading implements Closeable {
+		/** Starts a cache: <code>"AK5M"</code>. */
+		private static final int CACHE_MAGIC = 0x414B354D;
+		private static final int CACHE_VERSION = 1;
+		/** The bytes of a chunk in a cache. */
+		private static final int CHUNK_BYTES = Layer.CHUNK_SIZE * Layer.CHUNK_SIZE * 4;
+
+		private final InputStream in;
+		private final XMLStreamReader reader;
+		private final File cache;
+		/** The checksum of the map file, once known. */
+		private final Checksum checksum;
+		/** The cache, if it is up to date, and where the chunk table of the next layer starts in it. */
+		private ByteBuffer mapped;
+		private int tableOffset;
+		private TiledMap map;
+		private boolean done;
+
+		final int width, height, tileWidth, tileHeight, orientation;
+
+		private Loading(Platform platform, File file, File cache) throws IOException {
+			this.cache = cache;
+			Checksum checksum = null;
+			if (cache != null && cache.exists()) {
+				checksum = new CRC32();
+				try (InputStream in = new CheckedInputStream(resource(platform, file), checksum)) {
+					byte[] buffer = new byte[8192];
+					while (in.read(buffer) != -1)
+						;
+				}
+				mapped = map(cache, (int) checksum.getValue());
+			}
+			InputStream in = resource(platform, file);
+			if (cache != null && checksum == null) in = new CheckedInputStream(in, checksum = new CRC32());
+			this.in = in;
+			this.checksum = checksum;
+
+			try {
+				XMLInputFactory factory = XMLInputFactory.newInstance();
+				factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+				reader = factory.createXMLStreamReader(in);
+				reader.nextTag();
+				if (!reader.getLocalName().equals("map")) throw new IOException("Not a map file.");
+				width = intAttribute(reader, "width");
+				height = intAttribute(reader, "height");
+				tileWidth = intAttribute(reader, "tilewidth");
+				tileHeight = intAttribute(reader, "tileheight");
+				orientation = "orthogonal".equals(reader.getAttributeValue(null, "orientation")) ? TiledMap.ORTHOGONAL : TiledMap.ISOMETRIC;
+			} catch (XMLStreamException e) {
+				in.close();
+				throw new IOException("Invalid map file.", e);
+			}
+		}
+
+		private static InputStream resource(Platform platform, File file) throws FileNotFoundException {
+			InputStream in = platform.getResourceAsStream(file.getPath());
+			if (in == null) throw new FileNotFoundException(file.getPath());
+			return new BufferedInputStream(in);
+		}
+
+		/** Reads the next tile set, layer or object group, or finishes the map.
+		 * 
+		 * @return whether there is more to read */
+		public boolean step() throws IOException {
+			if (done) return false;
+			try {
+				while (nextChild(reader))
+					switch (reader.getLocalName()) {
+					case "properties":
+						readProperties(reader, map.properties);
+						break;
+					case "tileset":
+						TileSet tileSet = new TileSet(reader);
+						tileSet.index = map.tileSets.size();
+						if (tileSet.index > 0) map.tileSets.get(tileSet.index - 1).lastGID = tileSet.firstGID - 1;
+						map.tileSets.add(tileSet);
+						return true;
+					case "layer":
+						readLayer();
+						return true;
+					case "objectgroup":
+						ObjectGroup objectGroup = new ObjectGroup(reader);
+						objectGroup.index = map.objectGroups.size();
+						map.objectGroups.add(objectGroup);
+						return true;
+					default:
+						skipElement(reader);
+					}
+			} catch (XMLStreamException | RuntimeException e) {
+				throw new IOException("Invalid map file.", e);
+			}
+			finish();
+			return false;
+		}
+
+		private void readLayer() throws XMLStreamException, IOException {
+			Layer layer = new Layer(reader.getAttributeValue(null, "name"), intAttribute(reader, "width"), intAttribute(reader, "height"));
+			layer.index = map.layers.size();
+			while (nextChild(reader))
+				if (reader.getLocalName().equals("properties")) layer.props = readProperties(reader, new Properties());
+				else if (reader.getLocalName().equals("data") && mapped == null) readData(layer);
+				else skipElement(reader);
+			if (mapped != null) mapChunks(layer);
+			map.layers.add(layer);
+		}
+
+		/** Reads the tiles of <code>layer</code> as they are decoded, from XML, CSV or base64, uncompressed or
+		 * compressed with gzip or zlib. */
+		private void readData(Layer layer) throws XMLStreamException, IOException {
+			final String encoding = reader.getAttributeValue(null, "encoding"), compression = reader.getAttributeValue(null, "compression");
+			if (encoding == null) {
+				for (int index = 0; nextChild(reader); index++) {
+					if (reader.getLocalName().equals("tile")) layer.setTile(index, (int) longAttribute(reader, "gid"));
+					skipElement(reader);
+				}
+				return;
+			}
+
+			try (Reader text = new TextReader(reader)) {
+				if (encoding.equals("csv")) {
+					final char[] chars = new char[4096];
+					long gid = 0;
+					boolean digits = false;
+					int index = 0;
+					for (int n; (n = text.read(chars)) != -1;)
+						for (int i = 0; i < n; i++)
+							if (chars[i] >= '0' && chars[i] <= '9') {
+								gid = gid * 10 + chars[i] - '0';
+								digits = true;
+							} else if (digits) {
+								layer.setTile(index++, (int) gid); // Flip flags make it unsigned
+								gid = 0;
+								digits = false;
+							}
+					if (digits) layer.setTile(index, (int) gid);
+				} else if (encoding.equals("base64")) {
+					InputStream in = new Base64InputStream(text);
+					if ("gzip".equals(compression)) in = new GZIPInputStream(in);
+					else if ("zlib".equals(compression)) in = new InflaterInputStream(in);
+					else if (compression != null && !compression.isEmpty()) throw new IOException("Unsupported compression: " + compression);
+
+					final byte[] bytes = new byte[4096];
+					int filled = 0, index = 0;
+					for (int n; (n = in.read(bytes, filled, bytes.length - filled)) != -1;) {
+						filled += n;
+						int i = 0;
+						for (; i + 4 <= filled; i += 4) // Little-endian
+							layer.setTile(index++, bytes[i] & 0xFF | (bytes[i + 1] & 0xFF) << 8 | (bytes[i + 2] & 0xFF) << 16 | bytes[i + 3] << 24);
+						System.arraycopy(bytes, i, bytes, 0, filled -= i);
+					}
+				} else throw new IOException("Unsupported encoding: " + encoding);
 			}
+		}
+
+		/** Closes the map file, writing the tiles to the cache if it was not up to date and mapping them from it. */
+		private void finish() throws IOException {
+			done = true;
+			if (cache != null && mapped == null) { // The checksum has to cover what the parser left unread too
+				byte[] buffer = new byte[8192];
+				while (in.read(buffer) != -1)
+					;
+			}
+			close();
+			if (cache == null || mapped != null) return;
+			writeCache((int) checksum.getValue());
+			mapped = map(cache, (int) checksum.getValue());
+			if (mapped == null) throw new IOException("Couldn't read the cache just written to " + cache + ".");
+			for (Layer layer : map.layers)
+				mapChunks(layer);
+		}
 
-			// now read the layer properties
-			Element propsElement = (Element) element.getElementsByTagName("properties").item(0);
-			if (propsElement != null) {
-				NodeList properties = propsElement.getElementsByTagName("property");
-				if (properties != null) {
-					props = new Properties();
-					for (int p = 0; p < properties.getLength(); p++) {
-						Element propElement = (Element) properties.item(p);
-
-						String name = propElement.getAttribute("name");
-						String value = propElement.getAttribute("value");
-						props.setProperty(name, value);
+		/** Writes the cache: a header of {@link #CACHE_MAGIC}, {@link #CACHE_VERSION}, the checksum of the map file and
+		 * the number of layers, then for each layer its width, height and the offset of each chunk, <code>0</code> if
+		 * empty, then the chunks. Every int is big-endian. The file is written beside and moved over the cache. */
+		private void writeCache(int checksum) throws IOException {
+			File temp = new File(cache.getPath() + ".tmp");
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+				out.writeInt(CACHE_MAGIC);
+				out.writeInt(CACHE_VERSION);
+				out.writeInt(checksum);
+				out.writeInt(map.layers.size());
+				int offset = 16;
+				for (Layer layer : map.layers)
+					offset += 8 + layer.chunks.length * 4;
+				for (Layer layer : map.layers) {
+					out.writeInt(layer.width);
+					out.writeInt(layer.height);
+					for (IntBuffer chunk : layer.chunks) {
+						out.writeInt(chunk == null ? 0 : offset);
+						if (chunk != null) offset += CHUNK_BYTES;
 					}
 				}
+				for (Layer layer : map.layers)
+					for (IntBuffer chunk : layer.chunks)
+						if (chunk != null) for (int i = 0; i < chunk.capacity(); i++)
+							out.writeInt(chunk.get(i));
+			}
+			if (cache.exists() && !cache.delete() || !temp.renameTo(cache)) throw new IOException("Couldn't write " + cache + ".");
+		}
+
+		/** Checks the header before mapping, as a mapping is only released once collected and keeps a stale cache from
+		 * being replaced on some systems.
+		 * 
+		 * @return the cache mapped, or <code>null</code> if it is not of the map with <code>checksum</code> */
+		private ByteBuffer map(File cache, int checksum) throws IOException {
+			try (RandomAccessFile file = new RandomAccessFile(cache, "r")) {
+				if (file.length() < 16 || file.readInt() != CACHE_MAGIC || file.readInt() != CACHE_VERSION || file.readInt() != checksum) return null;
+				tableOffset = 16;
+				return file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+			}
+		}
+
+		/** Points the chunks of <code>layer</code> into the cache, reading the next chunk table. */
+		private void mapChunks(Layer layer) throws IOException {
+			if (mapped.getInt(tableOffset) != layer.width || mapped.getInt(tableOffset + 4) != layer.height) throw new IOException("The cache does not match layer " + layer.name + ".");
+			tableOffset += 8;
+			for (int chunk = 0; chunk < layer.chunks.length; chunk++, tableOffset += 4) {
+				final int offset = mapped.getInt(tableOffset);
+				if (offset == 0) layer.chunks[chunk] = null;
+				else {
+					ByteBuffer bytes = mapped.duplicate();
+					bytes.position(offset).limit(offset + CHUNK_BYTES);
+					layer.chunks[chunk] = bytes.slice().asIntBuffer();
+				}
+			}
+		}
+
+		/** @return the map, with what has been read of it so far */
+		public TiledMap getMap() {
+			return map;
+		}
+
+		/** @return whether the map has been read completely */
+		public boolean isDone() {
+			return done;
+		}
+
+		/** Stops reading the map file. */
+		@Override
+		public void close() throws IOException {
+			try {
+				reader.close();
+			} catch (XMLStreamException e) {
+				throw new IOException(e);
+			} finally {
+				in.close();
 			}
 		}
 	}
 
-	/** Decode a Base64 string as encoded by TilED
+	/** Advances <code>reader</code> to the next child element of the current one.
 	 * 
-	 * @param data The string of character to decode
-	 * @return The byte array represented by character encoding */
-	private static byte[] decodeBase64(char[] data) {
-		int temp = data.length;
-		for (int ix = 0; ix < data.length; ix++) {
-			if ((data[ix] > 255) || baseCodes[data[ix]] < 0) {
-				--temp;
+	 * @return whether there is one, <code>reader</code> being at the end of the current element otherwise */
+	private static boolean nextChild(XMLStreamReader reader) throws XMLStreamException {
+		for (;;)
+			switch (reader.next()) {
+			case XMLStreamConstants.START_ELEMENT:
+				return true;
+			case XMLStreamConstants.END_ELEMENT:
+			case XMLStreamConstants.END_DOCUMENT:
+				return false;
+			}
+	}
+
+	/** Advances <code>reader</code> to the end of the current element. */
+	private static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+		for (int depth = 1; depth > 0;)
+			switch (reader.next()) {
+			case XMLStreamConstants.START_ELEMENT:
+				depth++;
+				break;
+			case XMLStreamConstants.END_ELEMENT:
+				depth--;
+				break;
+			}
+	}
+
+	private static Properties readProperties(XMLStreamReader reader, Properties properties) throws XMLStreamException {
+		while (nextChild(reader)) {
+			if (!reader.getLocalName().equals("property")) {
+				skipElement(reader);
+				continue;
+			}
+			String name = reader.getAttributeValue(null, "name"), value = reader.getAttributeValue(null, "value");
+			if (value == null) properties.setProperty(name, reader.getElementText()); // Multiline values are the text
+			else {
+				properties.setProperty(name, value);
+				skipElement(reader);
 			}
 		}
+		return properties;
+	}
 
-		int len = (temp / 4) * 3;
-		if ((temp % 4) == 3) len += 2;
-		if ((temp % 4) == 2) len += 1;
+	/** @return the attribute <code>name</code>, possibly fractional, as an int, <code>0</code> if missing */
+	private static int intAttribute(XMLStreamReader reader, String name) {
+		String value = reader.getAttributeValue(null, name);
+		return value == null ? 0 : (int) Double.parseDouble(value);
+	}
 
-		byte[] out = new byte[len];
+	private static long longAttribute(XMLStreamReader reader, String name) {
+		String value = reader.getAttributeValue(null, name);
+		return value == null ? 0 : Long.parseLong(value);
+	}
 
-		int shift = 0;
-		int accum = 0;
-		int index = 0;
+	/** The text of an element, read from the events of <code>reader</code> without gathering it, up to the end of the
+	 * element. Closing it skips to there. */
+	private static class TextReader extends Reader {
+		private final XMLStreamReader reader;
+		/** How much of the text of the current event has been read. */
+		private int offset;
+		private boolean ended;
 
-		for (int ix = 0; ix < data.length; ix++) {
-			int value = (data[ix] > 255) ? -1 : baseCodes[data[ix]];
+		TextReader(XMLStreamReader reader) {
+			this.reader = reader;
+		}
 
-			if (value >= 0) {
-				accum <<= 6;
-				shift += 6;
-				accum |= value;
-				if (shift >= 8) {
-					shift -= 8;
-					out[index++] = (byte) ((accum >> shift) & 0xff);
+		@Override
+		public int read(char[] cbuf, int off, int len) throws IOException {
+			try {
+				while (!ended) {
+					switch (reader.getEventType()) {
+					case XMLStreamConstants.CHARACTERS:
+					case XMLStreamConstants.CDATA:
+					case XMLStreamConstants.SPACE:
+						final int n = reader.getTextCharacters(offset, cbuf, off, len);
+						if (n > 0) {
+							offset += n;
+							return n;
+						}
+						break;
+					case XMLStreamConstants.END_ELEMENT:
+						ended = true;
+						return -1;
+					}
+					reader.next();
+					offset = 0;
 				}
+				return -1;
+			} catch (XMLStreamException e) {
+				throw new IOException(e);
 			}
 		}
 
-		if (index != out.length) { throw new RuntimeException("Data length appears to be wrong (wrote " + index + " should be " + out.length + ")"); }
+		@Override
+		public void close() throws IOException {
+			char[] chars = new char[4096];
+			while (read(chars, 0, chars.length) != -1)
+				;
+		}
+	}
 
-		return out;
+	/** Decodes base64 as it is read, skipping whitespace and padding. */
+	private static class Base64InputStream extends InputStream {
+		private final Reader text;
+		private final char[] chars = new char[4096];
+		private int position, length;
+		private int bits, count;
+
+		Base64InputStream(Reader text) {
+			this.text = text;
+		}
+
+		@Override
+		public int read() throws IOException {
+			byte[] b = new byte[1];
+			return read(b, 0, 1) == -1 ? -1 : b[0] & 0xFF;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int n = 0;
+			while (n < len) {
+				if (position == length) {
+					length = text.read(chars);
+					position = 0;
+					if (length == -1) {
+						length = 0;
+						break;
+					}
+					continue;
+				}
+				final char c = chars[position++];
+				final int value = c > 255 ? -1 : baseCodes[c];
+				if (value < 0) continue;
+				bits = bits << 6 | value;
+				count += 6;
+				if (count >= 8) {
+					count -= 8;
+					b[off + n++] = (byte) (bits >> count);
+				}
+			}
+			return n == 0 && len > 0 ? -1 : n;
+		}
 	}
 
 	/** The code used to decode Base64 encoding */
@@ -0,0 +1,336 @@
+/**
+ * 
+ */
+package ak5.util.io;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import ak5.Platform;
+import ak5.graphics.Texture;
+import ak5.util.BitmapFont;
+import ak5.util.Disposable;
+
+/** Loads assets in the background, so that loading screens keep drawing and levels can stream in.
+ * <p>
+ * An asset is loaded in two steps by the {@link Loader} of its type: reading and decoding on a pool of worker threads,
+ * then finishing, e.g. uploading to GL, on the thread calling {@link #update(long)}, which only spends as long as it is
+ * told each frame. Decoded assets wait in a bounded queue, holding back the workers rather than piling up in memory
+ * when finishing falls behind. Assets are reference counted by {@link #load(String, Class)} and {@link #unload(String)},
+ * and those an asset depends on, e.g. the pages of a font, are loaded before it is finished and unloaded with it.
+ * <p>
+ * Textures are loaded by the {@link Platform#getTextureLoader() platform's loader}, which decodes them on the workers
+ * where it can. Except for the loaders' decoding, everything is meant to be called from the GL thread.
+ * 
+ * @author pwnedary */
+public class AssetManager implements Disposable {
+	private final Map<Class<?>, Loader<?, ?>> loaders = new HashMap<>();
+	private final Map<String, Entry> entries = new HashMap<>();
+	private final ExecutorService workers;
+	/** Decoded assets, waiting to be received by {@link #update(long)}. */
+	private final BlockingQueue<Entry> decoded;
+	/** Received assets, waiting for their dependencies or for time to be finished. */
+	private final List<Entry> pending = new ArrayList<>();
+	/** The number of assets being decoded or waiting in {@link #decoded}. */
+	private int decoding;
+	private int toLoad, loaded;
+
+	public AssetManager(Platform platform) {
+		this(platform, Math.max(1, Runtime.getRuntime().availableProcessors() - 1), 16);
+	}
+
+	/** @param threads the number of worker threads
+	 * @param capacity the most decoded assets to hold while waiting to be finished */
+	public AssetManager(Platform platform, int threads, int capacity) {
+		final AtomicInteger count = new AtomicInteger();
+		workers = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "AssetManager-" + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		decoded = new ArrayBlockingQueue<>(capacity);
+		setLoader(Texture.class, platform.getTextureLoader());
+		setLoader(BitmapFont.class, new BitmapFontLoader(platform));
+	}
+
+	public <T> void setLoader(Class<T> type, Loader<T, ?> loader) {
+		loaders.put(type, loader);
+	}
+
+	/** Queues the asset at <code>path</code> to be loaded, or just references it again if it already is. */
+	public void load(String path, Class<?> type) {
+		Entry entry = entries.get(path);
+		if (entry != null) {
+			if (entry.type != type) throw new IllegalArgumentException(path + " is already loaded as " + entry.type.getSimpleName() + ".");
+			entry.references++;
+			return;
+		}
+		@SuppressWarnings("unchecked")
+		final Loader<Object, Object> loader = (Loader<Object, Object>) loaders.get(type);
+		if (loader == null) throw new IllegalArgumentException("No loader for " + type.getSimpleName() + ".");
+		entries.put(path, entry = new Entry(path, type, loader));
+		toLoad++;
+		decoding++;
+		final Entry submitted = entry;
+		workers.execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					submitted.data = loader.decode(submitted.path, submitted.dependencies);
+				} catch (Exception e) {
+					submitted.error = e;
+				}
+				try {
+					decoded.put(submitted);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		});
+	}
+
+	/** Finishes every asset that is ready.
+	 * 
+	 * @return whether all assets are loaded */
+	public boolean update() {
+		return update(Long.MAX_VALUE);
+	}
+
+	/** Finishes assets that are ready for as long as <code>budget</code>, at least one if any is.
+	 * 
+	 * @param budget the time to spend, in nanoseconds
+	 * @return whether all assets are loaded
+	 * @throws RuntimeException if an asset could not be loaded */
+	public boolean update(long budget) {
+		final long start = System.nanoTime();
+		for (Entry entry; (entry = decoded.poll()) != null;)
+			receive(entry);
+
+		for (Iterator<Entry> iterator = pending.iterator(); iterator.hasNext();) {
+			final Entry entry = iterator.next();
+			if (!isReady(entry)) continue;
+			iterator.remove();
+			try {
+				entry.asset = entry.loader.finish(entry.path, entry.data, this);
+			} catch (Exception e) {
+				entries.remove(entry.path);
+				loaded++;
+				for (Dependency dependency : entry.dependencies)
+					if (entries.containsKey(dependency.path)) unload(dependency.path);
+				throw new RuntimeException("Couldn't load " + entry.path + ".", e);
+			} finally {
+				entry.data = null;
+			}
+			entry.loaded = true;
+			loaded++;
+			if (System.nanoTime() - start >= budget) break;
+		}
+
+		final boolean done = decoding == 0 && pending.isEmpty();
+		if (done) toLoad = loaded = 0;
+		return done;
+	}
+
+	/** Blocks until all assets are loaded. */
+	public void finishLoading() {
+		while (!update())
+			if (decoding > 0) try {
+				receive(decoded.take());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+	}
+
+	private void receive(Entry entry) {
+		decoding--;
+		if (entry.references == 0) { // Unloaded while decoding
+			loaded++;
+			return;
+		}
+		if (entry.error != null) {
+			entries.remove(entry.path);
+			loaded++;
+			throw new RuntimeException("Couldn't load " + entry.path + ".", entry.error);
+		}
+		for (Dependency dependency : entry.dependencies)
+			load(dependency.path, dependency.type);
+		pending.add(entry);
+	}
+
+	private boolean isReady(Entry entry) {
+		for (Dependency dependency : entry.dependencies)
+			if (!isLoaded(dependency.path)) return false;
+		return true;
+	}
+
+	public boolean isLoaded(String path) {
+		Entry entry = entries.get(path);
+		return entry != null && entry.loaded;
+	}
+
+	/** @return the loaded asset at <code>path</code> */
+	public <T> T get(String path, Class<T> type) {
+		Entry entry = entries.get(path);
+		if (entry == null || !entry.loaded) throw new IllegalStateException(path + " is not loaded.");
+		if (entry.type != type) throw new IllegalArgumentException(path + " is loaded as " + entry.type.getSimpleName() + ".");
+		return type.cast(entry.asset);
+	}
+
+	/** @return the number of references to the asset at <code>path</code>, <code>0</code> if it is not loaded */
+	public int getReferenceCount(String path) {
+		Entry entry = entries.get(path);
+		return entry == null ? 0 : entry.references;
+	}
+
+	/** Drops a reference to the asset at <code>path</code>, unloading it and dropping its references to its
+	 * dependencies once there are none left. */
+	public void unload(String path) {
+		final Entry entry = entries.get(path);
+		if (entry == null) throw new IllegalArgumentException(path + " is not loaded.");
+		if (--entry.references > 0) return;
+		entries.remove(path);
+		if (entry.loaded) {
+			entry.loader.unload(entry.asset);
+			entry.asset = null;
+		} else if (pending.remove(entry)) loaded++;
+		else return; // Still decoding, its dependencies unknown
+		for (Dependency dependency : entry.dependencies)
+			unload(dependency.path);
+	}
+
+	/** @return the part, from 0 to 1, of the assets queued since everything was last loaded that are now loaded */
+	public float getProgress() {
+		return toLoad == 0 ? 1 : (float) loaded / toLoad;
+	}
+
+	/** Unloads every asset and stops the workers. */
+	@Override
+	public void dispose() {
+		workers.shutdownNow();
+		for (Entry entry : entries.values())
+			if (entry.loaded) entry.loader.unload(entry.asset);
+		entries.clear();
+		pending.clear();
+		decoded.clear();
+	}
+
+	/** Loads assets of one type for an {@link AssetManager}.
+	 * 
+	 * @param <T> the type of the assets
+	 * @param <D> what is handed from decoding to finishing */
+	public interface Loader<T, D> {
+		/** Reads and decodes the asset at <code>path</code>, on a worker thread. Assets it depends on are added to
+		 * <code>dependencies</code>, to be loaded before it is finished. */
+		D decode(String path, List<Dependency> dependencies) throws IOException;
+
+		/** Makes the asset from what {@link #decode(String, List)} returned, on the thread updating
+		 * <code>manager</code>, from which the dependencies can be gotten. */
+		T finish(String path, D data, AssetManager manager) throws IOException;
+
+		/** Releases the asset. Its dependencies are unloaded by the manager. */
+		void unload(T asset);
+	}
+
+	/** An asset another one depends on. */
+	public static class Dependency {
+		public final String path;
+		public final Class<?> type;
+
+		public Dependency(String path, Class<?> type) {
+			this.path = path;
+			this.type = type;
+		}
+	}
+
+	private static class Entry {
+		final String path;
+		final Class<?> type;
+		final Loader<Object, Object> loader;
+		final List<Dependency> dependencies = new ArrayList<>();
+		int references = 1;
+		/* Set by the worker, seen after passing through the queue */
+		Object data;
+		Exception error;
+		Object asset;
+		boolean loaded;
+
+		Entry(String path, Class<?> type, Loader<Object, Object> loader) {
+			this.path = path;
+			this.type = type;
+			this.loader = loader;
+		}
+	}
+
+	/** Loads textures through {@link Platform#getTexture(CharSequence)} while finishing, having nothing to decode; for
+	 * platforms that cannot decode them apart from uploading. */
+	public static class TextureLoader implements Loader<Texture, Void> {
+		private final Platform platform;
+
+		public TextureLoader(Platform platform) {
+			this.platform = platform;
+		}
+
+		@Override
+		public Void decode(String path, List<Dependency> dependencies) {
+			return null;
+		}
+
+		@Override
+		public Texture finish(String path, Void data, AssetManager manager) throws IOException {
+			return platform.getTexture(path);
+		}
+
+		@Override
+		public void unload(Texture asset) {
+			asset.dispose();
+		}
+	}
+
+	/** Reads fonts on the workers, their pages being loaded as {@link Texture} dependencies. */
+	private static class BitmapFontLoader implements Loader<BitmapFont, BitmapFont> {
+		private final Platform platform;
+
+		BitmapFontLoader(Platform platform) {
+			this.platform = platform;
+		}
+
+		@Override
+		public BitmapFont decode(String path, List<Dependency> dependencies) throws IOException {
+			BitmapFont font = new BitmapFont(platform.getResourceAsStream(path));
+			for (String page : font.getPageFiles())
+				dependencies.add(new Dependency(pagePath(path, page), Texture.class));
+			return font;
+		}
+
+		@Override
+		public BitmapFont finish(String path, BitmapFont font, AssetManager manager) {
+			String[] pages = font.getPageFiles();
+			for (int p = 0; p < pages.length; p++)
+				font.setPage(p, manager.get(pagePath(path, pages[p]), Texture.class));
+			return font;
+		}
+
+		/** @return <code>page</code> next to the font at <code>path</code>, resources always being separated by '/' */
+		private static String pagePath(String path, String page) {
+			return path.substring(0, path.lastIndexOf('/') + 1) + page;
+		}
+
+		/** Does nothing, as the pages are unloaded as dependencies. */
+		@Override
+		public void unload(BitmapFont asset) {}
+	}
+}
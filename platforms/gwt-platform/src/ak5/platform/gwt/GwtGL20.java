@@ -484,7 +484,9 @@ public class GwtGL20 implements GL20 {
 
 	@Override
 	public void glBufferData(int target, int size, Buffer data, int usage) {
-		if (data instanceof FloatBuffer) {
+		if (data == null) {
+			gl.bufferData(target, size, usage);
+		} else if (data instanceof FloatBuffer) {
 			gl.bufferData(target, copy((FloatBuffer) data), usage);
 		} else if (data instanceof ShortBuffer) {
 			gl.bufferData(target, copy((ShortBuffer) data), usage);
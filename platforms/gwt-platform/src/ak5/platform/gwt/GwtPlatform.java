@@ -25,6 +25,7 @@ import ak5.platform.gwt.files.AssetLoader;
 import ak5.platform.gwt.files.AutoClientBundle;
 import ak5.util.Configuration;
 import ak5.util.io.Asset;
+import ak5.util.io.AssetManager;
 import ak5.util.io.BufferUtil;
 
 import com.google.gwt.canvas.client.Canvas;
@@ -215,6 +216,11 @@ public class GwtPlatform implements Platform, Handler { //, EntryPoint {
 		return texture;
 	}
 
+	@Override
+	public AssetManager.Loader<Texture, ?> getTextureLoader() {
+		return new AssetManager.TextureLoader(this);
+	}
+
 	@Override
 	public Sound getSound(File file) throws IOException {
 		// TODO Auto-generated method stub
@@ -0,0 +1,102 @@
+/**
+ * 
+ */
+package ak5.platform.headless;
+
+import java.io.ByteArrayInputStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import ak5.util.BitmapFont;
+
+/** Measures how long {@link BitmapFont}s take to load and how much heap they keep, from the text and the binary
+ * descriptors of the same generated font. The font has as many glyphs as a CJK font, from <code>U+4E00</code> on, and
+ * kerning between random pairs of them.
+ * <p>
+ * Usage: <code>FontBenchmark [glyphs] [kerning pairs] [loads]</code>
+ * 
+ * @author pwnedary */
+public class FontBenchmark {
+	private final int glyphs, kernings, loads;
+	private final byte[] text, binary;
+
+	public FontBenchmark(int glyphs, int kernings, int loads) {
+		this.glyphs = glyphs;
+		this.kernings = kernings;
+		this.loads = loads;
+		StringBuilder text = new StringBuilder();
+		ByteBuffer binary = ByteBuffer.allocate(64 + glyphs * 20 + kernings * 10).order(ByteOrder.LITTLE_ENDIAN);
+		text.append("info face=\"Generated\" size=16 bold=0 italic=0 charset=\"\" unicode=1 stretchH=100 smooth=1 aa=1 padding=0,0,0,0 spacing=1,1\n");
+		text.append("common lineHeight=18 base=14 scaleW=2048 scaleH=2048 pages=1 packed=0\n");
+		text.append("page id=0 file=\"generated_0.png\"\n");
+		binary.put(new byte[] { 'B', 'M', 'F', 3 });
+		binary.put((byte) 2).putInt(15).putShort((short) 18).putShort((short) 14).putShort((short) 2048).putShort((short) 2048).putShort((short) 1).put(new byte[5]);
+		binary.put((byte) 3).putInt(16).put(ascii("generated_0.png")).put((byte) 0);
+
+		text.append("chars count=").append(glyphs).append('\n');
+		binary.put((byte) 4).putInt(glyphs * 20);
+		for (int i = 0; i < glyphs; i++) {
+			final int id = 0x4E00 + i, x = i % 128 * 16, y = i / 128 % 128 * 16;
+			text.append("char id=").append(id).append(" x=").append(x).append(" y=").append(y).append(" width=15 height=15 xoffset=0 yoffset=2 xadvance=16 page=0 chnl=15\n");
+			binary.putInt(id).putShort((short) x).putShort((short) y).putShort((short) 15).putShort((short) 15).putShort((short) 0).putShort((short) 2).putShort((short) 16).put((byte) 0).put((byte) 15);
+		}
+
+		text.append("kernings count=").append(kernings).append('\n');
+		binary.put((byte) 5).putInt(kernings * 10);
+		Random random = new Random(0);
+		for (int i = 0; i < kernings; i++) {
+			final int first = 0x4E00 + random.nextInt(glyphs), second = 0x4E00 + random.nextInt(glyphs), amount = -1 - random.nextInt(3);
+			text.append("kerning first=").append(first).append(" second=").append(second).append(" amount=").append(amount).append('\n');
+			binary.putInt(first).putInt(second).putShort((short) amount);
+		}
+		this.text = ascii(text.toString());
+		this.binary = new byte[binary.position()];
+		binary.flip();
+		binary.get(this.binary);
+	}
+
+	public static void main(String[] args) {
+		FontBenchmark benchmark = new FontBenchmark(args.length > 0 ? Integer.parseInt(args[0]) : 20000, args.length > 1 ? Integer.parseInt(args[1]) : 10000, args.length > 2 ? Integer.parseInt(args[2]) : 20);
+		benchmark.run();
+	}
+
+	public void run() {
+		System.out.printf("%d glyphs, %d kerning pairs%n", glyphs, kernings);
+		System.out.printf("%-10s %12s %12s %12s%n", "format", "file bytes", "ms/load", "heap bytes");
+		measure("text", text);
+		measure("binary", binary);
+	}
+
+	/** Loads the font as many times as measured to warm up, then measures the loads and the heap kept by one. */
+	private void measure(String name, byte[] file) {
+		for (int i = 0; i < loads; i++)
+			new BitmapFont(new ByteArrayInputStream(file));
+		long start = System.nanoTime();
+		for (int i = 0; i < loads; i++)
+			new BitmapFont(new ByteArrayInputStream(file));
+		long elapsed = System.nanoTime() - start;
+
+		long before = usedMemory();
+		BitmapFont font = new BitmapFont(new ByteArrayInputStream(file));
+		long kept = usedMemory() - before;
+		System.out.printf("%-10s %12d %12.2f %12d%n", name, file.length, elapsed / 1e6 / loads, kept);
+		font.getHeight(); // Reachable until measured
+	}
+
+	private static long usedMemory() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 4; i++)
+			System.gc();
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	private static byte[] ascii(String string) {
+		try {
+			return string.getBytes("US-ASCII");
+		} catch (UnsupportedEncodingException e) {
+			throw new AssertionError(e);
+		}
+	}
+}
@@ -0,0 +1,25 @@
+/**
+ * 
+ */
+package ak5.platform.headless;
+
+import ak5.util.Configuration;
+import ak5.util.VariableConfigurationImpl;
+
+/** @author pwnedary */
+public class HeadlessConfiguration extends VariableConfigurationImpl implements Configuration {
+	/** Ticks per second. */
+	public int tickRate = 30;
+	/** The most ticks to catch up on before dropping time. */
+	public int maxUpdates = 5;
+	/** Whether to spin the last stretch to each tick for precision, rather than leaving the CPU idle. */
+	public boolean spin = false;
+	/** Whether to provide a {@link RecordingGL30}, so that rendering code can run without a display. */
+	public boolean recordGL = false;
+
+	public HeadlessConfiguration() {}
+
+	public HeadlessConfiguration(int tickRate) {
+		this.tickRate = tickRate;
+	}
+}
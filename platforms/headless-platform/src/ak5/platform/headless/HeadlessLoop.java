@@ -0,0 +1,99 @@
+/**
+ * 
+ */
+package ak5.platform.headless;
+
+import ak5.Loop;
+import ak5.util.Configuration;
+
+/** A {@link Loop} that only ticks, at a fixed rate, and never draws. Ticks are scheduled against absolute deadlines, so
+ * that oversleeping doesn't accumulate into drift.
+ * 
+ * @author pwnedary */
+public class HeadlessLoop implements Loop {
+	/** Configuration key for whether to spin the last stretch to each tick. */
+	public static final String SPIN = "spin";
+	private static final long NANOS_PER_SECOND = 1000000000;
+
+	/** Nanoseconds between ticks. */
+	private final long timeBetweenUpdates;
+	/** The most ticks to catch up on before dropping time. */
+	private final int maxUpdates;
+	private final Pacer pacer;
+
+	private LoopListener listener;
+	/** Ticks during the last whole second. */
+	private int tps;
+	private int tickCount = 0;
+	private final FrameStats stats = new FrameStats();
+
+	/** Reads {@link Loop#TICK_RATE}, {@link Loop#MAX_UPDATES} and {@link #SPIN} from <code>configuration</code>,
+	 * defaulting to 30, 5 and <code>false</code>. */
+	public HeadlessLoop(LoopListener listener, Configuration configuration) {
+		this(listener, configuration.<Number> getProperty(TICK_RATE, 30).doubleValue(), configuration.<Number> getProperty(MAX_UPDATES, 5).intValue(), configuration.<Boolean> getProperty(SPIN, false));
+	}
+
+	/** @param tickRate ticks per second
+	 * @param maxUpdates the most ticks to catch up on before dropping time
+	 * @param spin whether to spin the last stretch to each tick, rather than only sleeping */
+	public HeadlessLoop(LoopListener listener, double tickRate, int maxUpdates, boolean spin) {
+		if (tickRate <= 0) throw new IllegalArgumentException("tickRate must be positive");
+		if (maxUpdates < 1) throw new IllegalArgumentException("maxUpdates must be at least 1");
+		this.listener = listener;
+		this.timeBetweenUpdates = (long) (NANOS_PER_SECOND / tickRate);
+		this.maxUpdates = maxUpdates;
+		this.pacer = new Pacer(spin);
+	}
+
+	@Override
+	public void run() {
+		listener.start();
+		long nextUpdateTime = System.nanoTime();
+		long lastSecondTime = nextUpdateTime;
+		long lastFrameStart = nextUpdateTime;
+		long idleTime = 0;
+
+		while (listener.keepRunning()) {
+			long now = System.nanoTime();
+			int updateCount = 0;
+			while (now - nextUpdateTime >= 0 && updateCount < maxUpdates) {
+				listener.tick(1.0f);
+				nextUpdateTime += timeBetweenUpdates;
+				tickCount++;
+				updateCount++;
+			}
+			// Drop the time we couldn't catch up on rather than spiralling.
+			if (now - nextUpdateTime > timeBetweenUpdates) nextUpdateTime = now;
+			long ticked = System.nanoTime();
+
+			stats.frame(now - lastFrameStart, ticked - now, 0, idleTime, updateCount);
+			lastFrameStart = now;
+
+			if (ticked - lastSecondTime >= NANOS_PER_SECOND) {
+				tps = tickCount;
+				tickCount = 0;
+				stats.second();
+				lastSecondTime += NANOS_PER_SECOND * ((ticked - lastSecondTime) / NANOS_PER_SECOND);
+			}
+
+			idleTime = pacer.sync(nextUpdateTime) - ticked;
+		}
+		listener.stop();
+	}
+
+	/** Returns the number of ticks during the last whole second, as nothing is drawn. */
+	@Override
+	public int getFPS() {
+		return tps;
+	}
+
+	/** @return timings of the last wake-up and the last whole second */
+	public FrameStats getStats() {
+		return stats;
+	}
+
+	@Override
+	public void setLoopListener(LoopListener listener) {
+		this.listener = listener;
+	}
+}
@@ -0,0 +1,129 @@
+/**
+ * 
+ */
+package ak5.platform.headless;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.IntBuffer;
+
+import ak5.Drawable;
+import ak5.Event;
+import ak5.Handler;
+import ak5.Input;
+import ak5.Platform;
+import ak5.PlatformImpl;
+import ak5.backend.Sound;
+import ak5.graphics.GL10;
+import ak5.graphics.Texture;
+import ak5.graphics.Texture.GLTexture;
+import ak5.util.Configuration;
+import ak5.util.Profiler;
+import ak5.util.io.Asset;
+import ak5.util.io.BufferUtil;
+
+/** A {@link Platform} without display, graphics, input or sound, e.g. for dedicated servers. The handler only receives
+ * {@link Event.Create}, {@link Event.Tick} and {@link Event.Dispose}. With {@link #RECORD_GL} there is a
+ * {@link RecordingGL30} to render against, for tests and benchmarks.
+ * 
+ * @author pwnedary */
+public class HeadlessPlatform extends PlatformImpl implements Platform {
+	/** Configuration key for whether to provide a {@link RecordingGL30}. */
+	public static final String RECORD_GL = "recordGL";
+	private static final Profiler.Scope TICK = Profiler.scope(Profiler.TICK);
+
+	private RecordingGL30 gl;
+
+	@Override
+	public void start(Configuration configuration, Handler handler) {
+		this.configuration = configuration;
+		this.handler = handler;
+
+		if (configuration.<Boolean> getProperty(RECORD_GL, false)) gl = new RecordingGL30();
+		running = true;
+		new Thread(loop = configuration.getProperty("loop", new HeadlessLoop(new HeadlessLoopListener(), configuration)), handler.toString()).start();
+	}
+
+	@Override
+	protected void start() {}
+
+	/** Ticks without polling for input, each tick making up a frame. */
+	public class HeadlessLoopListener extends DefaultLoopListener {
+		@Override
+		public void tick(float delta) {
+			long start = TICK.begin();
+			handler.handle(new Event.Tick(delta));
+			TICK.end(start);
+			Profiler.frame();
+		}
+
+		@Override
+		public void draw(float delta) {}
+	}
+
+	@Override
+	public void draw(Drawable drawable, float delta) {}
+
+	@Override
+	public long getTime() {
+		return System.nanoTime() / 1000000;
+	}
+
+	@Override
+	public void setTitle(String title) {}
+
+	@Override
+	public int getWidth() {
+		return 0;
+	}
+
+	@Override
+	public int getHeight() {
+		return 0;
+	}
+
+	/** @return <code>null</code>, as there is no input */
+	@Override
+	public Input getInput() {
+		return null;
+	}
+
+	@Override
+	public Asset<?> getAsset(CharSequence path) {
+		throw new UnsupportedOperationException("No assets when headless, use getResourceAsStream.");
+	}
+
+	/** Creates an empty texture in the {@link RecordingGL30}, if there is one. */
+	@Override
+	public Texture createTexture(int width, int height) {
+		if (gl == null) throw new UnsupportedOperationException("No graphics when headless.");
+		IntBuffer buffer = BufferUtil.newIntBuffer(1);
+		gl.glGenTextures(1, buffer);
+		GLTexture texture = new GLTexture(gl, GL10.GL_TEXTURE_2D, buffer.get(0), width, height);
+		texture.setTexWidth(width);
+		texture.setTexHeight(height);
+		texture.bind();
+		gl.glTexImage2D(GL10.GL_TEXTURE_2D, 0, GL10.GL_RGBA, width, height, 0, GL10.GL_RGBA, GL10.GL_UNSIGNED_BYTE, null);
+		texture.setMemoryUsage(GLTexture.estimateMemoryUsage(width, height, 4, false));
+		return texture;
+	}
+
+	@Override
+	public Texture getTexture(CharSequence name) throws IOException {
+		throw new UnsupportedOperationException("No graphics when headless.");
+	}
+
+	@Override
+	public Sound getSound(File file) throws IOException {
+		throw new UnsupportedOperationException("No sound when headless.");
+	}
+
+	/** @return the {@link RecordingGL30} if {@link #RECORD_GL} was set, else <code>null</code> */
+	@Override
+	public GL10 getGL() {
+		return gl;
+	}
+
+	@Override
+	public void dispose() {}
+}
@@ -0,0 +1,3078 @@
+/**
+ * 
+ */
+package ak5.platform.headless;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import ak5.graphics.GL20;
+import ak5.graphics.GL30;
+
+/** A {@link GL30} without a context, for running and measuring rendering code where there is no GPU. Calls are recorded
+ * into a compact command log, with the data of buffer uploads copied aside, and can be replayed into another GL with
+ * {@link #replay(GL20)}.
+ * <p>
+ * Object names are handed out in order and attribute and uniform locations are taken from the declarations in the
+ * shader sources, so that the code under test runs as it would against a driver. Nothing is drawn; queries answer from
+ * the tracked state or with plausible limits. With {@link #setValidate(boolean)}, misuse that a driver would silently
+ * turn into a GL error or a crash, such as drawing without a program or uploading to an unbound buffer, throws an
+ * {@link IllegalStateException} instead. With {@link #setRecording(boolean)} turned off only the counters are kept, for
+ * benchmarks that should not grow the log.
+ * 
+ * @author pwnedary */
+public class RecordingGL30 implements GL30 {
+	/* Opcodes, indexed like NAMES */
+	private static final int ACTIVE_TEXTURE = 0;
+	private static final int ALPHA_FUNC = 1;
+	private static final int ALPHA_FUNCX = 2;
+	private static final int ATTACH_SHADER = 3;
+	private static final int BIND_ATTRIB_LOCATION = 4;
+	private static final int BIND_BUFFER = 5;
+	private static final int BIND_FRAMEBUFFER = 6;
+	private static final int BIND_RENDERBUFFER = 7;
+	private static final int BIND_TEXTURE = 8;
+	private static final int BIND_VERTEX_ARRAY = 9;
+	private static final int BLEND_COLOR = 10;
+	private static final int BLEND_EQUATION = 11;
+	private static final int BLEND_EQUATION_SEPARATE = 12;
+	private static final int BLEND_FUNC = 13;
+	private static final int BLEND_FUNC_SEPARATE = 14;
+	private static final int BUFFER_DATA = 15;
+	private static final int BUFFER_SUB_DATA = 16;
+	private static final int CLEAR = 17;
+	private static final int CLEAR_COLOR = 18;
+	private static final int CLEAR_COLORX = 19;
+	private static final int CLEAR_DEPTHF = 20;
+	private static final int CLEAR_DEPTHX = 21;
+	private static final int CLEAR_STENCIL = 22;
+	private static final int CLIENT_ACTIVE_TEXTURE = 23;
+	private static final int CLIP_PLANEF = 24;
+	private static final int CLIP_PLANEX = 25;
+	private static final int COLOR4F = 26;
+	private static final int COLOR4UB = 27;
+	private static final int COLOR4X = 28;
+	private static final int COLOR_MASK = 29;
+	private static final int COLOR_POINTER = 30;
+	private static final int COMPILE_SHADER = 31;
+	private static final int COMPRESSED_TEX_IMAGE2D = 32;
+	private static final int COMPRESSED_TEX_SUB_IMAGE2D = 33;
+	private static final int COPY_TEX_IMAGE2D = 34;
+	private static final int COPY_TEX_SUB_IMAGE2D = 35;
+	private static final int CREATE_PROGRAM = 36;
+	private static final int CREATE_SHADER = 37;
+	private static final int CULL_FACE = 38;
+	private static final int DELETE_BUFFERS = 39;
+	private static final int DELETE_FRAMEBUFFERS = 40;
+	private static final int DELETE_PROGRAM = 41;
+	private static final int DELETE_RENDERBUFFERS = 42;
+	private static final int DELETE_SHADER = 43;
+	private static final int DELETE_TEXTURES = 44;
+	private static final int DELETE_VERTEX_ARRAYS = 45;
+	private static final int DEPTH_FUNC = 46;
+	private static final int DEPTH_MASK = 47;
+	private static final int DEPTH_RANGEF = 48;
+	private static final int DEPTH_RANGEX = 49;
+	private static final int DETACH_SHADER = 50;
+	private static final int DISABLE = 51;
+	private static final int DISABLE_CLIENT_STATE = 52;
+	private static final int DISABLE_VERTEX_ATTRIB_ARRAY = 53;
+	private static final int DRAW_ARRAYS = 54;
+	private static final int DRAW_ARRAYS_INSTANCED = 55;
+	private static final int DRAW_ELEMENTS = 56;
+	private static final int DRAW_ELEMENTS_OFFSET = 57;
+	private static final int DRAW_ELEMENTS_INSTANCED = 58;
+	private static final int ENABLE = 59;
+	private static final int ENABLE_CLIENT_STATE = 60;
+	private static final int ENABLE_VERTEX_ATTRIB_ARRAY = 61;
+	private static final int FINISH = 62;
+	private static final int FLUSH = 63;
+	private static final int FOGF = 64;
+	private static final int FOGFV = 65;
+	private static final int FOGX = 66;
+	private static final int FOGXV = 67;
+	private static final int FRAMEBUFFER_RENDERBUFFER = 68;
+	private static final int FRAMEBUFFER_TEXTURE2D = 69;
+	private static final int FRONT_FACE = 70;
+	private static final int FRUSTUMF = 71;
+	private static final int FRUSTUMX = 72;
+	private static final int GEN_BUFFERS = 73;
+	private static final int GEN_FRAMEBUFFERS = 74;
+	private static final int GEN_RENDERBUFFERS = 75;
+	private static final int GEN_TEXTURES = 76;
+	private static final int GEN_VERTEX_ARRAYS = 77;
+	private static final int GENERATE_MIPMAP = 78;
+	private static final int GET_ATTRIB_LOCATION = 79;
+	private static final int GET_UNIFORM_LOCATION = 80;
+	private static final int HINT = 81;
+	private static final int LIGHT_MODELF = 82;
+	private static final int LIGHT_MODELFV = 83;
+	private static final int LIGHT_MODELX = 84;
+	private static final int LIGHT_MODELXV = 85;
+	private static final int LIGHTF = 86;
+	private static final int LIGHTFV = 87;
+	private static final int LIGHTX = 88;
+	private static final int LIGHTXV = 89;
+	private static final int LINE_WIDTH = 90;
+	private static final int LINE_WIDTHX = 91;
+	private static final int LINK_PROGRAM = 92;
+	private static final int LOAD_IDENTITY = 93;
+	private static final int LOAD_MATRIXF = 94;
+	private static final int LOAD_MATRIXX = 95;
+	private static final int LOGIC_OP = 96;
+	private static final int MAP_BUFFER_RANGE = 97;
+	private static final int MATERIALF = 98;
+	private static final int MATERIALFV = 99;
+	private static final int MATERIALX = 100;
+	private static final int MATERIALXV = 101;
+	private static final int MATRIX_MODE = 102;
+	private static final int MULT_MATRIXF = 103;
+	private static final int MULT_MATRIXX = 104;
+	private static final int MULTI_TEX_COORD4F = 105;
+	private static final int MULTI_TEX_COORD4X = 106;
+	private static final int NORMAL3F = 107;
+	private static final int NORMAL3X = 108;
+	private static final int NORMAL_POINTER = 109;
+	private static final int ORTHOF = 110;
+	private static final int ORTHOX = 111;
+	private static final int PIXEL_STOREI = 112;
+	private static final int POINT_PARAMETERF = 113;
+	private static final int POINT_PARAMETERFV = 114;
+	private static final int POINT_PARAMETERX = 115;
+	private static final int POINT_PARAMETERXV = 116;
+	private static final int POINT_SIZE = 117;
+	private static final int POINT_SIZEX = 118;
+	private static final int POLYGON_OFFSET = 119;
+	private static final int POLYGON_OFFSETX = 120;
+	private static final int POP_MATRIX = 121;
+	private static final int PUSH_MATRIX = 122;
+	private static final int RELEASE_SHADER_COMPILER = 123;
+	private static final int RENDERBUFFER_STORAGE = 124;
+	private static final int ROTATEF = 125;
+	private static final int ROTATEX = 126;
+	private static final int SAMPLE_COVERAGE = 127;
+	private static final int SAMPLE_COVERAGEX = 128;
+	private static final int SCALEF = 129;
+	private static final int SCALEX = 130;
+	private static final int SCISSOR = 131;
+	private static final int SHADE_MODEL = 132;
+	private static final int SHADER_BINARY = 133;
+	private static final int SHADER_SOURCE = 134;
+	private static final int STENCIL_FUNC = 135;
+	private static final int STENCIL_FUNC_SEPARATE = 136;
+	private static final int STENCIL_MASK = 137;
+	private static final int STENCIL_MASK_SEPARATE = 138;
+	private static final int STENCIL_OP = 139;
+	private static final int STENCIL_OP_SEPARATE = 140;
+	private static final int TEX_COORD_POINTER = 141;
+	private static final int TEX_ENVF = 142;
+	private static final int TEX_ENVFV = 143;
+	private static final int TEX_ENVI = 144;
+	private static final int TEX_ENVIV = 145;
+	private static final int TEX_ENVX = 146;
+	private static final int TEX_ENVXV = 147;
+	private static final int TEX_IMAGE2D = 148;
+	private static final int TEX_PARAMETERF = 149;
+	private static final int TEX_PARAMETERFV = 150;
+	private static final int TEX_PARAMETERI = 151;
+	private static final int TEX_PARAMETERIV = 152;
+	private static final int TEX_PARAMETERX = 153;
+	private static final int TEX_PARAMETERXV = 154;
+	private static final int TEX_SUB_IMAGE2D = 155;
+	private static final int TRANSLATEF = 156;
+	private static final int TRANSLATEX = 157;
+	private static final int UNIFORM1F = 158;
+	private static final int UNIFORM1FV = 159;
+	private static final int UNIFORM1I = 160;
+	private static final int UNIFORM1IV = 161;
+	private static final int UNIFORM2F = 162;
+	private static final int UNIFORM2FV = 163;
+	private static final int UNIFORM2I = 164;
+	private static final int UNIFORM2IV = 165;
+	private static final int UNIFORM3F = 166;
+	private static final int UNIFORM3FV = 167;
+	private static final int UNIFORM3I = 168;
+	private static final int UNIFORM3IV = 169;
+	private static final int UNIFORM4F = 170;
+	private static final int UNIFORM4FV = 171;
+	private static final int UNIFORM4I = 172;
+	private static final int UNIFORM4IV = 173;
+	private static final int UNIFORM_MATRIX2FV = 174;
+	private static final int UNIFORM_MATRIX3FV = 175;
+	private static final int UNIFORM_MATRIX4FV = 176;
+	private static final int UNMAP_BUFFER = 177;
+	private static final int USE_PROGRAM = 178;
+	private static final int VALIDATE_PROGRAM = 179;
+	private static final int VERTEX_ATTRIB1F = 180;
+	private static final int VERTEX_ATTRIB1FV = 181;
+	private static final int VERTEX_ATTRIB2F = 182;
+	private static final int VERTEX_ATTRIB2FV = 183;
+	private static final int VERTEX_ATTRIB3F = 184;
+	private static final int VERTEX_ATTRIB3FV = 185;
+	private static final int VERTEX_ATTRIB4F = 186;
+	private static final int VERTEX_ATTRIB4FV = 187;
+	private static final int VERTEX_ATTRIB_DIVISOR = 188;
+	private static final int VERTEX_ATTRIB_POINTER = 189;
+	private static final int VERTEX_ATTRIB_POINTER_OFFSET = 190;
+	private static final int VERTEX_POINTER = 191;
+	private static final int VIEWPORT = 192;
+	private static final String[] NAMES = { "glActiveTexture", "glAlphaFunc", "glAlphaFuncx", "glAttachShader", "glBindAttribLocation", "glBindBuffer", "glBindFramebuffer", "glBindRenderbuffer", "glBindTexture", "glBindVertexArray", "glBlendColor", "glBlendEquation", "glBlendEquationSeparate", "glBlendFunc", "glBlendFuncSeparate", "glBufferData", "glBufferSubData", "glClear", "glClearColor", "glClearColorx", "glClearDepthf", "glClearDepthx", "glClearStencil", "glClientActiveTexture", "glClipPlanef", "glClipPlanex", "glColor4f", "glColor4ub", "glColor4x", "glColorMask", "glColorPointer", "glCompileShader", "glCompressedTexImage2D", "glCompressedTexSubImage2D", "glCopyTexImage2D", "glCopyTexSubImage2D", "glCreateProgram", "glCreateShader", "glCullFace", "glDeleteBuffers", "glDeleteFramebuffers", "glDeleteProgram", "glDeleteRenderbuffers", "glDeleteShader", "glDeleteTextures", "glDeleteVertexArrays", "glDepthFunc", "glDepthMask", "glDepthRangef", "glDepthRangex", "glDetachShader", "glDisable", "glDisableClientState", "glDisableVertexAttribArray", "glDrawArrays", "glDrawArraysInstanced", "glDrawElements", "glDrawElements", "glDrawElementsInstanced", "glEnable", "glEnableClientState", "glEnableVertexAttribArray", "glFinish", "glFlush", "glFogf", "glFogfv", "glFogx", "glFogxv", "glFramebufferRenderbuffer", "glFramebufferTexture2D", "glFrontFace", "glFrustumf", "glFrustumx", "glGenBuffers", "glGenFramebuffers", "glGenRenderbuffers", "glGenTextures", "glGenVertexArrays", "glGenerateMipmap", "glGetAttribLocation", "glGetUniformLocation", "glHint", "glLightModelf", "glLightModelfv", "glLightModelx", "glLightModelxv", "glLightf", "glLightfv", "glLightx", "glLightxv", "glLineWidth", "glLineWidthx", "glLinkProgram", "glLoadIdentity", "glLoadMatrixf", "glLoadMatrixx", "glLogicOp", "glMapBufferRange", "glMaterialf", "glMaterialfv", "glMaterialx", "glMaterialxv", "glMatrixMode", "glMultMatrixf", "glMultMatrixx", "glMultiTexCoord4f", "glMultiTexCoord4x", "glNormal3f", "glNormal3x", "glNormalPointer", "glOrthof", "glOrthox", "glPixelStorei", "glPointParameterf", "glPointParameterfv", "glPointParameterx", "glPointParameterxv", "glPointSize", "glPointSizex", "glPolygonOffset", "glPolygonOffsetx", "glPopMatrix", "glPushMatrix", "glReleaseShaderCompiler", "glRenderbufferStorage", "glRotatef", "glRotatex", "glSampleCoverage", "glSampleCoveragex", "glScalef", "glScalex", "glScissor", "glShadeModel", "glShaderBinary", "glShaderSource", "glStencilFunc", "glStencilFuncSeparate", "glStencilMask", "glStencilMaskSeparate", "glStencilOp", "glStencilOpSeparate", "glTexCoordPointer", "glTexEnvf", "glTexEnvfv", "glTexEnvi", "glTexEnviv", "glTexEnvx", "glTexEnvxv", "glTexImage2D", "glTexParameterf", "glTexParameterfv", "glTexParameteri", "glTexParameteriv", "glTexParameterx", "glTexParameterxv", "glTexSubImage2D", "glTranslatef", "glTranslatex", "glUniform1f", "glUniform1fv", "glUniform1i", "glUniform1iv", "glUniform2f", "glUniform2fv", "glUniform2i", "glUniform2iv", "glUniform3f", "glUniform3fv", "glUniform3i", "glUniform3iv", "glUniform4f", "glUniform4fv", "glUniform4i", "glUniform4iv", "glUniformMatrix2fv", "glUniformMatrix3fv", "glUniformMatrix4fv", "glUnmapBuffer", "glUseProgram", "glValidateProgram", "glVertexAttrib1f", "glVertexAttrib1fv", "glVertexAttrib2f", "glVertexAttrib2fv", "glVertexAttrib3f", "glVertexAttrib3fv", "glVertexAttrib4f", "glVertexAttrib4fv", "glVertexAttribDivisor", "glVertexAttribPointer", "glVertexAttribPointer", "glVertexPointer", "glViewport" };
+
+	/* Kinds of object names */
+	private static final int BUFFER = 0, TEXTURE = 1, FRAMEBUFFER = 2, RENDERBUFFER = 3, VERTEX_ARRAY = 4, PROGRAM = 5, SHADER = 6;
+	/* Kinds of locations */
+	private static final int ATTRIBUTE = 0, UNIFORM = 1;
+	/* Kinds of recorded buffers */
+	private static final int NULL = 0, BYTES = 1, SHORTS = 2, INTS = 3, FLOATS = 4;
+
+	private static final Pattern ATTRIBUTE_DECLARATION = Pattern.compile("\\b(?:attribute|in)\\s+(?:(?:lowp|mediump|highp)\\s+)?\\w+\\s+(\\w+)");
+	private static final Pattern UNIFORM_DECLARATION = Pattern.compile("\\buniform\\s+(?:(?:lowp|mediump|highp)\\s+)?\\w+\\s+(\\w+)\\s*(?:\\[\\s*(\\d+)\\s*\\])?");
+
+	private boolean recording = true;
+	private boolean validate;
+	/** Commands as opcode, argument count and arguments; floats as their bits, buffers as kind, offset and length. */
+	private int[] log = new int[1024];
+	private int length;
+	/** The contents of recorded buffers, direct so that they can be replayed into drivers. */
+	private ByteBuffer data = ByteBuffer.allocateDirect(64 * 1024).order(ByteOrder.nativeOrder());
+	private final List<String> strings = new ArrayList<>();
+	/** The number of times each command was called since the last {@link #clear()}. */
+	private final int[] counts = new int[NAMES.length];
+
+	/** The number of calls since the last {@link #resetStats()}, queries included. */
+	public int calls;
+	/** The number of draw calls since the last {@link #resetStats()}. */
+	public int drawCalls;
+	/** The number of queries since the last {@link #resetStats()}. */
+	public int queries;
+	/** The number of buffer and texture uploads since the last {@link #resetStats()}. */
+	public int uploads;
+	/** The number of bytes uploaded to buffers and textures since the last {@link #resetStats()}. */
+	public long uploadedBytes;
+
+	/* Tracked state */
+	private final int[] next = new int[7];
+	/** The live names of each kind. */
+	private final BitSet[] names = { new BitSet(), new BitSet(), new BitSet(), new BitSet(), new BitSet(), new BitSet(), new BitSet() };
+	private final Map<Integer, ProgramInfo> programs = new HashMap<>();
+	private final Map<Integer, ShaderInfo> shaders = new HashMap<>();
+	private final Map<Integer, Integer> bufferSizes = new HashMap<>();
+	private final Map<Integer, Integer> vertexArrayElements = new HashMap<>();
+	private final BitSet capabilities = new BitSet();
+	private final int[] boundTextures = new int[32];
+	private int activeUnit, program, arrayBuffer, elementArrayBuffer, vertexArray;
+	private ByteBuffer mapping, mapped;
+
+	/** @param recording whether to keep a log of the calls, rather than only counting them */
+	public void setRecording(boolean recording) {
+		this.recording = recording;
+	}
+
+	/** @param validate whether to throw an {@link IllegalStateException} on misuse of the tracked state */
+	public void setValidate(boolean validate) {
+		this.validate = validate;
+	}
+
+	/** Resets the per-frame counters; meant to be called once per frame. */
+	public void resetStats() {
+		calls = drawCalls = queries = uploads = 0;
+		uploadedBytes = 0;
+	}
+
+	/** @return the number of times <code>method</code>, e.g. <code>"glBindTexture"</code>, was recorded since the last
+	 *         {@link #clear()}, overloads summed */
+	public int getCount(String method) {
+		int count = 0;
+		for (int i = 0; i < NAMES.length; i++)
+			if (NAMES[i].equals(method)) count += counts[i];
+		return count;
+	}
+
+	/** @return the number of ints in the command log */
+	public int getLogLength() {
+		return length;
+	}
+
+	/** @return the number of bytes of recorded buffer contents */
+	public int getDataLength() {
+		return data.position();
+	}
+
+	/** Empties the command log and the counts of {@link #getCount(String)}, keeping the tracked state. */
+	public void clear() {
+		length = 0;
+		data.clear();
+		strings.clear();
+		Arrays.fill(counts, 0);
+	}
+
+	private void begin(int op, int size) {
+		counts[op]++;
+		calls++;
+		if (!recording) return;
+		if (length + size + 2 > log.length) log = Arrays.copyOf(log, Math.max(log.length * 2, length + size + 2));
+		log[length++] = op;
+		log[length++] = size;
+	}
+
+	private void put(int value) {
+		if (recording) log[length++] = value;
+	}
+
+	private void put(float value) {
+		if (recording) log[length++] = Float.floatToRawIntBits(value);
+	}
+
+	private void put(boolean value) {
+		if (recording) log[length++] = value ? 1 : 0;
+	}
+
+	private void put(CharSequence value) {
+		if (!recording) return;
+		log[length++] = strings.size();
+		strings.add(value == null ? null : value.toString());
+	}
+
+	/** Copies the remaining contents of <code>buffer</code> aside, leaving its position alone. */
+	private void put(Buffer buffer) {
+		if (!recording) return;
+		if (buffer == null) {
+			log[length++] = NULL;
+			log[length++] = 0;
+			log[length++] = 0;
+			return;
+		}
+		final int kind = buffer instanceof FloatBuffer ? FLOATS : buffer instanceof IntBuffer ? INTS : buffer instanceof ShortBuffer ? SHORTS : BYTES;
+		final int bytes = bytes(buffer);
+		if (data.remaining() < bytes) {
+			ByteBuffer grown = ByteBuffer.allocateDirect(Math.max(data.capacity() * 2, data.position() + bytes)).order(ByteOrder.nativeOrder());
+			grown.put((ByteBuffer) data.flip());
+			data = grown;
+		}
+		final int offset = data.position();
+		final ByteBuffer target = data.slice().order(ByteOrder.nativeOrder());
+		switch (kind) {
+		case FLOATS:
+			target.asFloatBuffer().put(((FloatBuffer) buffer).duplicate());
+			break;
+		case INTS:
+			target.asIntBuffer().put(((IntBuffer) buffer).duplicate());
+			break;
+		case SHORTS:
+			target.asShortBuffer().put(((ShortBuffer) buffer).duplicate());
+			break;
+		default:
+			target.put(((ByteBuffer) buffer).duplicate());
+		}
+		data.position(offset + bytes);
+		log[length++] = kind;
+		log[length++] = offset;
+		log[length++] = bytes;
+	}
+
+	private static int bytes(Buffer buffer) {
+		return buffer.remaining() * (buffer instanceof FloatBuffer || buffer instanceof IntBuffer ? 4 : buffer instanceof ShortBuffer ? 2 : 1);
+	}
+
+	private void upload(Buffer buffer) {
+		uploads++;
+		if (buffer != null) uploadedBytes += bytes(buffer);
+	}
+
+	private void draw() {
+		drawCalls++;
+		if (validate && program == 0) throw new IllegalStateException("No program in use.");
+	}
+
+	private int boundBuffer(int target) {
+		return target == GL20.GL_ARRAY_BUFFER ? arrayBuffer : target == GL20.GL_ELEMENT_ARRAY_BUFFER ? elementArrayBuffer : 0;
+	}
+
+	private void generate(int kind, int n, IntBuffer buffer) {
+		for (int i = 0, position = buffer.position(); i < n; i++) {
+			final int name = ++next[kind];
+			names[kind].set(name);
+			buffer.put(position + i, name);
+		}
+	}
+
+	/** Forgets the names in <code>buffer</code>, unbinding them like a driver would. */
+	private void delete(int kind, int n, IntBuffer buffer) {
+		for (int i = 0, position = buffer.position(); i < n; i++) {
+			final int name = buffer.get(position + i);
+			if (name == 0) continue;
+			names[kind].clear(name);
+			switch (kind) {
+			case BUFFER:
+				bufferSizes.remove(name);
+				if (arrayBuffer == name) arrayBuffer = 0;
+				if (elementArrayBuffer == name) elementArrayBuffer = 0;
+				break;
+			case TEXTURE:
+				for (int unit = 0; unit < boundTextures.length; unit++)
+					if (boundTextures[unit] == name) boundTextures[unit] = 0;
+				break;
+			case VERTEX_ARRAY:
+				vertexArrayElements.remove(name);
+				if (vertexArray == name) vertexArray = elementArrayBuffer = 0;
+				break;
+			}
+		}
+	}
+
+	private ProgramInfo program(int program) {
+		final ProgramInfo info = programs.get(program);
+		if (info == null) throw new IllegalStateException("Program " + program + " does not exist.");
+		return info;
+	}
+
+	private ShaderInfo shader(int shader) {
+		final ShaderInfo info = shaders.get(shader);
+		if (info == null) throw new IllegalStateException("Shader " + shader + " does not exist.");
+		return info;
+	}
+
+	/** Assigns locations to the attributes and uniforms declared in the sources of the attached shaders, attributes given
+	 * with {@link #glBindAttribLocation(int, int, CharSequence)} keeping theirs. */
+	private void link(ProgramInfo program) {
+		program.attributes.clear();
+		program.uniforms.clear();
+		program.attributes.putAll(program.bound);
+		int nextAttribute = 0, nextUniform = 0;
+		for (int shader : program.shaders) {
+			final ShaderInfo info = shader(shader);
+			if (info.source == null) continue;
+			if (info.type == GL20.GL_VERTEX_SHADER) {
+				Matcher matcher = ATTRIBUTE_DECLARATION.matcher(info.source);
+				while (matcher.find()) {
+					if (program.attributes.containsKey(matcher.group(1))) continue;
+					while (program.attributes.containsValue(nextAttribute))
+						nextAttribute++;
+					program.attributes.put(matcher.group(1), nextAttribute++);
+				}
+			}
+			Matcher matcher = UNIFORM_DECLARATION.matcher(info.source);
+			while (matcher.find()) {
+				final String name = matcher.group(1);
+				if (program.uniforms.containsKey(name)) continue;
+				final int size = matcher.group(2) == null ? 1 : Integer.parseInt(matcher.group(2));
+				program.uniforms.put(name, nextUniform);
+				if (matcher.group(2) != null) for (int i = 0; i < size; i++)
+					program.uniforms.put(name + "[" + i + "]", nextUniform + i);
+				nextUniform += size;
+			}
+		}
+		program.linked = true;
+	}
+
+	/** Issues every recorded command to <code>gl</code>, which has to be a {@link GL30} if any such commands were
+	 * recorded. Object names and attribute and uniform locations are translated to the ones <code>gl</code> hands
+	 * out, locations only as far as they were queried during recording. */
+	public void replay(GL20 gl) {
+		final Names names = new Names();
+		ByteBuffer mapped = null;
+		for (int i = 0; i < length; i += log[i - 1]) {
+			final int op = log[i];
+			i += 2;
+			switch (op) {
+			case ACTIVE_TEXTURE:
+				gl.glActiveTexture(log[i]);
+				break;
+			case ALPHA_FUNC:
+				gl.glAlphaFunc(log[i], Float.intBitsToFloat(log[i + 1]));
+				break;
+			case ALPHA_FUNCX:
+				gl.glAlphaFuncx(log[i], log[i + 1]);
+				break;
+			case ATTACH_SHADER:
+				gl.glAttachShader(names.get(PROGRAM, log[i]), names.get(SHADER, log[i + 1]));
+				break;
+			case BIND_ATTRIB_LOCATION:
+				gl.glBindAttribLocation(names.get(PROGRAM, log[i]), log[i + 1], strings.get(log[i + 2]));
+				break;
+			case BIND_BUFFER:
+				gl.glBindBuffer(log[i], names.get(BUFFER, log[i + 1]));
+				break;
+			case BIND_FRAMEBUFFER:
+				gl.glBindFramebuffer(log[i], names.get(FRAMEBUFFER, log[i + 1]));
+				break;
+			case BIND_RENDERBUFFER:
+				gl.glBindRenderbuffer(log[i], names.get(RENDERBUFFER, log[i + 1]));
+				break;
+			case BIND_TEXTURE:
+				gl.glBindTexture(log[i], names.get(TEXTURE, log[i + 1]));
+				break;
+			case BIND_VERTEX_ARRAY:
+				((GL30) gl).glBindVertexArray(names.get(VERTEX_ARRAY, log[i]));
+				break;
+			case BLEND_COLOR:
+				gl.glBlendColor(Float.intBitsToFloat(log[i]), Float.intBitsToFloat(log[i + 1]), Float.intBitsToFloat(log[i + 2]), Float.intBitsToFloat(log[i + 3]));
+				break;
+			case BLEND_EQUATION:
+				gl.glBlendEquation(log[i]);
+				break;
+			case BLEND_EQUATION_SEPARATE:
+				gl.glBlendEquationSeparate(log[i], log[i + 1]);
+				break;
+			case BLEND_FUNC:
+				gl.glBlendFunc(log[i], log[i + 1]);
+				break;
+			case BLEND_FUNC_SEPARATE:
+				gl.glBlendFuncSeparate(log[i], log[i + 1], log[i + 2], log[i + 3]);
+				break;
+			case BUFFER_DATA:
+				gl.glBufferData(log[i], log[i + 1], buffer(i + 2), log[i + 5]);
+				break;
+			case BUFFER_SUB_DATA:
+				gl.glBufferSubData(log[i], log[i + 1], log[i + 2], buffer(i + 3));
+				break;
+			case CLEAR:
+				gl.glClear(log[i]);
+				break;
+			case CLEAR_COLOR:
+				gl.glClearColor(Float.intBitsToFloat(log[i]), Float.intBitsToFloat(log[i + 1]), Float.intBitsToFloat(log[i + 2]), Float.intBitsToFloat(log[i + 3]));
+				break;
+			case CLEAR_COLORX:
+				gl.glClearColorx(log[i], log[i + 1], log[i + 2], log[i + 3]);
+				break;
+			case CLEAR_DEPTHF:
+				gl.glClearDepthf(Float.intBitsToFloat(log[i]));
+				break;
+			case CLEAR_DEPTHX:
+				gl.glClearDepthx(log[i]);
+				break;
+			case CLEAR_STENCIL:
+				gl.glClearStencil(log[i]);
+				break;
+			case CLIENT_ACTIVE_TEXTURE:
+				gl.glClientActiveTexture(log[i]);
+				break;
+			case CLIP_PLANEF:
+				gl.glClipPlanef(log[i], floats(i + 1));
+				break;
+			case CLIP_PLANEX:
+				gl.glClipPlanex(log[i], ints(i + 1));
+				break;
+			case COLOR4F:
+				gl.glColor4f(Float.intBitsToFloat(log[i]), Float.intBitsToFloat(log[i + 1]), Float.intBitsToFloat(log[i + 2]), Float.intBitsToFloat(log[i + 3]));
+				break;
+			case COLOR4UB:
+				gl.glColor4ub((byte) log[i], (byte) log[i + 1], (byte) log[i + 2], (byte) log[i + 3]);
+				break;
+			case COLOR4X:
+				gl.glColor4x(log[i], log[i + 1], log[i + 2], log[i + 3]);
+				break;
+			case COLOR_MASK:
+				gl.glColorMask(log[i] != 0, log[i + 1] != 0, log[i + 2] != 0, log[i + 3] != 0);
+				break;
+			case COLOR_POINTER:
+				gl.glColorPointer(log[i], log[i + 1], log[i + 2], buffer(i + 3));
+				break;
+			case COMPILE_SHADER:
+				gl.glCompileShader(names.get(SHADER, log[i]));
+				break;
+			case COMPRESSED_TEX_IMAGE2D:
+				gl.glCompressedTexImage2D(log[i], log[i + 1], log[i + 2], log[i + 3], log[i + 4], log[i + 5], log[i + 6], buffer(i + 7));
+				break;
+			case COMPRESSED_TEX_SUB_IMAGE2D:
+				gl.glCompressedTexSubImage2D(log[i], log[i + 1], log[i + 2], log[i + 3], log[i + 4], log[i + 5], log[i + 6], log[i + 7], buffer(i + 8));
+				break;
+			case COPY_TEX_IMAGE2D:
+				gl.glCopyTexImage2D(log[i], log[i + 1], log[i + 2], log[i + 3], log[i + 4], log[i + 5], log[i + 6], log[i + 7]);
+				break;
+			case COPY_TEX_SUB_IMAGE2D:
+				gl.glCopyTexSubImage2D(log[i], log[i + 1], log[i + 2], log[i + 3], log[i + 4], log[i + 5], log[i + 6], log[i + 7]);
+				break;
+			case CREATE_PROGRAM:
+				names.put(PROGRAM, log[i], gl.glCreateProgram());
+				break;
+			case CREATE_SHADER:
+				names.put(SHADER, log[i + 1], gl.glCreateShader(log[i]));
+				break;
+			case CULL_FACE:
+				gl.glCullFace(log[i]);
+				break;
+			case DELETE_BUFFERS:
+				gl.glDeleteBuffers(log[i], names.delete(BUFFER, log[i], ints(i + 1)));
+				break;
+			case DELETE_FRAMEBUFFERS:
+				gl.glDeleteFramebuffers(log[i], names.delete(FRAMEBUFFER, log[i], ints(i + 1)));
+				break;
+			case DELETE_PROGRAM:
+				gl.glDeleteProgram(names.get(PROGRAM, log[i]));
+				break;
+			case DELETE_RENDERBUFFERS:
+				gl.glDeleteRenderbuffers(log[i], names.delete(RENDERBUFFER, log[i], ints(i + 1)));
+				break;
+			case DELETE_SHADER:
+				gl.glDeleteShader(names.get(SHADER, log[i]));
+				break;
+			case DELETE_TEXTURES:
+				gl.glDeleteTextures(log[i], names.delete(TEXTURE, log[i], ints(i + 1)));
+				break;
+			case DELETE_VERTEX_ARRAYS:
+				((GL30) gl).glDeleteVertexArrays(log[i], names.delete(VERTEX_ARRAY, log[i], ints(i + 1)));
+				break;
+			case DEPTH_FUNC:
+				gl.glDepthFunc(log[i]);
+				break;
+			case DEPTH_MASK:
+				gl.glDepthMask(log[i] != 0);
+				break;
+			case DEPTH_RANGEF:
+				gl.glDepthRangef(Float.intBitsToFloat(log[i]), Float.intBitsToFloat(log[i + 1]));
+				break;
+			case DEPTH_RANGEX:
+				gl.glDepthRangex(log[i], log[i + 1]);
+				break;
+			case DETACH_SHADER:
+				gl.glDetachShader(names.get(PROGRAM, log[i]), names.get(SHADER, log[i + 1]));
+				break;
+			case DISABLE:
+				gl.glDisable(log[i]);
+				break;
+			case DISABLE_CLIENT_STATE:
+				gl.glDisableClientState(names.get(VERTEX_ARRAY, log[i]));
+				break;
+			case DISABLE_VERTEX_ATTRIB_ARRAY:
+				gl.glDisableVertexAttribArray(names.location(ATTRIBUTE, log[i]));
+				break;
+			case DRAW_ARRAYS:
+				gl.glDrawArrays(log[i], log[i + 1], log[i + 2]);
+				break;
+			case DRAW_ARRAYS_INSTANCED:
+				((GL30) gl).glDrawArraysInstanced(log[i], log[i + 1], log[i + 2], log[i + 3]);
+				break;
+			case DRAW_ELEMENTS:
+				gl.glDrawElements(log[i], log[i + 1], log[i + 2], buffer(i + 3));
+				break;
+			case DRAW_ELEMENTS_OFFSET:
+				gl.glDrawElements(log[i], log[i + 1], log[i + 2], log[i + 3]);
+				break;
+			case DRAW_ELEMENTS_INSTANCED:
+				((GL30) gl).glDrawElementsInstanced(log[i], log[i + 1], log[i + 2], log[i + 3], log[i + 4]);
+				break;
+			case ENABLE:
+				gl.glEnable(log[i]);
+				break;
+			case ENABLE_CLIENT_STATE:
+				gl.glEnableClientState(names.get(VERTEX_ARRAY, log[i]));
+				break;
+			case ENABLE_VERTEX_ATTRIB_ARRAY:
+				gl.glEnableVertexAttribArray(names.location(ATTRIBUTE, log[i]));
+				break;
+			case FINISH:
+				gl.glFinish();
+				break;
+			case FLUSH:
+				gl.glFlush();
+				break;
+			case FOGF:
+				gl.glFogf(log[i], Float.intBitsToFloat(log[i + 1]));
+				break;
+			case FOGFV:
+				gl.glFogfv(log[i], floats(i + 1));
+				break;
+			case FOGX:
+				gl.glFogx(log[i], log[i + 1]);
+				break;
+			case FOGXV:
+				gl.glFogxv(log[i], ints(i + 1));
+				break;
+			case FRAMEBUFFER_RENDERBUFFER:
+				gl.glFramebufferRenderbuffer(log[i], log[i + 1], log[i + 2], names.get(RENDERBUFFER, log[i + 3]));
+				break;
+			case FRAMEBUFFER_TEXTURE2D:
+				gl.glFramebufferTexture2D(log[i], log[i + 1], log[i + 2], names.get(TEXTURE, log[i + 3]), log[i + 4]);
+				break;
+			case FRONT_FACE:
+				gl.glFrontFace(log[i]);
+				break;
+			case FRUSTUMF:
+				gl.glFrustumf(Float.intBitsToFloat(log[i]), Float.intBitsToFloat(log[i + 1]), Float.intBitsToFloat(log[i + 2]), Float.intBitsToFloat(log[i + 3]), Float.intBitsToFloat(log[i + 4]), Float.intBitsToFloat(log[i + 5]));
+				break;
+			case FRUSTUMX:
+				gl.glFrustumx(log[i], log[i + 1], log[i + 2], log[i + 3], log[i + 4], log[i + 5]);
+				break;
+			case GEN_BUFFERS:
+				names.generate(BUFFER, ints(i + 1));
+				gl.glGenBuffers(log[i], names.tmp(log[i]));
+				names.generated();
+				break;
+			case GEN_FRAMEBUFFERS:
+				names.generate(FRAMEBUFFER, ints(i + 1));
+				gl.glGenFramebuffers(log[i], names.tmp(log[i]));
+				names.generated();
+				break;
+			case GEN_RENDERBUFFERS:
+				names.generate(RENDERBUFFER, ints(i + 1));
+				gl.glGenRenderbuffers(log[i], names.tmp(log[i]));
+				names.generated();
+				break;
+			case GEN_TEXTURES:
+				names.generate(TEXTURE, ints(i + 1));
+				gl.glGenTextures(log[i], names.tmp(log[i]));
+				names.generated();
+				break;
+			case GEN_VERTEX_ARRAYS:
+				names.generate(VERTEX_ARRAY, ints(i + 1));
+				((GL30) gl).glGenVertexArrays(log[i], names.tmp(log[i]));
+				names.generated();
+				break;
+			case GENERATE_MIPMAP:
+				gl.glGenerateMipmap(log[i]);
+				break;
+			case GET_ATTRIB_LOCATION:
+				names.location(ATTRIBUTE, names.get(PROGRAM, log[i]), log[i + 2], gl.glGetAttribLocation(names.get(PROGRAM, log[i]), strings.get(log[i + 1])));
+				break;
+			case GET_UNIFORM_LOCATION:
+				names.location(UNIFORM, names.get(PROGRAM, log[i]), log[i + 2], gl.glGetUniformLocation(names.get(PROGRAM, log[i]), strings.get(log[i + 1])));
+				break;
+			case HINT:
+				gl.glHint(log[i], log[i + 1]);
+				break;
+			case LIGHT_MODELF:
+				gl.glLightModelf(log[i], Float.intBitsToFloat(log[i + 1]));
+				break;
+			case LIGHT_MODELFV:
+				gl.glLightModelfv(log[i], floats(i + 1));
+				break;
+			case LIGHT_MODELX:
+				gl.glLightModelx(log[i], log[i + 1]);
+				break;
+			case LIGHT_MODELXV:
+				gl.glLightModelxv(log[i], ints(i + 1));
+				break;
+			case LIGHTF:
+				gl.glLightf(log[i], log[i + 1], Float.intBitsToFloat(log[i + 2]));
+				break;
+			case LIGHTFV:
+				gl.glLightfv(log[i], log[i + 1], floats(i + 2));
+				break;
+			case LIGHTX:
+				gl.glLightx(log[i], log[i + 1], log[i + 2]);
+				break;
+			case LIGHTXV:
+				gl.glLightxv(log[i], log[i + 1], ints(i + 2));
+				break;
+			case LINE_WIDTH:
+				gl.glLineWidth(Float.intBitsToFloat(log[i]));
+				break;
+			case LINE_WIDTHX:
+				gl.glLineWidthx(log[i]);
+				break;
+			case LINK_PROGRAM:
+				gl.glLinkProgram(names.get(PROGRAM, log[i]));
+				break;
+			case LOAD_IDENTITY:
+				gl.glLoadIdentity();
+				break;
+			case LOAD_MATRIXF:
+				gl.glLoadMatrixf(floats(i));
+				break;
+			case LOAD_MATRIXX:
+				gl.glLoadMatrixx(ints(i));
+				break;
+			case LOGIC_OP:
+				gl.glLogicOp(log[i]);
+				break;
+			case MAP_BUFFER_RANGE:
+				mapped = ((GL30) gl).glMapBufferRange(log[i], log[i + 1], log[i + 2], log[i + 3]);
+				break;
+			case MATERIALF:
+				gl.glMaterialf(log[i], log[i + 1], Float.intBitsToFloat(log[i + 2]));
+				break;
+			case MATERIALFV:
+				gl.glMaterialfv(log[i], log[i + 1], floats(i + 2));
+				break;
+			case MATERIALX:
+				gl.glMaterialx(log[i], log[i + 1], log[i + 2]);
+				break;
+			case MATERIALXV:
+				gl.glMaterialxv(log[i], log[i + 1], ints(i + 2));
+				break;
+			case MATRIX_MODE:
+				gl.glMatrixMode(log[i]);
+				break;
+			case MULT_MATRIXF:
+				gl.glMultMatrixf(floats(i));
+				break;
+			case MULT_MATRIXX:
+				gl.glMultMatrixx(ints(i));
+				break;
+			case MULTI_TEX_COORD4F:
+				gl.glMultiTexCoord4f(log[i], Float.intBitsToFloat(log[i + 1]), Float.intBitsToFloat(log[i + 2]), Float.intBitsToFloat(log[i + 3]), Float.intBitsToFloat(log[i + 4]));
+				break;
+			case MULTI_TEX_COORD4X:
+				gl.glMultiTexCoord4x(log[i], log[i + 1], log[i + 2], log[i + 3], log[i + 4]);
+				break;
+			case NORMAL3F:
+				gl.glNormal3f(Float.intBitsToFloat(log[i]), Float.intBitsToFloat(log[i + 1]), Float.intBitsToFloat(log[i + 2]));
+				break;
+			case NORMAL3X:
+				gl.glNormal3x(log[i], log[i + 1], log[i + 2]);
+				break;
+			case NORMAL_POINTER:
+				gl.glNormalPointer(log[i], log[i + 1], buffer(i + 2));
+				break;
+			case ORTHOF:
+				gl.glOrthof(Float.intBitsToFloat(log[i]), Float.intBitsToFloat(log[i + 1]), Float.intBitsToFloat(log[i + 2]), Float.intBitsToFloat(log[i + 3]), Float.intBitsToFloat(log[i + 4]), Float.intBitsToFloat(log[i + 5]));
+				break;
+			case ORTHOX:
+				gl.glOrthox(log[i], log[i + 1], log[i + 2], log[i + 3], log[i + 4], log[i + 5]);
+				break;
+			case PIXEL_STOREI:
+				gl.glPixelStorei(log[i], log[i + 1]);
+				break;
+			case POINT_PARAMETERF:
+				gl.glPointParameterf(log[i], Float.intBitsToFloat(log[i + 1]));
+				break;
+			case POINT_PARAMETERFV:
+				gl.glPointParameterfv(log[i], floats(i + 1));
+				break;
+			case POINT_PARAMETERX:
+				gl.glPointParameterx(log[i], log[i + 1]);
+				break;
+			case POINT_PARAMETERXV:
+				gl.glPointParameterxv(log[i], ints(i + 1));
+				break;
+			case POINT_SIZE:
+				gl.glPointSize(Float.intBitsToFloat(log[i]));
+				break;
+			case POINT_SIZEX:
+				gl.glPointSizex(log[i]);
+				break;
+			case POLYGON_OFFSET:
+				gl.glPolygonOffset(Float.intBitsToFloat(log[i]), Float.intBitsToFloat(log[i + 1]));
+				break;
+			case POLYGON_OFFSETX:
+				gl.glPolygonOffsetx(log[i], log[i + 1]);
+				break;
+			case POP_MATRIX:
+				gl.glPopMatrix();
+				break;
+			case PUSH_MATRIX:
+				gl.glPushMatrix();
+				break;
+			case RELEASE_SHADER_COMPILER:
+				gl.glReleaseShaderCompiler();
+				break;
+			case RENDERBUFFER_STORAGE:
+				gl.glRenderbufferStorage(log[i], log[i + 1], log[i + 2], log[i + 3]);
+				break;
+			case ROTATEF:
+				gl.glRotatef(Float.intBitsToFloat(log[i]), Float.intBitsToFloat(log[i + 1]), Float.intBitsToFloat(log[i + 2]), Float.intBitsToFloat(log[i + 3]));
+				break;
+			case ROTATEX:
+				gl.glRotatex(log[i], log[i + 1], log[i + 2], log[i + 3]);
+				break;
+			case SAMPLE_COVERAGE:
+				gl.glSampleCoverage(Float.intBitsToFloat(log[i]), log[i + 1] != 0);
+				break;
+			case SAMPLE_COVERAGEX:
+				gl.glSampleCoveragex(log[i], log[i + 1] != 0);
+				break;
+			case SCALEF:
+				gl.glScalef(Float.intBitsToFloat(log[i]), Float.intBitsToFloat(log[i + 1]), Float.intBitsToFloat(log[i + 2]));
+				break;
+			case SCALEX:
+				gl.glScalex(log[i], log[i + 1], log[i + 2]);
+				break;
+			case SCISSOR:
+				gl.glScissor(log[i], log[i + 1], log[i + 2], log[i + 3]);
+				break;
+			case SHADE_MODEL:
+				gl.glShadeModel(log[i]);
+				break;
+			case SHADER_BINARY:
+				gl.glShaderBinary(log[i], ints(i + 1), log[i + 4], buffer(i + 5), log[i + 8]);
+				break;
+			case SHADER_SOURCE:
+				gl.glShaderSource(names.get(SHADER, log[i]), log[i + 1], strings.get(log[i + 2]), ints(i + 3));
+				break;
+			case STENCIL_FUNC:
+				gl.glStencilFunc(log[i], log[i + 1], log[i + 2]);
+				break;
+			case STENCIL_FUNC_SEPARATE:
+				gl.glStencilFuncSeparate(log[i], log[i + 1], log[i + 2], log[i + 3]);
+				break;
+			case STENCIL_MASK:
+				gl.glStencilMask(log[i]);
+				break;
+			case STENCIL_MASK_SEPARATE:
+				gl.glStencilMaskSeparate(log[i], log[i + 1]);
+				break;
+			case STENCIL_OP:
+				gl.glStencilOp(log[i], log[i + 1], log[i + 2]);
+				break;
+			case STENCIL_OP_SEPARATE:
+				gl.glStencilOpSeparate(log[i], log[i + 1], log[i + 2], log[i + 3]);
+				break;
+			case TEX_COORD_POINTER:
+				gl.glTexCoordPointer(log[i], log[i + 1], log[i + 2], buffer(i + 3));
+				break;
+			case TEX_ENVF:
+				gl.glTexEnvf(log[i], log[i + 1], Float.intBitsToFloat(log[i + 2]));
+				break;
+			case TEX_ENVFV:
+				gl.glTexEnvfv(log[i], log[i + 1], floats(i + 2));
+				break;
+			case TEX_ENVI:
+				gl.glTexEnvi(log[i], log[i + 1], log[i + 2]);
+				break;
+			case TEX_ENVIV:
+				gl.glTexEnviv(log[i], log[i + 1], ints(i + 2));
+				break;
+			case TEX_ENVX:
+				gl.glTexEnvx(log[i], log[i + 1], log[i + 2]);
+				break;
+			case TEX_ENVXV:
+				gl.glTexEnvxv(log[i], log[i + 1], ints(i + 2));
+				break;
+			case TEX_IMAGE2D:
+				gl.glTexImage2D(log[i], log[i + 1], log[i + 2], log[i + 3], log[i + 4], log[i + 5], log[i + 6], log[i + 7], buffer(i + 8));
+				break;
+			case TEX_PARAMETERF:
+				gl.glTexParameterf(log[i], log[i + 1], Float.intBitsToFloat(log[i + 2]));
+				break;
+			case TEX_PARAMETERFV:
+				gl.glTexParameterfv(log[i], log[i + 1], floats(i + 2));
+				break;
+			case TEX_PARAMETERI:
+				gl.glTexParameteri(log[i], log[i + 1], log[i + 2]);
+				break;
+			case TEX_PARAMETERIV:
+				gl.glTexParameteriv(log[i], log[i + 1], ints(i + 2));
+				break;
+			case TEX_PARAMETERX:
+				gl.glTexParameterx(log[i], log[i + 1], log[i + 2]);
+				break;
+			case TEX_PARAMETERXV:
+				gl.glTexParameterxv(log[i], log[i + 1], ints(i + 2));
+				break;
+			case TEX_SUB_IMAGE2D:
+				gl.glTexSubImage2D(log[i], log[i + 1], log[i + 2], log[i + 3], log[i + 4], log[i + 5], log[i + 6], log[i + 7], buffer(i + 8));
+				break;
+			case TRANSLATEF:
+				gl.glTranslatef(Float.intBitsToFloat(log[i]), Float.intBitsToFloat(log[i + 1]), Float.intBitsToFloat(log[i + 2]));
+				break;
+			case TRANSLATEX:
+				gl.glTranslatex(log[i], log[i + 1], log[i + 2]);
+				break;
+			case UNIFORM1F:
+				gl.glUniform1f(names.location(UNIFORM, log[i]), Float.intBitsToFloat(log[i + 1]));
+				break;
+			case UNIFORM1FV:
+				gl.glUniform1fv(names.location(UNIFORM, log[i]), log[i + 1], floats(i + 2));
+				break;
+			case UNIFORM1I:
+				gl.glUniform1i(names.location(UNIFORM, log[i]), log[i + 1]);
+				break;
+			case UNIFORM1IV:
+				gl.glUniform1iv(names.location(UNIFORM, log[i]), log[i + 1], ints(i + 2));
+				break;
+			case UNIFORM2F:
+				gl.glUniform2f(names.location(UNIFORM, log[i]), Float.intBitsToFloat(log[i + 1]), Float.intBitsToFloat(log[i + 2]));
+				break;
+			case UNIFORM2FV:
+				gl.glUniform2fv(names.location(UNIFORM, log[i]), log[i + 1], floats(i + 2));
+				break;
+			case UNIFORM2I:
+				gl.glUniform2i(names.location(UNIFORM, log[i]), log[i + 1], log[i + 2]);
+				break;
+			case UNIFORM2IV:
+				gl.glUniform2iv(names.location(UNIFORM, log[i]), log[i + 1], ints(i + 2));
+				break;
+			case UNIFORM3F:
+				gl.glUniform3f(names.location(UNIFORM, log[i]), Float.intBitsToFloat(log[i + 1]), Float.intBitsToFloat(log[i + 2]), Float.intBitsToFloat(log[i + 3]));
+				break;
+			case UNIFORM3FV:
+				gl.glUniform3fv(names.location(UNIFORM, log[i]), log[i + 1], floats(i + 2));
+				break;
+			case UNIFORM3I:
+				gl.glUniform3i(names.location(UNIFORM, log[i]), log[i + 1], log[i + 2], log[i + 3]);
+				break;
+			case UNIFORM3IV:
+				gl.glUniform3iv(names.location(UNIFORM, log[i]), log[i + 1], ints(i + 2));
+				break;
+			case UNIFORM4F:
+				gl.glUniform4f(names.location(UNIFORM, log[i]), Float.intBitsToFloat(log[i + 1]), Float.intBitsToFloat(log[i + 2]), Float.intBitsToFloat(log[i + 3]), Float.intBitsToFloat(log[i + 4]));
+				break;
+			case UNIFORM4FV:
+				gl.glUniform4fv(names.location(UNIFORM, log[i]), log[i + 1], floats(i + 2));
+				break;
+			case UNIFORM4I:
+				gl.glUniform4i(names.location(UNIFORM, log[i]), log[i + 1], log[i + 2], log[i + 3], log[i + 4]);
+				break;
+			case UNIFORM4IV:
+				gl.glUniform4iv(names.location(UNIFORM, log[i]), log[i + 1], ints(i + 2));
+				break;
+			case UNIFORM_MATRIX2FV:
+				gl.glUniformMatrix2fv(names.location(UNIFORM, log[i]), log[i + 1], log[i + 2] != 0, floats(i + 3));
+				break;
+			case UNIFORM_MATRIX3FV:
+				gl.glUniformMatrix3fv(names.location(UNIFORM, log[i]), log[i + 1], log[i + 2] != 0, floats(i + 3));
+				break;
+			case UNIFORM_MATRIX4FV:
+				gl.glUniformMatrix4fv(names.location(UNIFORM, log[i]), log[i + 1], log[i + 2] != 0, floats(i + 3));
+				break;
+			case UNMAP_BUFFER:
+				mapped.put(bytes(i + 1));
+				((GL30) gl).glUnmapBuffer(log[i]);
+				mapped = null;
+				break;
+			case USE_PROGRAM:
+				names.program = names.get(PROGRAM, log[i]);
+				gl.glUseProgram(names.program);
+				break;
+			case VALIDATE_PROGRAM:
+				gl.glValidateProgram(names.get(PROGRAM, log[i]));
+				break;
+			case VERTEX_ATTRIB1F:
+				gl.glVertexAttrib1f(names.location(ATTRIBUTE, log[i]), Float.intBitsToFloat(log[i + 1]));
+				break;
+			case VERTEX_ATTRIB1FV:
+				gl.glVertexAttrib1fv(names.location(ATTRIBUTE, log[i]), floats(i + 1));
+				break;
+			case VERTEX_ATTRIB2F:
+				gl.glVertexAttrib2f(names.location(ATTRIBUTE, log[i]), Float.intBitsToFloat(log[i + 1]), Float.intBitsToFloat(log[i + 2]));
+				break;
+			case VERTEX_ATTRIB2FV:
+				gl.glVertexAttrib2fv(names.location(ATTRIBUTE, log[i]), floats(i + 1));
+				break;
+			case VERTEX_ATTRIB3F:
+				gl.glVertexAttrib3f(names.location(ATTRIBUTE, log[i]), Float.intBitsToFloat(log[i + 1]), Float.intBitsToFloat(log[i + 2]), Float.intBitsToFloat(log[i + 3]));
+				break;
+			case VERTEX_ATTRIB3FV:
+				gl.glVertexAttrib3fv(names.location(ATTRIBUTE, log[i]), floats(i + 1));
+				break;
+			case VERTEX_ATTRIB4F:
+				gl.glVertexAttrib4f(names.location(ATTRIBUTE, log[i]), Float.intBitsToFloat(log[i + 1]), Float.intBitsToFloat(log[i + 2]), Float.intBitsToFloat(log[i + 3]), Float.intBitsToFloat(log[i + 4]));
+				break;
+			case VERTEX_ATTRIB4FV:
+				gl.glVertexAttrib4fv(names.location(ATTRIBUTE, log[i]), floats(i + 1));
+				break;
+			case VERTEX_ATTRIB_DIVISOR:
+				((GL30) gl).glVertexAttribDivisor(names.location(ATTRIBUTE, log[i]), log[i + 1]);
+				break;
+			case VERTEX_ATTRIB_POINTER:
+				gl.glVertexAttribPointer(names.location(ATTRIBUTE, log[i]), log[i + 1], log[i + 2], log[i + 3] != 0, log[i + 4], buffer(i + 5));
+				break;
+			case VERTEX_ATTRIB_POINTER_OFFSET:
+				gl.glVertexAttribPointer(names.location(ATTRIBUTE, log[i]), log[i + 1], log[i + 2], log[i + 3] != 0, log[i + 4], log[i + 5]);
+				break;
+			case VERTEX_POINTER:
+				gl.glVertexPointer(log[i], log[i + 1], log[i + 2], buffer(i + 3));
+				break;
+			case VIEWPORT:
+				gl.glViewport(log[i], log[i + 1], log[i + 2], log[i + 3]);
+				break;
+			}
+		}
+	}
+
+	/** @return a view of the recorded buffer at <code>log[i]</code>, typed like the buffer passed to the call */
+	private Buffer buffer(int i) {
+		switch (log[i]) {
+		case NULL:
+			return null;
+		case FLOATS:
+			return floats(i);
+		case INTS:
+			return ints(i);
+		case SHORTS:
+			return shorts(i);
+		default:
+			return bytes(i);
+		}
+	}
+
+	private ByteBuffer bytes(int i) {
+		if (log[i] == NULL) return null;
+		final ByteBuffer view = data.duplicate();
+		view.limit(log[i + 1] + log[i + 2]).position(log[i + 1]);
+		return view.slice().order(ByteOrder.nativeOrder());
+	}
+
+	private ShortBuffer shorts(int i) {
+		return log[i] == NULL ? null : bytes(i).asShortBuffer();
+	}
+
+	private IntBuffer ints(int i) {
+		return log[i] == NULL ? null : bytes(i).asIntBuffer();
+	}
+
+	private FloatBuffer floats(int i) {
+		return log[i] == NULL ? null : bytes(i).asFloatBuffer();
+	}
+
+	@Override
+	public void glActiveTexture(int texture) {
+		activeUnit = texture - GL20.GL_TEXTURE0;
+		begin(ACTIVE_TEXTURE, 1);
+		put(texture);
+	}
+
+	@Override
+	public void glAlphaFunc(int func, float ref) {
+		begin(ALPHA_FUNC, 2);
+		put(func);
+		put(ref);
+	}
+
+	@Override
+	public void glAlphaFuncx(int func, int ref) {
+		begin(ALPHA_FUNCX, 2);
+		put(func);
+		put(ref);
+	}
+
+	@Override
+	public void glAttachShader(int program, int shader) {
+		program(program).shaders.add(shader);
+		begin(ATTACH_SHADER, 2);
+		put(program);
+		put(shader);
+	}
+
+	@Override
+	public void glBindAttribLocation(int program, int index, CharSequence name) {
+		program(program).bound.put(name.toString(), index);
+		begin(BIND_ATTRIB_LOCATION, 3);
+		put(program);
+		put(index);
+		put(name);
+	}
+
+	@Override
+	public void glBindBuffer(int target, int buffer) {
+		if (validate && buffer != 0 && !names[BUFFER].get(buffer)) throw new IllegalStateException("Buffer " + buffer + " does not exist.");
+		if (target == GL20.GL_ARRAY_BUFFER) arrayBuffer = buffer;
+		else if (target == GL20.GL_ELEMENT_ARRAY_BUFFER) {
+			elementArrayBuffer = buffer;
+			if (vertexArray != 0) vertexArrayElements.put(vertexArray, buffer);
+		}
+		begin(BIND_BUFFER, 2);
+		put(target);
+		put(buffer);
+	}
+
+	@Override
+	public void glBindFramebuffer(int target, int framebuffer) {
+		if (validate && framebuffer != 0 && !names[FRAMEBUFFER].get(framebuffer)) throw new IllegalStateException("Framebuffer " + framebuffer + " does not exist.");
+		begin(BIND_FRAMEBUFFER, 2);
+		put(target);
+		put(framebuffer);
+	}
+
+	@Override
+	public void glBindRenderbuffer(int target, int renderbuffer) {
+		if (validate && renderbuffer != 0 && !names[RENDERBUFFER].get(renderbuffer)) throw new IllegalStateException("Renderbuffer " + renderbuffer + " does not exist.");
+		begin(BIND_RENDERBUFFER, 2);
+		put(target);
+		put(renderbuffer);
+	}
+
+	@Override
+	public void glBindTexture(int target, int texture) {
+		if (validate && texture != 0 && !names[TEXTURE].get(texture)) throw new IllegalStateException("Texture " + texture + " does not exist.");
+		if (activeUnit >= 0 && activeUnit < boundTextures.length) boundTextures[activeUnit] = texture;
+		begin(BIND_TEXTURE, 2);
+		put(target);
+		put(texture);
+	}
+
+	@Override
+	public void glBindVertexArray(int array) {
+		if (validate && array != 0 && !names[VERTEX_ARRAY].get(array)) throw new IllegalStateException("Vertex array " + array + " does not exist.");
+		vertexArray = array;
+		final Integer elements = vertexArrayElements.get(array);
+		elementArrayBuffer = elements == null ? 0 : elements;
+		begin(BIND_VERTEX_ARRAY, 1);
+		put(array);
+	}
+
+	@Override
+	public void glBlendColor(float red, float green, float blue, float alpha) {
+		begin(BLEND_COLOR, 4);
+		put(red);
+		put(green);
+		put(blue);
+		put(alpha);
+	}
+
+	@Override
+	public void glBlendEquation(int mode) {
+		begin(BLEND_EQUATION, 1);
+		put(mode);
+	}
+
+	@Override
+	public void glBlendEquationSeparate(int modeRGB, int modeAlpha) {
+		begin(BLEND_EQUATION_SEPARATE, 2);
+		put(modeRGB);
+		put(modeAlpha);
+	}
+
+	@Override
+	public void glBlendFunc(int sfactor, int dfactor) {
+		begin(BLEND_FUNC, 2);
+		put(sfactor);
+		put(dfactor);
+	}
+
+	@Override
+	public void glBlendFuncSeparate(int sfactorRGB, int dfactorRGB, int sfactorAlpha, int dfactorAlpha) {
+		begin(BLEND_FUNC_SEPARATE, 4);
+		put(sfactorRGB);
+		put(dfactorRGB);
+		put(sfactorAlpha);
+		put(dfactorAlpha);
+	}
+
+	@Override
+	public void glBufferData(int target, int size, Buffer data, int usage) {
+		final int buffer = boundBuffer(target);
+		if (validate && buffer == 0) throw new IllegalStateException("No buffer bound to " + target + ".");
+		bufferSizes.put(buffer, size);
+		upload(data);
+		begin(BUFFER_DATA, 6);
+		put(target);
+		put(size);
+		put(data);
+		put(usage);
+	}
+
+	@Override
+	public void glBufferSubData(int target, int offset, int size, Buffer data) {
+		final int buffer = boundBuffer(target);
+		if (validate && buffer == 0) throw new IllegalStateException("No buffer bound to " + target + ".");
+		if (validate && (bufferSizes.get(buffer) == null || offset + size > bufferSizes.get(buffer))) throw new IllegalStateException("Updating past the end of buffer " + buffer + ".");
+		upload(data);
+		begin(BUFFER_SUB_DATA, 6);
+		put(target);
+		put(offset);
+		put(size);
+		put(data);
+	}
+
+	@Override
+	public int glCheckFramebufferStatus(int target) {
+		queries++;
+		return GL20.GL_FRAMEBUFFER_COMPLETE;
+	}
+
+	@Override
+	public void glClear(int mask) {
+		begin(CLEAR, 1);
+		put(mask);
+	}
+
+	@Override
+	public void glClearColor(float red, float green, float blue, float alpha) {
+		begin(CLEAR_COLOR, 4);
+		put(red);
+		put(green);
+		put(blue);
+		put(alpha);
+	}
+
+	@Override
+	public void glClearColorx(int red, int green, int blue, int alpha) {
+		begin(CLEAR_COLORX, 4);
+		put(red);
+		put(green);
+		put(blue);
+		put(alpha);
+	}
+
+	@Override
+	public void glClearDepthf(float depth) {
+		begin(CLEAR_DEPTHF, 1);
+		put(depth);
+	}
+
+	@Override
+	public void glClearDepthx(int depth) {
+		begin(CLEAR_DEPTHX, 1);
+		put(depth);
+	}
+
+	@Override
+	public void glClearStencil(int s) {
+		begin(CLEAR_STENCIL, 1);
+		put(s);
+	}
+
+	@Override
+	public void glClientActiveTexture(int texture) {
+		begin(CLIENT_ACTIVE_TEXTURE, 1);
+		put(texture);
+	}
+
+	@Override
+	public void glClipPlanef(int plane, FloatBuffer equation) {
+		begin(CLIP_PLANEF, 4);
+		put(plane);
+		put(equation);
+	}
+
+	@Override
+	public void glClipPlanex(int plane, IntBuffer equation) {
+		begin(CLIP_PLANEX, 4);
+		put(plane);
+		put(equation);
+	}
+
+	@Override
+	public void glColor4f(float red, float green, float blue, float alpha) {
+		begin(COLOR4F, 4);
+		put(red);
+		put(green);
+		put(blue);
+		put(alpha);
+	}
+
+	@Override
+	public void glColor4ub(byte red, byte green, byte blue, byte alpha) {
+		begin(COLOR4UB, 4);
+		put(red);
+		put(green);
+		put(blue);
+		put(alpha);
+	}
+
+	@Override
+	public void glColor4x(int red, int green, int blue, int alpha) {
+		begin(COLOR4X, 4);
+		put(red);
+		put(green);
+		put(blue);
+		put(alpha);
+	}
+
+	@Override
+	public void glColorMask(boolean red, boolean green, boolean blue, boolean alpha) {
+		begin(COLOR_MASK, 4);
+		put(red);
+		put(green);
+		put(blue);
+		put(alpha);
+	}
+
+	@Override
+	public void glColorPointer(int size, int type, int stride, Buffer pointer) {
+		begin(COLOR_POINTER, 6);
+		put(size);
+		put(type);
+		put(stride);
+		put(pointer);
+	}
+
+	@Override
+	public void glCompileShader(int shader) {
+		begin(COMPILE_SHADER, 1);
+		put(shader);
+	}
+
+	@Override
+	public void glCompressedTexImage2D(int target, int level, int internalformat, int width, int height, int border, int imageSize, Buffer data) {
+		if (validate && (activeUnit < 0 || activeUnit >= boundTextures.length || boundTextures[activeUnit] == 0)) throw new IllegalStateException("No texture bound to unit " + activeUnit + ".");
+		upload(data);
+		begin(COMPRESSED_TEX_IMAGE2D, 10);
+		put(target);
+		put(level);
+		put(internalformat);
+		put(width);
+		put(height);
+		put(border);
+		put(imageSize);
+		put(data);
+	}
+
+	@Override
+	public void glCompressedTexSubImage2D(int target, int level, int xoffset, int yoffset, int width, int height, int format, int imageSize, Buffer data) {
+		if (validate && (activeUnit < 0 || activeUnit >= boundTextures.length || boundTextures[activeUnit] == 0)) throw new IllegalStateException("No texture bound to unit " + activeUnit + ".");
+		upload(data);
+		begin(COMPRESSED_TEX_SUB_IMAGE2D, 11);
+		put(target);
+		put(level);
+		put(xoffset);
+		put(yoffset);
+		put(width);
+		put(height);
+		put(format);
+		put(imageSize);
+		put(data);
+	}
+
+	@Override
+	public void glCopyTexImage2D(int target, int level, int internalformat, int x, int y, int width, int height, int border) {
+		begin(COPY_TEX_IMAGE2D, 8);
+		put(target);
+		put(level);
+		put(internalformat);
+		put(x);
+		put(y);
+		put(width);
+		put(height);
+		put(border);
+	}
+
+	@Override
+	public void glCopyTexSubImage2D(int target, int level, int xoffset, int yoffset, int x, int y, int width, int height) {
+		begin(COPY_TEX_SUB_IMAGE2D, 8);
+		put(target);
+		put(level);
+		put(xoffset);
+		put(yoffset);
+		put(x);
+		put(y);
+		put(width);
+		put(height);
+	}
+
+	@Override
+	public int glCreateProgram() {
+		final int program = ++next[PROGRAM];
+		names[PROGRAM].set(program);
+		programs.put(program, new ProgramInfo());
+		begin(CREATE_PROGRAM, 1);
+		put(program);
+		return program;
+	}
+
+	@Override
+	public int glCreateShader(int type) {
+		final int shader = ++next[SHADER];
+		names[SHADER].set(shader);
+		shaders.put(shader, new ShaderInfo(type));
+		begin(CREATE_SHADER, 2);
+		put(type);
+		put(shader);
+		return shader;
+	}
+
+	@Override
+	public void glCullFace(int mode) {
+		begin(CULL_FACE, 1);
+		put(mode);
+	}
+
+	@Override
+	public void glDeleteBuffers(int n, IntBuffer buffers) {
+		delete(BUFFER, n, buffers);
+		begin(DELETE_BUFFERS, 4);
+		put(n);
+		put(buffers);
+	}
+
+	@Override
+	public void glDeleteFramebuffers(int n, IntBuffer framebuffers) {
+		delete(FRAMEBUFFER, n, framebuffers);
+		begin(DELETE_FRAMEBUFFERS, 4);
+		put(n);
+		put(framebuffers);
+	}
+
+	@Override
+	public void glDeleteProgram(int program) {
+		names[PROGRAM].clear(program);
+		programs.remove(program);
+		if (this.program == program) this.program = 0;
+		begin(DELETE_PROGRAM, 1);
+		put(program);
+	}
+
+	@Override
+	public void glDeleteRenderbuffers(int n, IntBuffer renderbuffers) {
+		delete(RENDERBUFFER, n, renderbuffers);
+		begin(DELETE_RENDERBUFFERS, 4);
+		put(n);
+		put(renderbuffers);
+	}
+
+	@Override
+	public void glDeleteShader(int shader) {
+		names[SHADER].clear(shader);
+		shaders.remove(shader);
+		begin(DELETE_SHADER, 1);
+		put(shader);
+	}
+
+	@Override
+	public void glDeleteTextures(int n, IntBuffer textures) {
+		delete(TEXTURE, n, textures);
+		begin(DELETE_TEXTURES, 4);
+		put(n);
+		put(textures);
+	}
+
+	@Override
+	public void glDeleteVertexArrays(int n, IntBuffer arrays) {
+		delete(VERTEX_ARRAY, n, arrays);
+		begin(DELETE_VERTEX_ARRAYS, 4);
+		put(n);
+		put(arrays);
+	}
+
+	@Override
+	public void glDepthFunc(int func) {
+		begin(DEPTH_FUNC, 1);
+		put(func);
+	}
+
+	@Override
+	public void glDepthMask(boolean flag) {
+		begin(DEPTH_MASK, 1);
+		put(flag);
+	}
+
+	@Override
+	public void glDepthRangef(float zNear, float zFar) {
+		begin(DEPTH_RANGEF, 2);
+		put(zNear);
+		put(zFar);
+	}
+
+	@Override
+	public void glDepthRangex(int zNear, int zFar) {
+		begin(DEPTH_RANGEX, 2);
+		put(zNear);
+		put(zFar);
+	}
+
+	@Override
+	public void glDetachShader(int program, int shader) {
+		program(program).shaders.remove((Integer) shader);
+		begin(DETACH_SHADER, 2);
+		put(program);
+		put(shader);
+	}
+
+	@Override
+	public void glDisable(int cap) {
+		capabilities.clear(cap & 0xFFFF);
+		begin(DISABLE, 1);
+		put(cap);
+	}
+
+	@Override
+	public void glDisableClientState(int array) {
+		begin(DISABLE_CLIENT_STATE, 1);
+		put(array);
+	}
+
+	@Override
+	public void glDisableVertexAttribArray(int index) {
+		begin(DISABLE_VERTEX_ATTRIB_ARRAY, 1);
+		put(index);
+	}
+
+	@Override
+	public void glDrawArrays(int mode, int first, int count) {
+		draw();
+		begin(DRAW_ARRAYS, 3);
+		put(mode);
+		put(first);
+		put(count);
+	}
+
+	@Override
+	public void glDrawArraysInstanced(int mode, int first, int count, int instanceCount) {
+		draw();
+		begin(DRAW_ARRAYS_INSTANCED, 4);
+		put(mode);
+		put(first);
+		put(count);
+		put(instanceCount);
+	}
+
+	@Override
+	public void glDrawElements(int mode, int count, int type, Buffer indices) {
+		draw();
+		begin(DRAW_ELEMENTS, 6);
+		put(mode);
+		put(count);
+		put(type);
+		put(indices);
+	}
+
+	@Override
+	public void glDrawElements(int mode, int count, int type, int offset) {
+		if (validate && elementArrayBuffer == 0) throw new IllegalStateException("No element buffer bound.");
+		draw();
+		begin(DRAW_ELEMENTS_OFFSET, 4);
+		put(mode);
+		put(count);
+		put(type);
+		put(offset);
+	}
+
+	@Override
+	public void glDrawElementsInstanced(int mode, int count, int type, int offset, int instanceCount) {
+		if (validate && elementArrayBuffer == 0) throw new IllegalStateException("No element buffer bound.");
+		draw();
+		begin(DRAW_ELEMENTS_INSTANCED, 5);
+		put(mode);
+		put(count);
+		put(type);
+		put(offset);
+		put(instanceCount);
+	}
+
+	@Override
+	public void glEnable(int cap) {
+		capabilities.set(cap & 0xFFFF);
+		begin(ENABLE, 1);
+		put(cap);
+	}
+
+	@Override
+	public void glEnableClientState(int array) {
+		begin(ENABLE_CLIENT_STATE, 1);
+		put(array);
+	}
+
+	@Override
+	public void glEnableVertexAttribArray(int index) {
+		begin(ENABLE_VERTEX_ATTRIB_ARRAY, 1);
+		put(index);
+	}
+
+	@Override
+	public void glFinish() {
+		begin(FINISH, 0);
+	}
+
+	@Override
+	public void glFlush() {
+		begin(FLUSH, 0);
+	}
+
+	@Override
+	public void glFogf(int pname, float param) {
+		begin(FOGF, 2);
+		put(pname);
+		put(param);
+	}
+
+	@Override
+	public void glFogfv(int pname, FloatBuffer params) {
+		begin(FOGFV, 4);
+		put(pname);
+		put(params);
+	}
+
+	@Override
+	public void glFogx(int pname, int param) {
+		begin(FOGX, 2);
+		put(pname);
+		put(param);
+	}
+
+	@Override
+	public void glFogxv(int pname, IntBuffer params) {
+		begin(FOGXV, 4);
+		put(pname);
+		put(params);
+	}
+
+	@Override
+	public void glFramebufferRenderbuffer(int target, int attachment, int renderbuffertarget, int renderbuffer) {
+		begin(FRAMEBUFFER_RENDERBUFFER, 4);
+		put(target);
+		put(attachment);
+		put(renderbuffertarget);
+		put(renderbuffer);
+	}
+
+	@Override
+	public void glFramebufferTexture2D(int target, int attachment, int textarget, int texture, int level) {
+		begin(FRAMEBUFFER_TEXTURE2D, 5);
+		put(target);
+		put(attachment);
+		put(textarget);
+		put(texture);
+		put(level);
+	}
+
+	@Override
+	public void glFrontFace(int mode) {
+		begin(FRONT_FACE, 1);
+		put(mode);
+	}
+
+	@Override
+	public void glFrustumf(float left, float right, float bottom, float top, float zNear, float zFar) {
+		begin(FRUSTUMF, 6);
+		put(left);
+		put(right);
+		put(bottom);
+		put(top);
+		put(zNear);
+		put(zFar);
+	}
+
+	@Override
+	public void glFrustumx(int left, int right, int bottom, int top, int zNear, int zFar) {
+		begin(FRUSTUMX, 6);
+		put(left);
+		put(right);
+		put(bottom);
+		put(top);
+		put(zNear);
+		put(zFar);
+	}
+
+	@Override
+	public void glGenBuffers(int n, IntBuffer buffers) {
+		generate(BUFFER, n, buffers);
+		begin(GEN_BUFFERS, 4);
+		put(n);
+		put(buffers);
+	}
+
+	@Override
+	public void glGenFramebuffers(int n, IntBuffer framebuffers) {
+		generate(FRAMEBUFFER, n, framebuffers);
+		begin(GEN_FRAMEBUFFERS, 4);
+		put(n);
+		put(framebuffers);
+	}
+
+	@Override
+	public void glGenRenderbuffers(int n, IntBuffer renderbuffers) {
+		generate(RENDERBUFFER, n, renderbuffers);
+		begin(GEN_RENDERBUFFERS, 4);
+		put(n);
+		put(renderbuffers);
+	}
+
+	@Override
+	public void glGenTextures(int n, IntBuffer textures) {
+		generate(TEXTURE, n, textures);
+		begin(GEN_TEXTURES, 4);
+		put(n);
+		put(textures);
+	}
+
+	@Override
+	public void glGenVertexArrays(int n, IntBuffer arrays) {
+		generate(VERTEX_ARRAY, n, arrays);
+		begin(GEN_VERTEX_ARRAYS, 4);
+		put(n);
+		put(arrays);
+	}
+
+	@Override
+	public void glGenerateMipmap(int target) {
+		begin(GENERATE_MIPMAP, 1);
+		put(target);
+	}
+
+	@Override
+	public void glGetActiveAttrib(int program, int index, int bufSize, IntBuffer length, IntBuffer size, IntBuffer type, ByteBuffer name) {
+		queries++;
+	}
+
+	@Override
+	public void glGetActiveUniform(int program, int index, int bufSize, IntBuffer length, IntBuffer size, IntBuffer type, ByteBuffer name) {
+		queries++;
+	}
+
+	@Override
+	public void glGetAttachedShaders(int program, int maxCount, IntBuffer count, IntBuffer shaders) {
+		queries++;
+	}
+
+	@Override
+	public int glGetAttribLocation(int program, CharSequence name) {
+		final Integer location = program(program).attributes.get(name.toString());
+		begin(GET_ATTRIB_LOCATION, 3);
+		put(program);
+		put(name);
+		put(location == null ? -1 : location);
+		return location == null ? -1 : location;
+	}
+
+	@Override
+	public void glGetBooleanv(int pname, ByteBuffer params) {
+		queries++;
+	}
+
+	@Override
+	public void glGetBufferParameteriv(int target, int pname, IntBuffer params) {
+		queries++;
+	}
+
+	@Override
+	public void glGetClipPlanef(int pname, FloatBuffer eqn) {
+		queries++;
+	}
+
+	@Override
+	public void glGetClipPlanex(int pname, IntBuffer eqn) {
+		queries++;
+	}
+
+	@Override
+	public int glGetError() {
+		queries++;
+		return GL20.GL_NO_ERROR;
+	}
+
+	@Override
+	public void glGetFixedv(int pname, IntBuffer params) {
+		queries++;
+	}
+
+	@Override
+	public void glGetFloatv(int pname, FloatBuffer params) {
+		queries++;
+	}
+
+	@Override
+	public void glGetFramebufferAttachmentParameteriv(int target, int attachment, int pname, IntBuffer params) {
+		queries++;
+	}
+
+	@Override
+	public void glGetIntegerv(int pname, IntBuffer params) {
+		queries++;
+		final int value;
+		switch (pname) {
+		case GL20.GL_MAX_TEXTURE_SIZE:
+			value = 4096;
+			break;
+		case GL20.GL_MAX_TEXTURE_IMAGE_UNITS:
+		case GL20.GL_MAX_VERTEX_ATTRIBS:
+			value = 16;
+			break;
+		case GL20.GL_MAX_COMBINED_TEXTURE_IMAGE_UNITS:
+			value = 32;
+			break;
+		case GL20.GL_ARRAY_BUFFER_BINDING:
+			value = arrayBuffer;
+			break;
+		case GL20.GL_ELEMENT_ARRAY_BUFFER_BINDING:
+			value = elementArrayBuffer;
+			break;
+		case GL20.GL_CURRENT_PROGRAM:
+			value = program;
+			break;
+		case GL30.GL_VERTEX_ARRAY_BINDING:
+			value = vertexArray;
+			break;
+		default:
+			value = 0;
+		}
+		params.put(params.position(), value);
+	}
+
+	@Override
+	public void glGetLightfv(int light, int pname, FloatBuffer params) {
+		queries++;
+	}
+
+	@Override
+	public void glGetLightxv(int light, int pname, IntBuffer params) {
+		queries++;
+	}
+
+	@Override
+	public void glGetMaterialfv(int face, int pname, FloatBuffer params) {
+		queries++;
+	}
+
+	@Override
+	public void glGetMaterialxv(int face, int pname, IntBuffer params) {
+		queries++;
+	}
+
+	@Override
+	public void glGetPointerv(int pname, Buffer[] params) {
+		queries++;
+	}
+
+	@Override
+	public void glGetProgramInfoLog(int program, int bufSize, IntBuffer length, ByteBuffer infoLog) {
+		queries++;
+	}
+
+	@Override
+	public void glGetProgramiv(int program, int pname, IntBuffer params) {
+		queries++;
+		final ProgramInfo info = program(program);
+		final int value;
+		switch (pname) {
+		case GL20.GL_LINK_STATUS:
+		case GL20.GL_VALIDATE_STATUS:
+			value = info.linked ? GL20.GL_TRUE : GL20.GL_FALSE;
+			break;
+		case GL20.GL_ACTIVE_ATTRIBUTES:
+			value = info.attributes.size();
+			break;
+		case GL20.GL_ACTIVE_UNIFORMS:
+			value = info.uniforms.size();
+			break;
+		default:
+			value = 0;
+		}
+		params.put(params.position(), value);
+	}
+
+	@Override
+	public void glGetRenderbufferParameteriv(int target, int pname, IntBuffer params) {
+		queries++;
+	}
+
+	@Override
+	public void glGetShaderInfoLog(int shader, int bufSize, IntBuffer length, ByteBuffer infoLog) {
+		queries++;
+	}
+
+	@Override
+	public void glGetShaderPrecisionFormat(int shadertype, int precisiontype, IntBuffer range, IntBuffer precision) {
+		queries++;
+	}
+
+	@Override
+	public void glGetShaderSource(int shader, int bufSize, IntBuffer length, ByteBuffer source) {
+		queries++;
+	}
+
+	@Override
+	public void glGetShaderiv(int shader, int pname, IntBuffer params) {
+		queries++;
+		final ShaderInfo info = shader(shader);
+		params.put(params.position(), pname == GL20.GL_COMPILE_STATUS ? GL20.GL_TRUE : pname == GL20.GL_SHADER_TYPE ? info.type : 0);
+	}
+
+	@Override
+	public String glGetString(int name) {
+		queries++;
+		if (name == GL20.GL_VERSION) return "3.0";
+		return name == GL20.GL_EXTENSIONS ? "GL_ARB_instanced_arrays GL_ARB_draw_instanced" : "RecordingGL30";
+	}
+
+	@Override
+	public void glGetTexEnvfv(int env, int pname, FloatBuffer params) {
+		queries++;
+	}
+
+	@Override
+	public void glGetTexEnviv(int env, int pname, IntBuffer params) {
+		queries++;
+	}
+
+	@Override
+	public void glGetTexEnvxv(int env, int pname, IntBuffer params) {
+		queries++;
+	}
+
+	@Override
+	public void glGetTexParameterfv(int target, int pname, FloatBuffer params) {
+		queries++;
+	}
+
+	@Override
+	public void glGetTexParameteriv(int target, int pname, IntBuffer params) {
+		queries++;
+	}
+
+	@Override
+	public void glGetTexParameterxv(int target, int pname, IntBuffer params) {
+		queries++;
+	}
+
+	@Override
+	public int glGetUniformLocation(int program, CharSequence name) {
+		final Integer location = program(program).uniforms.get(name.toString());
+		begin(GET_UNIFORM_LOCATION, 3);
+		put(program);
+		put(name);
+		put(location == null ? -1 : location);
+		return location == null ? -1 : location;
+	}
+
+	@Override
+	public void glGetUniformfv(int program, int location, FloatBuffer params) {
+		queries++;
+	}
+
+	@Override
+	public void glGetUniformiv(int program, int location, IntBuffer params) {
+		queries++;
+	}
+
+	@Override
+	public ByteBuffer glGetVertexAttribPointerv(int index, int pname, long result_size) {
+		queries++;
+		return null;
+	}
+
+	@Override
+	public void glGetVertexAttribfv(int index, int pname, FloatBuffer params) {
+		queries++;
+	}
+
+	@Override
+	public void glGetVertexAttribiv(int index, int pname, IntBuffer params) {
+		queries++;
+	}
+
+	@Override
+	public void glHint(int target, int mode) {
+		begin(HINT, 2);
+		put(target);
+		put(mode);
+	}
+
+	@Override
+	public boolean glIsBuffer(int buffer) {
+		queries++;
+		return buffer != 0 && names[BUFFER].get(buffer);
+	}
+
+	@Override
+	public boolean glIsEnabled(int cap) {
+		queries++;
+		return capabilities.get(cap & 0xFFFF);
+	}
+
+	@Override
+	public boolean glIsFramebuffer(int framebuffer) {
+		queries++;
+		return framebuffer != 0 && names[FRAMEBUFFER].get(framebuffer);
+	}
+
+	@Override
+	public boolean glIsProgram(int program) {
+		queries++;
+		return programs.containsKey(program);
+	}
+
+	@Override
+	public boolean glIsRenderbuffer(int renderbuffer) {
+		queries++;
+		return renderbuffer != 0 && names[RENDERBUFFER].get(renderbuffer);
+	}
+
+	@Override
+	public boolean glIsShader(int shader) {
+		queries++;
+		return shaders.containsKey(shader);
+	}
+
+	@Override
+	public boolean glIsTexture(int texture) {
+		queries++;
+		return texture != 0 && names[TEXTURE].get(texture);
+	}
+
+	@Override
+	public void glLightModelf(int pname, float param) {
+		begin(LIGHT_MODELF, 2);
+		put(pname);
+		put(param);
+	}
+
+	@Override
+	public void glLightModelfv(int pname, FloatBuffer params) {
+		begin(LIGHT_MODELFV, 4);
+		put(pname);
+		put(params);
+	}
+
+	@Override
+	public void glLightModelx(int pname, int param) {
+		begin(LIGHT_MODELX, 2);
+		put(pname);
+		put(param);
+	}
+
+	@Override
+	public void glLightModelxv(int pname, IntBuffer params) {
+		begin(LIGHT_MODELXV, 4);
+		put(pname);
+		put(params);
+	}
+
+	@Override
+	public void glLightf(int light, int pname, float param) {
+		begin(LIGHTF, 3);
+		put(light);
+		put(pname);
+		put(param);
+	}
+
+	@Override
+	public void glLightfv(int light, int pname, FloatBuffer params) {
+		begin(LIGHTFV, 5);
+		put(light);
+		put(pname);
+		put(params);
+	}
+
+	@Override
+	public void glLightx(int light, int pname, int param) {
+		begin(LIGHTX, 3);
+		put(light);
+		put(pname);
+		put(param);
+	}
+
+	@Override
+	public void glLightxv(int light, int pname, IntBuffer params) {
+		begin(LIGHTXV, 5);
+		put(light);
+		put(pname);
+		put(params);
+	}
+
+	@Override
+	public void glLineWidth(float width) {
+		begin(LINE_WIDTH, 1);
+		put(width);
+	}
+
+	@Override
+	public void glLineWidthx(int width) {
+		begin(LINE_WIDTHX, 1);
+		put(width);
+	}
+
+	@Override
+	public void glLinkProgram(int program) {
+		link(program(program));
+		begin(LINK_PROGRAM, 1);
+		put(program);
+	}
+
+	@Override
+	public void glLoadIdentity() {
+		begin(LOAD_IDENTITY, 0);
+	}
+
+	@Override
+	public void glLoadMatrixf(FloatBuffer m) {
+		begin(LOAD_MATRIXF, 3);
+		put(m);
+	}
+
+	@Override
+	public void glLoadMatrixx(IntBuffer m) {
+		begin(LOAD_MATRIXX, 3);
+		put(m);
+	}
+
+	@Override
+	public void glLogicOp(int opcode) {
+		begin(LOGIC_OP, 1);
+		put(opcode);
+	}
+
+	@Override
+	public ByteBuffer glMapBufferRange(int target, int offset, int length, int access) {
+		final int buffer = boundBuffer(target);
+		if (validate && buffer == 0) throw new IllegalStateException("No buffer bound to " + target + ".");
+		if (validate && mapped != null) throw new IllegalStateException("A buffer is already mapped.");
+		if (mapping == null || mapping.capacity() < length) mapping = ByteBuffer.allocateDirect(length).order(ByteOrder.nativeOrder());
+		mapped = ((ByteBuffer) mapping.clear().limit(length)).slice().order(ByteOrder.nativeOrder());
+		begin(MAP_BUFFER_RANGE, 4);
+		put(target);
+		put(offset);
+		put(length);
+		put(access);
+		return mapped;
+	}
+
+	@Override
+	public void glMaterialf(int face, int pname, float param) {
+		begin(MATERIALF, 3);
+		put(face);
+		put(pname);
+		put(param);
+	}
+
+	@Override
+	public void glMaterialfv(int face, int pname, FloatBuffer params) {
+		begin(MATERIALFV, 5);
+		put(face);
+		put(pname);
+		put(params);
+	}
+
+	@Override
+	public void glMaterialx(int face, int pname, int param) {
+		begin(MATERIALX, 3);
+		put(face);
+		put(pname);
+		put(param);
+	}
+
+	@Override
+	public void glMaterialxv(int face, int pname, IntBuffer params) {
+		begin(MATERIALXV, 5);
+		put(face);
+		put(pname);
+		put(params);
+	}
+
+	@Override
+	public void glMatrixMode(int mode) {
+		begin(MATRIX_MODE, 1);
+		put(mode);
+	}
+
+	@Override
+	public void glMultMatrixf(FloatBuffer m) {
+		begin(MULT_MATRIXF, 3);
+		put(m);
+	}
+
+	@Override
+	public void glMultMatrixx(IntBuffer m) {
+		begin(MULT_MATRIXX, 3);
+		put(m);
+	}
+
+	@Override
+	public void glMultiTexCoord4f(int target, float s, float t, float r, float q) {
+		begin(MULTI_TEX_COORD4F, 5);
+		put(target);
+		put(s);
+		put(t);
+		put(r);
+		put(q);
+	}
+
+	@Override
+	public void glMultiTexCoord4x(int target, int s, int t, int r, int q) {
+		begin(MULTI_TEX_COORD4X, 5);
+		put(target);
+		put(s);
+		put(t);
+		put(r);
+		put(q);
+	}
+
+	@Override
+	public void glNormal3f(float nx, float ny, float nz) {
+		begin(NORMAL3F, 3);
+		put(nx);
+		put(ny);
+		put(nz);
+	}
+
+	@Override
+	public void glNormal3x(int nx, int ny, int nz) {
+		begin(NORMAL3X, 3);
+		put(nx);
+		put(ny);
+		put(nz);
+	}
+
+	@Override
+	public void glNormalPointer(int type, int stride, Buffer pointer) {
+		begin(NORMAL_POINTER, 5);
+		put(type);
+		put(stride);
+		put(pointer);
+	}
+
+	@Override
+	public void glOrthof(float left, float right, float bottom, float top, float zNear, float zFar) {
+		begin(ORTHOF, 6);
+		put(left);
+		put(right);
+		put(bottom);
+		put(top);
+		put(zNear);
+		put(zFar);
+	}
+
+	@Override
+	public void glOrthox(int left, int right, int bottom, int top, int zNear, int zFar) {
+		begin(ORTHOX, 6);
+		put(left);
+		put(right);
+		put(bottom);
+		put(top);
+		put(zNear);
+		put(zFar);
+	}
+
+	@Override
+	public void glPixelStorei(int pname, int param) {
+		begin(PIXEL_STOREI, 2);
+		put(pname);
+		put(param);
+	}
+
+	@Override
+	public void glPointParameterf(int pname, float param) {
+		begin(POINT_PARAMETERF, 2);
+		put(pname);
+		put(param);
+	}
+
+	@Override
+	public void glPointParameterfv(int pname, FloatBuffer params) {
+		begin(POINT_PARAMETERFV, 4);
+		put(pname);
+		put(params);
+	}
+
+	@Override
+	public void glPointParameterx(int pname, int param) {
+		begin(POINT_PARAMETERX, 2);
+		put(pname);
+		put(param);
+	}
+
+	@Override
+	public void glPointParameterxv(int pname, IntBuffer params) {
+		begin(POINT_PARAMETERXV, 4);
+		put(pname);
+		put(params);
+	}
+
+	@Override
+	public void glPointSize(float size) {
+		begin(POINT_SIZE, 1);
+		put(size);
+	}
+
+	@Override
+	public void glPointSizex(int size) {
+		begin(POINT_SIZEX, 1);
+		put(size);
+	}
+
+	@Override
+	public void glPolygonOffset(float factor, float units) {
+		begin(POLYGON_OFFSET, 2);
+		put(factor);
+		put(units);
+	}
+
+	@Override
+	public void glPolygonOffsetx(int factor, int units) {
+		begin(POLYGON_OFFSETX, 2);
+		put(factor);
+		put(units);
+	}
+
+	@Override
+	public void glPopMatrix() {
+		begin(POP_MATRIX, 0);
+	}
+
+	@Override
+	public void glPushMatrix() {
+		begin(PUSH_MATRIX, 0);
+	}
+
+	@Override
+	public void glReadPixels(int x, int y, int width, int height, int format, int type, Buffer pixels) {
+		queries++;
+	}
+
+	@Override
+	public void glReleaseShaderCompiler() {
+		begin(RELEASE_SHADER_COMPILER, 0);
+	}
+
+	@Override
+	public void glRenderbufferStorage(int target, int internalformat, int width, int height) {
+		begin(RENDERBUFFER_STORAGE, 4);
+		put(target);
+		put(internalformat);
+		put(width);
+		put(height);
+	}
+
+	@Override
+	public void glRotatef(float angle, float x, float y, float z) {
+		begin(ROTATEF, 4);
+		put(angle);
+		put(x);
+		put(y);
+		put(z);
+	}
+
+	@Override
+	public void glRotatex(int angle, int x, int y, int z) {
+		begin(ROTATEX, 4);
+		put(angle);
+		put(x);
+		put(y);
+		put(z);
+	}
+
+	@Override
+	public void glSampleCoverage(float value, boolean invert) {
+		begin(SAMPLE_COVERAGE, 2);
+		put(value);
+		put(invert);
+	}
+
+	@Override
+	public void glSampleCoveragex(int value, boolean invert) {
+		begin(SAMPLE_COVERAGEX, 2);
+		put(value);
+		put(invert);
+	}
+
+	@Override
+	public void glScalef(float x, float y, float z) {
+		begin(SCALEF, 3);
+		put(x);
+		put(y);
+		put(z);
+	}
+
+	@Override
+	public void glScalex(int x, int y, int z) {
+		begin(SCALEX, 3);
+		put(x);
+		put(y);
+		put(z);
+	}
+
+	@Override
+	public void glScissor(int x, int y, int width, int height) {
+		begin(SCISSOR, 4);
+		put(x);
+		put(y);
+		put(width);
+		put(height);
+	}
+
+	@Override
+	public void glShadeModel(int mode) {
+		begin(SHADE_MODEL, 1);
+		put(mode);
+	}
+
+	@Override
+	public void glShaderBinary(int count, IntBuffer shaders, int binaryformat, Buffer binary, int length) {
+		begin(SHADER_BINARY, 9);
+		put(count);
+		put(shaders);
+		put(binaryformat);
+		put(binary);
+		put(length);
+	}
+
+	@Override
+	public void glShaderSource(int shader, int count, String string, IntBuffer length) {
+		shader(shader).source = string;
+		begin(SHADER_SOURCE, 6);
+		put(shader);
+		put(count);
+		put(string);
+		put(length);
+	}
+
+	@Override
+	public void glStencilFunc(int func, int ref, int mask) {
+		begin(STENCIL_FUNC, 3);
+		put(func);
+		put(ref);
+		put(mask);
+	}
+
+	@Override
+	public void glStencilFuncSeparate(int face, int func, int ref, int mask) {
+		begin(STENCIL_FUNC_SEPARATE, 4);
+		put(face);
+		put(func);
+		put(ref);
+		put(mask);
+	}
+
+	@Override
+	public void glStencilMask(int mask) {
+		begin(STENCIL_MASK, 1);
+		put(mask);
+	}
+
+	@Override
+	public void glStencilMaskSeparate(int face, int mask) {
+		begin(STENCIL_MASK_SEPARATE, 2);
+		put(face);
+		put(mask);
+	}
+
+	@Override
+	public void glStencilOp(int fail, int zfail, int zpass) {
+		begin(STENCIL_OP, 3);
+		put(fail);
+		put(zfail);
+		put(zpass);
+	}
+
+	@Override
+	public void glStencilOpSeparate(int face, int sfail, int dpfail, int dppass) {
+		begin(STENCIL_OP_SEPARATE, 4);
+		put(face);
+		put(sfail);
+		put(dpfail);
+		put(dppass);
+	}
+
+	@Override
+	public void glTexCoordPointer(int size, int type, int stride, Buffer pointer) {
+		begin(TEX_COORD_POINTER, 6);
+		put(size);
+		put(type);
+		put(stride);
+		put(pointer);
+	}
+
+	@Override
+	public void glTexEnvf(int target, int pname, float param) {
+		begin(TEX_ENVF, 3);
+		put(target);
+		put(pname);
+		put(param);
+	}
+
+	@Override
+	public void glTexEnvfv(int target, int pname, FloatBuffer params) {
+		begin(TEX_ENVFV, 5);
+		put(target);
+		put(pname);
+		put(params);
+	}
+
+	@Override
+	public void glTexEnvi(int target, int pname, int param) {
+		begin(TEX_ENVI, 3);
+		put(target);
+		put(pname);
+		put(param);
+	}
+
+	@Override
+	public void glTexEnviv(int target, int pname, IntBuffer params) {
+		begin(TEX_ENVIV, 5);
+		put(target);
+		put(pname);
+		put(params);
+	}
+
+	@Override
+	public void glTexEnvx(int target, int pname, int param) {
+		begin(TEX_ENVX, 3);
+		put(target);
+		put(pname);
+		put(param);
+	}
+
+	@Override
+	public void glTexEnvxv(int target, int pname, IntBuffer params) {
+		begin(TEX_ENVXV, 5);
+		put(target);
+		put(pname);
+		put(params);
+	}
+
+	@Override
+	public void glTexImage2D(int target, int level, int internalformat, int width, int height, int border, int format, int type, Buffer pixels) {
+		if (validate && (activeUnit < 0 || activeUnit >= boundTextures.length || boundTextures[activeUnit] == 0)) throw new IllegalStateException("No texture bound to unit " + activeUnit + ".");
+		upload(pixels);
+		begin(TEX_IMAGE2D, 11);
+		put(target);
+		put(level);
+		put(internalformat);
+		put(width);
+		put(height);
+		put(border);
+		put(format);
+		put(type);
+		put(pixels);
+	}
+
+	@Override
+	public void glTexParameterf(int target, int pname, float param) {
+		begin(TEX_PARAMETERF, 3);
+		put(target);
+		put(pname);
+		put(param);
+	}
+
+	@Override
+	public void glTexParameterfv(int target, int pname, FloatBuffer params) {
+		begin(TEX_PARAMETERFV, 5);
+		put(target);
+		put(pname);
+		put(params);
+	}
+
+	@Override
+	public void glTexParameteri(int target, int pname, int param) {
+		begin(TEX_PARAMETERI, 3);
+		put(target);
+		put(pname);
+		put(param);
+	}
+
+	@Override
+	public void glTexParameteriv(int target, int pname, IntBuffer params) {
+		begin(TEX_PARAMETERIV, 5);
+		put(target);
+		put(pname);
+		put(params);
+	}
+
+	@Override
+	public void glTexParameterx(int target, int pname, int param) {
+		begin(TEX_PARAMETERX, 3);
+		put(target);
+		put(pname);
+		put(param);
+	}
+
+	@Override
+	public void glTexParameterxv(int target, int pname, IntBuffer params) {
+		begin(TEX_PARAMETERXV, 5);
+		put(target);
+		put(pname);
+		put(params);
+	}
+
+	@Override
+	public void glTexSubImage2D(int target, int level, int xoffset, int yoffset, int width, int height, int format, int type, Buffer pixels) {
+		if (validate && (activeUnit < 0 || activeUnit >= boundTextures.length || boundTextures[activeUnit] == 0)) throw new IllegalStateException("No texture bound to unit " + activeUnit + ".");
+		upload(pixels);
+		begin(TEX_SUB_IMAGE2D, 11);
+		put(target);
+		put(level);
+		put(xoffset);
+		put(yoffset);
+		put(width);
+		put(height);
+		put(format);
+		put(type);
+		put(pixels);
+	}
+
+	@Override
+	public void glTranslatef(float x, float y, float z) {
+		begin(TRANSLATEF, 3);
+		put(x);
+		put(y);
+		put(z);
+	}
+
+	@Override
+	public void glTranslatex(int x, int y, int z) {
+		begin(TRANSLATEX, 3);
+		put(x);
+		put(y);
+		put(z);
+	}
+
+	@Override
+	public void glUniform1f(int location, float v0) {
+		if (validate && program == 0) throw new IllegalStateException("No program in use for uniform " + location + ".");
+		begin(UNIFORM1F, 2);
+		put(location);
+		put(v0);
+	}
+
+	@Override
+	public void glUniform1fv(int location, int count, FloatBuffer value) {
+		if (validate && program == 0) throw new IllegalStateException("No program in use for uniform " + location + ".");
+		begin(UNIFORM1FV, 5);
+		put(location);
+		put(count);
+		put(value);
+	}
+
+	@Override
+	public void glUniform1i(int location, int v0) {
+		if (validate && program == 0) throw new IllegalStateException("No program in use for uniform " + location + ".");
+		begin(UNIFORM1I, 2);
+		put(location);
+		put(v0);
+	}
+
+	@Override
+	public void glUniform1iv(int location, int count, IntBuffer value) {
+		if (validate && program == 0) throw new IllegalStateException("No program in use for uniform " + location + ".");
+		begin(UNIFORM1IV, 5);
+		put(location);
+		put(count);
+		put(value);
+	}
+
+	@Override
+	public void glUniform2f(int location, float v0, float v1) {
+		if (validate && program == 0) throw new IllegalStateException("No program in use for uniform " + location + ".");
+		begin(UNIFORM2F, 3);
+		put(location);
+		put(v0);
+		put(v1);
+	}
+
+	@Override
+	public void glUniform2fv(int location, int count, FloatBuffer value) {
+		if (validate && program == 0) throw new IllegalStateException("No program in use for uniform " + location + ".");
+		begin(UNIFORM2FV, 5);
+		put(location);
+		put(count);
+		put(value);
+	}
+
+	@Override
+	public void glUniform2i(int location, int v0, int v1) {
+		if (validate && program == 0) throw new IllegalStateException("No program in use for uniform " + location + ".");
+		begin(UNIFORM2I, 3);
+		put(location);
+		put(v0);
+		put(v1);
+	}
+
+	@Override
+	public void glUniform2iv(int location, int count, IntBuffer value) {
+		if (validate && program == 0) throw new IllegalStateException("No program in use for uniform " + location + ".");
+		begin(UNIFORM2IV, 5);
+		put(location);
+		put(count);
+		put(value);
+	}
+
+	@Override
+	public void glUniform3f(int location, float v0, float v1, float v2) {
+		if (validate && program == 0) throw new IllegalStateException("No program in use for uniform " + location + ".");
+		begin(UNIFORM3F, 4);
+		put(location);
+		put(v0);
+		put(v1);
+		put(v2);
+	}
+
+	@Override
+	public void glUniform3fv(int location, int count, FloatBuffer value) {
+		if (validate && program == 0) throw new IllegalStateException("No program in use for uniform " + location + ".");
+		begin(UNIFORM3FV, 5);
+		put(location);
+		put(count);
+		put(value);
+	}
+
+	@Override
+	public void glUniform3i(int location, int v0, int v1, int v2) {
+		if (validate && program == 0) throw new IllegalStateException("No program in use for uniform " + location + ".");
+		begin(UNIFORM3I, 4);
+		put(location);
+		put(v0);
+		put(v1);
+		put(v2);
+	}
+
+	@Override
+	public void glUniform3iv(int location, int count, IntBuffer value) {
+		if (validate && program == 0) throw new IllegalStateException("No program in use for uniform " + location + ".");
+		begin(UNIFORM3IV, 5);
+		put(location);
+		put(count);
+		put(value);
+	}
+
+	@Override
+	public void glUniform4f(int location, float v0, float v1, float v2, float v3) {
+		if (validate && program == 0) throw new IllegalStateException("No program in use for uniform " + location + ".");
+		begin(UNIFORM4F, 5);
+		put(location);
+		put(v0);
+		put(v1);
+		put(v2);
+		put(v3);
+	}
+
+	@Override
+	public void glUniform4fv(int location, int count, FloatBuffer value) {
+		if (validate && program == 0) throw new IllegalStateException("No program in use for uniform " + location + ".");
+		begin(UNIFORM4FV, 5);
+		put(location);
+		put(count);
+		put(value);
+	}
+
+	@Override
+	public void glUniform4i(int location, int v0, int v1, int v2, int v3) {
+		if (validate && program == 0) throw new IllegalStateException("No program in use for uniform " + location + ".");
+		begin(UNIFORM4I, 5);
+		put(location);
+		put(v0);
+		put(v1);
+		put(v2);
+		put(v3);
+	}
+
+	@Override
+	public void glUniform4iv(int location, int count, IntBuffer value) {
+		if (validate && program == 0) throw new IllegalStateException("No program in use for uniform " + location + ".");
+		begin(UNIFORM4IV, 5);
+		put(location);
+		put(count);
+		put(value);
+	}
+
+	@Override
+	public void glUniformMatrix2fv(int location, int count, boolean transpose, FloatBuffer value) {
+		if (validate && program == 0) throw new IllegalStateException("No program in use for uniform " + location + ".");
+		begin(UNIFORM_MATRIX2FV, 6);
+		put(location);
+		put(count);
+		put(transpose);
+		put(value);
+	}
+
+	@Override
+	public void glUniformMatrix3fv(int location, int count, boolean transpose, FloatBuffer value) {
+		if (validate && program == 0) throw new IllegalStateException("No program in use for uniform " + location + ".");
+		begin(UNIFORM_MATRIX3FV, 6);
+		put(location);
+		put(count);
+		put(transpose);
+		put(value);
+	}
+
+	@Override
+	public void glUniformMatrix4fv(int location, int count, boolean transpose, FloatBuffer value) {
+		if (validate && program == 0) throw new IllegalStateException("No program in use for uniform " + location + ".");
+		begin(UNIFORM_MATRIX4FV, 6);
+		put(location);
+		put(count);
+		put(transpose);
+		put(value);
+	}
+
+	@Override
+	public boolean glUnmapBuffer(int target) {
+		if (validate && mapped == null) throw new IllegalStateException("No buffer is mapped.");
+		mapped.clear(); // All of the range counts, wherever the caller left the position
+		upload(mapped);
+		begin(UNMAP_BUFFER, 4);
+		put(target);
+		put(mapped);
+		mapped = null;
+		return true;
+	}
+
+	@Override
+	public void glUseProgram(int program) {
+		if (validate && program != 0 && (programs.get(program) == null || !programs.get(program).linked)) throw new IllegalStateException("Program " + program + " is not linked.");
+		this.program = program;
+		begin(USE_PROGRAM, 1);
+		put(program);
+	}
+
+	@Override
+	public void glValidateProgram(int program) {
+		begin(VALIDATE_PROGRAM, 1);
+		put(program);
+	}
+
+	@Override
+	public void glVertexAttrib1f(int index, float x) {
+		begin(VERTEX_ATTRIB1F, 2);
+		put(index);
+		put(x);
+	}
+
+	@Override
+	public void glVertexAttrib1fv(int index, FloatBuffer v) {
+		begin(VERTEX_ATTRIB1FV, 4);
+		put(index);
+		put(v);
+	}
+
+	@Override
+	public void glVertexAttrib2f(int index, float x, float y) {
+		begin(VERTEX_ATTRIB2F, 3);
+		put(index);
+		put(x);
+		put(y);
+	}
+
+	@Override
+	public void glVertexAttrib2fv(int index, FloatBuffer v) {
+		begin(VERTEX_ATTRIB2FV, 4);
+		put(index);
+		put(v);
+	}
+
+	@Override
+	public void glVertexAttrib3f(int index, float x, float y, float z) {
+		begin(VERTEX_ATTRIB3F, 4);
+		put(index);
+		put(x);
+		put(y);
+		put(z);
+	}
+
+	@Override
+	public void glVertexAttrib3fv(int index, FloatBuffer v) {
+		begin(VERTEX_ATTRIB3FV, 4);
+		put(index);
+		put(v);
+	}
+
+	@Override
+	public void glVertexAttrib4f(int index, float x, float y, float z, float w) {
+		begin(VERTEX_ATTRIB4F, 5);
+		put(index);
+		put(x);
+		put(y);
+		put(z);
+		put(w);
+	}
+
+	@Override
+	public void glVertexAttrib4fv(int index, FloatBuffer v) {
+		begin(VERTEX_ATTRIB4FV, 4);
+		put(index);
+		put(v);
+	}
+
+	@Override
+	public void glVertexAttribDivisor(int index, int divisor) {
+		begin(VERTEX_ATTRIB_DIVISOR, 2);
+		put(index);
+		put(divisor);
+	}
+
+	@Override
+	public void glVertexAttribPointer(int index, int size, int type, boolean normalized, int stride, Buffer pointer) {
+		begin(VERTEX_ATTRIB_POINTER, 8);
+		put(index);
+		put(size);
+		put(type);
+		put(normalized);
+		put(stride);
+		put(pointer);
+	}
+
+	@Override
+	public void glVertexAttribPointer(int index, int size, int type, boolean normalized, int stride, int offset) {
+		if (validate && arrayBuffer == 0) throw new IllegalStateException("No buffer bound for attribute " + index + ".");
+		begin(VERTEX_ATTRIB_POINTER_OFFSET, 6);
+		put(index);
+		put(size);
+		put(type);
+		put(normalized);
+		put(stride);
+		put(offset);
+	}
+
+	@Override
+	public void glVertexPointer(int size, int type, int stride, Buffer pointer) {
+		begin(VERTEX_POINTER, 6);
+		put(size);
+		put(type);
+		put(stride);
+		put(pointer);
+	}
+
+	@Override
+	public void glViewport(int x, int y, int width, int height) {
+		begin(VIEWPORT, 4);
+		put(x);
+		put(y);
+		put(width);
+		put(height);
+	}
+
+	private static class ShaderInfo {
+		final int type;
+		String source;
+
+		ShaderInfo(int type) {
+			this.type = type;
+		}
+	}
+
+	private static class ProgramInfo {
+		final List<Integer> shaders = new ArrayList<>();
+		/** Attribute locations given before linking. */
+		final Map<String, Integer> bound = new HashMap<>();
+		final Map<String, Integer> attributes = new HashMap<>(), uniforms = new HashMap<>();
+		boolean linked;
+	}
+
+	/** The translation of recorded object names and locations during a replay. */
+	private static class Names {
+		private final Map<Long, Integer> names = new HashMap<>(), locations = new HashMap<>();
+		/** The program in use, as named by the target. */
+		int program;
+		private IntBuffer recorded, tmp;
+		private int kind;
+
+		int get(int kind, int name) {
+			final Integer translated = names.get((long) kind << 32 | name & 0xFFFFFFFFL);
+			return translated == null ? name : translated;
+		}
+
+		void put(int kind, int name, int translated) {
+			names.put((long) kind << 32 | name & 0xFFFFFFFFL, translated);
+		}
+
+		/** Prepares {@link #tmp(int)} to receive the names for those recorded in <code>recorded</code>. */
+		void generate(int kind, IntBuffer recorded) {
+			this.kind = kind;
+			this.recorded = recorded;
+		}
+
+		IntBuffer tmp(int n) {
+			if (tmp == null || tmp.capacity() < n) tmp = ByteBuffer.allocateDirect(n * 4).order(ByteOrder.nativeOrder()).asIntBuffer();
+			tmp.clear().limit(n);
+			return tmp;
+		}
+
+		void generated() {
+			for (int i = 0; i < tmp.limit(); i++)
+				put(kind, recorded.get(i), tmp.get(i));
+		}
+
+		IntBuffer delete(int kind, int n, IntBuffer recorded) {
+			final IntBuffer translated = tmp(n);
+			for (int i = 0; i < n; i++) {
+				translated.put(i, get(kind, recorded.get(i)));
+				names.remove((long) kind << 32 | recorded.get(i) & 0xFFFFFFFFL);
+			}
+			return translated;
+		}
+
+		/** Remembers that <code>recorded</code> is <code>translated</code> in <code>program</code>. */
+		void location(int kind, int program, int recorded, int translated) {
+			if (recorded >= 0) locations.put(((long) program << 32 | recorded & 0xFFFFFFFFL) << 1 | kind, translated);
+		}
+
+		/** @return the location <code>recorded</code> in the program in use */
+		int location(int kind, int recorded) {
+			if (recorded < 0) return recorded;
+			final Integer translated = locations.get(((long) program << 32 | recorded & 0xFFFFFFFFL) << 1 | kind);
+			return translated == null ? recorded : translated;
+		}
+	}
+}
@@ -0,0 +1,144 @@
+/**
+ * 
+ */
+package ak5.platform.headless;
+
+import java.nio.IntBuffer;
+import java.util.Random;
+
+import ak5.graphics.Batch;
+import ak5.graphics.ForwardingGL20;
+import ak5.graphics.GL10;
+import ak5.graphics.GL20;
+import ak5.graphics.InstancedBatch;
+import ak5.graphics.Mesh.VertexDataType;
+import ak5.graphics.QuadBatch;
+import ak5.graphics.RenderQueue;
+import ak5.graphics.SpriteCache;
+import ak5.graphics.StateCacheGL20;
+import ak5.graphics.Texture;
+import ak5.graphics.Texture.GLTexture;
+import ak5.util.io.BufferUtil;
+
+/** Measures the CPU side of the batches against a {@link RecordingGL30} that only counts, so that changes to the
+ * rendering pipeline can be compared on machines without a GPU. Every case draws the same sprites spread over a few
+ * textures; after warming up, the average time per frame is printed with the GL calls, draw calls and uploaded bytes
+ * each frame costs.
+ * <p>
+ * Usage: <code>RenderBenchmark [sprites] [frames]</code>
+ * 
+ * @author pwnedary */
+public class RenderBenchmark {
+	private static final int TEXTURES = 4;
+
+	private final int sprites, frames;
+	private final float[] positions;
+	private final int[] textureIndices;
+
+	public RenderBenchmark(int sprites, int frames) {
+		this.sprites = sprites;
+		this.frames = frames;
+		positions = new float[sprites * 2];
+		textureIndices = new int[sprites];
+		Random random = new Random(0);
+		for (int i = 0; i < sprites; i++) {
+			positions[i * 2] = random.nextFloat() * 800;
+			positions[i * 2 + 1] = random.nextFloat() * 600;
+			textureIndices[i] = random.nextInt(TEXTURES);
+		}
+	}
+
+	public static void main(String[] args) {
+		RenderBenchmark benchmark = new RenderBenchmark(args.length > 0 ? Integer.parseInt(args[0]) : 10000, args.length > 1 ? Integer.parseInt(args[1]) : 500);
+		benchmark.run();
+	}
+
+	public void run() {
+		System.out.printf("%-28s %12s %10s %8s %12s%n", "case", "us/frame", "calls", "draws", "bytes");
+
+		RecordingGL30 gl = newGL();
+		measure("QuadBatch", gl, new QuadBatch(gl, 1000), createTextures(gl));
+
+		gl = newGL();
+		measure("QuadBatch, 4 textures", gl, new QuadBatch(gl, 1000, null, VertexDataType.STREAMING_VERTEX_BUFFER, 4), createTextures(gl));
+
+		gl = newGL();
+		measure("QuadBatch, buffer object", gl, new QuadBatch(gl, 1000, null, VertexDataType.VERTEX_BUFFER_OBJECT), createTextures(gl));
+
+		gl = newGL();
+		measure("RenderQueue", gl, new RenderQueue(new QuadBatch(gl, 1000)), createTextures(gl));
+
+		gl = newGL();
+		measure("InstancedBatch", gl, new InstancedBatch(gl, 1000), createTextures(gl));
+
+		gl = newGL(); // The same calls through a GL that is neither a GL30 nor a state cache
+		measure("QuadBatch, GL20 only", gl, new QuadBatch(new ForwardingGL20(gl), 1000), createTextures(gl));
+
+		gl = newGL();
+		StateCacheGL20 cached = StateCacheGL20.wrap(gl);
+		measure("QuadBatch, state cache", gl, new QuadBatch(cached, 1000), createTextures(gl));
+		System.out.printf("  %d calls avoided per frame%n", cached.totalAvoidedCalls / (frames * 2)); // Warm-up included
+
+		gl = newGL();
+		final SpriteCache cache = new SpriteCache(gl, sprites);
+		final Texture[] cacheTextures = createTextures(gl);
+		cache.beginCache();
+		drawSprites(cache, cacheTextures);
+		final int id = cache.endCache();
+		measure("SpriteCache", gl, new Runnable() {
+			@Override
+			public void run() {
+				cache.begin();
+				cache.draw(id);
+				cache.end();
+			}
+		});
+	}
+
+	private static RecordingGL30 newGL() {
+		RecordingGL30 gl = new RecordingGL30();
+		gl.setRecording(false);
+		return gl;
+	}
+
+	private static Texture[] createTextures(GL20 gl) {
+		Texture[] textures = new Texture[TEXTURES];
+		IntBuffer buffer = BufferUtil.newIntBuffer(TEXTURES);
+		gl.glGenTextures(TEXTURES, buffer);
+		for (int i = 0; i < TEXTURES; i++) {
+			GLTexture texture = new GLTexture(gl, GL10.GL_TEXTURE_2D, buffer.get(i), 64, 64);
+			texture.setTexWidth(64);
+			texture.setTexHeight(64);
+			textures[i] = texture;
+		}
+		return textures;
+	}
+
+	private void drawSprites(Batch batch, Texture[] textures) {
+		for (int i = 0; i < sprites; i++)
+			batch.draw(textures[textureIndices[i]], positions[i * 2], positions[i * 2 + 1], positions[i * 2] + 16, positions[i * 2 + 1] + 16);
+	}
+
+	private void measure(String name, RecordingGL30 gl, final Batch batch, final Texture[] textures) {
+		measure(name, gl, new Runnable() {
+			@Override
+			public void run() {
+				batch.begin();
+				drawSprites(batch, textures);
+				batch.end();
+			}
+		});
+	}
+
+	/** Runs <code>frame</code> as many times as measured to warm up, then measures it. */
+	private void measure(String name, RecordingGL30 gl, Runnable frame) {
+		for (int i = 0; i < frames; i++)
+			frame.run();
+		gl.resetStats();
+		long start = System.nanoTime();
+		for (int i = 0; i < frames; i++)
+			frame.run();
+		long elapsed = System.nanoTime() - start;
+		System.out.printf("%-28s %12.1f %10d %8d %12d%n", name, elapsed / 1000.0 / frames, gl.calls / frames, gl.drawCalls / frames, gl.uploadedBytes / frames);
+	}
+}
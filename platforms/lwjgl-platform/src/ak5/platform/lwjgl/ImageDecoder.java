@@ -0,0 +1,316 @@
+/**
+ * 
+ */
+package ak5.platform.lwjgl;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.IndexColorModel;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+
+import ak5.graphics.GL10;
+import ak5.util.math.Math2;
+
+/** Converts images to pixels ready for <code>glTexImage2D</code>: RGB or RGBA bytes, bottom row first, padded to a
+ * power of two only if GL requires it.
+ * <p>
+ * The rasters {@link ImageIO} usually reads into, interleaved and indexed bytes and packed ints, are read directly,
+ * flipping rows and swizzling channels in the one pass that writes them out; any other image goes through
+ * {@link BufferedImage#getRGB(int, int, int, int, int[], int, int)} a row at a time. The pixels are written to pooled
+ * direct buffers, to be given back with {@link ImageData#free()} once uploaded.
+ * <p>
+ * Images can also be stored already converted, as written by {@link #write(BufferedImage, OutputStream)}: a header of
+ * {@link #RAW_MAGIC}, width, height and channels, followed by the pixels exactly as they are uploaded. Reading those is
+ * a single copy into the buffer.
+ * <p>
+ * Mipmaps can be made with {@link #mipmap(ImageData)}, where GL cannot generate them.
+ * 
+ * @author pwnedary */
+public class ImageDecoder {
+	/** Starts a raw image: <code>"AK5R"</code>. */
+	public static final int RAW_MAGIC = 0x414B3552;
+	/** The most free buffers to keep. */
+	private static final int MAX_POOLED = 4;
+	private static final List<ByteBuffer> pool = new ArrayList<>();
+
+	private ImageDecoder() {}
+
+	/** Converts a batch of images to raw images, written next to them with the extension <code>.raw</code>.
+	 * <p>
+	 * Usage: <code>ImageDecoder image...</code> */
+	public static void main(String[] args) throws IOException {
+		for (String arg : args) {
+			BufferedImage image = ImageIO.read(new File(arg));
+			if (image == null) throw new IOException("Unsupported image format: " + arg);
+			String name = arg.lastIndexOf('.') > arg.lastIndexOf(File.separatorChar) ? arg.substring(0, arg.lastIndexOf('.')) : arg;
+			try (OutputStream out = new FileOutputStream(name + ".raw")) {
+				write(image, out);
+			}
+		}
+	}
+
+	/** Reads a raw image, or any image {@link ImageIO} can read.
+	 * 
+	 * @param pot whether to pad the pixels to a power of two */
+	public static ImageData read(InputStream in, boolean pot) throws IOException {
+		DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+		data.mark(4);
+		if (data.readInt() != RAW_MAGIC) {
+			data.reset();
+			BufferedImage image = ImageIO.read(data);
+			if (image == null) throw new IOException("Unsupported image format.");
+			return decode(image, pot);
+		}
+
+		final int width = data.readInt(), height = data.readInt(), channels = data.readInt();
+		if (channels != 3 && channels != 4) throw new IOException("Invalid raw image.");
+		final int texWidth = pot ? Math2.pot(width) : width, texHeight = pot ? Math2.pot(height) : height;
+		final int stride = texWidth * channels;
+		final ByteBuffer pixels = obtain(stride * texHeight);
+		final ReadableByteChannel channel = Channels.newChannel(data);
+		for (int y = 0; y < texHeight; y++) {
+			pixels.limit(y * stride + (y < height ? width * channels : 0));
+			while (pixels.hasRemaining())
+				if (channel.read(pixels) == -1) {
+					free(pixels);
+					throw new EOFException("Truncated raw image.");
+				}
+			pixels.limit((y + 1) * stride);
+			while (pixels.hasRemaining()) // Padding
+				pixels.put((byte) 0);
+		}
+		pixels.flip();
+		return new ImageData(width, height, texWidth, texHeight, channels == 4 ? GL10.GL_RGBA : GL10.GL_RGB, pixels);
+	}
+
+	/** Writes <code>image</code> as a raw image, to be read by {@link #read(InputStream, boolean)} without converting. */
+	public static void write(BufferedImage image, OutputStream out) throws IOException {
+		ImageData data = decode(image, false);
+		try {
+			DataOutputStream header = new DataOutputStream(new BufferedOutputStream(out));
+			header.writeInt(RAW_MAGIC);
+			header.writeInt(data.width);
+			header.writeInt(data.height);
+			header.writeInt(data.format == GL10.GL_RGBA ? 4 : 3);
+			header.flush();
+			WritableByteChannel channel = Channels.newChannel(out);
+			while (data.pixels.hasRemaining())
+				channel.write(data.pixels);
+		} finally {
+			data.free();
+		}
+	}
+
+	/** Converts <code>image</code>, with an alpha channel only if it has one. Does not touch GL, so it may be done off
+	 * the GL thread.
+	 * 
+	 * @param pot whether to pad the pixels to a power of two */
+	public static ImageData decode(BufferedImage image, boolean pot) {
+		final int width = image.getWidth(), height = image.getHeight();
+		final int texWidth = pot ? Math2.pot(width) : width, texHeight = pot ? Math2.pot(height) : height;
+		final int channels = image.getColorModel().hasAlpha() ? 4 : 3;
+		final int stride = texWidth * channels;
+		final ByteBuffer pixels = obtain(stride * texHeight);
+		final byte[] row = new byte[stride]; // Padded with zeros
+
+		final Raster raster = image.getRaster();
+		final SampleModel model = raster.getSampleModel();
+		final DataBuffer buffer = raster.getDataBuffer();
+		final boolean plain = buffer.getNumBanks() == 1 && buffer.getOffset() == 0 && raster.getSampleModelTranslateX() == 0 && raster.getSampleModelTranslateY() == 0;
+		int type = plain ? image.getType() : BufferedImage.TYPE_CUSTOM;
+		if (type == BufferedImage.TYPE_BYTE_INDEXED && !(model instanceof ComponentSampleModel)) type = BufferedImage.TYPE_CUSTOM;
+
+		switch (type) {
+		case BufferedImage.TYPE_4BYTE_ABGR: {
+			final byte[] src = ((DataBufferByte) buffer).getData();
+			final int scanline = ((ComponentSampleModel) model).getScanlineStride();
+			for (int y = height - 1; y >= 0; y--) {
+				for (int x = 0, s = y * scanline, d = 0; x < width; x++, s += 4) {
+					row[d++] = src[s + 3];
+					row[d++] = src[s + 2];
+					row[d++] = src[s + 1];
+					row[d++] = src[s];
+				}
+				pixels.put(row);
+			}
+			break;
+		}
+		case BufferedImage.TYPE_3BYTE_BGR: {
+			final byte[] src = ((DataBufferByte) buffer).getData();
+			final int scanline = ((ComponentSampleModel) model).getScanlineStride();
+			for (int y = height - 1; y >= 0; y--) {
+				for (int x = 0, s = y * scanline, d = 0; x < width; x++, s += 3) {
+					row[d++] = src[s + 2];
+					row[d++] = src[s + 1];
+					row[d++] = src[s];
+				}
+				pixels.put(row);
+			}
+			break;
+		}
+		case BufferedImage.TYPE_INT_ARGB:
+		case BufferedImage.TYPE_INT_RGB: {
+			final int[] src = ((DataBufferInt) buffer).getData();
+			final int scanline = ((SinglePixelPackedSampleModel) model).getScanlineStride();
+			for (int y = height - 1; y >= 0; y--) {
+				putARGB(src, y * scanline, width, row, channels);
+				pixels.put(row);
+			}
+			break;
+		}
+		case BufferedImage.TYPE_INT_BGR: {
+			final int[] src = ((DataBufferInt) buffer).getData();
+			final int scanline = ((SinglePixelPackedSampleModel) model).getScanlineStride();
+			for (int y = height - 1; y >= 0; y--) {
+				for (int x = 0, s = y * scanline, d = 0; x < width; x++) {
+					final int p = src[s + x];
+					row[d++] = (byte) p;
+					row[d++] = (byte) (p >> 8);
+					row[d++] = (byte) (p >> 16);
+				}
+				pixels.put(row);
+			}
+			break;
+		}
+		case BufferedImage.TYPE_BYTE_INDEXED: {
+			final byte[] src = ((DataBufferByte) buffer).getData();
+			final int scanline = ((ComponentSampleModel) model).getScanlineStride();
+			final IndexColorModel colors = (IndexColorModel) image.getColorModel();
+			final int[] palette = new int[256];
+			colors.getRGBs(palette);
+			final int[] argb = new int[width];
+			for (int y = height - 1; y >= 0; y--) {
+				for (int x = 0, s = y * scanline; x < width; x++)
+					argb[x] = palette[src[s + x] & 0xFF];
+				putARGB(argb, 0, width, row, channels);
+				pixels.put(row);
+			}
+			break;
+		}
+		default: {
+			final int[] argb = new int[width];
+			for (int y = height - 1; y >= 0; y--) {
+				image.getRGB(0, y, width, 1, argb, 0, width);
+				putARGB(argb, 0, width, row, channels);
+				pixels.put(row);
+			}
+		}
+		}
+
+		Arrays.fill(row, (byte) 0);
+		while (pixels.hasRemaining())
+			pixels.put(row);
+		pixels.flip();
+		return new ImageData(width, height, texWidth, texHeight, channels == 4 ? GL10.GL_RGBA : GL10.GL_RGB, pixels);
+	}
+
+	/** Makes the next smaller mipmap level of <code>level</code>, halving it with a box filter. The last row or column
+	 * of an odd size is averaged with itself.
+	 * 
+	 * @return a level of half the size, at least 1x1 */
+	public static ImageData mipmap(ImageData level) {
+		final int channels = level.format == GL10.GL_RGBA ? 4 : 3;
+		final int srcWidth = level.texWidth, srcHeight = level.texHeight;
+		final int width = Math.max(1, srcWidth / 2), height = Math.max(1, srcHeight / 2);
+		final int srcStride = srcWidth * channels;
+		final ByteBuffer src = level.pixels, pixels = obtain(width * height * channels);
+		for (int y = 0; y < height; y++) {
+			final int row0 = 2 * y * srcStride, row1 = Math.min(2 * y + 1, srcHeight - 1) * srcStride;
+			for (int x = 0; x < width; x++) {
+				final int col0 = 2 * x * channels, col1 = Math.min(2 * x + 1, srcWidth - 1) * channels;
+				for (int c = 0; c < channels; c++) {
+					final int sum = (src.get(row0 + col0 + c) & 0xFF) + (src.get(row0 + col1 + c) & 0xFF) + (src.get(row1 + col0 + c) & 0xFF) + (src.get(row1 + col1 + c) & 0xFF);
+					pixels.put((byte) ((sum + 2) >> 2));
+				}
+			}
+		}
+		pixels.flip();
+		return new ImageData(Math.max(1, level.width / 2), Math.max(1, level.height / 2), width, height, level.format, pixels);
+	}
+
+	/** Swizzles <code>width</code> ARGB pixels from <code>offset</code> to RGB(A) bytes in <code>row</code>. */
+	private static void putARGB(int[] src, int offset, int width, byte[] row, int channels) {
+		if (channels == 4) for (int x = 0, d = 0; x < width; x++) {
+			final int p = src[offset + x];
+			row[d++] = (byte) (p >> 16);
+			row[d++] = (byte) (p >> 8);
+			row[d++] = (byte) p;
+			row[d++] = (byte) (p >>> 24);
+		}
+		else for (int x = 0, d = 0; x < width; x++) {
+			final int p = src[offset + x];
+			row[d++] = (byte) (p >> 16);
+			row[d++] = (byte) (p >> 8);
+			row[d++] = (byte) p;
+		}
+	}
+
+	/** @return a direct buffer with <code>size</code> bytes remaining, the smallest big enough that was freed if any */
+	static synchronized ByteBuffer obtain(int size) {
+		int best = -1;
+		for (int i = 0; i < pool.size(); i++)
+			if (pool.get(i).capacity() >= size && (best == -1 || pool.get(i).capacity() < pool.get(best).capacity())) best = i;
+		ByteBuffer buffer = best == -1 ? ByteBuffer.allocateDirect(size).order(ByteOrder.nativeOrder()) : pool.remove(best);
+		buffer.clear().limit(size);
+		return buffer;
+	}
+
+	/** Gives <code>buffer</code> back to be reused, replacing the smallest free buffer if there are too many. */
+	static synchronized void free(ByteBuffer buffer) {
+		if (pool.size() < MAX_POOLED) {
+			pool.add(buffer);
+			return;
+		}
+		int smallest = 0;
+		for (int i = 1; i < pool.size(); i++)
+			if (pool.get(i).capacity() < pool.get(smallest).capacity()) smallest = i;
+		if (pool.get(smallest).capacity() < buffer.capacity()) pool.set(smallest, buffer);
+	}
+
+	/** The pixels of an image, converted for upload. */
+	public static class ImageData {
+		final int width, height, texWidth, texHeight;
+		/** The format of the pixels, <code>GL_RGB</code> or <code>GL_RGBA</code>. */
+		final int format;
+		final ByteBuffer pixels;
+
+		ImageData(int width, int height, int texWidth, int texHeight, int format, ByteBuffer pixels) {
+			this.width = width;
+			this.height = height;
+			this.texWidth = texWidth;
+			this.texHeight = texHeight;
+			this.format = format;
+			this.pixels = pixels;
+		}
+
+		/** Gives the pixels back to be reused; must not be used afterwards. */
+		public void free() {
+			ImageDecoder.free(pixels);
+		}
+	}
+}
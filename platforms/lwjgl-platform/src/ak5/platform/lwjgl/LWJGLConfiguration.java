@@ -19,6 +19,16 @@ public class LWJGLConfiguration extends VariableConfigurationImpl implements Con
 	public boolean resizable;
 	public String title;
 	public boolean vsync;
+	/** Ticks per second, read by {@link ak5.Loop.FixedTimestep}. */
+	public int tickRate = 30;
+	/** Frame cap, read by {@link ak5.Loop.FixedTimestep}; <code>0</code> for none. */
+	public int frameRate = 60;
+	/** Whether to tick on a separate thread, see {@link ak5.Loop.Pipelined}. */
+	public boolean pipelined;
+	/** Whether to drop GL calls that would not change any state, see {@link ak5.graphics.StateCacheGL20}. */
+	public boolean stateCache;
+	/** Whether to give textures mipmaps, generated by GL where it can and box filtered otherwise. */
+	public boolean mipmaps;
 
 	public LWJGLConfiguration() {
 		this.width = 800;
@@ -450,7 +450,8 @@ public class LWJGLGL11 implements ak5.graphics.GL11 {
 
 	@Override
 	public void glBufferData(int target, int size, Buffer data, int usage) {
-		if (data instanceof ByteBuffer) GL15.glBufferData(target, (ByteBuffer) data, usage);
+		if (data == null) GL15.glBufferData(target, (long) size, usage); // allocate, or orphan the old storage
+		else if (data instanceof ByteBuffer) GL15.glBufferData(target, (ByteBuffer) data, usage);
 		else if (data instanceof ShortBuffer) GL15.glBufferData(target, (ShortBuffer) data, usage);
 		else if (data instanceof IntBuffer) GL15.glBufferData(target, (IntBuffer) data, usage);
 		else if (data instanceof FloatBuffer) GL15.glBufferData(target, (FloatBuffer) data, usage);
@@ -3,7 +3,75 @@
  */
 package ak5.platform.lwjgl;
 
-import ak5.graphics.GL30;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
 
-/** @author pwnedary */
-public class LWJGLGL30 extends LWJGLGL20 implements GL30 {}
\ No newline at end of file
+import org.lwjgl.opengl.ARBDrawInstanced;
+import org.lwjgl.opengl.ARBInstancedArrays;
+import org.lwjgl.opengl.ContextCapabilities;
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GL31;
+import org.lwjgl.opengl.GL33;
+import org.lwjgl.opengl.GLContext;
+
+/** Instancing is core only from OpenGL 3.1 and 3.3, so the ARB extensions are used on older 3.x contexts, see
+ * {@link ak5.graphics.InstancedBatch#isInstancingSupported(ak5.graphics.GL10)}.
+ * 
+ * @author pwnedary */
+public class LWJGLGL30 extends LWJGLGL20 implements ak5.graphics.GL30 {
+	@Override
+	public ByteBuffer glMapBufferRange(int target, int offset, int length, int access) {
+		return GL30.glMapBufferRange(target, offset, length, access, null);
+	}
+
+	@Override
+	public boolean glUnmapBuffer(int target) {
+		return GL15.glUnmapBuffer(target);
+	}
+
+	/** Core, as a 3.x core context need not expose <code>GL_EXT_framebuffer_object</code>. */
+	@Override
+	public void glGenerateMipmap(int target) {
+		GL30.glGenerateMipmap(target);
+	}
+
+	@Override
+	public void glVertexAttribDivisor(int index, int divisor) {
+		ContextCapabilities capabilities = GLContext.getCapabilities();
+		if (capabilities.OpenGL33) GL33.glVertexAttribDivisor(index, divisor);
+		else if (capabilities.GL_ARB_instanced_arrays) ARBInstancedArrays.glVertexAttribDivisorARB(index, divisor);
+		else throw new UnsupportedOperationException("glVertexAttribDivisor requires OpenGL 3.3 or ARB_instanced_arrays");
+	}
+
+	@Override
+	public void glDrawArraysInstanced(int mode, int first, int count, int instanceCount) {
+		ContextCapabilities capabilities = GLContext.getCapabilities();
+		if (capabilities.OpenGL31) GL31.glDrawArraysInstanced(mode, first, count, instanceCount);
+		else if (capabilities.GL_ARB_draw_instanced) ARBDrawInstanced.glDrawArraysInstancedARB(mode, first, count, instanceCount);
+		else throw new UnsupportedOperationException("glDrawArraysInstanced requires OpenGL 3.1 or ARB_draw_instanced");
+	}
+
+	@Override
+	public void glDrawElementsInstanced(int mode, int count, int type, int offset, int instanceCount) {
+		ContextCapabilities capabilities = GLContext.getCapabilities();
+		if (capabilities.OpenGL31) GL31.glDrawElementsInstanced(mode, count, type, offset, instanceCount);
+		else if (capabilities.GL_ARB_draw_instanced) ARBDrawInstanced.glDrawElementsInstancedARB(mode, count, type, offset, instanceCount);
+		else throw new UnsupportedOperationException("glDrawElementsInstanced requires OpenGL 3.1 or ARB_draw_instanced");
+	}
+
+	@Override
+	public void glGenVertexArrays(int n, IntBuffer arrays) {
+		GL30.glGenVertexArrays(arrays);
+	}
+
+	@Override
+	public void glBindVertexArray(int array) {
+		GL30.glBindVertexArray(array);
+	}
+
+	@Override
+	public void glDeleteVertexArrays(int n, IntBuffer arrays) {
+		GL30.glDeleteVertexArrays(arrays);
+	}
+}
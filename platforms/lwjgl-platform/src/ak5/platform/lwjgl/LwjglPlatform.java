@@ -8,31 +8,25 @@ import static ak5.platform.lwjgl.LWJGLSound.*;
 
 import java.awt.Canvas;
 import java.awt.Container;
-import java.awt.Graphics2D;
-import java.awt.color.ColorSpace;
-import java.awt.geom.AffineTransform;
 import java.awt.image.BufferedImage;
-import java.awt.image.ColorModel;
-import java.awt.image.ComponentColorModel;
-import java.awt.image.DataBuffer;
-import java.awt.image.DataBufferByte;
-import java.awt.image.Raster;
 import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
 import java.nio.IntBuffer;
-import java.util.Hashtable;
-
-import javax.imageio.ImageIO;
+import java.util.List;
 
 import org.lwjgl.BufferUtils;
 import org.lwjgl.LWJGLException;
 import org.lwjgl.Sys;
 import org.lwjgl.openal.AL;
 import org.lwjgl.openal.AL10;
+import org.lwjgl.opengl.ContextCapabilities;
 import org.lwjgl.opengl.Display;
 import org.lwjgl.opengl.DisplayMode;
+import org.lwjgl.opengl.GLContext;
 import org.lwjgl.util.WaveData;
 
 import ak5.Platform;
@@ -43,21 +37,25 @@ import ak5.Handler;
 import ak5.Input;
 import ak5.backend.Sound;
 import ak5.graphics.GL10;
+import ak5.graphics.GL20;
+import ak5.graphics.StateCacheGL20;
 import ak5.graphics.Texture;
 import ak5.graphics.Texture.GLTexture;
+import ak5.graphics.TextureContainer;
+import ak5.platform.lwjgl.ImageDecoder.ImageData;
 import ak5.util.Configuration;
+import ak5.util.Profiler;
 import ak5.util.io.Asset;
-import ak5.util.math.Math2;
+import ak5.util.io.AssetManager;
 import ak5.util.math.geom.Rectangle;
 
 /** @author pwnedary */
 public class LwjglPlatform extends PlatformImpl implements Platform {
-	/** The color model including alpha for GL images */
-	private static final ColorModel glAlphaColorModel = new ComponentColorModel(ColorSpace.getInstance(ColorSpace.CS_sRGB), new int[] { 8, 8, 8, 8 }, true, false, ComponentColorModel.TRANSLUCENT, DataBuffer.TYPE_BYTE);;
-	/** The color model for GL images */
-	private static final ColorModel glColorModel = new ComponentColorModel(ColorSpace.getInstance(ColorSpace.CS_sRGB), new int[] { 8, 8, 8, 0 }, false, false, ComponentColorModel.OPAQUE, DataBuffer.TYPE_BYTE);;
+	private static final Profiler.Scope DISPLAY = Profiler.scope(Profiler.DISPLAY);
 
 	private GL10 gl;
+	/** Whether textures may have sizes that are not powers of two, and whether GL can generate mipmaps. */
+	private boolean npot, generateMipmap;
 	private LWJGLInput input;
 	/** The Display's parent. */
 	private Canvas parent;
@@ -95,7 +93,6 @@ public class LwjglPlatform extends PlatformImpl implements Platform {
 	@Override
 	public void start() {
 		try {
-			gl = new LWJGLGL20();
 			input = new LWJGLInput(handler);
 
 			LWJGLConfiguration config = (LWJGLConfiguration) configuration;
@@ -131,6 +128,11 @@ public class LwjglPlatform extends PlatformImpl implements Platform {
 			if (parent != null) parent.setSize(config.width, config.height); // parent.getParent().setSize(config.getWidth(), config.getHeight());
 			Display.setParent(parent);
 			Display.create();
+			ContextCapabilities capabilities = GLContext.getCapabilities();
+			gl = capabilities.OpenGL30 ? new LWJGLGL30() : new LWJGLGL20();
+			npot = capabilities.OpenGL20 || capabilities.GL_ARB_texture_non_power_of_two;
+			generateMipmap = capabilities.OpenGL30 || capabilities.GL_EXT_framebuffer_object;
+			if (config.stateCache) gl = StateCacheGL20.wrap((GL20) gl);
 
 			gl.glViewport(0, 0, Display.getWidth(), Display.getHeight());
 		} catch (LWJGLException e) {
@@ -140,7 +142,7 @@ public class LwjglPlatform extends PlatformImpl implements Platform {
 
 	@Override
 	public Input getInput() {
-		return input;
+		return snapshot != null ? snapshot : input;
 	}
 
 	@Override
@@ -149,8 +151,11 @@ public class LwjglPlatform extends PlatformImpl implements Platform {
 			gl.glViewport(0, 0, Display.getWidth(), Display.getHeight());
 			handler.handle(new Event.Resize(getWidth(), getHeight()));
 		}
+		if (gl instanceof StateCacheGL20) ((StateCacheGL20) gl).resetStats(); // Counting this frame's
 		callback.draw(gl, delta);
+		long start = DISPLAY.begin();
 		Display.update();
+		DISPLAY.end(start);
 		// Util.checkGLError();
 	}
 
@@ -199,7 +204,14 @@ public class LwjglPlatform extends PlatformImpl implements Platform {
 
 	@Override
 	public Texture getTexture(CharSequence name) throws IOException {
-		return getTexture(ImageIO.read(getResourceAsStream(name)));
+		if (name.toString().endsWith(TextureContainer.EXTENSION)) return readContainer(name).upload(gl);
+		InputStream stream = getResourceAsStream(name);
+		if (stream == null) throw new FileNotFoundException(name.toString());
+		try {
+			return uploadImageData(ImageDecoder.read(stream, !npot));
+		} finally {
+			stream.close();
+		}
 	}
 
 	@Override
@@ -209,46 +221,82 @@ public class LwjglPlatform extends PlatformImpl implements Platform {
 
 	//	@Override
 	public Texture getTexture(BufferedImage bufferedImage) {
+		return uploadImageData(ImageDecoder.decode(bufferedImage, !npot));
+	}
+
+	/** Maps the container <code>name</code> if it is a file, reading it otherwise. */
+	private TextureContainer readContainer(CharSequence name) throws IOException {
+		URL url = Thread.currentThread().getContextClassLoader().getResource(name.toString());
+		if (url == null) throw new FileNotFoundException(name.toString());
+		if (url.getProtocol().equals("file")) try {
+			return TextureContainer.read(new File(url.toURI()));
+		} catch (URISyntaxException e) {} // Read as a stream instead
+		try (InputStream stream = url.openStream()) {
+			return TextureContainer.read(stream);
+		}
+	}
+
+	/** @return a loader for an {@link AssetManager} that reads and converts images, raw ones and containers included, on
+	 *         its workers, leaving only the upload to the GL thread */
+	@Override
+	public AssetManager.Loader<Texture, Object> getTextureLoader() {
+		return new AssetManager.Loader<Texture, Object>() {
+			@Override
+			public Object decode(String path, List<AssetManager.Dependency> dependencies) throws IOException {
+				if (path.endsWith(TextureContainer.EXTENSION)) return readContainer(path);
+				InputStream stream = getResourceAsStream(path);
+				if (stream == null) throw new FileNotFoundException(path);
+				try {
+					return ImageDecoder.read(stream, !npot);
+				} finally {
+					stream.close();
+				}
+			}
+
+			@Override
+			public Texture finish(String path, Object data, AssetManager manager) {
+				return data instanceof TextureContainer ? ((TextureContainer) data).upload(gl) : uploadImageData((ImageData) data);
+			}
+
+			@Override
+			public void unload(Texture asset) {
+				asset.dispose();
+			}
+		};
+	}
+
+	/** Uploads <code>data</code>, with mipmaps if configured, generated by GL if it can. */
+	private Texture uploadImageData(ImageData data) {
 		IntBuffer buffer = BufferUtils.createIntBuffer(1);
 		gl.glGenTextures(1, buffer);
 		int textureID = buffer.get(0); // create the texture ID for this texture
 		int target = GL_TEXTURE_2D;
-		int srcPixelFormat = bufferedImage.getColorModel().hasAlpha() ? GL_RGBA : GL_RGB;
-		Texture texture = new Texture.GLTexture(gl, GL_TEXTURE_2D, textureID, bufferedImage.getWidth(), bufferedImage.getHeight());
-
-		ByteBuffer textureBuffer = convertImageData(bufferedImage, texture); // convert that image into a byte buffer of texture data
+		GLTexture texture = new Texture.GLTexture(gl, GL_TEXTURE_2D, textureID, data.width, data.height);
+		texture.setTexWidth(data.texWidth);
+		texture.setTexHeight(data.texHeight);
 
+		final boolean mipmaps = ((LWJGLConfiguration) configuration).mipmaps;
 		texture.bind();
-		texture.setFilter(Texture.Filter.NEAREST, Texture.Filter.NEAREST);
+		texture.setFilter(mipmaps ? Texture.Filter.LINEAR_MIPMAP_LINEAR : Texture.Filter.NEAREST, Texture.Filter.NEAREST);
 		//		texture.setWrap(Texture.Wrap.CLAMP_TO_EDGE, Texture.Wrap.CLAMP_TO_EDGE);
-		gl.glTexImage2D(target, 0, GL_RGBA, ((GLTexture) texture).getTexWidth(), ((GLTexture) texture).getTexHeight(), 0, srcPixelFormat, GL_UNSIGNED_BYTE, textureBuffer); // produce a texture from the byte buffer
-		gl.glPixelStorei(GL_UNPACK_ALIGNMENT, 1);
+		gl.glPixelStorei(GL_UNPACK_ALIGNMENT, 1); // Rows of RGB pixels need not be aligned
+		gl.glTexImage2D(target, 0, GL_RGBA, data.texWidth, data.texHeight, 0, data.format, GL_UNSIGNED_BYTE, data.pixels); // produce a texture from the byte buffer
+		if (mipmaps && generateMipmap) ((GL20) gl).glGenerateMipmap(target);
+		else if (mipmaps) {
+			ImageData level = data;
+			for (int i = 1; level.texWidth > 1 || level.texHeight > 1; i++) {
+				ImageData next = ImageDecoder.mipmap(level);
+				if (level != data) level.free();
+				gl.glTexImage2D(target, i, GL_RGBA, next.texWidth, next.texHeight, 0, next.format, GL_UNSIGNED_BYTE, next.pixels);
+				level = next;
+			}
+			if (level != data) level.free();
+		}
+		data.free();
+		texture.setMemoryUsage(GLTexture.estimateMemoryUsage(data.texWidth, data.texHeight, 4, mipmaps));
 		return texture;
 	}
 
-	/** Convert the buffered image to a texture
-	 * 
-	 * @param bufferedImage The image to convert to a texture
-	 * @param texture The texture to store the data into
-	 * @return a buffer containing the data */
-	private ByteBuffer convertImageData(BufferedImage bufferedImage, Texture texture) {
-		// Find the closest power of 2 for the width and height of the produced texture
-		int texWidth = Math2.pot(bufferedImage.getWidth());
-		int texHeight = Math2.pot(bufferedImage.getHeight());
-		((GLTexture) texture).setTexWidth(texWidth);
-		((GLTexture) texture).setTexHeight(texHeight);
-
-		BufferedImage image = bufferedImage.getColorModel().hasAlpha() ? new BufferedImage(glAlphaColorModel, Raster.createInterleavedRaster(DataBuffer.TYPE_BYTE, texWidth, texHeight, 4, null), false, new Hashtable<>()) : new BufferedImage(glColorModel, Raster.createInterleavedRaster(DataBuffer.TYPE_BYTE, texWidth, texHeight, 3, null), false, new Hashtable<>()); // Create a raster that can be used by OpenGL as a source for a texture
-
-		AffineTransform xform = AffineTransform.getScaleInstance(1, -1);
-		xform.translate(0, -bufferedImage.getHeight(null)); // Flip the image vertically
-		((Graphics2D) image.getGraphics()).drawImage(bufferedImage, xform, parent); // Copy source into the produced image
-
-		// Build a byte buffer from the temporary image that be used by OpenGL to produce a texture.
-		byte[] data = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
-		return (ByteBuffer) ByteBuffer.allocateDirect(data.length).order(ByteOrder.nativeOrder()).put(data).flip();
-	}
-
 	static {
 		int channels = 8;
 		try {
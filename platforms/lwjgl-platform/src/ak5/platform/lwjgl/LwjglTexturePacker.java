@@ -0,0 +1,172 @@
+/**
+ * 
+ */
+package ak5.platform.lwjgl;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+
+import ak5.graphics.TextureAtlas;
+import ak5.graphics.TextureAtlas.Packer;
+import ak5.util.math.Math2;
+import ak5.util.math.geom.Rectangle;
+
+/** Packs images into {@link TextureAtlas} pages, either uploading them directly or writing them out so that later runs
+ * can load the atlas without packing.
+ * <p>
+ * Every image is surrounded by <code>padding</code> pixels, which with edge bleeding repeat the image's outermost pixels
+ * so that filtering never samples a neighbour.
+ * 
+ * @author pwnedary */
+public class LwjglTexturePacker {
+	private final int pageWidth, pageHeight;
+	private final int padding;
+	private final boolean bleed;
+	private final List<Entry> entries = new ArrayList<>();
+	private List<Page> pages;
+
+	public LwjglTexturePacker() {
+		this(1024, 1024, 1, true);
+	}
+
+	/** @param pageWidth the maximum width of a page, rounded up to a power of two
+	 * @param pageHeight the maximum height of a page, rounded up to a power of two */
+	public LwjglTexturePacker(int pageWidth, int pageHeight, int padding, boolean bleed) {
+		this.pageWidth = Math2.pot(pageWidth);
+		this.pageHeight = Math2.pot(pageHeight);
+		this.padding = padding;
+		this.bleed = bleed;
+	}
+
+	public void add(String name, BufferedImage image) {
+		if (image.getWidth() + 2 * padding > pageWidth || image.getHeight() + 2 * padding > pageHeight) throw new IllegalArgumentException(name + " does not fit within a page");
+		entries.add(new Entry(name, image));
+		pages = null;
+	}
+
+	/** Reads and adds the image <code>name</code> from the classpath. */
+	public void add(LwjglPlatform platform, String name) throws IOException {
+		add(name, ImageIO.read(platform.getResourceAsStream(name)));
+	}
+
+	/** Uploads the packed pages.
+	 * 
+	 * @return an atlas of every added image, by name */
+	public TextureAtlas pack(LwjglPlatform platform) {
+		TextureAtlas atlas = new TextureAtlas();
+		for (Page page : pack()) {
+			int index = atlas.addPage(platform.getTexture(page.render()));
+			for (Entry entry : page.entries)
+				atlas.addRegion(entry.name, index, entry.x, entry.y, entry.image.getWidth(), entry.image.getHeight());
+		}
+		return atlas;
+	}
+
+	/** Writes the packed pages as <code>name0.png, name1.png, ...</code> together with <code>name.atlas</code>, to be
+	 * loaded by {@link TextureAtlas#TextureAtlas(ak5.Platform, File)}. */
+	public void write(File directory, String name) throws IOException {
+		List<Page> pages = pack();
+		try (Writer writer = new OutputStreamWriter(Files.newOutputStream(new File(directory, name + ".atlas").toPath()), Charset.forName("UTF-8"))) {
+			for (int i = 0; i < pages.size(); i++) {
+				Page page = pages.get(i);
+				String file = name + i + ".png";
+				ImageIO.write(page.render(), "png", new File(directory, file));
+				writer.write("page " + file + "\n");
+				for (Entry entry : page.entries)
+					writer.write("region " + entry.x + " " + entry.y + " " + entry.image.getWidth() + " " + entry.image.getHeight() + " " + entry.name + "\n");
+			}
+		}
+	}
+
+	/** Places every image, largest first, on the first page it fits on. */
+	private List<Page> pack() {
+		if (pages != null) return pages;
+		List<Entry> sorted = new ArrayList<>(entries);
+		Collections.sort(sorted, new Comparator<Entry>() {
+			@Override
+			public int compare(Entry e1, Entry e2) {
+				int side1 = Math.max(e1.image.getWidth(), e1.image.getHeight()), side2 = Math.max(e2.image.getWidth(), e2.image.getHeight());
+				return side1 != side2 ? side2 - side1 : e2.image.getWidth() * e2.image.getHeight() - e1.image.getWidth() * e1.image.getHeight();
+			}
+		});
+
+		pages = new ArrayList<>();
+		for (Entry entry : sorted) {
+			int width = entry.image.getWidth() + 2 * padding, height = entry.image.getHeight() + 2 * padding;
+			Rectangle rect = null;
+			Page page = null;
+			for (int i = 0; i < pages.size() && rect == null; i++)
+				rect = (page = pages.get(i)).packer.insert(width, height);
+			if (rect == null) {
+				pages.add(page = new Page(new Packer(pageWidth, pageHeight)));
+				rect = page.packer.insert(width, height);
+			}
+			entry.x = rect.getX() + padding;
+			entry.y = rect.getY() + padding;
+			page.entries.add(entry);
+			page.width = Math.max(page.width, rect.getX() + width);
+			page.height = Math.max(page.height, rect.getY() + height);
+		}
+		return pages;
+	}
+
+	private static class Entry {
+		final String name;
+		final BufferedImage image;
+		int x, y;
+
+		Entry(String name, BufferedImage image) {
+			this.name = name;
+			this.image = image;
+		}
+	}
+
+	private class Page {
+		final Packer packer;
+		final List<Entry> entries = new ArrayList<>();
+		/** The extent actually used. */
+		int width, height;
+
+		Page(Packer packer) {
+			this.packer = packer;
+		}
+
+		/** Draws the page, shrunk to the smallest power of two that holds every image. */
+		BufferedImage render() {
+			BufferedImage image = new BufferedImage(Math2.pot(width), Math2.pot(height), BufferedImage.TYPE_INT_ARGB);
+			int[] row = new int[Math.max(pageWidth, pageHeight)];
+			for (Entry entry : entries) {
+				int w = entry.image.getWidth(), h = entry.image.getHeight();
+				for (int y = 0; y < h; y++) {
+					entry.image.getRGB(0, y, w, 1, row, 0, w);
+					image.setRGB(entry.x, entry.y + y, w, 1, row, 0, w);
+				}
+				if (!bleed || padding == 0) continue;
+				for (int p = 1; p <= padding; p++) { // Repeat the outermost rows and columns, corners included
+					image.getRGB(entry.x, entry.y, w, 1, row, 0, w);
+					image.setRGB(entry.x, entry.y - p, w, 1, row, 0, w);
+					image.getRGB(entry.x, entry.y + h - 1, w, 1, row, 0, w);
+					image.setRGB(entry.x, entry.y + h - 1 + p, w, 1, row, 0, w);
+				}
+				for (int p = 1; p <= padding; p++) {
+					image.getRGB(entry.x, entry.y - padding, 1, h + 2 * padding, row, 0, 1);
+					image.setRGB(entry.x - p, entry.y - padding, 1, h + 2 * padding, row, 0, 1);
+					image.getRGB(entry.x + w - 1, entry.y - padding, 1, h + 2 * padding, row, 0, 1);
+					image.setRGB(entry.x + w - 1 + p, entry.y - padding, 1, h + 2 * padding, row, 0, 1);
+				}
+			}
+			return image;
+		}
+	}
+}
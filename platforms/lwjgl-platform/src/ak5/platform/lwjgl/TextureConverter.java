@@ -0,0 +1,252 @@
+/**
+ * 
+ */
+package ak5.platform.lwjgl;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+
+import ak5.graphics.GL10;
+import ak5.graphics.TextureContainer;
+import ak5.graphics.TextureContainer.Format;
+import ak5.platform.lwjgl.ImageDecoder.ImageData;
+
+/** Converts images to {@link TextureContainer}s offline, so that they load without decoding.
+ * <p>
+ * The compressed formats are encoded simply rather than well: DXT by the bounding box of each block's colors, ETC1 by
+ * the average colors of its halves in individual mode only, trying each table and both flips. Tools made for it do
+ * better, and their output can be stored as well, the blocks being the same.
+ * <p>
+ * Usage: <code>TextureConverter [-format RGBA8|RGB565|RGBA4444|ETC1|DXT1|DXT5] [-mipmaps] [-pot] image...</code>
+ * 
+ * @author pwnedary */
+public class TextureConverter {
+	/** The modifiers of each ETC1 table, by pixel index. */
+	private static final int[][] ETC1_MODIFIERS = { { 2, 8, -2, -8 }, { 5, 17, -5, -17 }, { 9, 29, -9, -29 }, { 13, 42, -13, -42 }, { 18, 60, -18, -60 }, { 24, 80, -24, -80 }, { 33, 106, -33, -106 }, { 47, 183, -47, -183 } };
+
+	private TextureConverter() {}
+
+	/** Writes a container next to each image, with the extension {@link TextureContainer#EXTENSION}. */
+	public static void main(String[] args) throws IOException {
+		Format format = Format.RGBA8;
+		boolean mipmaps = false, pot = false;
+		List<String> images = new ArrayList<>();
+		for (int i = 0; i < args.length; i++)
+			if (args[i].equals("-format")) format = Format.valueOf(args[++i]);
+			else if (args[i].equals("-mipmaps")) mipmaps = true;
+			else if (args[i].equals("-pot")) pot = true;
+			else images.add(args[i]);
+
+		for (String path : images) {
+			BufferedImage image = ImageIO.read(new File(path));
+			if (image == null) throw new IOException("Unsupported image format: " + path);
+			String name = path.lastIndexOf('.') > path.lastIndexOf(File.separatorChar) ? path.substring(0, path.lastIndexOf('.')) : path;
+			try (OutputStream out = new BufferedOutputStream(new FileOutputStream(name + TextureContainer.EXTENSION))) {
+				convert(image, format, mipmaps, pot).write(out);
+			}
+		}
+	}
+
+	/** @param mipmaps whether to add levels down to 1x1, box filtered
+	 * @param pot whether to pad the image to a power of two */
+	public static TextureContainer convert(BufferedImage image, Format format, boolean mipmaps, boolean pot) {
+		List<ByteBuffer> levels = new ArrayList<>();
+		ImageData level = ImageDecoder.decode(image, pot);
+		final int width = level.texWidth, height = level.texHeight;
+		for (;;) {
+			levels.add(encode(level, format));
+			if (!mipmaps || level.texWidth == 1 && level.texHeight == 1) break;
+			ImageData next = ImageDecoder.mipmap(level);
+			level.free();
+			level = next;
+		}
+		level.free();
+		return new TextureContainer(format, width, height, levels.toArray(new ByteBuffer[levels.size()]));
+	}
+
+	/** @return the pixels of <code>level</code> in <code>format</code>, in a buffer of their own */
+	static ByteBuffer encode(ImageData level, Format format) {
+		final int width = level.texWidth, height = level.texHeight;
+		final int channels = level.format == GL10.GL_RGBA ? 4 : 3;
+		final ByteBuffer src = level.pixels;
+		final ByteBuffer dst = ByteBuffer.allocateDirect(format.getSize(width, height)).order(ByteOrder.LITTLE_ENDIAN);
+		switch (format) {
+		case RGBA8:
+			for (int i = 0; i < width * height * channels; i += channels)
+				dst.put(src.get(i)).put(src.get(i + 1)).put(src.get(i + 2)).put(channels == 4 ? src.get(i + 3) : (byte) 0xFF);
+			break;
+		case RGB565:
+			for (int i = 0; i < width * height * channels; i += channels)
+				dst.putShort((short) ((src.get(i) & 0xF8) << 8 | (src.get(i + 1) & 0xFC) << 3 | (src.get(i + 2) & 0xFF) >> 3));
+			break;
+		case RGBA4444:
+			for (int i = 0; i < width * height * channels; i += channels)
+				dst.putShort((short) ((src.get(i) & 0xF0) << 8 | (src.get(i + 1) & 0xF0) << 4 | src.get(i + 2) & 0xF0 | (channels == 4 ? (src.get(i + 3) & 0xFF) >> 4 : 0xF)));
+			break;
+		default:
+			final int[] block = new int[16 * 4];
+			for (int by = 0; by < height; by += 4)
+				for (int bx = 0; bx < width; bx += 4) {
+					for (int y = 0; y < 4; y++) // Repeating the last row or column of partial blocks
+						for (int x = 0; x < 4; x++) {
+							final int i = (Math.min(by + y, height - 1) * width + Math.min(bx + x, width - 1)) * channels;
+							for (int c = 0; c < 4; c++)
+								block[(y * 4 + x) * 4 + c] = c < channels ? src.get(i + c) & 0xFF : 0xFF;
+						}
+					if (format == Format.ETC1) encodeETC1(block, dst);
+					else {
+						if (format == Format.DXT5) encodeDXT5Alpha(block, dst);
+						encodeDXT1(block, dst);
+					}
+				}
+		}
+		dst.flip();
+		return dst;
+	}
+
+	/** Encodes the colors of a block of 16 RGBA pixels, row by row, with the two colors bounding them. */
+	private static void encodeDXT1(int[] block, ByteBuffer dst) {
+		int r0 = 0, g0 = 0, b0 = 0, r1 = 255, g1 = 255, b1 = 255;
+		for (int i = 0; i < 64; i += 4) {
+			r0 = Math.max(r0, block[i]);
+			g0 = Math.max(g0, block[i + 1]);
+			b0 = Math.max(b0, block[i + 2]);
+			r1 = Math.min(r1, block[i]);
+			g1 = Math.min(g1, block[i + 1]);
+			b1 = Math.min(b1, block[i + 2]);
+		}
+		final int c0 = (r0 & 0xF8) << 8 | (g0 & 0xFC) << 3 | b0 >> 3, c1 = (r1 & 0xF8) << 8 | (g1 & 0xFC) << 3 | b1 >> 3;
+		dst.putShort((short) c0).putShort((short) c1);
+		if (c0 == c1) { // A single color, every index 0
+			dst.putInt(0);
+			return;
+		}
+
+		final int[] palette = new int[12];
+		expand565(c0, palette, 0);
+		expand565(c1, palette, 3);
+		for (int c = 0; c < 3; c++) {
+			palette[6 + c] = (2 * palette[c] + palette[3 + c]) / 3;
+			palette[9 + c] = (palette[c] + 2 * palette[3 + c]) / 3;
+		}
+		int indices = 0;
+		for (int p = 0; p < 16; p++) {
+			int best = 0, bestError = Integer.MAX_VALUE;
+			for (int j = 0; j < 4; j++) {
+				final int dr = block[p * 4] - palette[j * 3], dg = block[p * 4 + 1] - palette[j * 3 + 1], db = block[p * 4 + 2] - palette[j * 3 + 2];
+				final int error = dr * dr + dg * dg + db * db;
+				if (error < bestError) {
+					bestError = error;
+					best = j;
+				}
+			}
+			indices |= best << 2 * p;
+		}
+		dst.putInt(indices);
+	}
+
+	private static void expand565(int color, int[] rgb, int offset) {
+		final int r = color >> 11 & 0x1F, g = color >> 5 & 0x3F, b = color & 0x1F;
+		rgb[offset] = r << 3 | r >> 2;
+		rgb[offset + 1] = g << 2 | g >> 4;
+		rgb[offset + 2] = b << 3 | b >> 2;
+	}
+
+	/** Encodes the alpha of a block between its smallest and largest alpha, interpolating six steps between. */
+	private static void encodeDXT5Alpha(int[] block, ByteBuffer dst) {
+		int a0 = 0, a1 = 255;
+		for (int i = 3; i < 64; i += 4) {
+			a0 = Math.max(a0, block[i]);
+			a1 = Math.min(a1, block[i]);
+		}
+		dst.put((byte) a0).put((byte) a1);
+		long indices = 0;
+		if (a0 > a1) for (int p = 0; p < 16; p++) {
+			// Index 0 is a0 and 1 is a1, 2 to 7 go from a0 towards a1
+			final int step = Math.round((a0 - block[p * 4 + 3]) * 7f / (a0 - a1));
+			indices |= (long) (step == 0 ? 0 : step == 7 ? 1 : step + 1) << 3 * p;
+		}
+		for (int i = 0; i < 6; i++)
+			dst.put((byte) (indices >> 8 * i));
+	}
+
+	/** Encodes a block in individual mode, each half having the average of its colors as base, trying side by side and
+	 * stacked halves. */
+	private static void encodeETC1(int[] block, ByteBuffer dst) {
+		long best = 0;
+		int bestError = Integer.MAX_VALUE;
+		for (int flip = 0; flip < 2; flip++) {
+			long bits = (long) flip << 32;
+			int error = 0;
+			for (int half = 0; half < 2; half++) {
+				int r = 0, g = 0, b = 0;
+				for (int p = 0; p < 16; p++)
+					if (inHalf(p, flip, half)) {
+						r += block[p * 4];
+						g += block[p * 4 + 1];
+						b += block[p * 4 + 2];
+					}
+				// Average of 8 pixels, to 4 bits
+				final int r4 = Math.min(15, (r * 15 + 8 * 255 / 2) / (8 * 255)), g4 = Math.min(15, (g * 15 + 8 * 255 / 2) / (8 * 255)), b4 = Math.min(15, (b * 15 + 8 * 255 / 2) / (8 * 255));
+				final int br = r4 << 4 | r4, bg = g4 << 4 | g4, bb = b4 << 4 | b4;
+
+				int bestTable = 0, bestTableError = Integer.MAX_VALUE;
+				long bestIndices = 0;
+				for (int table = 0; table < 8; table++) {
+					int tableError = 0;
+					long indices = 0;
+					for (int p = 0; p < 16; p++) {
+						if (!inHalf(p, flip, half)) continue;
+						int bestIndex = 0, bestIndexError = Integer.MAX_VALUE;
+						for (int j = 0; j < 4; j++) {
+							final int m = ETC1_MODIFIERS[table][j];
+							final int dr = block[p * 4] - clamp(br + m), dg = block[p * 4 + 1] - clamp(bg + m), db = block[p * 4 + 2] - clamp(bb + m);
+							final int e = dr * dr + dg * dg + db * db;
+							if (e < bestIndexError) {
+								bestIndexError = e;
+								bestIndex = j;
+							}
+						}
+						tableError += bestIndexError;
+						final int bit = (p & 3) * 4 + (p >> 2); // Pixels are numbered column by column
+						indices |= (long) (bestIndex >> 1) << 16 + bit | (long) (bestIndex & 1) << bit;
+					}
+					if (tableError < bestTableError) {
+						bestTableError = tableError;
+						bestTable = table;
+						bestIndices = indices;
+					}
+				}
+				error += bestTableError;
+				final int shift = half == 0 ? 4 : 0;
+				bits |= (long) r4 << 56 + shift | (long) g4 << 48 + shift | (long) b4 << 40 + shift;
+				bits |= (long) bestTable << (half == 0 ? 37 : 34);
+				bits |= bestIndices;
+			}
+			if (error < bestError) {
+				bestError = error;
+				best = bits;
+			}
+		}
+		dst.order(ByteOrder.BIG_ENDIAN).putLong(best).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	/** @return whether pixel <code>p</code>, numbered row by row, is in the given half of a block */
+	private static boolean inHalf(int p, int flip, int half) {
+		return (flip == 0 ? (p & 3) >> 1 : p >> 3) == half;
+	}
+
+	private static int clamp(int value) {
+		return value < 0 ? 0 : value > 255 ? 255 : value;
+	}
+}